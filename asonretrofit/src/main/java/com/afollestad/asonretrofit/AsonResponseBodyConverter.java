@@ -1,7 +1,6 @@
 package com.afollestad.asonretrofit;
 
 import com.afollestad.ason.Ason;
-import com.afollestad.ason.AsonArray;
 import java.io.IOException;
 import okhttp3.ResponseBody;
 import retrofit2.Converter;
@@ -28,12 +27,10 @@ class AsonResponseBodyConverter<T> implements Converter<ResponseBody, T> {
   public T convert(ResponseBody value) throws IOException {
     String body = value.string();
     switch (mode) {
-      case Array:
-        return (T) new AsonArray(body).deserialize(targetType);
       case List:
-        return (T) new AsonArray(body).deserializeList(targetType);
+        return (T) Ason.deserializeList(body, targetType);
       default:
-        return (T) new Ason(body).deserialize(targetType);
+        return (T) Ason.deserialize(body, targetType);
     }
   }
 }
@@ -6,9 +6,15 @@ import static com.afollestad.ason.Util.isNull;
 import static com.afollestad.ason.Util.isPrimitive;
 import static com.afollestad.ason.Util.splitPath;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.json.JSONArray;
@@ -20,25 +26,134 @@ import org.json.JSONObject;
 public class AsonArray<T> implements Iterable<T> {
 
   private final JSONArray array;
+  /** Holds the cache of printed text, see {@link Ason#cacheFragments(boolean)}. */
+  private final FragmentCache.Holder fragments;
 
   public AsonArray() {
-    array = new JSONArray();
+    this(new JSONArray());
   }
 
   public AsonArray(@Nullable String json) {
+    this(json, AsonStringCache.KEYS);
+  }
+
+  /**
+   * Parses with the given cache for repeated keys and values, see {@link AsonStringCache}. Null
+   * turns caching off.
+   */
+  public AsonArray(@Nullable String json, @Nullable AsonStringCache cache) {
+    this(json, cache, AsonLimits.DEFAULT);
+  }
+
+  /**
+   * Parses within the given limits, see {@link AsonLimits}. Text outside of RFC 8259 is handed to
+   * org.json, see {@link Ason#Ason(String, AsonStringCache, AsonLimits)}.
+   */
+  public AsonArray(
+      @Nullable String json, @Nullable AsonStringCache cache, @NotNull AsonLimits limits) {
+    fragments = new FragmentCache.Holder();
     if (json == null) {
       array = new JSONArray();
       return;
     }
+    JSONArray parsed;
     try {
-      array = new JSONArray(json);
+      char[] chars = json.toCharArray();
+      parsed = AsonParser.parseArray(chars, 0, chars.length, cache, limits);
     } catch (JSONException e) {
-      throw new InvalidJsonException(json, e);
+      final InvalidJsonException error = InvalidJsonException.from(e);
+      parsed = AsonParser.parseArrayLenient(json, error, limits);
+      if (parsed == null) {
+        throw error;
+      }
     }
+    array = parsed;
   }
 
   AsonArray(@NotNull JSONArray internalArray) {
+    this(internalArray, new FragmentCache.Holder());
+  }
+
+  /** Wraps an array nested in a document, sharing the document's cached text. */
+  AsonArray(@NotNull JSONArray internalArray, @NotNull FragmentCache.Holder fragments) {
     this.array = internalArray;
+    this.fragments = fragments;
+  }
+
+  /** Parses UTF-8 encoded JSON without decoding it into a String first. */
+  public static <T> AsonArray<T> fromBytes(@NotNull byte[] json) {
+    return fromReader(new AsonReader(json));
+  }
+
+  public static <T> AsonArray<T> fromBytes(@NotNull byte[] json, int offset, int length) {
+    return fromReader(new AsonReader(json, offset, length));
+  }
+
+  /** Parses the remaining UTF-8 bytes of the buffer. The buffer's position isn't changed. */
+  public static <T> AsonArray<T> fromBuffer(@NotNull ByteBuffer json) {
+    return fromReader(new AsonReader(json));
+  }
+
+  /**
+   * Memory maps a UTF-8 file and parses it, so only the parsed values take up heap space. Files
+   * larger than 2GB are fine.
+   */
+  public static <T> AsonArray<T> fromFile(@NotNull Path file) throws IOException {
+    AsonReader reader = AsonReader.fromFile(file);
+    try {
+      return readDocument(reader);
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Reads an array from a blocking channel until the channel ends. The channel isn't closed. See
+   * {@link AsonChannelReader} for non-blocking channels.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> AsonArray<T> fromChannel(@NotNull ReadableByteChannel channel)
+      throws IOException {
+    return AsonChannelReader.readValue(channel, AsonArray.class, false);
+  }
+
+  /**
+   * Parses a large array on all cores. A quick scan splits the items into chunks, which are parsed
+   * on a ForkJoinPool and joined in order. Small arrays are simply parsed on the calling thread.
+   */
+  public static <T> AsonArray<T> parseParallel(@NotNull String json) {
+    return new AsonArray<>(new ParallelArray(json, ParallelArray.CHUNK_SIZE).parse(null));
+  }
+
+  public static <T> AsonArray<T> parseParallel(
+      @NotNull String json, @NotNull ExecutorService executor) {
+    return new AsonArray<>(new ParallelArray(json, ParallelArray.CHUNK_SIZE).parse(executor));
+  }
+
+  public static <T> AsonArray<T> parseParallel(@NotNull byte[] json) {
+    return new AsonArray<>(new ParallelArray(json, ParallelArray.CHUNK_SIZE).parse(null));
+  }
+
+  public static <T> AsonArray<T> parseParallel(
+      @NotNull byte[] json, @NotNull ExecutorService executor) {
+    return new AsonArray<>(new ParallelArray(json, ParallelArray.CHUNK_SIZE).parse(executor));
+  }
+
+  private static <T> AsonArray<T> fromReader(AsonReader reader) {
+    try {
+      return readDocument(reader);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static <T> AsonArray<T> readDocument(AsonReader reader) throws IOException {
+    if (reader.peek() != AsonToken.BEGIN_ARRAY) {
+      throw new InvalidJsonException("A JSON array text must begin with '['");
+    }
+    AsonArray<T> result = reader.nextArray();
+    reader.peek(); // rejects trailing content
+    return result;
   }
 
   private void putInternal(Object object) {
@@ -51,8 +166,10 @@ public class AsonArray<T> implements Iterable<T> {
           || object instanceof JSONArray) {
         insertObject = object;
       } else if (object instanceof Ason) {
+        fragments.join(((Ason) object).fragments());
         insertObject = ((Ason) object).toStockJson();
       } else if (object instanceof AsonArray) {
+        fragments.join(((AsonArray) object).fragments);
         insertObject = ((AsonArray) object).toStockJson();
       } else if (object.getClass().isArray()) {
         insertObject = AsonSerializer.get().serializeArray(object);
@@ -71,6 +188,10 @@ public class AsonArray<T> implements Iterable<T> {
         }
       }
     }
+    final FragmentCache fragments = this.fragments.get();
+    if (fragments != null) {
+      fragments.invalidate(array);
+    }
     array.put(insertObject);
   }
 
@@ -116,9 +237,9 @@ public class AsonArray<T> implements Iterable<T> {
   public T get(int index) {
     Object value = array.opt(index);
     if (value instanceof JSONObject) {
-      value = new Ason((JSONObject) value);
+      value = new Ason((JSONObject) value, fragments);
     } else if (value instanceof JSONArray) {
-      value = new AsonArray((JSONArray) value);
+      value = new AsonArray((JSONArray) value, fragments);
     }
     if (isNull(value)) {
       return null;
@@ -135,7 +256,7 @@ public class AsonArray<T> implements Iterable<T> {
     if (isNull(object)) {
       return null;
     }
-    return new Ason(object);
+    return new Ason(object, fragments);
   }
 
   @Nullable
@@ -147,7 +268,7 @@ public class AsonArray<T> implements Iterable<T> {
     if (isNull(ary)) {
       return null;
     }
-    return new AsonArray<>(ary);
+    return new AsonArray<>(ary, fragments);
   }
 
   Object getInternal(int index, @Nullable String path) {
@@ -205,7 +326,8 @@ public class AsonArray<T> implements Iterable<T> {
   public T get(int index, @Nullable String path, Class<T> cls) {
     if (isList(cls)) {
       throw new IllegalStateException(
-          "Use com.afollestad.ason.AsonArray.getList(...) to retrieve List<> children instead of get(...).");
+          "Use com.afollestad.ason.AsonArray.getList(...) to retrieve List<> children instead of"
+              + " get(...).");
     }
 
     Object value = getInternal(index, path);
@@ -235,6 +357,10 @@ public class AsonArray<T> implements Iterable<T> {
     if (index < 0 || index > array.length() - 1) {
       throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for this array!");
     }
+    final FragmentCache fragments = this.fragments.get();
+    if (fragments != null) {
+      fragments.invalidate(array);
+    }
     array.remove(index);
     return this;
   }
@@ -292,24 +418,62 @@ public class AsonArray<T> implements Iterable<T> {
     return array;
   }
 
+  FragmentCache.Holder fragments() {
+    return fragments;
+  }
+
   @Override
   public Iterator<T> iterator() {
     return toList().iterator();
   }
 
+  /** Caches printed text like {@link Ason#cacheFragments(boolean)}. */
+  public AsonArray<T> cacheFragments(boolean enabled) {
+    if (!enabled) {
+      fragments.set(null);
+    } else if (fragments.get() == null) {
+      fragments.set(new FragmentCache());
+    }
+    return this;
+  }
+
   @Override
   public String toString() {
-    return array.toString();
+    try {
+      return AsonPrinter.print(array, 0, getClass(), fragments.get());
+    } catch (JSONException e) {
+      return null;
+    }
   }
 
   public String toString(int indentSpaces) {
     try {
-      return array.toString(indentSpaces);
+      return AsonPrinter.print(array, indentSpaces, getClass(), fragments.get());
     } catch (JSONException e) {
       throw new IllegalStateException(e);
     }
   }
 
+  /** Writes the same UTF-8 text toString() gives to a blocking channel, without building it. */
+  public void writeTo(@NotNull WritableByteChannel channel) throws IOException {
+    final FragmentCache fragments = this.fragments.get();
+    if (fragments != null) {
+      AsonChannelWriter.writeText(channel, AsonPrinter.print(array, 0, getClass(), fragments));
+    } else {
+      AsonChannelWriter.writeValue(channel, this);
+    }
+  }
+
+  /** Writes this as the writer's next value, without building a String first. */
+  public void writeTo(@NotNull AsonWriter writer) throws IOException {
+    final FragmentCache fragments = this.fragments.get();
+    if (fragments != null && writer.getIndent() == 0) {
+      writer.rawValue(AsonPrinter.print(array, 0, getClass(), fragments));
+    } else {
+      writer.value(this);
+    }
+  }
+
   public <R> R deserialize(Class<?> cls) {
     return (R) Ason.deserialize(this, cls);
   }
@@ -0,0 +1,87 @@
+package com.afollestad.ason;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Iterates over the items of a top level JSON array, binding one item at a time. Only the item
+ * being returned is held in memory, never the whole array. See {@link
+ * Ason#deserializeStream(java.io.Reader, Class)}.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+public class AsonArrayReader<T> implements Iterator<T>, Iterable<T>, Closeable {
+
+  private final AsonReader reader;
+  private final Object holder;
+  private final boolean recursive;
+  private boolean begun;
+  private boolean ended;
+
+  public AsonArrayReader(@NotNull AsonReader reader, @NotNull Class<T> cls, boolean recursive) {
+    this.reader = reader;
+    this.holder = Array.newInstance(cls, 1);
+    this.recursive = recursive;
+  }
+
+  public AsonArrayReader(@NotNull AsonReader reader, @NotNull Class<T> cls) {
+    this(reader, cls, false);
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (ended) {
+      return false;
+    }
+    try {
+      if (!begun) {
+        if (reader.peek() != AsonToken.BEGIN_ARRAY) {
+          throw new InvalidJsonException("A JSON array text must begin with '['");
+        }
+        reader.beginArray();
+        begun = true;
+      }
+      if (reader.hasNext()) {
+        return true;
+      }
+      reader.endArray();
+      reader.peek(); // rejects trailing content
+      ended = true;
+      return false;
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    try {
+      return AsonSerializer.get().readListItem(reader, holder, recursive);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+  @NotNull
+  @Override
+  public Iterator<T> iterator() {
+    return this;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+}
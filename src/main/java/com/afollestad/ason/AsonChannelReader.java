@@ -0,0 +1,152 @@
+package com.afollestad.ason;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Feeds UTF-8 JSON from a channel into an {@link AsonPushParser}, through pooled direct buffers. On
+ * a non-blocking channel, {@link #read()} returns as soon as the channel has nothing more for now,
+ * call it again once the channel is readable. The static readValue() methods read a whole value
+ * from blocking and asynchronous file channels.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class AsonChannelReader implements Closeable {
+
+  private final ReadableByteChannel channel;
+  private final AsonPushParser<?> parser;
+  private boolean done;
+
+  public AsonChannelReader(
+      @NotNull ReadableByteChannel channel, @NotNull AsonPushParser<?> parser) {
+    this.channel = channel;
+    this.parser = parser;
+  }
+
+  /**
+   * Reads and parses everything the channel has right now. Returns true once the channel has
+   * reached its end, after the parser has checked that the input was complete, false if the channel
+   * would block. No buffer is held on to in between.
+   */
+  public boolean read() throws IOException {
+    if (done) {
+      return true;
+    }
+    final ByteBuffer buffer = BufferPool.acquire();
+    try {
+      while (true) {
+        final int read = channel.read(buffer);
+        if (read < 0) {
+          done = true;
+          parser.end();
+          return true;
+        } else if (read == 0) {
+          return false;
+        }
+        buffer.flip();
+        parser.feed(buffer);
+        buffer.clear();
+      }
+    } finally {
+      BufferPool.release(buffer);
+    }
+  }
+
+  /** Closes the channel. */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  //
+  ////// WHOLE VALUES
+  //
+
+  /**
+   * Reads a single value from a blocking channel until it ends, and binds it to the class. The
+   * channel isn't closed.
+   */
+  @Nullable
+  public static <T> T readValue(
+      @NotNull ReadableByteChannel channel, @NotNull Class<T> cls, boolean recursive)
+      throws IOException {
+    if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+      throw new IllegalBlockingModeException();
+    }
+    final Holder<T> holder = new Holder<>();
+    final AsonChannelReader reader =
+        new AsonChannelReader(channel, new AsonPushParser<>(cls, recursive, holder));
+    while (!reader.read()) {
+      // a blocking channel only returns nothing at its end
+    }
+    return holder.value;
+  }
+
+  /**
+   * Reads a whole file asynchronously and binds its value to the class. The handler is invoked on
+   * one of the channel's threads, either with the value or with whatever went wrong.
+   */
+  public static <T, A> void readValue(
+      @NotNull final AsynchronousFileChannel channel,
+      @NotNull Class<T> cls,
+      boolean recursive,
+      @Nullable final A attachment,
+      @NotNull final CompletionHandler<T, ? super A> handler) {
+    final Holder<T> holder = new Holder<>();
+    final AsonPushParser<T> parser = new AsonPushParser<>(cls, recursive, holder);
+    final ByteBuffer buffer = BufferPool.acquire();
+    channel.read(
+        buffer,
+        0,
+        null,
+        new CompletionHandler<Integer, Void>() {
+          private long position;
+
+          @Override
+          public void completed(Integer read, Void ignored) {
+            try {
+              if (read < 0) {
+                parser.end();
+                BufferPool.release(buffer);
+              } else {
+                position += read;
+                buffer.flip();
+                parser.feed(buffer);
+                buffer.clear();
+                channel.read(buffer, position, null, this);
+                return;
+              }
+            } catch (Throwable t) {
+              failed(t, null);
+              return;
+            }
+            handler.completed(holder.value, attachment);
+          }
+
+          @Override
+          public void failed(Throwable t, Void ignored) {
+            BufferPool.release(buffer);
+            handler.failed(t, attachment);
+          }
+        });
+  }
+
+  private static final class Holder<T> implements AsonPushParser.Callback<T> {
+
+    T value;
+
+    @Override
+    public void onValue(@Nullable T value) {
+      this.value = value;
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package com.afollestad.ason;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Writes a value to a channel as compact UTF-8 JSON, the same text toString() gives. The text is
+ * printed a pooled direct buffer at a time, never as a whole. On a non-blocking channel, {@link
+ * #write()} stops when the channel would block, call it again once the channel is writable. The
+ * value can be an {@link Ason}, an {@link AsonArray}, a List, an array or an object to serialize.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class AsonChannelWriter {
+
+  private final WritableByteChannel channel;
+  private final ChunkedPrinter printer;
+  /** Holds the bytes the channel didn't take yet, only while write() has to stop early. */
+  private ByteBuffer buffer;
+
+  private boolean printed;
+  private boolean done;
+
+  public AsonChannelWriter(@NotNull WritableByteChannel channel, @Nullable Object value) {
+    this.channel = channel;
+    this.printer = new ChunkedPrinter(value);
+  }
+
+  /** Writes as much as the channel takes. Returns true once everything was written. */
+  public boolean write() throws IOException {
+    if (done) {
+      return true;
+    }
+    if (buffer == null) {
+      buffer = BufferPool.acquire();
+    }
+    while (true) {
+      if (!printed && buffer.hasRemaining()) {
+        printed = printer.fill(buffer);
+      }
+      buffer.flip();
+      channel.write(buffer);
+      if (buffer.hasRemaining()) {
+        buffer.compact();
+        return false;
+      }
+      buffer.clear();
+      if (printed) {
+        BufferPool.release(buffer);
+        buffer = null;
+        done = true;
+        return true;
+      }
+    }
+  }
+
+  //
+  ////// WHOLE VALUES
+  //
+
+  /** Writes the value to a blocking channel. The channel isn't closed. */
+  public static void writeValue(@NotNull WritableByteChannel channel, @Nullable Object value)
+      throws IOException {
+    if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+      throw new IllegalBlockingModeException();
+    }
+    final AsonChannelWriter writer = new AsonChannelWriter(channel, value);
+    while (!writer.write()) {
+      // a blocking channel takes everything
+    }
+  }
+
+  /** Encodes text that's already printed to a blocking channel. */
+  static void writeText(WritableByteChannel channel, String json) throws IOException {
+    if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+      throw new IllegalBlockingModeException();
+    }
+    final Utf8Writer out = new Utf8Writer(Channels.newOutputStream(channel));
+    try {
+      out.write(json);
+      out.drain();
+    } finally {
+      out.release();
+    }
+  }
+
+  /**
+   * Writes the value to a file asynchronously, starting at the given position. The handler gets the
+   * number of bytes written, on one of the channel's threads.
+   */
+  public static <A> void writeValue(
+      @NotNull final AsynchronousFileChannel channel,
+      long position,
+      @Nullable Object value,
+      @Nullable final A attachment,
+      @NotNull final CompletionHandler<Long, ? super A> handler) {
+    final ChunkedPrinter printer = new ChunkedPrinter(value);
+    final ByteBuffer buffer = BufferPool.acquire();
+    final long start = position;
+    buffer.limit(0);
+    new CompletionHandler<Integer, Void>() {
+      private long position = start;
+      private boolean printed;
+
+      @Override
+      public void completed(Integer written, Void ignored) {
+        position += written;
+        if (printed && !buffer.hasRemaining()) {
+          BufferPool.release(buffer);
+          handler.completed(position - start, attachment);
+          return;
+        }
+        try {
+          if (!buffer.hasRemaining()) {
+            buffer.clear();
+            printed = printer.fill(buffer);
+            buffer.flip();
+          }
+          channel.write(buffer, position, null, this);
+        } catch (Throwable t) {
+          failed(t, null);
+        }
+      }
+
+      @Override
+      public void failed(Throwable t, Void ignored) {
+        BufferPool.release(buffer);
+        handler.failed(t, attachment);
+      }
+    }.completed(0, null);
+  }
+}
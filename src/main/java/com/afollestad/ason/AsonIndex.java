@@ -0,0 +1,473 @@
+package com.afollestad.ason;
+
+import static com.afollestad.ason.AsonParser.C_PLAIN;
+import static com.afollestad.ason.AsonParser.HEX_VALUE;
+import static com.afollestad.ason.AsonParser.STRING_CLASS;
+import static com.afollestad.ason.AsonParser.WHITESPACE;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Records where every value of a document starts and ends without decoding any of them, so a lazy
+ * {@link Ason} can decode just the parts that are looked up. The text is fully checked up front,
+ * duplicate keys included, so it's rejected the same way a full parse would reject it.
+ *
+ * <p>Nodes are stored in document order as (start, end, next) triples, next being the first node
+ * after the node's subtree. Object members are a key node followed by their value node.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+final class AsonIndex {
+
+  private static final int STRIDE = 3;
+  /** Objects with up to this many keys are checked for duplicates without a hash table. */
+  private static final int LINEAR_KEYS = 8;
+
+  private final char[] buf;
+  private final int limit;
+  private final AsonLimits limits;
+  private int[] nodes = new int[STRIDE * 64];
+  private int count;
+  /** Raw (start, end) spans of the keys of every object being indexed, innermost last. */
+  private int[] keys = new int[32];
+
+  private int keyCount;
+  private int depth;
+  private int line = 1;
+  private int lineStart;
+
+  private AsonIndex(char[] buf, AsonLimits limits) {
+    if (buf.length > limits.maxInputLength) {
+      throw AsonLimits.inputExceeded(limits.maxInputLength);
+    }
+    this.buf = buf;
+    this.limit = buf.length;
+    this.limits = limits;
+  }
+
+  /** Indexes a document which must be an object, its root is node 0. */
+  static AsonIndex indexObject(String json, AsonLimits limits) {
+    AsonIndex index = new AsonIndex(json.toCharArray(), limits);
+    int p = index.skipWhitespace(0);
+    if (p >= index.limit || index.buf[p] != '{') {
+      throw index.syntaxError("A JSON object text must begin with '{'", p);
+    }
+    p = index.skipWhitespace(index.readValue(p, true));
+    if (p < index.limit) {
+      throw index.syntaxError("Unexpected trailing content", p);
+    }
+    return index;
+  }
+
+  /** Returns the first char of the node's value, which tells its type. */
+  char kind(int node) {
+    return buf[nodes[node * STRIDE]];
+  }
+
+  /** Returns the value node of the object member with the given name, or -1 if there isn't one. */
+  int find(int object, String name) {
+    final int end = nodes[object * STRIDE + 2];
+    for (int key = object + 1; key < end; key = nodes[(key + 1) * STRIDE + 2]) {
+      if (keyEquals(key, name)) {
+        return key + 1;
+      }
+    }
+    return -1;
+  }
+
+  Object decode(int node) {
+    int start = nodes[node * STRIDE];
+    return AsonParser.parseValue(buf, start, nodes[node * STRIDE + 1] - start, limits);
+  }
+
+  JSONObject decodeObject(int node) {
+    int start = nodes[node * STRIDE];
+    return AsonParser.parseObject(
+        buf, start, nodes[node * STRIDE + 1] - start, AsonStringCache.KEYS, limits);
+  }
+
+  private boolean keyEquals(int key, String name) {
+    final int start = nodes[key * STRIDE] + 1;
+    final int length = nodes[key * STRIDE + 1] - 1 - start;
+    final int nameLength = name.length();
+    int i = 0;
+    for (; i < length && i < nameLength; i++) {
+      char c = buf[start + i];
+      if (c == '\\') {
+        return name.equals(decode(key));
+      } else if (c != name.charAt(i)) {
+        return false;
+      }
+    }
+    if (i == length) {
+      return i == nameLength;
+    }
+    // The raw key is longer than the name, but escapes could still make them equal.
+    for (; i < length; i++) {
+      if (buf[start + i] == '\\') {
+        return name.equals(decode(key));
+      }
+    }
+    return false;
+  }
+
+  //
+  ////// INDEXING
+  //
+
+  private int addNode(int start) {
+    if ((count + 1) * STRIDE > nodes.length) {
+      int[] grown = new int[nodes.length * 2];
+      System.arraycopy(nodes, 0, grown, 0, nodes.length);
+      nodes = grown;
+    }
+    nodes[count * STRIDE] = start;
+    return count++;
+  }
+
+  private void finishNode(int node, int end) {
+    nodes[node * STRIDE + 1] = end;
+    nodes[node * STRIDE + 2] = count;
+  }
+
+  private int skipWhitespace(int p) {
+    while (p < limit) {
+      char c = buf[p];
+      if (c >= 128 || !WHITESPACE[c]) {
+        return p;
+      } else if (c == '\n') {
+        line++;
+        lineStart = p + 1;
+      }
+      p++;
+    }
+    return p;
+  }
+
+  /**
+   * Indexes the value starting at or after p, returns the position after it. Arrays are always
+   * decoded as a whole, so what's inside of them is only checked, not recorded.
+   */
+  private int readValue(int p, boolean record) {
+    p = skipWhitespace(p);
+    if (p >= limit) {
+      throw syntaxError("Unexpected end of input", p);
+    }
+    final int node = record ? addNode(p) : -1;
+    final char c = buf[p];
+    int end;
+    switch (c) {
+      case '{':
+        end = readObject(p, record);
+        break;
+      case '[':
+        end = readArray(p);
+        break;
+      case '"':
+        end = skipString(p + 1);
+        break;
+      case 't':
+        end = skipLiteral(p, "true");
+        break;
+      case 'f':
+        end = skipLiteral(p, "false");
+        break;
+      case 'n':
+        end = skipLiteral(p, "null");
+        break;
+      default:
+        if (c != '-' && (c < '0' || c > '9')) {
+          throw syntaxError("Unexpected character '" + c + "'", p);
+        }
+        end = AsonParser.numberEnd(buf, p, limit);
+        checkString(p, end - p);
+        if (!AsonParser.isValidNumber(buf, p, end)) {
+          throw syntaxError("Malformed number", p);
+        }
+    }
+    if (record) {
+      finishNode(node, end);
+    }
+    return end;
+  }
+
+  private int readObject(int p, boolean record) {
+    enter(p);
+    p = skipWhitespace(p + 1);
+    if (p < limit && buf[p] == '}') {
+      depth--;
+      return p + 1;
+    }
+    final int firstKey = keyCount;
+    int[] table = null;
+    int size = 0;
+    while (true) {
+      if (p >= limit || buf[p] != '"') {
+        throw expected("a string key", p);
+      } else if (size++ == limits.maxObjectSize) {
+        throw locate(AsonLimits.objectExceeded(limits.maxObjectSize), p);
+      }
+      int key = record ? addNode(p) : -1;
+      final int keyStart = p + 1;
+      p = skipString(keyStart);
+      if (record) {
+        finishNode(key, p);
+      }
+      addKey(keyStart, p - 1);
+      p = skipWhitespace(p);
+      if (p >= limit || buf[p] != ':') {
+        throw expected("a ':' after a key", p);
+      }
+      p = readValue(p + 1, record);
+      // Checked after the value, where the parser would notice the duplicate.
+      table = checkUnique(firstKey, table, p);
+      p = skipWhitespace(p);
+      if (p < limit && buf[p] == '}') {
+        depth--;
+        keyCount = firstKey;
+        return p + 1;
+      } else if (p >= limit || buf[p] != ',') {
+        throw expected("a ',' or '}'", p);
+      }
+      p = skipWhitespace(p + 1);
+    }
+  }
+
+  private void addKey(int start, int end) {
+    if ((keyCount + 1) * 2 > keys.length) {
+      int[] grown = new int[keys.length * 2];
+      System.arraycopy(keys, 0, grown, 0, keys.length);
+      keys = grown;
+    }
+    keys[keyCount * 2] = start;
+    keys[keyCount * 2 + 1] = end;
+    keyCount++;
+  }
+
+  /**
+   * Throws if the newest key of the object whose keys start at first repeats one of its others.
+   * Small objects are scanned, larger ones get a table of their keys, which is returned.
+   */
+  private int[] checkUnique(int first, int[] table, int pos) {
+    final int last = keyCount - 1;
+    final int size = keyCount - first;
+    if (size <= LINEAR_KEYS) {
+      for (int key = first; key < last; key++) {
+        if (sameKey(key, last)) {
+          throw duplicateKey(last, pos);
+        }
+      }
+      return null;
+    }
+    if (table == null || size * 2 > table.length) {
+      table = new int[Integer.highestOneBit(size) * 4];
+      for (int key = first; key < last; key++) {
+        addToTable(table, key, pos);
+      }
+    }
+    addToTable(table, last, pos);
+    return table;
+  }
+
+  /** Slots hold key + 1, so that 0 means empty. */
+  private void addToTable(int[] table, int key, int pos) {
+    final int mask = table.length - 1;
+    int slot = keyHash(key) & mask;
+    while (table[slot] != 0) {
+      if (sameKey(table[slot] - 1, key)) {
+        throw duplicateKey(key, pos);
+      }
+      slot = (slot + 1) & mask;
+    }
+    table[slot] = key + 1;
+  }
+
+  private int keyHash(int key) {
+    int hash = 0;
+    for (int p = keys[key * 2], end = keys[key * 2 + 1]; p < end; p++) {
+      char c = buf[p];
+      if (c == '\\') {
+        c = unescape(++p);
+        if (buf[p] == 'u') {
+          p += 4;
+        }
+      }
+      hash = 31 * hash + c;
+    }
+    return hash ^ (hash >>> 16);
+  }
+
+  /** Compares two keys as they decode, the same key can be written with or without escapes. */
+  private boolean sameKey(int a, int b) {
+    int p = keys[a * 2];
+    final int pEnd = keys[a * 2 + 1];
+    int q = keys[b * 2];
+    final int qEnd = keys[b * 2 + 1];
+    while (p < pEnd && q < qEnd) {
+      char c = buf[p++];
+      if (c == '\\') {
+        c = unescape(p);
+        p += buf[p] == 'u' ? 5 : 1;
+      }
+      char d = buf[q++];
+      if (d == '\\') {
+        d = unescape(q);
+        q += buf[q] == 'u' ? 5 : 1;
+      }
+      if (c != d) {
+        return false;
+      }
+    }
+    return p == pEnd && q == qEnd;
+  }
+
+  /** Decodes the checked escape whose letter is at p. */
+  private char unescape(int p) {
+    switch (buf[p]) {
+      case 'b':
+        return '\b';
+      case 'f':
+        return '\f';
+      case 'n':
+        return '\n';
+      case 'r':
+        return '\r';
+      case 't':
+        return '\t';
+      case 'u':
+        return (char)
+            (HEX_VALUE[buf[p + 1]] << 12
+                | HEX_VALUE[buf[p + 2]] << 8
+                | HEX_VALUE[buf[p + 3]] << 4
+                | HEX_VALUE[buf[p + 4]]);
+      default:
+        return buf[p];
+    }
+  }
+
+  private JSONException duplicateKey(int key, int pos) {
+    final int start = keys[key * 2] - 1;
+    final Object name = AsonParser.parseValue(buf, start, keys[key * 2 + 1] + 1 - start, limits);
+    return syntaxError("Duplicate key \"" + name + "\"", pos);
+  }
+
+  private int readArray(int p) {
+    enter(p);
+    p = skipWhitespace(p + 1);
+    if (p < limit && buf[p] == ']') {
+      depth--;
+      return p + 1;
+    }
+    int size = 0;
+    while (true) {
+      if (size++ == limits.maxArraySize) {
+        throw locate(AsonLimits.arrayExceeded(limits.maxArraySize), p);
+      }
+      p = skipWhitespace(readValue(p, false));
+      if (p < limit && buf[p] == ']') {
+        depth--;
+        return p + 1;
+      } else if (p >= limit || buf[p] != ',') {
+        throw expected("a ',' or ']'", p);
+      }
+      p++;
+    }
+  }
+
+  /** Checks a string whose opening quote is before p, returns the position after its end quote. */
+  private int skipString(int p) {
+    final char[] buf = this.buf;
+    final int start = p;
+    while (p < limit) {
+      char c = buf[p++];
+      if (c >= 128 || STRING_CLASS[c] == C_PLAIN) {
+        continue;
+      } else if (c == '"') {
+        // Escapes only make the decoded string shorter than the raw text.
+        if (p - 1 - start > limits.maxStringLength) {
+          checkString(start, decodedLength(start, p - 1));
+        }
+        return p;
+      } else if (c != '\\') {
+        throw syntaxError("Unescaped control character in string", p - 1);
+      } else if (p >= limit) {
+        break;
+      }
+      switch (buf[p++]) {
+        case '"':
+        case '\\':
+        case '/':
+        case 'b':
+        case 'f':
+        case 'n':
+        case 'r':
+        case 't':
+          break;
+        case 'u':
+          if (p + 4 > limit) {
+            throw syntaxError("Unterminated unicode escape", limit);
+          }
+          for (int i = 0; i < 4; i++, p++) {
+            if (buf[p] >= 128 || HEX_VALUE[buf[p]] < 0) {
+              throw syntaxError("Illegal unicode escape", p);
+            }
+          }
+          break;
+        default:
+          throw syntaxError("Illegal escape", p - 1);
+      }
+    }
+    throw syntaxError("Unterminated string", p);
+  }
+
+  private int skipLiteral(int p, String literal) {
+    final int length = literal.length();
+    if (p + length > limit) {
+      throw syntaxError("Unexpected end of input", p);
+    }
+    for (int i = 1; i < length; i++) {
+      if (buf[p + i] != literal.charAt(i)) {
+        throw expected("'" + literal + "'", p + i);
+      }
+    }
+    return p + length;
+  }
+
+  private void enter(int p) {
+    if (++depth > limits.maxDepth) {
+      throw locate(AsonLimits.depthExceeded(limits.maxDepth), p);
+    }
+  }
+
+  private void checkString(int start, int length) {
+    if (length > limits.maxStringLength) {
+      throw locate(AsonLimits.stringExceeded(limits.maxStringLength), start);
+    }
+  }
+
+  /** Counts the chars of a checked string once its escapes are decoded. */
+  private int decodedLength(int start, int end) {
+    int length = 0;
+    for (int p = start; p < end; p++, length++) {
+      if (buf[p] == '\\') {
+        p += buf[p + 1] == 'u' ? 5 : 1;
+      }
+    }
+    return length;
+  }
+
+  private JSONException syntaxError(String message, int pos) {
+    return new InvalidJsonException.SyntaxError(locate(new InvalidJsonException(message), pos));
+  }
+
+  private JSONException expected(String expected, int pos) {
+    return new InvalidJsonException.SyntaxError(
+        locate(new InvalidJsonException("Expected " + expected, expected), pos));
+  }
+
+  private <E extends InvalidJsonException> E locate(E e, int pos) {
+    e.at(buf, 0, limit, pos, pos, line, pos - lineStart + 1);
+    return e;
+  }
+}
@@ -0,0 +1,15 @@
+package com.afollestad.ason;
+
+/**
+ * Thrown as soon as a document crosses one of the parser's {@link AsonLimits}.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+public class AsonLimitException extends InvalidJsonException {
+
+  private static final long serialVersionUID = 1L;
+
+  AsonLimitException(String reason) {
+    super(reason);
+  }
+}
@@ -0,0 +1,150 @@
+package com.afollestad.ason;
+
+/**
+ * Caps how much a single document may make a parser do, so that a hostile or broken payload fails
+ * fast with an {@link AsonLimitException} instead of exhausting the stack or the heap. Limits are
+ * immutable, the with methods return a copy.
+ *
+ * <p>{@link #DEFAULT} only caps nesting, at a depth no real document gets near but that is far from
+ * overflowing the stack. Everything else is unlimited unless you ask for it:
+ *
+ * <pre>
+ * AsonLimits limits = AsonLimits.DEFAULT.withMaxInputLength(1 &lt;&lt; 20).withMaxStringLength(8192);
+ * Ason ason = new Ason(body, AsonStringCache.KEYS, limits);
+ * </pre>
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class AsonLimits {
+
+  public static final int DEFAULT_MAX_DEPTH = 1000;
+
+  /** What every parser uses unless it's given other limits. */
+  public static final AsonLimits DEFAULT =
+      new AsonLimits(
+          DEFAULT_MAX_DEPTH,
+          Long.MAX_VALUE,
+          Integer.MAX_VALUE,
+          Integer.MAX_VALUE,
+          Integer.MAX_VALUE);
+
+  final int maxDepth;
+  final long maxInputLength;
+  final int maxStringLength;
+  final int maxObjectSize;
+  final int maxArraySize;
+
+  private AsonLimits(
+      int maxDepth, long maxInputLength, int maxStringLength, int maxObjectSize, int maxArraySize) {
+    this.maxDepth = maxDepth;
+    this.maxInputLength = maxInputLength;
+    this.maxStringLength = maxStringLength;
+    this.maxObjectSize = maxObjectSize;
+    this.maxArraySize = maxArraySize;
+  }
+
+  /** How deeply objects and arrays may be nested, a flat object is 1 deep. */
+  public AsonLimits withMaxDepth(int maxDepth) {
+    return new AsonLimits(
+        positive(maxDepth), maxInputLength, maxStringLength, maxObjectSize, maxArraySize);
+  }
+
+  /**
+   * How long the whole input may be, in chars. {@link AsonPushParser}, {@link AsonChannelReader}
+   * and validating bytes count bytes instead, since they see the input before it's decoded.
+   */
+  public AsonLimits withMaxInputLength(long maxInputLength) {
+    if (maxInputLength < 1) {
+      throw new IllegalArgumentException("Limits must be at least 1: " + maxInputLength);
+    }
+    return new AsonLimits(maxDepth, maxInputLength, maxStringLength, maxObjectSize, maxArraySize);
+  }
+
+  /** How many chars a single string, name or number may have once decoded. */
+  public AsonLimits withMaxStringLength(int maxStringLength) {
+    return new AsonLimits(
+        maxDepth, maxInputLength, positive(maxStringLength), maxObjectSize, maxArraySize);
+  }
+
+  /** How many keys a single object may have. */
+  public AsonLimits withMaxObjectSize(int maxObjectSize) {
+    return new AsonLimits(
+        maxDepth, maxInputLength, maxStringLength, positive(maxObjectSize), maxArraySize);
+  }
+
+  /**
+   * How many elements a single array may have. Arrays that {@link AsonPushParser} unwraps are never
+   * held in memory, so they aren't counted.
+   */
+  public AsonLimits withMaxArraySize(int maxArraySize) {
+    return new AsonLimits(
+        maxDepth, maxInputLength, maxStringLength, maxObjectSize, positive(maxArraySize));
+  }
+
+  public int maxDepth() {
+    return maxDepth;
+  }
+
+  public long maxInputLength() {
+    return maxInputLength;
+  }
+
+  public int maxStringLength() {
+    return maxStringLength;
+  }
+
+  public int maxObjectSize() {
+    return maxObjectSize;
+  }
+
+  public int maxArraySize() {
+    return maxArraySize;
+  }
+
+  private static int positive(int limit) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("Limits must be at least 1: " + limit);
+    }
+    return limit;
+  }
+
+  @Override
+  public String toString() {
+    return "AsonLimits{maxDepth="
+        + maxDepth
+        + ", maxInputLength="
+        + maxInputLength
+        + ", maxStringLength="
+        + maxStringLength
+        + ", maxObjectSize="
+        + maxObjectSize
+        + ", maxArraySize="
+        + maxArraySize
+        + "}";
+  }
+
+  //
+  ////// ERRORS
+  //
+
+  static AsonLimitException depthExceeded(int maxDepth) {
+    return new AsonLimitException("Nesting is deeper than " + maxDepth + " levels");
+  }
+
+  static AsonLimitException inputExceeded(long maxInputLength) {
+    return new AsonLimitException("Input is longer than " + maxInputLength);
+  }
+
+  static AsonLimitException stringExceeded(int maxStringLength) {
+    return new AsonLimitException("String is longer than " + maxStringLength + " chars");
+  }
+
+  static AsonLimitException objectExceeded(int maxObjectSize) {
+    return new AsonLimitException("Object has more than " + maxObjectSize + " keys");
+  }
+
+  static AsonLimitException arrayExceeded(int maxArraySize) {
+    return new AsonLimitException("Array has more than " + maxArraySize + " elements");
+  }
+}
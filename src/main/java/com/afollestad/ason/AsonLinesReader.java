@@ -0,0 +1,224 @@
+package com.afollestad.ason;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Iterates over a sequence of JSON values, one per line as in JSON Lines, or simply concatenated.
+ * Each value is bound to the given class, use {@link Ason} to get plain objects. A single reader
+ * and its buffer are used for the whole sequence, values aren't split into Strings first.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+public class AsonLinesReader<T> implements Iterator<T>, Iterable<T>, Closeable {
+
+  private final AsonReader reader;
+  private final Class<T> cls;
+  private final boolean recursive;
+
+  public AsonLinesReader(@NotNull AsonReader reader, @NotNull Class<T> cls, boolean recursive) {
+    this.reader = reader;
+    this.cls = cls;
+    this.recursive = recursive;
+    reader.setMultipleValues(true);
+  }
+
+  public AsonLinesReader(@NotNull AsonReader reader, @NotNull Class<T> cls) {
+    this(reader, cls, false);
+  }
+
+  public AsonLinesReader(@NotNull InputStream in, @NotNull Class<T> cls) {
+    this(new AsonReader(in), cls, false);
+  }
+
+  public AsonLinesReader(@NotNull InputStream in, @NotNull Class<T> cls, boolean recursive) {
+    this(new AsonReader(in), cls, recursive);
+  }
+
+  public AsonLinesReader(@NotNull Reader in, @NotNull Class<T> cls) {
+    this(new AsonReader(in), cls, false);
+  }
+
+  public AsonLinesReader(@NotNull Reader in, @NotNull Class<T> cls, boolean recursive) {
+    this(new AsonReader(in), cls, recursive);
+  }
+
+  /** Memory maps the file, see {@link AsonReader#fromFile(Path)}. */
+  public static <T> AsonLinesReader<T> fromFile(@NotNull Path file, @NotNull Class<T> cls)
+      throws IOException {
+    return fromFile(file, cls, false);
+  }
+
+  public static <T> AsonLinesReader<T> fromFile(
+      @NotNull Path file, @NotNull Class<T> cls, boolean recursive) throws IOException {
+    return new AsonLinesReader<>(AsonReader.fromFile(file), cls, recursive);
+  }
+
+  /** Receives the values bound by {@link #readParallel(Path, Class, boolean, Callback)}. */
+  public interface Callback<T> {
+
+    void onValue(@Nullable T value);
+  }
+
+  /**
+   * Binds the values of a JSON Lines file on a thread per core. The file is split into chunks at
+   * newlines, so each value must be on a line of its own. Values are handed to the callback on the
+   * calling thread, in file order if ordered is true, otherwise in whatever order the chunks
+   * finish.
+   */
+  public static <T> void readParallel(
+      @NotNull Path file,
+      @NotNull Class<T> cls,
+      boolean ordered,
+      @NotNull Callback<? super T> callback)
+      throws IOException {
+    readParallel(file, cls, false, ordered, callback);
+  }
+
+  public static <T> void readParallel(
+      @NotNull Path file,
+      @NotNull Class<T> cls,
+      boolean recursive,
+      boolean ordered,
+      @NotNull Callback<? super T> callback)
+      throws IOException {
+    final ForkJoinPool pool = new ForkJoinPool();
+    try {
+      readParallel(file, cls, recursive, ordered, pool, callback);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /** Like {@link #readParallel(Path, Class, boolean, Callback)}, on the given executor. */
+  public static <T> void readParallel(
+      @NotNull Path file,
+      @NotNull Class<T> cls,
+      boolean ordered,
+      @NotNull ExecutorService executor,
+      @NotNull Callback<? super T> callback)
+      throws IOException {
+    readParallel(file, cls, false, ordered, executor, callback);
+  }
+
+  public static <T> void readParallel(
+      @NotNull Path file,
+      @NotNull Class<T> cls,
+      boolean recursive,
+      boolean ordered,
+      @NotNull ExecutorService executor,
+      @NotNull Callback<? super T> callback)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      new ParallelLines<>(
+              new ParallelLines.FileSource(channel), cls, recursive, ParallelLines.CHUNK_SIZE)
+          .read(executor, ordered, callback);
+    }
+  }
+
+  /** Like {@link #readParallel(Path, Class, boolean, Callback)}, for UTF-8 bytes in memory. */
+  public static <T> void readParallel(
+      @NotNull ByteBuffer json,
+      @NotNull Class<T> cls,
+      boolean ordered,
+      @NotNull Callback<? super T> callback) {
+    readParallel(json, cls, false, ordered, callback);
+  }
+
+  public static <T> void readParallel(
+      @NotNull ByteBuffer json,
+      @NotNull Class<T> cls,
+      boolean recursive,
+      boolean ordered,
+      @NotNull Callback<? super T> callback) {
+    final ForkJoinPool pool = new ForkJoinPool();
+    try {
+      readParallel(json, cls, recursive, ordered, pool, callback);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  public static <T> void readParallel(
+      @NotNull ByteBuffer json,
+      @NotNull Class<T> cls,
+      boolean ordered,
+      @NotNull ExecutorService executor,
+      @NotNull Callback<? super T> callback) {
+    readParallel(json, cls, false, ordered, executor, callback);
+  }
+
+  public static <T> void readParallel(
+      @NotNull ByteBuffer json,
+      @NotNull Class<T> cls,
+      boolean recursive,
+      boolean ordered,
+      @NotNull ExecutorService executor,
+      @NotNull Callback<? super T> callback) {
+    try {
+      new ParallelLines<>(
+              new ParallelLines.BufferSource(json), cls, recursive, ParallelLines.CHUNK_SIZE)
+          .read(executor, ordered, callback);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    try {
+      return reader.peek() != AsonToken.END_DOCUMENT;
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    try {
+      if (reader.peek() == AsonToken.NULL) {
+        reader.nextNull();
+        return null;
+      } else if (cls == Ason.class) {
+        return (T) reader.nextObject();
+      } else if (cls == AsonArray.class) {
+        return (T) reader.nextArray();
+      }
+      return AsonSerializer.get().deserializeDocument(reader, cls, recursive);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+  @NotNull
+  @Override
+  public Iterator<T> iterator() {
+    return this;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+}
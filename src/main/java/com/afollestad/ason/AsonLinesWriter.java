@@ -0,0 +1,88 @@
+package com.afollestad.ason;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Writes JSON Lines: every value is serialized on a line of its own, followed by a newline. Values
+ * go through an {@link AsonWriter}, so nothing is built as a tree or a String along the way.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+public class AsonLinesWriter implements Closeable, Flushable {
+
+  private final Closeable out;
+  private final AsonWriter writer;
+  private final boolean recursive;
+  private boolean closed;
+
+  public AsonLinesWriter(@NotNull Writer out, boolean recursive) {
+    this.out = out;
+    this.writer = new AsonWriter(out);
+    this.recursive = recursive;
+  }
+
+  public AsonLinesWriter(@NotNull Writer out) {
+    this(out, false);
+  }
+
+  /** Writes UTF-8. */
+  public AsonLinesWriter(@NotNull OutputStream out, boolean recursive) {
+    this.out = out;
+    this.writer = new AsonWriter(out);
+    this.recursive = recursive;
+  }
+
+  public AsonLinesWriter(@NotNull OutputStream out) {
+    this(out, false);
+  }
+
+  /** Appends to the end of the file, creating it if it doesn't exist yet. */
+  public static AsonLinesWriter append(@NotNull Path file) throws IOException {
+    return new AsonLinesWriter(
+        Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+  }
+
+  /** Writes an Ason, AsonArray, stock JSON value, array, List or any serializable object. */
+  public AsonLinesWriter write(@Nullable Object value) throws IOException {
+    if (value == null
+        || value instanceof Ason
+        || value instanceof AsonArray
+        || value instanceof JSONObject
+        || value instanceof JSONArray) {
+      writer.value(value);
+    } else {
+      AsonSerializer.get().serializeTo(value, writer, recursive);
+    }
+    writer.endLine();
+    return this;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    writer.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      writer.finish();
+    } finally {
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,737 @@
+package com.afollestad.ason;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Parses JSON text into the stock org.json tree that {@link Ason} and {@link AsonArray} wrap. Scans
+ * a char[] directly instead of going through org.json's JSONTokener.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+final class AsonParser {
+
+  static final byte C_PLAIN = 0;
+  static final byte C_QUOTE = 1;
+  static final byte C_ESCAPE = 2;
+  static final byte C_CONTROL = 3;
+
+  /** Classifies ASCII chars inside of a string literal, everything >= 128 is plain. */
+  static final byte[] STRING_CLASS = new byte[128];
+  /** True for the four whitespace chars JSON allows between tokens. */
+  static final boolean[] WHITESPACE = new boolean[128];
+  /** Maps ASCII hex digits to their value, -1 for everything else. */
+  static final byte[] HEX_VALUE = new byte[128];
+
+  static {
+    for (int i = 0; i < 0x20; i++) {
+      STRING_CLASS[i] = C_CONTROL;
+    }
+    STRING_CLASS['"'] = C_QUOTE;
+    STRING_CLASS['\\'] = C_ESCAPE;
+
+    WHITESPACE[' '] = true;
+    WHITESPACE['\t'] = true;
+    WHITESPACE['\n'] = true;
+    WHITESPACE['\r'] = true;
+
+    for (int i = 0; i < HEX_VALUE.length; i++) {
+      HEX_VALUE[i] = -1;
+    }
+    for (int i = '0'; i <= '9'; i++) {
+      HEX_VALUE[i] = (byte) (i - '0');
+    }
+    for (int i = 'a'; i <= 'f'; i++) {
+      HEX_VALUE[i] = (byte) (i - 'a' + 10);
+      HEX_VALUE[i - 'a' + 'A'] = (byte) (i - 'a' + 10);
+    }
+  }
+
+  private final char[] buf;
+  private final int start;
+  private final int limit;
+  @Nullable private final AsonStringCache cache;
+  private final int maxDepth;
+  private final int maxStringLength;
+  private final int maxObjectSize;
+  private final int maxArraySize;
+  private int depth;
+  private int pos;
+  /** Lines are only counted when parsing a whole document, 0 means they're unknown. */
+  private int line;
+
+  private int lineStart;
+  private char[] scratch;
+
+  private AsonParser(
+      char[] buf, int offset, int length, @Nullable AsonStringCache cache, AsonLimits limits) {
+    if (length > limits.maxInputLength) {
+      throw AsonLimits.inputExceeded(limits.maxInputLength);
+    }
+    this.buf = buf;
+    this.start = offset;
+    this.pos = offset;
+    this.limit = offset + length;
+    this.line = offset == 0 ? 1 : 0;
+    this.cache = cache;
+    this.maxDepth = limits.maxDepth;
+    this.maxStringLength = limits.maxStringLength;
+    this.maxObjectSize = limits.maxObjectSize;
+    this.maxArraySize = limits.maxArraySize;
+  }
+
+  static JSONObject parseObject(String json) {
+    return parseObject(json, AsonStringCache.KEYS);
+  }
+
+  static JSONObject parseObject(String json, @Nullable AsonStringCache cache) {
+    char[] chars = json.toCharArray();
+    return parseObject(chars, 0, chars.length, cache);
+  }
+
+  static JSONObject parseObject(char[] json, int offset, int length) {
+    return parseObject(json, offset, length, AsonStringCache.KEYS);
+  }
+
+  static JSONObject parseObject(
+      char[] json, int offset, int length, @Nullable AsonStringCache cache) {
+    return parseObject(json, offset, length, cache, AsonLimits.DEFAULT);
+  }
+
+  static JSONObject parseObject(
+      char[] json,
+      int offset,
+      int length,
+      @Nullable AsonStringCache cache,
+      @NotNull AsonLimits limits) {
+    AsonParser parser = new AsonParser(json, offset, length, cache, limits);
+    if (parser.skipWhitespace() != '{') {
+      throw parser.syntaxError("A JSON object text must begin with '{'");
+    }
+    JSONObject result = parser.readObject();
+    parser.expectEnd();
+    return result;
+  }
+
+  static JSONArray parseArray(String json) {
+    return parseArray(json, AsonStringCache.KEYS);
+  }
+
+  static JSONArray parseArray(String json, @Nullable AsonStringCache cache) {
+    char[] chars = json.toCharArray();
+    return parseArray(chars, 0, chars.length, cache);
+  }
+
+  static JSONArray parseArray(char[] json, int offset, int length) {
+    return parseArray(json, offset, length, AsonStringCache.KEYS);
+  }
+
+  static JSONArray parseArray(
+      char[] json, int offset, int length, @Nullable AsonStringCache cache) {
+    return parseArray(json, offset, length, cache, AsonLimits.DEFAULT);
+  }
+
+  static JSONArray parseArray(
+      char[] json,
+      int offset,
+      int length,
+      @Nullable AsonStringCache cache,
+      @NotNull AsonLimits limits) {
+    AsonParser parser = new AsonParser(json, offset, length, cache, limits);
+    if (parser.skipWhitespace() != '[') {
+      throw parser.syntaxError("A JSON array text must begin with '['");
+    }
+    JSONArray result = parser.readArray();
+    parser.expectEnd();
+    return result;
+  }
+
+  /**
+   * Parses text the strict parser rejected the way org.json always has, so the String constructors
+   * keep accepting what they did before it: unquoted or single quoted names and values, trailing
+   * commas, ';' between pairs, leading zeros, hex, "TRUE", and content after the closing brace.
+   * Returns null if the strict error isn't one of those, or if org.json rejects the text too, so
+   * callers can throw the strict parser's located error instead. Nesting is checked before org.json
+   * recurses into the text, everything else once the tree is built.
+   */
+  @Nullable
+  static JSONObject parseObjectLenient(
+      String json, @NotNull InvalidJsonException error, @NotNull AsonLimits limits) {
+    if (!isLeniency(json, error)) {
+      return null;
+    }
+    checkLenientDepth(json, limits.maxDepth);
+    JSONObject result;
+    try {
+      result = new JSONObject(json);
+    } catch (JSONException e) {
+      return null;
+    }
+    checkLenientTree(result, limits);
+    return result;
+  }
+
+  /** Like {@link #parseObjectLenient(String, InvalidJsonException, AsonLimits)}, for arrays. */
+  @Nullable
+  static JSONArray parseArrayLenient(
+      String json, @NotNull InvalidJsonException error, @NotNull AsonLimits limits) {
+    if (!isLeniency(json, error)) {
+      return null;
+    }
+    checkLenientDepth(json, limits.maxDepth);
+    JSONArray result;
+    try {
+      result = new JSONArray(json);
+    } catch (JSONException e) {
+      return null;
+    }
+    checkLenientTree(result, limits);
+    return result;
+  }
+
+  /**
+   * True if the strict parser stopped at one of the things org.json lets through, judged by the
+   * error and the char it points at. Any other malformed text fails without a second parse.
+   */
+  private static boolean isLeniency(String json, InvalidJsonException error) {
+    final long offset = error.getOffset();
+    if (error instanceof AsonLimitException || offset < 0 || offset >= json.length()) {
+      return false;
+    }
+    final int pos = (int) offset;
+    final char c = json.charAt(pos);
+    final String reason = error.getReason();
+    if (reason.equals("Unexpected trailing content")) {
+      return true;
+    } else if (reason.equals("Expected a string key")) {
+      // An unquoted or single quoted name, or a trailing comma
+      return c == '}' || c == '\'' || c == '_' || c == '$' || Character.isLetterOrDigit(c);
+    } else if (reason.startsWith("Expected a ',' or ")) {
+      // ';' between pairs, or the x of a hex number
+      return c == ';' || ((c == 'x' || c == 'X') && pos > 0 && json.charAt(pos - 1) == '0');
+    } else if (reason.equals("Malformed number")) {
+      // Leading zeros, the number starts at the offset
+      final int zero = c == '-' ? pos + 1 : pos;
+      return zero + 1 < json.length()
+          && json.charAt(zero) == '0'
+          && json.charAt(zero + 1) >= '0'
+          && json.charAt(zero + 1) <= '9';
+    } else if (reason.startsWith("Unexpected character")) {
+      // A single quoted value, "TRUE" and the like, or a trailing or doubled comma in an array
+      return c == '\''
+          || c == ','
+          || c == ']'
+          || json.regionMatches(true, pos, "true", 0, 4)
+          || json.regionMatches(true, pos, "false", 0, 5)
+          || json.regionMatches(true, pos, "null", 0, 4);
+    }
+    return false;
+  }
+
+  /**
+   * Follows how org.json tokenizes just far enough to know how deep the first value nests: quotes
+   * only open a string where a value or name starts, and brackets end unquoted text.
+   */
+  private static void checkLenientDepth(String json, int maxDepth) {
+    final int length = json.length();
+    int depth = 0;
+    boolean unquoted = false;
+    for (int i = 0; i < length; i++) {
+      char c = json.charAt(i);
+      if (c == '"' || (c == '\'' && !unquoted)) {
+        final char quote = c;
+        while (++i < length && (c = json.charAt(i)) != quote) {
+          if (c == '\\') {
+            i++;
+          }
+        }
+        unquoted = false;
+      } else if (c == '{' || c == '[') {
+        if (++depth > maxDepth) {
+          throw AsonLimits.depthExceeded(maxDepth);
+        }
+        unquoted = false;
+      } else if (c == '}' || c == ']') {
+        if (--depth <= 0) {
+          return;
+        }
+        unquoted = false;
+      } else if (c < ' ' || ",:/\\;=#".indexOf(c) >= 0) {
+        unquoted = false;
+      } else if (c == '>' && i > 0 && json.charAt(i - 1) == '=') {
+        unquoted = false;
+      } else if (c != ' ') {
+        unquoted = true;
+      }
+    }
+  }
+
+  /** Checks what org.json built against the limits the strict parser checks as it goes. */
+  private static void checkLenientTree(Object value, AsonLimits limits) {
+    if (value instanceof JSONObject) {
+      JSONObject object = (JSONObject) value;
+      if (object.length() > limits.maxObjectSize) {
+        throw AsonLimits.objectExceeded(limits.maxObjectSize);
+      }
+      for (String key : object.keySet()) {
+        checkLenientTree(key, limits);
+        checkLenientTree(object.opt(key), limits);
+      }
+    } else if (value instanceof JSONArray) {
+      JSONArray array = (JSONArray) value;
+      if (array.length() > limits.maxArraySize) {
+        throw AsonLimits.arrayExceeded(limits.maxArraySize);
+      }
+      for (int i = 0; i < array.length(); i++) {
+        checkLenientTree(array.opt(i), limits);
+      }
+    } else if (value instanceof String && ((String) value).length() > limits.maxStringLength) {
+      throw AsonLimits.stringExceeded(limits.maxStringLength);
+    }
+  }
+
+  /** Parses a single value of any type, which must span the whole range. */
+  static Object parseValue(char[] json, int offset, int length) {
+    return parseValue(json, offset, length, AsonLimits.DEFAULT);
+  }
+
+  static Object parseValue(char[] json, int offset, int length, @NotNull AsonLimits limits) {
+    AsonParser parser = new AsonParser(json, offset, length, AsonStringCache.KEYS, limits);
+    Object result = parser.readValue();
+    parser.expectEnd();
+    return result;
+  }
+
+  /** Returns the next non-whitespace char without consuming it, or 0 at the end of input. */
+  private char skipWhitespace() {
+    final char[] buf = this.buf;
+    int p = pos;
+    while (p < limit) {
+      char c = buf[p];
+      if (c >= 128 || !WHITESPACE[c]) {
+        pos = p;
+        return c;
+      } else if (c == '\n') {
+        line++;
+        lineStart = p + 1;
+      }
+      p++;
+    }
+    pos = p;
+    return 0;
+  }
+
+  private void expectEnd() {
+    skipWhitespace();
+    if (pos < limit) {
+      throw syntaxError("Unexpected trailing content");
+    }
+  }
+
+  private Object readValue() {
+    char c = skipWhitespace();
+    switch (c) {
+      case '{':
+        return readObject();
+      case '[':
+        return readArray();
+      case '"':
+        pos++;
+        return readString(false);
+      case 't':
+        readLiteral("true");
+        return Boolean.TRUE;
+      case 'f':
+        readLiteral("false");
+        return Boolean.FALSE;
+      case 'n':
+        readLiteral("null");
+        return JSONObject.NULL;
+      default:
+        if (c == '-' || (c >= '0' && c <= '9')) {
+          return readNumber();
+        }
+        if (pos >= limit) {
+          throw syntaxError("Unexpected end of input");
+        }
+        throw syntaxError("Unexpected character '" + c + "'");
+    }
+  }
+
+  private JSONObject readObject() {
+    enter();
+    pos++; // {
+    JSONObject object = new JSONObject();
+    char c = skipWhitespace();
+    if (c == '}') {
+      pos++;
+      depth--;
+      return object;
+    }
+    while (true) {
+      if (c != '"') {
+        throw expected("a string key");
+      }
+      pos++;
+      String key = readString(true);
+      if (skipWhitespace() != ':') {
+        throw expected("a ':' after a key");
+      }
+      pos++;
+      int size = object.length();
+      if (size == maxObjectSize) {
+        throw locate(AsonLimits.objectExceeded(maxObjectSize));
+      }
+      object.put(key, readValue());
+      if (object.length() == size) {
+        throw syntaxError("Duplicate key \"" + key + "\"");
+      }
+      c = skipWhitespace();
+      pos++;
+      if (c == '}') {
+        depth--;
+        return object;
+      } else if (c != ',') {
+        pos--;
+        throw expected("a ',' or '}'");
+      }
+      c = skipWhitespace();
+    }
+  }
+
+  private JSONArray readArray() {
+    enter();
+    pos++; // [
+    JSONArray array = new JSONArray();
+    if (skipWhitespace() == ']') {
+      pos++;
+      depth--;
+      return array;
+    }
+    while (true) {
+      if (array.length() == maxArraySize) {
+        throw locate(AsonLimits.arrayExceeded(maxArraySize));
+      }
+      array.put(readValue());
+      char c = skipWhitespace();
+      pos++;
+      if (c == ']') {
+        depth--;
+        return array;
+      } else if (c != ',') {
+        pos--;
+        throw expected("a ',' or ']'");
+      }
+    }
+  }
+
+  /** Reads a string whose opening quote has already been consumed. */
+  private String readString(boolean key) {
+    final char[] buf = this.buf;
+    final int start = pos;
+    int p = start;
+    // Fast path: no escapes, the string is a straight copy out of the buffer.
+    while (p < limit) {
+      char c = buf[p];
+      if (c < 128 && STRING_CLASS[c] != C_PLAIN) {
+        if (c == '"') {
+          if (p - start > maxStringLength) {
+            throw locate(AsonLimits.stringExceeded(maxStringLength));
+          }
+          pos = p + 1;
+          return newString(buf, start, p - start, key);
+        }
+        break;
+      }
+      p++;
+    }
+    pos = p;
+    return readEscapedString(start, key);
+  }
+
+  private String readEscapedString(int start, boolean key) {
+    final char[] buf = this.buf;
+    int length = pos - start;
+    char[] out = scratch(length + 16);
+    System.arraycopy(buf, start, out, 0, length);
+    int p = pos;
+    while (p < limit) {
+      char c = buf[p++];
+      if (c < 128 && STRING_CLASS[c] != C_PLAIN) {
+        if (c == '"') {
+          pos = p;
+          if (length > maxStringLength) {
+            throw locate(AsonLimits.stringExceeded(maxStringLength));
+          }
+          return newString(out, 0, length, key);
+        } else if (c == '\\') {
+          if (p >= limit) {
+            break;
+          }
+          char escaped = buf[p++];
+          switch (escaped) {
+            case '"':
+            case '\\':
+            case '/':
+              c = escaped;
+              break;
+            case 'b':
+              c = '\b';
+              break;
+            case 'f':
+              c = '\f';
+              break;
+            case 'n':
+              c = '\n';
+              break;
+            case 'r':
+              c = '\r';
+              break;
+            case 't':
+              c = '\t';
+              break;
+            case 'u':
+              pos = p;
+              c = readUnicodeEscape();
+              p = pos;
+              break;
+            default:
+              pos = p - 1;
+              throw syntaxError("Illegal escape");
+          }
+        } else {
+          pos = p - 1;
+          throw syntaxError("Unescaped control character in string");
+        }
+      }
+      if (length == out.length) {
+        if (length > maxStringLength) {
+          pos = p;
+          throw locate(AsonLimits.stringExceeded(maxStringLength));
+        }
+        out = growScratch(length);
+      }
+      out[length++] = c;
+    }
+    pos = p;
+    throw syntaxError("Unterminated string");
+  }
+
+  private String newString(char[] chars, int offset, int length, boolean key) {
+    if (cache == null) {
+      return new String(chars, offset, length);
+    }
+    return key ? cache.key(chars, offset, length) : cache.value(chars, offset, length);
+  }
+
+  private char readUnicodeEscape() {
+    if (pos + 4 > limit) {
+      pos = limit;
+      throw syntaxError("Unterminated unicode escape");
+    }
+    int value = 0;
+    for (int i = 0; i < 4; i++) {
+      char h = buf[pos + i];
+      int digit = h < 128 ? HEX_VALUE[h] : -1;
+      if (digit < 0) {
+        pos += i;
+        throw syntaxError("Illegal unicode escape");
+      }
+      value = (value << 4) | digit;
+    }
+    pos += 4;
+    return (char) value;
+  }
+
+  private char[] scratch(int minLength) {
+    if (scratch == null || scratch.length < minLength) {
+      scratch = new char[Math.max(minLength, 64)];
+    }
+    return scratch;
+  }
+
+  private char[] growScratch(int length) {
+    char[] grown = new char[length * 2];
+    System.arraycopy(scratch, 0, grown, 0, length);
+    scratch = grown;
+    return grown;
+  }
+
+  private void readLiteral(String literal) {
+    final int length = literal.length();
+    if (pos + length > limit) {
+      throw syntaxError("Unexpected end of input");
+    }
+    for (int i = 1; i < length; i++) {
+      if (buf[pos + i] != literal.charAt(i)) {
+        pos += i;
+        throw expected("'" + literal + "'");
+      }
+    }
+    pos += length;
+  }
+
+  private Object readNumber() {
+    final int start = pos;
+    int end = numberEnd(buf, start, limit);
+    if (end - start > maxStringLength) {
+      throw locate(AsonLimits.stringExceeded(maxStringLength));
+    }
+    Object number = parseNumber(buf, start, end);
+    if (number == null) {
+      throw syntaxError("Malformed number");
+    }
+    pos = end;
+    return number;
+  }
+
+  static boolean isNumberChar(char c) {
+    return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E';
+  }
+
+  /** Returns the end of the run of number chars starting at start. */
+  static int numberEnd(char[] buf, int start, int limit) {
+    int p = start;
+    while (p < limit && isNumberChar(buf[p])) {
+      p++;
+    }
+    return p;
+  }
+
+  /**
+   * Converts the number literal spanning [start, end) to the same boxed type org.json would pick,
+   * or returns null if the span isn't a valid JSON number.
+   */
+  static Object parseNumber(char[] buf, int start, int end) {
+    int p = start;
+    boolean negative = p < end && buf[p] == '-';
+    if (negative) {
+      p++;
+    }
+    // Integer part, accumulated as a negative value so Long.MIN_VALUE fits.
+    int intStart = p;
+    long value = 0;
+    boolean overflow = false;
+    while (p < end && buf[p] >= '0' && buf[p] <= '9') {
+      int digit = buf[p] - '0';
+      if (value < -922337203685477580L || (value == -922337203685477580L && digit > 8)) {
+        overflow = true;
+      }
+      value = value * 10 - digit;
+      p++;
+    }
+    int intDigits = p - intStart;
+    if (intDigits == 0 || (intDigits > 1 && buf[intStart] == '0')) {
+      return null;
+    }
+    boolean decimal = false;
+    if (p < end && buf[p] == '.') {
+      decimal = true;
+      p = skipDigits(buf, p + 1, end);
+      if (p < 0) {
+        return null;
+      }
+    }
+    if (p < end && (buf[p] == 'e' || buf[p] == 'E')) {
+      decimal = true;
+      p++;
+      if (p < end && (buf[p] == '+' || buf[p] == '-')) {
+        p++;
+      }
+      p = skipDigits(buf, p, end);
+    }
+    if (p != end) {
+      return null;
+    }
+
+    if (decimal || (negative && value == 0)) {
+      // org.json treats "-0" as a double, same as anything with a fraction or exponent.
+      double d = DoubleDecoder.decode(buf, start, end);
+      if (!Double.isNaN(d)) {
+        return d;
+      }
+      String text = new String(buf, start, end - start);
+      d = Double.parseDouble(text);
+      if (Double.isInfinite(d)) {
+        // org.json keeps numbers it can't represent as their original text.
+        return text;
+      }
+      return d;
+    } else if (overflow || (!negative && value == Long.MIN_VALUE)) {
+      // Integers outside of the long range are kept as text, same as org.json.
+      return new String(buf, start, end - start);
+    }
+    long result = negative ? value : -value;
+    if (result == (int) result) {
+      return (int) result;
+    }
+    return result;
+  }
+
+  /** Checks the number literal spanning [start, end) without converting it. */
+  static boolean isValidNumber(char[] buf, int start, int end) {
+    int p = start;
+    if (p < end && buf[p] == '-') {
+      p++;
+    }
+    if (p < end && buf[p] == '0') {
+      p++;
+    } else {
+      p = skipDigits(buf, p, end);
+      if (p < 0) {
+        return false;
+      }
+    }
+    if (p < end && buf[p] == '.') {
+      p = skipDigits(buf, p + 1, end);
+      if (p < 0) {
+        return false;
+      }
+    }
+    if (p < end && (buf[p] == 'e' || buf[p] == 'E')) {
+      p++;
+      if (p < end && (buf[p] == '+' || buf[p] == '-')) {
+        p++;
+      }
+      p = skipDigits(buf, p, end);
+    }
+    return p == end;
+  }
+
+  /** Skips at least one digit, returns -1 if there isn't one. */
+  private static int skipDigits(char[] buf, int p, int end) {
+    int start = p;
+    while (p < end && buf[p] >= '0' && buf[p] <= '9') {
+      p++;
+    }
+    return p == start ? -1 : p;
+  }
+
+  /** Counts an object or array being opened, before recursing any deeper. */
+  private void enter() {
+    if (++depth > maxDepth) {
+      throw locate(AsonLimits.depthExceeded(maxDepth));
+    }
+  }
+
+  private JSONException syntaxError(String message) {
+    return new InvalidJsonException.SyntaxError(locate(new InvalidJsonException(message)));
+  }
+
+  private JSONException expected(String expected) {
+    return new InvalidJsonException.SyntaxError(
+        locate(new InvalidJsonException("Expected " + expected, expected)));
+  }
+
+  private <E extends InvalidJsonException> E locate(E e) {
+    if (line == 0) {
+      e.at(buf, start, limit, pos, pos, -1, -1);
+    } else {
+      e.at(buf, start, limit, pos, pos, line, pos - lineStart + 1);
+    }
+    return e;
+  }
+}
@@ -0,0 +1,330 @@
+package com.afollestad.ason;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONString;
+
+/**
+ * Writes JSON trees to text exactly like org.json's toString(), but formats doubles with {@link
+ * DoubleFormatter} and appends numbers and escaped strings without building Strings for them.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+final class AsonPrinter {
+
+  static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  /**
+   * For each char below 0x2100, what follows the backslash when it's escaped: 'u' for a unicode
+   * escape, 0 if it's written as is. Everything from 0x2100 up is written as is. '/' is only
+   * escaped after a '<', so "</script>" can't end a script tag.
+   */
+  static final char[] ESCAPES = new char[0x2100];
+
+  static {
+    for (int c = 0; c < ' '; c++) {
+      ESCAPES[c] = 'u';
+    }
+    for (int c = 0x80; c < 0xa0; c++) {
+      ESCAPES[c] = 'u';
+    }
+    for (int c = 0x2000; c < 0x2100; c++) {
+      ESCAPES[c] = 'u';
+    }
+    ESCAPES['"'] = '"';
+    ESCAPES['\\'] = '\\';
+    ESCAPES['/'] = '/';
+    ESCAPES['\b'] = 'b';
+    ESCAPES['\t'] = 't';
+    ESCAPES['\n'] = 'n';
+    ESCAPES['\f'] = 'f';
+    ESCAPES['\r'] = 'r';
+  }
+
+  private final StringBuilder out;
+  private final int indentFactor;
+  private DoubleFormatter doubles;
+  /** Set when nested objects and arrays are copied from and saved to a cache. */
+  private FragmentCache fragments;
+  /** The object or array being printed, once inside of the top one. */
+  private Object parent;
+
+  AsonPrinter(StringBuilder out, int indentFactor) {
+    this.out = out;
+    this.indentFactor = indentFactor;
+  }
+
+  static String print(JSONObject object, int indentFactor) {
+    return print(object, indentFactor, JSONObject.class);
+  }
+
+  static String print(JSONArray array, int indentFactor) {
+    return print(array, indentFactor, JSONArray.class);
+  }
+
+  static String print(JSONObject object, int indentFactor, Class<?> cls) {
+    return printTree(object, indentFactor, cls, null);
+  }
+
+  static String print(JSONArray array, int indentFactor, Class<?> cls) {
+    return printTree(array, indentFactor, cls, null);
+  }
+
+  static String print(JSONObject object, int indentFactor, Class<?> cls, FragmentCache fragments) {
+    return printTree(object, indentFactor, cls, fragments);
+  }
+
+  static String print(JSONArray array, int indentFactor, Class<?> cls, FragmentCache fragments) {
+    return printTree(array, indentFactor, cls, fragments);
+  }
+
+  /**
+   * Prints into a pooled buffer, sized from what values of the given class printed to before. Trees
+   * pass their wrapper class, so the size is only a guess shared by all of them. With fragments,
+   * compact text of objects and arrays is taken from the cache where it's there, and saved to it
+   * where it isn't.
+   */
+  private static String printTree(
+      Object tree, int indentFactor, Class<?> cls, FragmentCache fragments) {
+    if (indentFactor != 0 || fragments == null) {
+      return printPooled(tree, indentFactor, cls, null);
+    }
+    // Printing reads and fills the cache, which threads printing the same document share.
+    synchronized (fragments) {
+      final String cached = fragments.get(tree);
+      if (cached != null) {
+        return cached;
+      }
+      return printPooled(tree, indentFactor, cls, fragments);
+    }
+  }
+
+  private static String printPooled(
+      Object tree, int indentFactor, Class<?> cls, FragmentCache fragments) {
+    final StringBuilder out = OutputBufferPool.acquireChars(OutputBufferPool.estimate(cls));
+    try {
+      final AsonPrinter printer = new AsonPrinter(out, indentFactor);
+      printer.fragments = fragments;
+      printer.writeValue(tree, 0);
+      OutputBufferPool.record(cls, out.length());
+      final String result = out.toString();
+      if (fragments != null) {
+        fragments.put(tree, result);
+      }
+      return result;
+    } finally {
+      OutputBufferPool.release(out);
+    }
+  }
+
+  /** Links a nested object or array to its parent, and appends its cached text if there is any. */
+  private boolean appendCached(Object node) {
+    if (fragments == null || parent == null) {
+      return false;
+    }
+    final String cached = fragments.link(node, parent);
+    if (cached == null) {
+      return false;
+    }
+    out.append(cached);
+    return true;
+  }
+
+  private void saveFragment(Object node, Object outer, int start) {
+    parent = outer;
+    if (fragments != null && outer != null) {
+      fragments.put(node, out.substring(start));
+    }
+  }
+
+  private void writeObject(JSONObject object, int indent) {
+    if (appendCached(object)) {
+      return;
+    }
+    final Object outer = parent;
+    final int start = out.length();
+    parent = object;
+    final int length = object.length();
+    final Iterator<String> keys = object.keys();
+    out.append('{');
+    if (length == 1) {
+      final String key = keys.next();
+      writeString(key);
+      out.append(':');
+      if (indentFactor > 0) {
+        out.append(' ');
+      }
+      writeValue(object.opt(key), indent);
+    } else if (length != 0) {
+      final int newIndent = indent + indentFactor;
+      boolean comma = false;
+      while (keys.hasNext()) {
+        final String key = keys.next();
+        if (comma) {
+          out.append(',');
+        }
+        if (indentFactor > 0) {
+          out.append('\n');
+        }
+        indent(newIndent);
+        writeString(key);
+        out.append(':');
+        if (indentFactor > 0) {
+          out.append(' ');
+        }
+        writeValue(object.opt(key), newIndent);
+        comma = true;
+      }
+      if (indentFactor > 0) {
+        out.append('\n');
+      }
+      indent(indent);
+    }
+    out.append('}');
+    saveFragment(object, outer, start);
+  }
+
+  private void writeArray(JSONArray array, int indent) {
+    if (appendCached(array)) {
+      return;
+    }
+    final Object outer = parent;
+    final int start = out.length();
+    parent = array;
+    final int length = array.length();
+    out.append('[');
+    if (length == 1) {
+      writeValue(array.opt(0), indent);
+    } else if (length != 0) {
+      final int newIndent = indent + indentFactor;
+      for (int i = 0; i < length; i++) {
+        if (i > 0) {
+          out.append(',');
+        }
+        if (indentFactor > 0) {
+          out.append('\n');
+        }
+        indent(newIndent);
+        writeValue(array.opt(i), newIndent);
+      }
+      if (indentFactor > 0) {
+        out.append('\n');
+      }
+      indent(indent);
+    }
+    out.append(']');
+    saveFragment(array, outer, start);
+  }
+
+  /** Handles values in the same order as org.json's writeValue(), which decides some overlaps. */
+  void writeValue(Object value, int indent) {
+    if (value == null || value.equals(null)) {
+      out.append("null");
+    } else if (value instanceof String) {
+      writeString((String) value);
+    } else if (value instanceof JSONObject) {
+      writeObject((JSONObject) value, indent);
+    } else if (value instanceof JSONArray) {
+      writeArray((JSONArray) value, indent);
+    } else if (value instanceof Map) {
+      writeObject(new JSONObject((Map<?, ?>) value), indent);
+    } else if (value instanceof Collection) {
+      writeArray(new JSONArray((Collection<?>) value), indent);
+    } else if (value.getClass().isArray()) {
+      writeArray(new JSONArray(value), indent);
+    } else if (value instanceof Number) {
+      writeNumber((Number) value);
+    } else if (value instanceof Boolean) {
+      out.append(((Boolean) value).booleanValue());
+    } else if (value instanceof JSONString) {
+      final String json = ((JSONString) value).toJSONString();
+      if (json != null) {
+        out.append(json);
+      } else {
+        writeString(value.toString());
+      }
+    } else {
+      writeString(value.toString());
+    }
+  }
+
+  private void writeNumber(Number number) {
+    if (number instanceof Integer || number instanceof Long || number instanceof Short) {
+      out.append(number.longValue());
+    } else if (number instanceof Double
+        && !((Double) number).isInfinite()
+        && !((Double) number).isNaN()) {
+      writeDouble((Double) number);
+    } else {
+      out.append(JSONObject.numberToString(number));
+    }
+  }
+
+  /** Writes a finite double the way org.json would, but without building a String. */
+  void writeDouble(double number) {
+    if (doubles == null) {
+      doubles = new DoubleFormatter();
+    }
+    final char[] chars = doubles.chars;
+    int length = doubles.format(number);
+    // org.json drops a fraction of zero, unless there's an exponent.
+    if (chars[length - 1] == '0' && chars[length - 2] == '.') {
+      boolean exponent = false;
+      for (int i = 0; i < length; i++) {
+        if (chars[i] == 'E') {
+          exponent = true;
+          break;
+        }
+      }
+      if (!exponent) {
+        length -= 2;
+      }
+    }
+    out.append(chars, 0, length);
+  }
+
+  /** Quotes and escapes like JSONObject.quote(), appending runs that need no escaping at once. */
+  void writeString(String string) {
+    out.append('"');
+    final int length = string.length();
+    int run = 0;
+    for (int i = 0; i < length; i++) {
+      final char c = string.charAt(i);
+      if (c >= ESCAPES.length) {
+        continue;
+      }
+      final char escape = ESCAPES[c];
+      if (escape == 0 || (escape == '/' && (i == 0 || string.charAt(i - 1) != '<'))) {
+        continue;
+      }
+      out.append(string, run, i);
+      out.append('\\');
+      if (escape == 'u') {
+        out.append('u');
+        out.append(HEX[c >> 12]).append(HEX[(c >> 8) & 0xF]);
+        out.append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+      } else {
+        out.append(escape);
+      }
+      run = i + 1;
+    }
+    out.append(string, run, length);
+    out.append('"');
+  }
+
+  /** The quoted and escaped string, as writeString() writes it. */
+  static String quote(String string) {
+    final AsonPrinter printer = new AsonPrinter(new StringBuilder(string.length() + 2), 0);
+    printer.writeString(string);
+    return printer.out.toString();
+  }
+
+  private void indent(int spaces) {
+    for (int i = 0; i < spaces; i++) {
+      out.append(' ');
+    }
+  }
+}
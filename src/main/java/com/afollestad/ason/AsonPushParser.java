@@ -0,0 +1,682 @@
+package com.afollestad.ason;
+
+import static com.afollestad.ason.AsonParser.HEX_VALUE;
+import static com.afollestad.ason.AsonParser.WHITESPACE;
+
+import java.nio.ByteBuffer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Parses UTF-8 JSON that arrives in pieces, like a response body read off of an event loop. Hand it
+ * each piece with feed() as it comes in, split anywhere, even in the middle of a token. Every
+ * complete top level value is bound to the given class and passed to the callback right away, so
+ * there is no need to buffer the whole body first. Call {@link #end()} once the input is done.
+ *
+ * <p>Use {@link Ason} or {@link AsonArray} as the class to get plain objects. With {@link
+ * #setUnwrapArray(boolean)}, the items of a top level array are delivered one by one instead, and
+ * the array itself is never built.
+ *
+ * <p>A parser isn't thread safe, feed it from one thread at a time.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class AsonPushParser<T> {
+
+  private static final char REPLACEMENT = '\ufffd';
+  private static final int SCRATCH_SIZE = 8192;
+
+  private static final int SCOPE_EMPTY_DOCUMENT = 0;
+  private static final int SCOPE_NONEMPTY_DOCUMENT = 1;
+  private static final int SCOPE_EMPTY_ARRAY = 2;
+  private static final int SCOPE_ARRAY_COMMA = 3;
+  private static final int SCOPE_NONEMPTY_ARRAY = 4;
+  private static final int SCOPE_EMPTY_OBJECT = 5;
+  private static final int SCOPE_OBJECT_COMMA = 6;
+  private static final int SCOPE_DANGLING_NAME = 7;
+  private static final int SCOPE_OBJECT_COLON = 8;
+  private static final int SCOPE_NONEMPTY_OBJECT = 9;
+
+  private static final int TOKEN_NONE = 0;
+  private static final int TOKEN_NAME = 1;
+  private static final int TOKEN_STRING = 2;
+  private static final int TOKEN_NUMBER = 3;
+  private static final int TOKEN_LITERAL = 4;
+
+  /** Receives each complete value, on the thread that fed the bytes finishing it. */
+  public interface Callback<T> {
+
+    void onValue(@Nullable T value);
+  }
+
+  private final Class<T> cls;
+  private final boolean recursive;
+  private final Callback<? super T> callback;
+  private boolean multipleValues;
+  private boolean unwrapArray;
+  @Nullable private AsonStringCache stringCache = AsonStringCache.KEYS;
+  @NotNull private AsonLimits limits = AsonLimits.DEFAULT;
+
+  /** The open containers, null for an unwrapped top level array, with their scopes and names. */
+  private Object[] containers = new Object[32];
+
+  private int[] scopes = new int[32];
+  private String[] names = new String[32];
+  private int stackSize;
+
+  /** The token that the last piece ended in the middle of, and its chars so far. */
+  private int token = TOKEN_NONE;
+
+  private char[] chars = new char[64];
+  private int charCount;
+  /** 1 right after a backslash, then 2 to 5 while reading the digits of a unicode escape. */
+  private int escape;
+
+  private int unicode;
+  private int utf8Needed;
+  private int utf8Code;
+  private int utf8Min;
+  private String literal;
+  private int literalIndex;
+  private Object literalValue;
+
+  /** How many bytes were fed before the current piece, and where in the input we are. */
+  private long offset;
+
+  private long position;
+
+  private long line = 1;
+  private long lineStart;
+  /** The piece being consumed, only while feed() runs, for the excerpt of an error. */
+  private byte[] piece;
+
+  private int pieceStart;
+  private int pieceEnd;
+
+  private byte[] scratch;
+  private boolean failed;
+  private boolean ended;
+
+  public AsonPushParser(@NotNull Class<T> cls, @NotNull Callback<? super T> callback) {
+    this(cls, false, callback);
+  }
+
+  public AsonPushParser(
+      @NotNull Class<T> cls, boolean recursive, @NotNull Callback<? super T> callback) {
+    this.cls = cls;
+    this.recursive = recursive;
+    this.callback = callback;
+    scopes[stackSize++] = SCOPE_EMPTY_DOCUMENT;
+  }
+
+  /**
+   * Allows any number of top level values one after another, like JSON Lines or values that are
+   * simply concatenated.
+   */
+  public void setMultipleValues(boolean multipleValues) {
+    this.multipleValues = multipleValues;
+  }
+
+  public boolean isMultipleValues() {
+    return multipleValues;
+  }
+
+  /**
+   * Delivers the items of top level arrays one by one as soon as each is complete, rather than the
+   * whole array at the end. Memory use then only depends on the size of a single item.
+   */
+  public void setUnwrapArray(boolean unwrapArray) {
+    this.unwrapArray = unwrapArray;
+  }
+
+  public boolean isUnwrapArray() {
+    return unwrapArray;
+  }
+
+  /** See {@link AsonReader#setStringCache(AsonStringCache)}. */
+  public void setStringCache(@Nullable AsonStringCache stringCache) {
+    this.stringCache = stringCache;
+  }
+
+  @Nullable
+  public AsonStringCache getStringCache() {
+    return stringCache;
+  }
+
+  /**
+   * See {@link AsonReader#setLimits(AsonLimits)}. The input length is counted in bytes here. Once a
+   * limit is crossed, the parser can't be used anymore.
+   */
+  public void setLimits(@NotNull AsonLimits limits) {
+    this.limits = limits;
+  }
+
+  @NotNull
+  public AsonLimits getLimits() {
+    return limits;
+  }
+
+  public void feed(@NotNull byte[] json) {
+    feed(json, 0, json.length);
+  }
+
+  public void feed(@NotNull byte[] json, int offset, int length) {
+    if (offset < 0 || length < 0 || offset + length > json.length) {
+      throw new IndexOutOfBoundsException(
+          "offset " + offset + ", length " + length + ", size " + json.length);
+    }
+    checkOpen();
+    failed = true;
+    if (this.offset + length > limits.maxInputLength) {
+      throw AsonLimits.inputExceeded(limits.maxInputLength);
+    }
+    piece = json;
+    pieceStart = offset;
+    pieceEnd = offset + length;
+    consume(json, offset, offset + length);
+    piece = null;
+    failed = false;
+  }
+
+  /** Consumes the remaining bytes of the buffer, moving its position up to its limit. */
+  public void feed(@NotNull ByteBuffer json) {
+    if (json.hasArray()) {
+      final int start = json.arrayOffset() + json.position();
+      feed(json.array(), start, json.remaining());
+      json.position(json.limit());
+      return;
+    }
+    if (scratch == null) {
+      scratch = new byte[SCRATCH_SIZE];
+    }
+    while (json.hasRemaining()) {
+      final int length = Math.min(scratch.length, json.remaining());
+      json.get(scratch, 0, length);
+      feed(scratch, 0, length);
+    }
+  }
+
+  /**
+   * Signals the end of the input. A number at the very end is only complete at this point, it's
+   * delivered before this returns. Fails if the input stopped in the middle of a value.
+   */
+  public void end() {
+    checkOpen();
+    failed = true;
+    position = offset;
+    if (token == TOKEN_NUMBER) {
+      finishNumber();
+    }
+    if (token != TOKEN_NONE || stackSize > 1) {
+      throw syntaxError("Unexpected end of input");
+    } else if (scopes[0] == SCOPE_EMPTY_DOCUMENT && !multipleValues) {
+      throw expected("a value");
+    }
+    failed = false;
+    ended = true;
+  }
+
+  private void checkOpen() {
+    if (failed) {
+      throw new IllegalStateException("The parser can't be used after an error.");
+    } else if (ended) {
+      throw new IllegalStateException("end() has already been called.");
+    }
+  }
+
+  //
+  ////// TOKENS
+  //
+
+  private void consume(byte[] bytes, int start, int end) {
+    final long base = offset - start;
+    int p = start;
+    while (p < end) {
+      switch (token) {
+        case TOKEN_NAME:
+        case TOKEN_STRING:
+          p = string(bytes, p, end, base);
+          break;
+        case TOKEN_NUMBER:
+          p = number(bytes, p, end, base);
+          break;
+        case TOKEN_LITERAL:
+          p = literal(bytes, p, end, base);
+          break;
+        default:
+          structural(bytes[p], base + p);
+          p++;
+          break;
+      }
+    }
+    offset += end - start;
+  }
+
+  private void structural(byte b, long position) {
+    if (b >= 0 && WHITESPACE[b]) {
+      if (b == '\n') {
+        line++;
+        lineStart = position + 1;
+      }
+      return;
+    }
+    this.position = position;
+    final int top = stackSize - 1;
+    switch (scopes[top]) {
+      case SCOPE_NONEMPTY_DOCUMENT:
+        if (!multipleValues) {
+          throw syntaxError("Unexpected trailing content", position);
+        }
+        beginValue(b, top, SCOPE_NONEMPTY_DOCUMENT, position);
+        return;
+      case SCOPE_EMPTY_DOCUMENT:
+        beginValue(b, top, SCOPE_NONEMPTY_DOCUMENT, position);
+        return;
+      case SCOPE_EMPTY_ARRAY:
+        if (b == ']') {
+          close();
+          return;
+        }
+        beginValue(b, top, SCOPE_NONEMPTY_ARRAY, position);
+        return;
+      case SCOPE_ARRAY_COMMA:
+        beginValue(b, top, SCOPE_NONEMPTY_ARRAY, position);
+        return;
+      case SCOPE_NONEMPTY_ARRAY:
+        if (b == ',') {
+          scopes[top] = SCOPE_ARRAY_COMMA;
+        } else if (b == ']') {
+          close();
+        } else {
+          throw expected("a ',' or ']'", position);
+        }
+        return;
+      case SCOPE_EMPTY_OBJECT:
+      case SCOPE_OBJECT_COMMA:
+        if (b == '}' && scopes[top] == SCOPE_EMPTY_OBJECT) {
+          close();
+        } else if (b == '"') {
+          token = TOKEN_NAME;
+          charCount = 0;
+        } else {
+          throw expected("a string key", position);
+        }
+        return;
+      case SCOPE_DANGLING_NAME:
+        if (b != ':') {
+          throw expected("a ':' after a key", position);
+        }
+        scopes[top] = SCOPE_OBJECT_COLON;
+        return;
+      case SCOPE_OBJECT_COLON:
+        beginValue(b, top, SCOPE_NONEMPTY_OBJECT, position);
+        return;
+      default:
+        if (b == ',') {
+          scopes[top] = SCOPE_OBJECT_COMMA;
+        } else if (b == '}') {
+          close();
+        } else {
+          throw expected("a ',' or '}'", position);
+        }
+    }
+  }
+
+  private void beginValue(byte b, int top, int nextScope, long position) {
+    scopes[top] = nextScope;
+    switch (b) {
+      case '{':
+        push(new JSONObject(), SCOPE_EMPTY_OBJECT);
+        return;
+      case '[':
+        push(unwrapArray && stackSize == 1 ? null : new JSONArray(), SCOPE_EMPTY_ARRAY);
+        return;
+      case '"':
+        token = TOKEN_STRING;
+        charCount = 0;
+        return;
+      case 't':
+        beginLiteral("true", Boolean.TRUE);
+        return;
+      case 'f':
+        beginLiteral("false", Boolean.FALSE);
+        return;
+      case 'n':
+        beginLiteral("null", JSONObject.NULL);
+        return;
+      default:
+        if (b == '-' || (b >= '0' && b <= '9')) {
+          token = TOKEN_NUMBER;
+          charCount = 0;
+          append((char) b);
+          return;
+        }
+        throw syntaxError("Unexpected character '" + (char) (b & 0xff) + "'", position);
+    }
+  }
+
+  private void beginLiteral(String literal, Object value) {
+    token = TOKEN_LITERAL;
+    this.literal = literal;
+    literalIndex = 1;
+    literalValue = value;
+  }
+
+  private int literal(byte[] bytes, int p, int end, long base) {
+    while (p < end && literalIndex < literal.length()) {
+      if (bytes[p] != literal.charAt(literalIndex)) {
+        throw syntaxError("Unexpected character '" + (char) (bytes[p] & 0xff) + "'", base + p);
+      }
+      literalIndex++;
+      p++;
+    }
+    if (literalIndex == literal.length()) {
+      position = base + p;
+      token = TOKEN_NONE;
+      value(literalValue);
+    }
+    return p;
+  }
+
+  private int number(byte[] bytes, int p, int end, long base) {
+    while (p < end) {
+      final byte b = bytes[p];
+      if (b < 0 || !AsonParser.isNumberChar((char) b)) {
+        // The byte that ended the number is read again as a structural token.
+        position = base + p;
+        finishNumber();
+        return p;
+      }
+      append((char) b);
+      p++;
+    }
+    return p;
+  }
+
+  private void finishNumber() {
+    checkLength();
+    final Object number = AsonParser.parseNumber(chars, 0, charCount);
+    if (number == null) {
+      throw syntaxError("Malformed number");
+    }
+    token = TOKEN_NONE;
+    value(number);
+  }
+
+  /** Decodes string bytes, keeping partial escapes and UTF-8 sequences across pieces. */
+  private int string(byte[] bytes, int p, int end, long base) {
+    while (p < end) {
+      final int b = bytes[p];
+      if (utf8Needed != 0) {
+        if ((b & 0xC0) != 0x80) {
+          // A truncated sequence, the byte is read again on its own.
+          utf8Needed = 0;
+          append(REPLACEMENT);
+          continue;
+        }
+        utf8Code = (utf8Code << 6) | (b & 0x3F);
+        if (--utf8Needed == 0) {
+          appendCodePoint(utf8Code);
+        }
+      } else if (escape != 0) {
+        readEscape(b, base + p);
+      } else if (b == '"') {
+        position = base + p;
+        finishString();
+        return p + 1;
+      } else if (b == '\\') {
+        escape = 1;
+      } else if (b >= 0x20) {
+        append((char) b);
+      } else if (b >= 0) {
+        throw syntaxError("Unescaped control character in string", base + p);
+      } else if ((b & 0xE0) == 0xC0) {
+        beginUtf8(1, b & 0x1F, 0x80);
+      } else if ((b & 0xF0) == 0xE0) {
+        beginUtf8(2, b & 0x0F, 0x800);
+      } else if ((b & 0xF8) == 0xF0) {
+        beginUtf8(3, b & 0x07, 0x10000);
+      } else {
+        append(REPLACEMENT);
+      }
+      p++;
+    }
+    return p;
+  }
+
+  private void beginUtf8(int needed, int code, int min) {
+    utf8Needed = needed;
+    utf8Code = code;
+    utf8Min = min;
+  }
+
+  private void appendCodePoint(int code) {
+    if (code < utf8Min || code > 0x10FFFF || (code >= 0xD800 && code <= 0xDFFF)) {
+      append(REPLACEMENT);
+    } else if (code >= 0x10000) {
+      append(Character.highSurrogate(code));
+      append(Character.lowSurrogate(code));
+    } else {
+      append((char) code);
+    }
+  }
+
+  private void readEscape(int b, long position) {
+    if (escape > 1) {
+      final int digit = b >= 0 ? HEX_VALUE[b] : -1;
+      if (digit < 0) {
+        throw syntaxError("Illegal unicode escape", position);
+      }
+      unicode = (unicode << 4) | digit;
+      if (++escape == 6) {
+        append((char) unicode);
+        escape = 0;
+      }
+      return;
+    }
+    switch (b) {
+      case '"':
+      case '\\':
+      case '/':
+        append((char) b);
+        break;
+      case 'b':
+        append('\b');
+        break;
+      case 'f':
+        append('\f');
+        break;
+      case 'n':
+        append('\n');
+        break;
+      case 'r':
+        append('\r');
+        break;
+      case 't':
+        append('\t');
+        break;
+      case 'u':
+        escape = 2;
+        unicode = 0;
+        return;
+      default:
+        throw syntaxError("Illegal escape", position);
+    }
+    escape = 0;
+  }
+
+  private void finishString() {
+    checkLength();
+    final boolean name = token == TOKEN_NAME;
+    token = TOKEN_NONE;
+    final AsonStringCache cache = stringCache;
+    final String string;
+    if (cache == null) {
+      string = new String(chars, 0, charCount);
+    } else if (name) {
+      string = cache.key(chars, 0, charCount);
+    } else {
+      string = cache.value(chars, 0, charCount);
+    }
+    if (name) {
+      names[stackSize - 1] = string;
+      scopes[stackSize - 1] = SCOPE_DANGLING_NAME;
+    } else {
+      value(string);
+    }
+  }
+
+  private void append(char c) {
+    if (charCount == chars.length) {
+      checkLength();
+      final char[] grown = new char[chars.length * 2];
+      System.arraycopy(chars, 0, grown, 0, charCount);
+      chars = grown;
+    }
+    chars[charCount++] = c;
+  }
+
+  //
+  ////// VALUES
+  //
+
+  private void push(Object container, int scope) {
+    if (stackSize > limits.maxDepth) {
+      throw locate(AsonLimits.depthExceeded(limits.maxDepth), position);
+    } else if (stackSize == scopes.length) {
+      final int size = stackSize * 2;
+      final Object[] containers = new Object[size];
+      System.arraycopy(this.containers, 0, containers, 0, stackSize);
+      this.containers = containers;
+      final int[] scopes = new int[size];
+      System.arraycopy(this.scopes, 0, scopes, 0, stackSize);
+      this.scopes = scopes;
+      final String[] names = new String[size];
+      System.arraycopy(this.names, 0, names, 0, stackSize);
+      this.names = names;
+    }
+    containers[stackSize] = container;
+    scopes[stackSize] = scope;
+    stackSize++;
+  }
+
+  private void close() {
+    final Object container = containers[--stackSize];
+    containers[stackSize] = null;
+    names[stackSize] = null;
+    if (container != null) {
+      value(container);
+    }
+  }
+
+  /** Adds a complete value to its container, or delivers it if it's at the top. */
+  private void value(Object value) {
+    final int top = stackSize - 1;
+    final Object container = containers[top];
+    if (top == 0 || container == null) {
+      deliver(value);
+    } else if (container instanceof JSONArray) {
+      final JSONArray array = (JSONArray) container;
+      if (array.length() == limits.maxArraySize) {
+        throw locate(AsonLimits.arrayExceeded(limits.maxArraySize), position);
+      }
+      array.put(value);
+    } else {
+      final JSONObject object = (JSONObject) container;
+      final String name = names[top];
+      final int size = object.length();
+      if (size == limits.maxObjectSize) {
+        throw locate(AsonLimits.objectExceeded(limits.maxObjectSize), position);
+      }
+      object.put(name, value);
+      if (object.length() == size) {
+        throw syntaxError("Duplicate key \"" + name + "\"");
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void deliver(Object value) {
+    final T result;
+    if (value == JSONObject.NULL) {
+      result = null;
+    } else if (value instanceof JSONObject) {
+      if (cls == AsonArray.class || cls == JSONArray.class || cls.isArray()) {
+        throw syntaxError("Expected an array but was an object");
+      } else if (cls == Object.class) {
+        result = (T) new Ason((JSONObject) value);
+      } else {
+        result = AsonSerializer.get().deserialize(new Ason((JSONObject) value), cls, recursive);
+      }
+    } else if (value instanceof JSONArray) {
+      if (cls == Ason.class || cls == JSONObject.class) {
+        throw syntaxError("Expected an object but was an array");
+      } else if (cls == AsonArray.class || cls == Object.class) {
+        result = (T) new AsonArray<>((JSONArray) value);
+      } else if (cls == JSONArray.class) {
+        result = (T) value;
+      } else {
+        result =
+            AsonSerializer.get()
+                .deserializeArray(new AsonArray<>((JSONArray) value), cls, recursive);
+      }
+    } else if (cls.isInstance(value)) {
+      result = (T) value;
+    } else if (cls == Ason.class || cls == JSONObject.class) {
+      throw syntaxError("Expected an object but was " + describe(value));
+    } else if (cls == AsonArray.class || cls == JSONArray.class || cls.isArray()) {
+      throw syntaxError("Expected an array but was " + describe(value));
+    } else {
+      throw syntaxError("Expected " + cls.getSimpleName() + " but was " + describe(value));
+    }
+    callback.onValue(result);
+  }
+
+  private static String describe(Object scalar) {
+    if (scalar instanceof String) {
+      return "a string";
+    } else if (scalar instanceof Boolean) {
+      return "a boolean";
+    }
+    return "a number";
+  }
+
+  private void checkLength() {
+    if (charCount > limits.maxStringLength) {
+      throw locate(AsonLimits.stringExceeded(limits.maxStringLength), position);
+    }
+  }
+
+  private InvalidJsonException syntaxError(String message) {
+    return syntaxError(message, position);
+  }
+
+  private InvalidJsonException syntaxError(String message, long position) {
+    return locate(new InvalidJsonException(message), position);
+  }
+
+  private InvalidJsonException expected(String expected) {
+    return expected(expected, position);
+  }
+
+  private InvalidJsonException expected(String expected, long position) {
+    return locate(new InvalidJsonException("Expected " + expected, expected), position);
+  }
+
+  private <E extends InvalidJsonException> E locate(E e, long position) {
+    failed = true;
+    final long column = position - lineStart + 1;
+    // Positions before the current piece were consumed with an earlier one, which is gone.
+    final long base = offset - pieceStart;
+    if (piece != null && position >= offset && position <= offset + pieceEnd - pieceStart) {
+      e.atByte(piece, pieceStart, pieceEnd, (int) (position - base), position, line, column);
+      piece = null;
+    } else {
+      e.located(position, true, line, column);
+    }
+    return e;
+  }
+}
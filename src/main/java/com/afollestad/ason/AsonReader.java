@@ -0,0 +1,902 @@
+package com.afollestad.ason;
+
+import static com.afollestad.ason.AsonParser.C_PLAIN;
+import static com.afollestad.ason.AsonParser.HEX_VALUE;
+import static com.afollestad.ason.AsonParser.STRING_CLASS;
+import static com.afollestad.ason.AsonParser.WHITESPACE;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Reads a JSON document one token at a time. Input is pulled through a small fixed buffer, so
+ * memory use stays flat no matter how large the document is; only the values you actually read are
+ * materialized.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class AsonReader implements Closeable {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final int SEGMENT_SIZE = 1 << 30;
+  private static final int BUFFER_SIZE = 1024;
+
+  private static final int PEEKED_NONE = 0;
+  private static final int PEEKED_BEGIN_OBJECT = 1;
+  private static final int PEEKED_END_OBJECT = 2;
+  private static final int PEEKED_BEGIN_ARRAY = 3;
+  private static final int PEEKED_END_ARRAY = 4;
+  private static final int PEEKED_TRUE = 5;
+  private static final int PEEKED_FALSE = 6;
+  private static final int PEEKED_NULL = 7;
+  private static final int PEEKED_STRING = 8;
+  private static final int PEEKED_NAME = 9;
+  private static final int PEEKED_NUMBER = 10;
+  private static final int PEEKED_EOF = 11;
+
+  private static final int SCOPE_EMPTY_DOCUMENT = 0;
+  private static final int SCOPE_NONEMPTY_DOCUMENT = 1;
+  private static final int SCOPE_EMPTY_ARRAY = 2;
+  private static final int SCOPE_NONEMPTY_ARRAY = 3;
+  private static final int SCOPE_EMPTY_OBJECT = 4;
+  private static final int SCOPE_DANGLING_NAME = 5;
+  private static final int SCOPE_NONEMPTY_OBJECT = 6;
+  private static final int SCOPE_CLOSED = 7;
+
+  private final Reader in;
+  private char[] buf;
+  private int pos;
+  private int limit;
+  /** How many chars have been shifted out of the front of the buffer, for error offsets. */
+  private long discarded;
+
+  private long line = 1;
+  private long lineStart;
+
+  private int peeked = PEEKED_NONE;
+  private int[] stack = new int[32];
+  /** How many more names or elements the object or array at each level has after its first. */
+  private int[] counts = new int[32];
+
+  private int stackSize;
+  private StringBuilder builder;
+  private boolean multipleValues;
+  @Nullable private AsonStringCache stringCache = AsonStringCache.KEYS;
+  @NotNull private AsonLimits limits = AsonLimits.DEFAULT;
+  private int maxDepth = AsonLimits.DEFAULT.maxDepth;
+  private int maxStringLength = AsonLimits.DEFAULT.maxStringLength;
+
+  public AsonReader(@NotNull Reader in) {
+    this.in = in;
+    this.buf = new char[BUFFER_SIZE];
+    push(SCOPE_EMPTY_DOCUMENT);
+  }
+
+  public AsonReader(@NotNull InputStream in) {
+    this(new InputStreamReader(in, UTF_8));
+  }
+
+  /** Reads UTF-8 bytes directly, without decoding them into a String first. */
+  public AsonReader(@NotNull byte[] json) {
+    this(new Utf8Reader(json, 0, json.length));
+  }
+
+  public AsonReader(@NotNull byte[] json, int offset, int length) {
+    this(new Utf8Reader(json, offset, length));
+  }
+
+  /** Reads the remaining UTF-8 bytes of the buffer. The buffer's position isn't changed. */
+  public AsonReader(@NotNull ByteBuffer json) {
+    this(new Utf8Reader(json));
+  }
+
+  public AsonReader(@NotNull String json) {
+    this(json.toCharArray(), json.length());
+  }
+
+  /** Reads the first length chars of the array, which is used as the buffer without a copy. */
+  AsonReader(@NotNull char[] json, int length) {
+    this.in = null;
+    this.buf = json;
+    this.limit = length;
+    push(SCOPE_EMPTY_DOCUMENT);
+  }
+
+  /**
+   * Memory maps a UTF-8 file and reads it from the OS page cache, so the file's contents never land
+   * on the heap. Files larger than 2GB are mapped in segments. Closing the reader closes the file.
+   */
+  @NotNull
+  public static AsonReader fromFile(@NotNull Path file) throws IOException {
+    return fromFile(file, SEGMENT_SIZE);
+  }
+
+  @NotNull
+  static AsonReader fromFile(@NotNull Path file, int segmentSize) throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      return new AsonReader(new Utf8Reader(channel, segmentSize));
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  //
+  ////// TOKENS
+  //
+
+  @NotNull
+  public AsonToken peek() throws IOException {
+    switch (peekInternal()) {
+      case PEEKED_BEGIN_OBJECT:
+        return AsonToken.BEGIN_OBJECT;
+      case PEEKED_END_OBJECT:
+        return AsonToken.END_OBJECT;
+      case PEEKED_BEGIN_ARRAY:
+        return AsonToken.BEGIN_ARRAY;
+      case PEEKED_END_ARRAY:
+        return AsonToken.END_ARRAY;
+      case PEEKED_TRUE:
+      case PEEKED_FALSE:
+        return AsonToken.BOOLEAN;
+      case PEEKED_NULL:
+        return AsonToken.NULL;
+      case PEEKED_STRING:
+        return AsonToken.STRING;
+      case PEEKED_NAME:
+        return AsonToken.NAME;
+      case PEEKED_NUMBER:
+        return AsonToken.NUMBER;
+      default:
+        return AsonToken.END_DOCUMENT;
+    }
+  }
+
+  public void beginObject() throws IOException {
+    expect(PEEKED_BEGIN_OBJECT, AsonToken.BEGIN_OBJECT);
+    push(SCOPE_EMPTY_OBJECT);
+    peeked = PEEKED_NONE;
+  }
+
+  public void endObject() throws IOException {
+    expect(PEEKED_END_OBJECT, AsonToken.END_OBJECT);
+    stackSize--;
+    peeked = PEEKED_NONE;
+  }
+
+  public void beginArray() throws IOException {
+    expect(PEEKED_BEGIN_ARRAY, AsonToken.BEGIN_ARRAY);
+    push(SCOPE_EMPTY_ARRAY);
+    peeked = PEEKED_NONE;
+  }
+
+  public void endArray() throws IOException {
+    expect(PEEKED_END_ARRAY, AsonToken.END_ARRAY);
+    stackSize--;
+    peeked = PEEKED_NONE;
+  }
+
+  /** Returns true if the current object or array has another element. */
+  public boolean hasNext() throws IOException {
+    int p = peekInternal();
+    return p != PEEKED_END_OBJECT && p != PEEKED_END_ARRAY && p != PEEKED_EOF;
+  }
+
+  @NotNull
+  public String nextName() throws IOException {
+    expect(PEEKED_NAME, AsonToken.NAME);
+    String name = readString(true);
+    peeked = PEEKED_NONE;
+    return name;
+  }
+
+  /** Returns a string value, or the literal text of a number value. */
+  @NotNull
+  public String nextString() throws IOException {
+    int p = peekInternal();
+    String result;
+    if (p == PEEKED_STRING) {
+      result = readString(false);
+    } else if (p == PEEKED_NUMBER) {
+      int end = validNumberEnd();
+      result = new String(buf, pos, end - pos);
+      pos = end;
+    } else {
+      throw unexpected(AsonToken.STRING);
+    }
+    peeked = PEEKED_NONE;
+    return result;
+  }
+
+  public boolean nextBoolean() throws IOException {
+    int p = peekInternal();
+    if (p != PEEKED_TRUE && p != PEEKED_FALSE) {
+      throw unexpected(AsonToken.BOOLEAN);
+    }
+    peeked = PEEKED_NONE;
+    return p == PEEKED_TRUE;
+  }
+
+  public void nextNull() throws IOException {
+    expect(PEEKED_NULL, AsonToken.NULL);
+    peeked = PEEKED_NONE;
+  }
+
+  public double nextDouble() throws IOException {
+    Object value = nextNumber();
+    if (value instanceof String) {
+      return Double.parseDouble((String) value);
+    }
+    return ((Number) value).doubleValue();
+  }
+
+  public long nextLong() throws IOException {
+    Object value = nextNumber();
+    if (value instanceof Integer || value instanceof Long) {
+      return ((Number) value).longValue();
+    } else if (value instanceof Double) {
+      double d = (Double) value;
+      if ((long) d == d) {
+        return (long) d;
+      }
+    }
+    throw new NumberFormatException("Expected a long but was " + value + locationSuffix());
+  }
+
+  public int nextInt() throws IOException {
+    Object value = nextNumber();
+    if (value instanceof Integer) {
+      return (Integer) value;
+    } else if (value instanceof Double) {
+      double d = (Double) value;
+      if ((int) d == d) {
+        return (int) d;
+      }
+    }
+    throw new NumberFormatException("Expected an int but was " + value + locationSuffix());
+  }
+
+  /** Skips the next value, including everything nested inside of it. */
+  public void skipValue() throws IOException {
+    int depth = 0;
+    do {
+      switch (peekInternal()) {
+        case PEEKED_BEGIN_OBJECT:
+          push(SCOPE_EMPTY_OBJECT);
+          depth++;
+          break;
+        case PEEKED_BEGIN_ARRAY:
+          push(SCOPE_EMPTY_ARRAY);
+          depth++;
+          break;
+        case PEEKED_END_OBJECT:
+        case PEEKED_END_ARRAY:
+          if (depth == 0) {
+            throw unexpected(null);
+          }
+          stackSize--;
+          depth--;
+          break;
+        case PEEKED_NAME:
+        case PEEKED_STRING:
+          skipString();
+          break;
+        case PEEKED_NUMBER:
+          pos = validNumberEnd();
+          break;
+        case PEEKED_EOF:
+          throw unexpected(null);
+        default:
+          break;
+      }
+      peeked = PEEKED_NONE;
+    } while (depth > 0);
+  }
+
+  /** Reads the next value, which must be an object, into an {@link Ason}. */
+  @NotNull
+  public Ason nextObject() throws IOException {
+    if (peekInternal() != PEEKED_BEGIN_OBJECT) {
+      throw unexpected(AsonToken.BEGIN_OBJECT);
+    }
+    return new Ason((JSONObject) readTree());
+  }
+
+  /** Reads the next value, which must be an array, into an {@link AsonArray}. */
+  @NotNull
+  public <T> AsonArray<T> nextArray() throws IOException {
+    if (peekInternal() != PEEKED_BEGIN_ARRAY) {
+      throw unexpected(AsonToken.BEGIN_ARRAY);
+    }
+    return new AsonArray<>((JSONArray) readTree());
+  }
+
+  /**
+   * Allows any number of top level values one after another, like JSON Lines or values that are
+   * simply concatenated. {@link #peek()} returns {@link AsonToken#END_DOCUMENT} after the last one.
+   */
+  public void setMultipleValues(boolean multipleValues) {
+    this.multipleValues = multipleValues;
+  }
+
+  public boolean isMultipleValues() {
+    return multipleValues;
+  }
+
+  /**
+   * Sets the cache that repeated names, and short string values if it allows them, are read
+   * through. By default, names go through a small cache shared by every parser. Null turns caching
+   * off, so every string is a new instance.
+   */
+  public void setStringCache(@Nullable AsonStringCache stringCache) {
+    this.stringCache = stringCache;
+  }
+
+  @Nullable
+  public AsonStringCache getStringCache() {
+    return stringCache;
+  }
+
+  /**
+   * Sets the limits the rest of the input is read within, {@link AsonLimits#DEFAULT} unless
+   * changed. Crossing one of them fails with an {@link AsonLimitException} right away.
+   */
+  public void setLimits(@NotNull AsonLimits limits) {
+    this.limits = limits;
+    this.maxDepth = limits.maxDepth;
+    this.maxStringLength = limits.maxStringLength;
+  }
+
+  @NotNull
+  public AsonLimits getLimits() {
+    return limits;
+  }
+
+  @Override
+  public void close() throws IOException {
+    peeked = PEEKED_NONE;
+    stack[0] = SCOPE_CLOSED;
+    stackSize = 1;
+    if (in != null) {
+      in.close();
+    }
+  }
+
+  //
+  ////// INTERNAL
+  //
+
+  /** Reads the next value into the same stock tree {@link AsonParser} would build. */
+  Object readTree() throws IOException {
+    switch (peekInternal()) {
+      case PEEKED_BEGIN_OBJECT:
+        beginObject();
+        JSONObject object = new JSONObject();
+        while (hasNext()) {
+          String name = nextName();
+          int size = object.length();
+          object.put(name, readTree());
+          if (object.length() == size) {
+            throw duplicateKey(name);
+          }
+        }
+        endObject();
+        return object;
+      case PEEKED_BEGIN_ARRAY:
+        beginArray();
+        JSONArray array = new JSONArray();
+        while (hasNext()) {
+          array.put(readTree());
+        }
+        endArray();
+        return array;
+      case PEEKED_STRING:
+        return nextString();
+      case PEEKED_NUMBER:
+        return nextNumber();
+      case PEEKED_TRUE:
+      case PEEKED_FALSE:
+        return nextBoolean();
+      case PEEKED_NULL:
+        nextNull();
+        return JSONObject.NULL;
+      default:
+        throw unexpected(null);
+    }
+  }
+
+  /**
+   * Reads the next name and returns the field name from the table it matches, see {@link
+   * ClassCacheEntry#nameTable()}. Names without escapes are matched right in the buffer, no String
+   * is built for them unless they match nothing, those are returned as read.
+   */
+  @NotNull
+  String nextFieldName(@NotNull String[] nameTable) throws IOException {
+    int end = nameEnd();
+    if (end == -1) {
+      final String name = readString(true);
+      final String field = ClassCacheEntry.matchName(nameTable, name);
+      return field != null ? field : name;
+    }
+    String name = ClassCacheEntry.matchName(nameTable, buf, pos, end - pos);
+    if (name == null) {
+      name = new String(buf, pos, end - pos);
+    }
+    pos = end + 1;
+    return name;
+  }
+
+  /**
+   * Reads the next name and returns its index in names, or -1 if it isn't there. Null entries never
+   * match. Like {@link #nextFieldName(String[])}, no String is built for plain names.
+   */
+  int nextNameIndex(@NotNull String[] names) throws IOException {
+    int end = nameEnd();
+    if (end == -1) {
+      String name = readString(true);
+      for (int i = 0; i < names.length; i++) {
+        if (name.equals(names[i])) {
+          return i;
+        }
+      }
+      return -1;
+    }
+    final int start = pos;
+    final int length = end - start;
+    pos = end + 1;
+    outer:
+    for (int i = 0; i < names.length; i++) {
+      String candidate = names[i];
+      if (candidate == null || candidate.length() != length) {
+        continue;
+      }
+      for (int j = 0; j < length; j++) {
+        if (buf[start + j] != candidate.charAt(j)) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+    return -1;
+  }
+
+  /**
+   * Consumes the next name's opening quote and makes the name contiguous in the buffer. Returns the
+   * position of its closing quote, or -1 if it has escapes and must be read with readString().
+   */
+  private int nameEnd() throws IOException {
+    expect(PEEKED_NAME, AsonToken.NAME);
+    peeked = PEEKED_NONE;
+    while (true) {
+      final char[] buf = this.buf;
+      for (int p = pos; p < limit; p++) {
+        char c = buf[p];
+        if (c == '"') {
+          return p;
+        } else if (c == '\\' || c < 0x20) {
+          return -1;
+        }
+      }
+      // The name runs past the end of the buffer, pull in more so it's contiguous.
+      checkLength(limit - pos);
+      if (!fill(limit - pos + 1)) {
+        return -1;
+      }
+    }
+  }
+
+  /** Reads a number value as the same boxed type org.json would pick. */
+  Object nextNumber() throws IOException {
+    if (peekInternal() != PEEKED_NUMBER) {
+      throw unexpected(AsonToken.NUMBER);
+    }
+    int end = numberEnd();
+    Object value = AsonParser.parseNumber(buf, pos, end);
+    if (value == null) {
+      throw syntaxError("Malformed number");
+    }
+    pos = end;
+    peeked = PEEKED_NONE;
+    return value;
+  }
+
+  private int peekInternal() throws IOException {
+    int p = peeked;
+    if (p == PEEKED_NONE) {
+      p = doPeek();
+    }
+    return p;
+  }
+
+  private int doPeek() throws IOException {
+    final int scope = stack[stackSize - 1];
+    if (scope == SCOPE_EMPTY_ARRAY) {
+      stack[stackSize - 1] = SCOPE_NONEMPTY_ARRAY;
+    } else if (scope == SCOPE_NONEMPTY_ARRAY) {
+      int c = nextNonWhitespace();
+      pos++;
+      if (c == ']') {
+        return peeked = PEEKED_END_ARRAY;
+      } else if (c != ',') {
+        pos--;
+        throw expected("a ',' or ']'");
+      } else if (++counts[stackSize - 1] >= limits.maxArraySize) {
+        throw locate(AsonLimits.arrayExceeded(limits.maxArraySize));
+      }
+    } else if (scope == SCOPE_EMPTY_OBJECT || scope == SCOPE_NONEMPTY_OBJECT) {
+      stack[stackSize - 1] = SCOPE_DANGLING_NAME;
+      int c = nextNonWhitespace();
+      if (scope == SCOPE_NONEMPTY_OBJECT) {
+        pos++;
+        if (c == '}') {
+          return peeked = PEEKED_END_OBJECT;
+        } else if (c != ',') {
+          pos--;
+          throw expected("a ',' or '}'");
+        } else if (++counts[stackSize - 1] >= limits.maxObjectSize) {
+          throw locate(AsonLimits.objectExceeded(limits.maxObjectSize));
+        }
+        c = nextNonWhitespace();
+      } else if (c == '}') {
+        pos++;
+        return peeked = PEEKED_END_OBJECT;
+      }
+      if (c != '"') {
+        throw expected("a string key");
+      }
+      pos++;
+      return peeked = PEEKED_NAME;
+    } else if (scope == SCOPE_DANGLING_NAME) {
+      stack[stackSize - 1] = SCOPE_NONEMPTY_OBJECT;
+      if (nextNonWhitespace() != ':') {
+        throw expected("a ':' after a key");
+      }
+      pos++;
+    } else if (scope == SCOPE_EMPTY_DOCUMENT) {
+      if (in == null && limit > limits.maxInputLength) {
+        throw AsonLimits.inputExceeded(limits.maxInputLength);
+      }
+      if (multipleValues && nextNonWhitespace() == -1) {
+        return peeked = PEEKED_EOF;
+      }
+      stack[stackSize - 1] = SCOPE_NONEMPTY_DOCUMENT;
+    } else if (scope == SCOPE_NONEMPTY_DOCUMENT) {
+      if (nextNonWhitespace() == -1) {
+        return peeked = PEEKED_EOF;
+      } else if (!multipleValues) {
+        throw syntaxError("Unexpected trailing content");
+      }
+    } else if (scope == SCOPE_CLOSED) {
+      throw new IllegalStateException("AsonReader is closed");
+    }
+
+    int c = nextNonWhitespace();
+    switch (c) {
+      case ']':
+        if (scope == SCOPE_EMPTY_ARRAY) {
+          pos++;
+          return peeked = PEEKED_END_ARRAY;
+        }
+        throw syntaxError("Unexpected character ']'");
+      case '{':
+        pos++;
+        return peeked = PEEKED_BEGIN_OBJECT;
+      case '[':
+        pos++;
+        return peeked = PEEKED_BEGIN_ARRAY;
+      case '"':
+        pos++;
+        return peeked = PEEKED_STRING;
+      case 't':
+        return peeked = peekLiteral("true", PEEKED_TRUE);
+      case 'f':
+        return peeked = peekLiteral("false", PEEKED_FALSE);
+      case 'n':
+        return peeked = peekLiteral("null", PEEKED_NULL);
+      case -1:
+        throw syntaxError("Unexpected end of input");
+      default:
+        if (c == '-' || (c >= '0' && c <= '9')) {
+          return peeked = PEEKED_NUMBER;
+        }
+        throw syntaxError("Unexpected character '" + (char) c + "'");
+    }
+  }
+
+  private int peekLiteral(String literal, int type) throws IOException {
+    final int length = literal.length();
+    if (limit - pos < length && !fill(length)) {
+      throw syntaxError("Unexpected end of input");
+    }
+    for (int i = 1; i < length; i++) {
+      if (buf[pos + i] != literal.charAt(i)) {
+        pos += i;
+        throw expected("'" + literal + "'");
+      }
+    }
+    pos += length;
+    return type;
+  }
+
+  /** Returns the next non-whitespace char without consuming it, or -1 at the end of input. */
+  private int nextNonWhitespace() throws IOException {
+    while (true) {
+      final char[] buf = this.buf;
+      int p = pos;
+      final int l = limit;
+      while (p < l) {
+        char c = buf[p];
+        if (c >= 128 || !WHITESPACE[c]) {
+          pos = p;
+          return c;
+        } else if (c == '\n') {
+          line++;
+          lineStart = discarded + p + 1;
+        }
+        p++;
+      }
+      pos = p;
+      if (!fill(1)) {
+        return -1;
+      }
+    }
+  }
+
+  /** Makes the number starting at pos contiguous in the buffer and returns its end. */
+  private int numberEnd() throws IOException {
+    while (true) {
+      int end = AsonParser.numberEnd(buf, pos, limit);
+      checkLength(end - pos);
+      if (end < limit || !fill(limit - pos + 1)) {
+        return AsonParser.numberEnd(buf, pos, limit);
+      }
+    }
+  }
+
+  /** Same as {@link #numberEnd()}, for numbers that are passed on as text or skipped. */
+  private int validNumberEnd() throws IOException {
+    int end = numberEnd();
+    if (!AsonParser.isValidNumber(buf, pos, end)) {
+      throw syntaxError("Malformed number");
+    }
+    return end;
+  }
+
+  private void checkLength(int length) {
+    if (length > maxStringLength) {
+      throw locate(AsonLimits.stringExceeded(maxStringLength));
+    }
+  }
+
+  /** Reads a string whose opening quote has already been consumed. */
+  private String readString(boolean name) throws IOException {
+    StringBuilder sb = null;
+    outer:
+    while (true) {
+      final char[] buf = this.buf;
+      final int l = limit;
+      int p = pos;
+      int start = p;
+      while (p < l) {
+        char c = buf[p++];
+        if (c < 128 && STRING_CLASS[c] != C_PLAIN) {
+          if (c == '"') {
+            pos = p;
+            if (sb == null) {
+              if (p - start - 1 > maxStringLength) {
+                throw locate(AsonLimits.stringExceeded(maxStringLength));
+              }
+              return newString(start, p - start - 1, name);
+            }
+            sb.append(buf, start, p - start - 1);
+            checkLength(sb.length());
+            return sb.toString();
+          } else if (c == '\\') {
+            if (sb == null) {
+              sb = builder();
+            }
+            sb.append(buf, start, p - start - 1);
+            pos = p;
+            sb.append(readEscapeCharacter());
+            continue outer;
+          } else {
+            pos = p - 1;
+            throw syntaxError("Unescaped control character in string");
+          }
+        }
+      }
+      // Ran off the end of the buffer in the middle of the string.
+      if (sb == null) {
+        sb = builder();
+      }
+      sb.append(buf, start, p - start);
+      pos = p;
+      checkLength(sb.length());
+      if (!fill(1)) {
+        throw syntaxError("Unterminated string");
+      }
+    }
+  }
+
+  private String newString(int start, int length, boolean name) {
+    final AsonStringCache cache = stringCache;
+    if (cache == null) {
+      return new String(buf, start, length);
+    }
+    return name ? cache.key(buf, start, length) : cache.value(buf, start, length);
+  }
+
+  private void skipString() throws IOException {
+    outer:
+    while (true) {
+      final char[] buf = this.buf;
+      final int l = limit;
+      int p = pos;
+      while (p < l) {
+        char c = buf[p++];
+        if (c < 128 && STRING_CLASS[c] != C_PLAIN) {
+          if (c == '"') {
+            pos = p;
+            return;
+          } else if (c == '\\') {
+            pos = p;
+            readEscapeCharacter();
+            continue outer;
+          } else {
+            pos = p - 1;
+            throw syntaxError("Unescaped control character in string");
+          }
+        }
+      }
+      pos = p;
+      if (!fill(1)) {
+        throw syntaxError("Unterminated string");
+      }
+    }
+  }
+
+  /** Reads the char(s) following a backslash and returns the char they stand for. */
+  private char readEscapeCharacter() throws IOException {
+    if (pos == limit && !fill(1)) {
+      throw syntaxError("Unterminated escape sequence");
+    }
+    char escaped = buf[pos++];
+    switch (escaped) {
+      case '"':
+      case '\\':
+      case '/':
+        return escaped;
+      case 'b':
+        return '\b';
+      case 'f':
+        return '\f';
+      case 'n':
+        return '\n';
+      case 'r':
+        return '\r';
+      case 't':
+        return '\t';
+      case 'u':
+        if (limit - pos < 4 && !fill(4)) {
+          throw syntaxError("Unterminated unicode escape");
+        }
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+          char h = buf[pos + i];
+          int digit = h < 128 ? HEX_VALUE[h] : -1;
+          if (digit < 0) {
+            pos += i;
+            throw syntaxError("Illegal unicode escape");
+          }
+          value = (value << 4) | digit;
+        }
+        pos += 4;
+        return (char) value;
+      default:
+        pos--;
+        throw syntaxError("Illegal escape");
+    }
+  }
+
+  /**
+   * Makes sure at least minimum chars are buffered after pos, shifting already consumed chars out
+   * of the buffer first. Returns false if the input ends before that.
+   */
+  private boolean fill(int minimum) throws IOException {
+    if (in == null) {
+      return limit - pos >= minimum;
+    }
+    if (pos > 0) {
+      discarded += pos;
+      limit -= pos;
+      System.arraycopy(buf, pos, buf, 0, limit);
+      pos = 0;
+    }
+    if (minimum > buf.length) {
+      buf = Arrays.copyOf(buf, Math.max(buf.length * 2, minimum));
+    }
+    while (limit < minimum) {
+      int read = in.read(buf, limit, buf.length - limit);
+      if (read == -1) {
+        return false;
+      }
+      limit += read;
+      if (discarded + limit > limits.maxInputLength) {
+        throw AsonLimits.inputExceeded(limits.maxInputLength);
+      }
+    }
+    return true;
+  }
+
+  private StringBuilder builder() {
+    if (builder == null) {
+      builder = new StringBuilder(64);
+    } else {
+      builder.setLength(0);
+    }
+    return builder;
+  }
+
+  private void push(int scope) {
+    if (stackSize > maxDepth) {
+      throw locate(AsonLimits.depthExceeded(maxDepth));
+    } else if (stackSize == stack.length) {
+      stack = Arrays.copyOf(stack, stackSize * 2);
+      counts = Arrays.copyOf(counts, stackSize * 2);
+    }
+    counts[stackSize] = 0;
+    stack[stackSize++] = scope;
+  }
+
+  private void expect(int type, AsonToken token) throws IOException {
+    if (peekInternal() != type) {
+      throw unexpected(token);
+    }
+  }
+
+  private IllegalStateException unexpected(AsonToken expected) throws IOException {
+    return new IllegalStateException(
+        (expected != null ? "Expected " + expected : "Expected a value")
+            + " but was "
+            + peek()
+            + locationSuffix());
+  }
+
+  private String locationSuffix() {
+    return " at character " + (discarded + pos);
+  }
+
+  /** Thrown right after reading a name that came up before in the same object. */
+  InvalidJsonException duplicateKey(String name) {
+    return syntaxError("Duplicate key \"" + name + "\"");
+  }
+
+  private InvalidJsonException syntaxError(String message) {
+    return locate(new InvalidJsonException(message));
+  }
+
+  private InvalidJsonException expected(String expected) {
+    return locate(new InvalidJsonException("Expected " + expected, expected));
+  }
+
+  private <E extends InvalidJsonException> E locate(E e) {
+    final long offset = discarded + pos;
+    e.at(buf, 0, limit, pos, offset, line, offset - lineStart + 1);
+    return e;
+  }
+}
@@ -7,13 +7,16 @@ import static com.afollestad.ason.Util.isNull;
 import static com.afollestad.ason.Util.isPrimitive;
 import static com.afollestad.ason.Util.shouldIgnore;
 
+import java.io.IOException;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.json.JSONArray;
@@ -24,10 +27,10 @@ import org.json.JSONObject;
 class AsonSerializer {
 
   private static AsonSerializer serializer;
-  private Map<String, ClassCacheEntry> classCache;
+  private final ConcurrentHashMap<String, ClassCacheEntry> classCache;
 
   AsonSerializer() {
-    classCache = new HashMap<>(0);
+    classCache = new ConcurrentHashMap<>(4);
   }
 
   @NotNull
@@ -54,6 +57,18 @@ class AsonSerializer {
     return currentFields;
   }
 
+  <T> ClassCacheEntry<T> cacheEntry(Class<T> cls, boolean recursive) {
+    ClassCacheEntry<T> cacheEntry = classCache.get(cls.getName());
+    if (isNull(cacheEntry)) {
+      cacheEntry = new ClassCacheEntry<>(cls, recursive);
+      ClassCacheEntry<T> existing = classCache.putIfAbsent(cls.getName(), cacheEntry);
+      if (existing != null) {
+        cacheEntry = existing;
+      }
+    }
+    return cacheEntry;
+  }
+
   //
   ////// SERIALIZE
   //
@@ -67,7 +82,24 @@ class AsonSerializer {
   public Ason serialize(@Nullable Object object, boolean recursive) {
     if (isNull(object)) {
       return null;
-    } else if (object instanceof Ason
+    } else {
+      checkSerializable(object);
+      final List<Field> fields = getDeclaredFields(object.getClass(), recursive);
+      final Ason ason = new Ason();
+      for (Field field : fields) {
+        field.setAccessible(true);
+        if (shouldIgnore(field)) {
+          continue;
+        }
+        Object result = serializeField(field, object);
+        ason.put(fieldName(field), result);
+      }
+      return ason;
+    }
+  }
+
+  private static void checkSerializable(Object object) {
+    if (object instanceof Ason
         || object instanceof AsonArray
         || object instanceof JSONObject
         || object instanceof JSONArray) {
@@ -82,18 +114,6 @@ class AsonSerializer {
     } else if (isList(object.getClass())) {
       throw new IllegalArgumentException(
           "Use com.afollestad.ason.Ason.serialize(Object, Class<?>) to serialize lists.");
-    } else {
-      final List<Field> fields = getDeclaredFields(object.getClass(), recursive);
-      final Ason ason = new Ason();
-      for (Field field : fields) {
-        field.setAccessible(true);
-        if (shouldIgnore(field)) {
-          continue;
-        }
-        Object result = serializeField(field, object);
-        ason.put(fieldName(field), result);
-      }
-      return ason;
     }
   }
 
@@ -182,6 +202,132 @@ class AsonSerializer {
     }
   }
 
+  //
+  ////// STREAMING SERIALIZE
+  //
+  // These mirror the tree based methods above, but write each value to an AsonWriter as soon as
+  // it's read from its field, so no tree is built. Objects with dotted field names are serialized
+  // as a tree and written as one, so both paths always produce the same text.
+  //
+
+  /** Writes what serializing the value as an object, array or list and printing it would. */
+  void serializeTo(@Nullable Object value, @NotNull AsonWriter writer, boolean recursive)
+      throws IOException {
+    if (isNull(value)) {
+      writer.nullValue();
+    } else if (value.getClass().isArray()) {
+      writeArray(value, writer, recursive);
+    } else if (value instanceof List) {
+      writeList((List) value, writer, recursive);
+    } else {
+      writeObject(value, writer, recursive);
+    }
+  }
+
+  private void writeObject(Object object, AsonWriter writer, boolean recursive) throws IOException {
+    checkSerializable(object);
+    final ClassCacheEntry.SerializedFields serialized =
+        cacheEntry(object.getClass(), recursive).serializedFields(recursive);
+    if (serialized.hasPathNames) {
+      writer.value(serialize(object, recursive).toStockJson());
+      return;
+    }
+    writer.beginObject();
+    for (int i = 0; i < serialized.fields.length; i++) {
+      final Object fieldValue;
+      try {
+        fieldValue = serialized.fields[i].get(object);
+      } catch (IllegalAccessException e) {
+        throw new RuntimeException(e);
+      }
+      writer.name(serialized.prefixes[i], serialized.utf8Prefixes[i]);
+      writeFieldValue(fieldValue, writer);
+    }
+    writer.endObject();
+  }
+
+  /** Writes what serializeField() returns once it's been put into an Ason. */
+  private void writeFieldValue(Object value, AsonWriter writer) throws IOException {
+    if (isNull(value)) {
+      writer.nullValue();
+    } else if (isPrimitive(value)) {
+      if (value instanceof Double || value instanceof Float) {
+        JSONObject.testValidity(value);
+      }
+      writePrimitive(value, writer);
+    } else if (value instanceof Ason) {
+      writer.value(((Ason) value).toStockJson());
+    } else if (value instanceof AsonArray) {
+      writer.value(((AsonArray) value).toStockJson());
+    } else if (value instanceof JSONObject || value instanceof JSONArray) {
+      writer.value(value);
+    } else if (value.getClass().isArray()) {
+      writeArray(value, writer, false);
+    } else if (isList(value.getClass())) {
+      writeList((List) value, writer, false);
+    } else {
+      writeObject(value, writer, false);
+    }
+  }
+
+  private void writeArray(Object array, AsonWriter writer, boolean recursive) throws IOException {
+    final Class<?> componentType = array.getClass().getComponentType();
+    final int length = Array.getLength(array);
+    writer.beginArray();
+    for (int i = 0; i < length; i++) {
+      writeElement(Array.get(array, i), componentType, writer, recursive);
+    }
+    writer.endArray();
+  }
+
+  private void writeList(List list, AsonWriter writer, boolean recursive) throws IOException {
+    if (list.isEmpty()) {
+      writer.beginArray().endArray();
+      return;
+    }
+    // serializeList() copies into an array of the first item's type, which fails for an item of
+    // another type. Letting it fail here throws what the tree would.
+    final Class<?> componentType = list.get(0).getClass();
+    for (int i = 1; i < list.size(); i++) {
+      final Object item = list.get(i);
+      if (item != null && !componentType.isInstance(item)) {
+        serializeList(list, recursive);
+      }
+    }
+    writer.beginArray();
+    for (int i = 0; i < list.size(); i++) {
+      writeElement(list.get(i), componentType, writer, recursive);
+    }
+    writer.endArray();
+  }
+
+  /** Writes what serializeArray() adds to its result for an element. */
+  private void writeElement(
+      Object value, Class<?> componentType, AsonWriter writer, boolean recursive)
+      throws IOException {
+    final Class<?> itemCls =
+        componentType == Object.class && value != null ? value.getClass() : componentType;
+    if (isNull(value)) {
+      writer.nullValue();
+    } else if (isPrimitive(itemCls)) {
+      writePrimitive(value, writer);
+    } else {
+      writeObject(value, writer, recursive);
+    }
+  }
+
+  private static void writePrimitive(Object value, AsonWriter writer) throws IOException {
+    if (value instanceof String) {
+      writer.value((String) value);
+    } else if (value instanceof Boolean) {
+      writer.value(((Boolean) value).booleanValue());
+    } else if (value instanceof Character) {
+      writer.value(value.toString());
+    } else {
+      writer.value((Number) value);
+    }
+  }
+
   //
   ////// DESERIALIZE
   //
@@ -207,11 +353,7 @@ class AsonSerializer {
       return (T) ason;
     }
 
-    ClassCacheEntry<T> cacheEntry = classCache.get(cls.getName());
-    if (isNull(cacheEntry)) {
-      cacheEntry = new ClassCacheEntry<>(cls, recursive);
-      classCache.put(cls.getName(), cacheEntry);
-    }
+    ClassCacheEntry<T> cacheEntry = cacheEntry(cls, recursive);
     final T newObject = cacheEntry.newInstance();
 
     for (String name : cacheEntry.fields(recursive)) {
@@ -254,13 +396,8 @@ class AsonSerializer {
       @Nullable AsonArray json, @NotNull Class<T> cls, boolean recursive) {
     if (isNull(json)) {
       return null;
-    } else if (!cls.isArray() && cls != Object.class) {
-      if (isList(cls)) {
-        throw new IllegalArgumentException(
-            "Use com.afollestad.ason.Ason.deserializeList() for Lists, not deserializeArray().");
-      }
-      throw new IllegalArgumentException(cls.getName() + " is not an array type.");
     }
+    checkArrayType(cls);
 
     final Class<?> component = cls == Object.class ? Object.class : cls.getComponentType();
     final T newArray = (T) Array.newInstance(component, json.size());
@@ -269,46 +406,48 @@ class AsonSerializer {
     }
 
     for (int i = 0; i < json.size(); i++) {
-      Object item = json.get(i);
-      if (isNull(item)) {
-        Array.set(newArray, i, defaultPrimitiveValue(component));
-        continue;
-      }
+      Array.set(newArray, i, deserializeArrayItem(json.get(i), component, recursive));
+    }
 
-      final Class<?> itemType = component == Object.class ? item.getClass() : component;
-      if (isPrimitive(itemType)) {
-        if (itemType == char.class || itemType == Character.class) {
-          item = ((String) item).charAt(0);
-        } else if (itemType == short.class || itemType == Short.class) {
-          item = Short.parseShort(Integer.toString((int) item));
-        }
-        Array.set(newArray, i, item);
-      } else if (itemType.isArray()) {
-        AsonArray subArray = (AsonArray) item;
-        Array.set(newArray, i, deserializeArray(subArray, component, recursive));
-      } else if (isList(itemType)) {
-        AsonArray subArray = (AsonArray) item;
-        if (subArray.isEmpty()) {
-          Array.set(newArray, i, new ArrayList(0));
-        } else {
-          Class<?> listComponent = subArray.get(0).getClass();
-          Array.set(newArray, i, deserializeList(subArray, listComponent, recursive));
-        }
-      } else if (!(item instanceof Ason)) {
-        throw new IllegalStateException(
-            "Expected JSON array to contain JSON objects "
-                + "to deserialize to "
-                + itemType.getName()
-                + ", found "
-                + item.getClass().getName()
-                + " objects instead.");
+    return newArray;
+  }
+
+  private Object deserializeArrayItem(Object item, Class<?> component, boolean recursive) {
+    if (isNull(item)) {
+      return defaultPrimitiveValue(component);
+    }
+
+    final Class<?> itemType = component == Object.class ? item.getClass() : component;
+    if (isPrimitive(itemType)) {
+      if (itemType == char.class || itemType == Character.class) {
+        item = ((String) item).charAt(0);
+      } else if (itemType == short.class || itemType == Short.class) {
+        item = Short.parseShort(Integer.toString((int) item));
+      }
+      return item;
+    } else if (itemType.isArray()) {
+      AsonArray subArray = (AsonArray) item;
+      return deserializeArray(subArray, component, recursive);
+    } else if (isList(itemType)) {
+      AsonArray subArray = (AsonArray) item;
+      if (subArray.isEmpty()) {
+        return new ArrayList(0);
       } else {
-        Ason subObject = (Ason) item;
-        Array.set(newArray, i, deserialize(subObject, itemType, recursive));
+        Class<?> listComponent = subArray.get(0).getClass();
+        return deserializeList(subArray, listComponent, recursive);
       }
+    } else if (!(item instanceof Ason)) {
+      throw new IllegalStateException(
+          "Expected JSON array to contain JSON objects "
+              + "to deserialize to "
+              + itemType.getName()
+              + ", found "
+              + item.getClass().getName()
+              + " objects instead.");
+    } else {
+      Ason subObject = (Ason) item;
+      return deserialize(subObject, itemType, recursive);
     }
-
-    return newArray;
   }
 
   @Nullable
@@ -336,4 +475,215 @@ class AsonSerializer {
 
     return result;
   }
+
+  private static void checkArrayType(Class<?> cls) {
+    if (!cls.isArray() && cls != Object.class) {
+      if (isList(cls)) {
+        throw new IllegalArgumentException(
+            "Use com.afollestad.ason.Ason.deserializeList() for Lists, not deserializeArray().");
+      }
+      throw new IllegalArgumentException(cls.getName() + " is not an array type.");
+    }
+  }
+
+  //
+  ////// STREAMING DESERIALIZE
+  //
+  // These mirror the tree based methods above, but bind values straight from an AsonReader into
+  // the target objects. Anything whose type can only be decided from a built value (Object
+  // fields, Ason fields, lists of lists...) is read as a tree and handed to the methods above, so
+  // both paths always produce the same result.
+  //
+
+  /** Binds a whole document, which can be an object or an array. */
+  @Nullable
+  <T> T deserializeDocument(@NotNull AsonReader reader, @NotNull Class<T> cls, boolean recursive)
+      throws IOException {
+    T result;
+    AsonToken token = reader.peek();
+    if (token == AsonToken.BEGIN_ARRAY) {
+      result = deserializeArray(reader, cls, recursive);
+    } else if (token == AsonToken.BEGIN_OBJECT) {
+      result = deserialize(reader, cls, recursive);
+    } else {
+      throw new InvalidJsonException("Expected an object or array but was " + token);
+    }
+    reader.peek(); // rejects trailing content
+    return result;
+  }
+
+  /** Binds a whole document, which must be an array, into a List. */
+  @NotNull
+  <T> List<T> deserializeListDocument(
+      @NotNull AsonReader reader, @NotNull Class<T> cls, boolean recursive) throws IOException {
+    if (reader.peek() != AsonToken.BEGIN_ARRAY) {
+      throw new InvalidJsonException("A JSON array text must begin with '['");
+    }
+    List<T> result = deserializeList(reader, cls, recursive);
+    reader.peek(); // rejects trailing content
+    return result;
+  }
+
+  @Nullable
+  <T> T deserialize(@NotNull AsonReader reader, @NotNull Class<T> cls, boolean recursive)
+      throws IOException {
+    if (isPrimitive(cls)
+        || cls == AsonArray.class
+        || cls == JSONArray.class
+        || cls == Ason.class
+        || cls == JSONObject.class) {
+      return deserialize(reader.nextObject(), cls, recursive);
+    }
+
+    final ClassCacheEntry<T> cacheEntry = cacheEntry(cls, recursive);
+    cacheEntry.fields(recursive);
+    if (cacheEntry.hasPathNames()) {
+      return deserialize(reader.nextObject(), cls, recursive);
+    }
+    final T newObject = cacheEntry.newInstance();
+
+    // Duplicates are rejected after their value, like the tree parser does.
+    final String[] nameTable = cacheEntry.nameTable();
+    long seen = 0;
+    BitSet seenPastFirst64 = null;
+    Set<String> skipped = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      final String name = reader.nextFieldName(nameTable);
+      final int slot = ClassCacheEntry.slot(nameTable, name);
+      if (slot == -1) {
+        reader.skipValue();
+        if (skipped == null) {
+          skipped = new HashSet<>();
+        }
+        if (!skipped.add(name)) {
+          throw reader.duplicateKey(name);
+        }
+        continue;
+      }
+      final Object value = readFieldValue(reader, cacheEntry, name);
+      if (slot < 64) {
+        if ((seen & (1L << slot)) != 0) {
+          throw reader.duplicateKey(name);
+        }
+        seen |= 1L << slot;
+      } else {
+        if (seenPastFirst64 == null) {
+          seenPastFirst64 = new BitSet(nameTable.length);
+        }
+        if (seenPastFirst64.get(slot)) {
+          throw reader.duplicateKey(name);
+        }
+        seenPastFirst64.set(slot);
+      }
+      cacheEntry.set(newObject, name, value);
+    }
+    reader.endObject();
+
+    return newObject;
+  }
+
+  private Object readFieldValue(AsonReader reader, ClassCacheEntry<?> cacheEntry, String name)
+      throws IOException {
+    final AsonToken token = reader.peek();
+    if (token == AsonToken.NULL) {
+      reader.nextNull();
+      return null;
+    }
+    final Class<?> type = cacheEntry.fieldType(name);
+    if (isPrimitive(type)
+        || type == JSONObject.class
+        || type == JSONArray.class
+        || type == Ason.class
+        || type == AsonArray.class) {
+      return readTreeValue(reader);
+    } else if (type.isArray()) {
+      if (token == AsonToken.BEGIN_ARRAY) {
+        return deserializeArray(reader, type, false);
+      }
+      return deserializeArray((AsonArray) readTreeValue(reader), type);
+    } else if (isList(type)) {
+      Class<?> listItemType = cacheEntry.listItemType(name);
+      if (token == AsonToken.BEGIN_ARRAY && listItemType != null) {
+        return deserializeList(reader, listItemType, false);
+      }
+      return deserializeList((AsonArray) readTreeValue(reader), listItemType);
+    } else if (token == AsonToken.BEGIN_OBJECT) {
+      return deserialize(reader, type, false);
+    } else {
+      return deserializeArray((AsonArray) readTreeValue(reader), type);
+    }
+  }
+
+  @Nullable
+  <T> T deserializeArray(@NotNull AsonReader reader, @NotNull Class<T> cls, boolean recursive)
+      throws IOException {
+    checkArrayType(cls);
+    final Class<?> component = cls == Object.class ? Object.class : cls.getComponentType();
+
+    final List<Object> items = new ArrayList<>();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      items.add(readArrayItem(reader, component, recursive));
+    }
+    reader.endArray();
+
+    final T newArray = (T) Array.newInstance(component, items.size());
+    for (int i = 0; i < items.size(); i++) {
+      Array.set(newArray, i, items.get(i));
+    }
+    return newArray;
+  }
+
+  private Object readArrayItem(AsonReader reader, Class<?> component, boolean recursive)
+      throws IOException {
+    final AsonToken token = reader.peek();
+    if (token == AsonToken.NULL) {
+      reader.nextNull();
+      return defaultPrimitiveValue(component);
+    } else if (component == Object.class || isPrimitive(component) || isList(component)) {
+      return deserializeArrayItem(readTreeValue(reader), component, recursive);
+    } else if (component.isArray() && token == AsonToken.BEGIN_ARRAY) {
+      return deserializeArray(reader, component, recursive);
+    } else if (!component.isArray() && token == AsonToken.BEGIN_OBJECT) {
+      return deserialize(reader, component, recursive);
+    }
+    return deserializeArrayItem(readTreeValue(reader), component, recursive);
+  }
+
+  @NotNull
+  <T> List<T> deserializeList(@NotNull AsonReader reader, @NotNull Class<T> cls, boolean recursive)
+      throws IOException {
+    final Object holder = Array.newInstance(cls, 1);
+    final List<T> result = new ArrayList<>();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      result.add(this.<T>readListItem(reader, holder, recursive));
+    }
+    reader.endArray();
+    return result;
+  }
+
+  /**
+   * Reads the next array item as a List element. It passes through a one element array of the
+   * List's type, so values are checked and converted exactly like the tree based deserializeList.
+   */
+  <T> T readListItem(@NotNull AsonReader reader, @NotNull Object holder, boolean recursive)
+      throws IOException {
+    Array.set(holder, 0, readArrayItem(reader, holder.getClass().getComponentType(), recursive));
+    return (T) Array.get(holder, 0);
+  }
+
+  /** Reads the next value the same way {@link Ason#get(String)} would return it. */
+  private static Object readTreeValue(AsonReader reader) throws IOException {
+    Object value = reader.readTree();
+    if (value instanceof JSONObject) {
+      return new Ason((JSONObject) value);
+    } else if (value instanceof JSONArray) {
+      return new AsonArray((JSONArray) value);
+    } else if (isNull(value)) {
+      return null;
+    }
+    return value;
+  }
 }
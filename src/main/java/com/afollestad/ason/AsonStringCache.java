@@ -0,0 +1,107 @@
+package com.afollestad.ason;
+
+/**
+ * Hands out one String instance for text that repeats across a document, like object keys and
+ * enum-like values, so that a thousand objects with the same twenty keys hold twenty Strings rather
+ * than twenty thousand. Lookups go straight from the parser's char buffer, a hit doesn't build a
+ * String at all.
+ *
+ * <p>The cache is a fixed table where a new String replaces whatever was in its slot, so it never
+ * grows past its size. It's safe to share between threads and parsers.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class AsonStringCache {
+
+  public static final int DEFAULT_SIZE = 1024;
+  /** Longer keys are rare, and unlikely to repeat. */
+  public static final int MAX_KEY_LENGTH = 64;
+
+  /** What parsers use unless they're given another cache: keys only, shared by all of them. */
+  public static final AsonStringCache KEYS = new AsonStringCache(DEFAULT_SIZE);
+
+  private final String[] table;
+  private final int maxValueLength;
+
+  /** Caches keys only. */
+  public AsonStringCache(int size) {
+    this(size, 0);
+  }
+
+  /**
+   * Caches keys, and string values of up to maxValueLength chars. Values are worth caching when
+   * most of the short ones come from a small set, otherwise they just churn through the table.
+   */
+  public AsonStringCache(int size, int maxValueLength) {
+    if (size < 1) {
+      throw new IllegalArgumentException("Size must be at least 1: " + size);
+    }
+    int capacity = 1;
+    while (capacity < size) {
+      capacity <<= 1;
+    }
+    this.table = new String[capacity];
+    this.maxValueLength = maxValueLength;
+  }
+
+  /** The number of slots, which is the size rounded up to a power of two. */
+  public int size() {
+    return table.length;
+  }
+
+  public int maxValueLength() {
+    return maxValueLength;
+  }
+
+  public void clear() {
+    for (int i = 0; i < table.length; i++) {
+      table[i] = null;
+    }
+  }
+
+  String key(char[] chars, int offset, int length) {
+    if (length > MAX_KEY_LENGTH) {
+      return new String(chars, offset, length);
+    }
+    return get(chars, offset, length);
+  }
+
+  String value(char[] chars, int offset, int length) {
+    if (length > maxValueLength) {
+      return new String(chars, offset, length);
+    }
+    return get(chars, offset, length);
+  }
+
+  /**
+   * Slots are only ever read and written whole, and a String is safely published by its final
+   * fields, so a race at worst costs a miss.
+   */
+  private String get(char[] chars, int offset, int length) {
+    int hash = 0;
+    for (int i = offset; i < offset + length; i++) {
+      hash = 31 * hash + chars[i];
+    }
+    final String[] table = this.table;
+    final int slot = (hash ^ (hash >>> 16)) & (table.length - 1);
+    final String candidate = table[slot];
+    if (candidate != null
+        && candidate.length() == length
+        && regionMatches(candidate, chars, offset)) {
+      return candidate;
+    }
+    final String result = new String(chars, offset, length);
+    table[slot] = result;
+    return result;
+  }
+
+  private static boolean regionMatches(String name, char[] chars, int offset) {
+    for (int i = 0; i < name.length(); i++) {
+      if (name.charAt(i) != chars[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
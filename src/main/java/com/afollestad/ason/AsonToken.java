@@ -0,0 +1,19 @@
+package com.afollestad.ason;
+
+/**
+ * The kinds of tokens an {@link AsonReader} can encounter.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+public enum AsonToken {
+  BEGIN_OBJECT,
+  END_OBJECT,
+  BEGIN_ARRAY,
+  END_ARRAY,
+  NAME,
+  STRING,
+  NUMBER,
+  BOOLEAN,
+  NULL,
+  END_DOCUMENT
+}
@@ -0,0 +1,728 @@
+package com.afollestad.ason;
+
+import static com.afollestad.ason.AsonParser.C_PLAIN;
+import static com.afollestad.ason.AsonParser.HEX_VALUE;
+import static com.afollestad.ason.AsonParser.STRING_CLASS;
+import static com.afollestad.ason.AsonParser.WHITESPACE;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Checks that input is well-formed JSON without building anything. Every input goes through a small
+ * buffer that each thread reuses, so a check allocates nothing unless the input turns out to be
+ * invalid and the error is asked for. Any value is accepted at the top level, as RFC 8259 allows.
+ * Duplicate keys aren't caught, since that would take remembering every key.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+final class AsonValidator {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private static final int OK = 0;
+  private static final int END = 1;
+  private static final int TRAILING = 2;
+  private static final int CHARACTER = 3;
+  private static final int EXPECTED = 4;
+  private static final int UNTERMINATED = 5;
+  private static final int CONTROL = 6;
+  private static final int ESCAPE = 7;
+  private static final int UNICODE_ESCAPE = 8;
+  private static final int UNTERMINATED_ESCAPE = 9;
+  private static final int NUMBER = 10;
+  private static final int UTF_8 = 11;
+  private static final int DEPTH = 12;
+  private static final int INPUT = 13;
+  private static final int STRING = 14;
+  private static final int OBJECT = 15;
+  private static final int ARRAY = 16;
+
+  private static final String[] REASONS = {
+    null,
+    "Unexpected end of input",
+    "Unexpected trailing content",
+    null,
+    null,
+    "Unterminated string",
+    "Unescaped control character in string",
+    "Illegal escape",
+    "Illegal unicode escape",
+    "Unterminated unicode escape",
+    "Malformed number",
+    "Malformed UTF-8"
+  };
+
+  private static final ThreadLocal<AsonValidator> VALIDATORS =
+      new ThreadLocal<AsonValidator>() {
+        @Override
+        protected AsonValidator initialValue() {
+          return new AsonValidator();
+        }
+      };
+
+  private final char[] buf = new char[BUFFER_SIZE];
+  /** Bytes read from a stream before they're widened into buf. */
+  private byte[] raw;
+
+  private boolean busy;
+
+  @Nullable private String text;
+  @Nullable private byte[] bytes;
+  @Nullable private InputStream in;
+  private int sourcePos;
+  private int sourceEnd;
+  /** True when buf holds UTF-8 bytes rather than chars. */
+  private boolean utf8;
+
+  private int pos;
+  private int limit;
+  /** How much input has been shifted out of the front of the buffer. */
+  private long discarded;
+
+  private long line;
+  private long lineStart;
+  private int depth;
+  private boolean[] objects = new boolean[32];
+  /** How many names or elements the object or array at each level has seen so far. */
+  private int[] counts = new int[32];
+
+  private int maxDepth;
+  private long maxInputLength;
+  private int maxStringLength;
+  private int maxObjectSize;
+  private int maxArraySize;
+
+  private int error;
+  @Nullable private String expected;
+  private int errorPos;
+
+  private AsonValidator() {}
+
+  static boolean isValid(@NotNull String json, @NotNull AsonLimits limits) {
+    return checkInMemory(json, null, limits, false);
+  }
+
+  static boolean isValid(@NotNull byte[] json, @NotNull AsonLimits limits) {
+    return checkInMemory(null, json, limits, false);
+  }
+
+  static boolean isValid(@NotNull InputStream json, @NotNull AsonLimits limits) throws IOException {
+    return check(null, null, json, limits, false);
+  }
+
+  static void validate(@NotNull String json, @NotNull AsonLimits limits) {
+    checkInMemory(json, null, limits, true);
+  }
+
+  static void validate(@NotNull byte[] json, @NotNull AsonLimits limits) {
+    checkInMemory(null, json, limits, true);
+  }
+
+  static void validate(@NotNull InputStream json, @NotNull AsonLimits limits) throws IOException {
+    check(null, null, json, limits, true);
+  }
+
+  private static boolean checkInMemory(
+      @Nullable String text, @Nullable byte[] bytes, AsonLimits limits, boolean report) {
+    try {
+      return check(text, bytes, null, limits, report);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static boolean check(
+      @Nullable String text,
+      @Nullable byte[] bytes,
+      @Nullable InputStream in,
+      AsonLimits limits,
+      boolean report)
+      throws IOException {
+    AsonValidator validator = VALIDATORS.get();
+    if (validator.busy) {
+      // Only happens if a stream that's being checked checks something else while it's read.
+      validator = new AsonValidator();
+    }
+    validator.busy = true;
+    try {
+      validator.reset(text, bytes, in, limits);
+      if (validator.scan()) {
+        return true;
+      } else if (report) {
+        throw validator.exception();
+      }
+      return false;
+    } finally {
+      validator.text = null;
+      validator.bytes = null;
+      validator.in = null;
+      validator.busy = false;
+    }
+  }
+
+  private void reset(
+      @Nullable String text, @Nullable byte[] bytes, @Nullable InputStream in, AsonLimits limits) {
+    this.text = text;
+    this.bytes = bytes;
+    this.in = in;
+    this.sourcePos = 0;
+    this.sourceEnd = text != null ? text.length() : bytes != null ? bytes.length : 0;
+    this.utf8 = text == null;
+    this.pos = 0;
+    this.limit = 0;
+    this.discarded = 0;
+    this.line = 1;
+    this.lineStart = 0;
+    this.depth = 0;
+    this.maxDepth = limits.maxDepth;
+    this.maxInputLength = limits.maxInputLength;
+    this.maxStringLength = limits.maxStringLength;
+    this.maxObjectSize = limits.maxObjectSize;
+    this.maxArraySize = limits.maxArraySize;
+    this.error = OK;
+    this.expected = null;
+  }
+
+  //
+  ////// INPUT
+  //
+
+  /** Moves what's left from pos on to the front of the buffer, and reads more in after it. */
+  private boolean fill() throws IOException {
+    if (error != OK) {
+      return false;
+    }
+    final int kept = limit - pos;
+    if (pos > 0) {
+      System.arraycopy(buf, pos, buf, 0, kept);
+      discarded += pos;
+      pos = 0;
+      limit = kept;
+    }
+    final int read = read(limit, buf.length - limit);
+    if (read <= 0) {
+      return false;
+    }
+    limit += read;
+    if (discarded + limit > maxInputLength) {
+      return fail(INPUT);
+    }
+    return true;
+  }
+
+  private int read(int offset, int length) throws IOException {
+    final char[] buf = this.buf;
+    if (text != null) {
+      final int count = Math.min(length, sourceEnd - sourcePos);
+      text.getChars(sourcePos, sourcePos + count, buf, offset);
+      sourcePos += count;
+      return count;
+    }
+    final byte[] source;
+    final int start;
+    final int count;
+    if (in != null) {
+      if (raw == null) {
+        raw = new byte[BUFFER_SIZE];
+      }
+      count = in.read(raw, 0, length);
+      source = raw;
+      start = 0;
+    } else {
+      count = Math.min(length, sourceEnd - sourcePos);
+      source = bytes;
+      start = sourcePos;
+      sourcePos += count;
+    }
+    for (int i = 0; i < count; i++) {
+      buf[offset + i] = (char) (source[start + i] & 0xFF);
+    }
+    return count;
+  }
+
+  /** Makes sure at least count chars from pos on are buffered, false if the input ends first. */
+  private boolean ensure(int count) throws IOException {
+    while (limit - pos < count) {
+      if (!fill()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns the char at pos without consuming it, or -1 at the end of input. */
+  private int peek() throws IOException {
+    if (pos == limit && !fill()) {
+      return -1;
+    }
+    return buf[pos];
+  }
+
+  /**
+   * Returns the next char that isn't whitespace without consuming it, or -1 at the end of input.
+   */
+  private int nextNonWhitespace() throws IOException {
+    if (pos < limit) {
+      final char c = buf[pos];
+      if (c > ' ') {
+        return c;
+      }
+    }
+    return skipWhitespace();
+  }
+
+  private int skipWhitespace() throws IOException {
+    final char[] buf = this.buf;
+    int p = pos;
+    int limit = this.limit;
+    while (true) {
+      if (p == limit) {
+        pos = p;
+        if (!fill()) {
+          return -1;
+        }
+        p = pos;
+        limit = this.limit;
+      }
+      final char c = buf[p];
+      if (c >= 128 || !WHITESPACE[c]) {
+        pos = p;
+        return c;
+      } else if (c == '\n') {
+        line++;
+        lineStart = discarded + p + 1;
+      }
+      p++;
+    }
+  }
+
+  //
+  ////// GRAMMAR
+  //
+
+  private boolean scan() throws IOException {
+    int c = nextNonWhitespace();
+    while (true) {
+      switch (c) {
+        case '{':
+          if (!enter(true)) {
+            return false;
+          }
+          pos++;
+          c = nextNonWhitespace();
+          if (c != '}') {
+            if (!name(c)) {
+              return false;
+            }
+            c = nextNonWhitespace();
+            continue;
+          }
+          pos++;
+          depth--;
+          break;
+        case '[':
+          if (!enter(false)) {
+            return false;
+          }
+          pos++;
+          c = nextNonWhitespace();
+          if (c != ']') {
+            continue;
+          }
+          pos++;
+          depth--;
+          break;
+        case '"':
+          pos++;
+          if (!string()) {
+            return false;
+          }
+          break;
+        case 't':
+          if (!literal("true", "'true'")) {
+            return false;
+          }
+          break;
+        case 'f':
+          if (!literal("false", "'false'")) {
+            return false;
+          }
+          break;
+        case 'n':
+          if (!literal("null", "'null'")) {
+            return false;
+          }
+          break;
+        default:
+          if (c == '-' || (c >= '0' && c <= '9')) {
+            if (!number()) {
+              return false;
+            }
+            break;
+          }
+          return fail(c < 0 ? END : CHARACTER);
+      }
+      // A value just ended, close everything it completes up to the next value.
+      while (true) {
+        c = nextNonWhitespace();
+        if (depth == 0) {
+          return c < 0 ? error == OK : fail(TRAILING);
+        }
+        final boolean object = objects[depth];
+        if (c == ',') {
+          pos++;
+          c = nextNonWhitespace();
+          if (!element(object)) {
+            return false;
+          }
+          if (object) {
+            if (!name(c)) {
+              return false;
+            }
+            c = nextNonWhitespace();
+          }
+          break;
+        } else if (c != (object ? '}' : ']')) {
+          return fail(EXPECTED, object ? "a ',' or '}'" : "a ',' or ']'");
+        }
+        pos++;
+        depth--;
+      }
+    }
+  }
+
+  /** Counts an object or array being opened. */
+  private boolean enter(boolean object) {
+    if (depth == maxDepth) {
+      return fail(DEPTH);
+    }
+    if (++depth == objects.length) {
+      objects = Arrays.copyOf(objects, depth * 2);
+      counts = Arrays.copyOf(counts, depth * 2);
+    }
+    objects[depth] = object;
+    counts[depth] = 1;
+    return true;
+  }
+
+  /** Counts a name or element after the first. */
+  private boolean element(boolean object) {
+    final int count = counts[depth];
+    if (object ? count == maxObjectSize : count == maxArraySize) {
+      return fail(object ? OBJECT : ARRAY);
+    }
+    counts[depth] = count + 1;
+    return true;
+  }
+
+  /** Reads a name and the colon after it, c being the name's first char. */
+  private boolean name(int c) throws IOException {
+    if (c != '"') {
+      return fail(EXPECTED, "a string key");
+    }
+    pos++;
+    if (!string()) {
+      return false;
+    } else if (nextNonWhitespace() != ':') {
+      return fail(EXPECTED, "a ':' after a key");
+    }
+    pos++;
+    return true;
+  }
+
+  /** Reads a string whose opening quote has already been consumed. */
+  private boolean string() throws IOException {
+    final char[] buf = this.buf;
+    final boolean utf8 = this.utf8;
+    int p = pos;
+    int limit = this.limit;
+    long length = 0;
+    while (true) {
+      // Skips a run of plain chars, counted all at once.
+      final int run = p;
+      char c = 0;
+      while (p < limit) {
+        c = buf[p];
+        if (c < 128 ? STRING_CLASS[c] != C_PLAIN : utf8) {
+          break;
+        }
+        p++;
+      }
+      length += p - run;
+      pos = p;
+      if (p == limit) {
+        if (length > maxStringLength) {
+          return fail(STRING);
+        } else if (!fill()) {
+          return fail(UNTERMINATED);
+        }
+      } else if (c == '"') {
+        if (length > maxStringLength) {
+          return fail(STRING);
+        }
+        pos++;
+        return true;
+      } else if (c == '\\') {
+        if (!escape()) {
+          return false;
+        }
+        length++;
+      } else if (c < 128) {
+        return fail(CONTROL);
+      } else {
+        final int decoded = utf8Sequence(c);
+        if (decoded == 0) {
+          return false;
+        }
+        length += decoded;
+      }
+      p = pos;
+      limit = this.limit;
+    }
+  }
+
+  /** Reads the escape sequence starting at the backslash at pos. */
+  private boolean escape() throws IOException {
+    if (!ensure(2)) {
+      return fail(UNTERMINATED);
+    }
+    switch (buf[pos + 1]) {
+      case '"':
+      case '\\':
+      case '/':
+      case 'b':
+      case 'f':
+      case 'n':
+      case 'r':
+      case 't':
+        pos += 2;
+        return true;
+      case 'u':
+        pos += 2;
+        if (!ensure(4)) {
+          pos = limit;
+          return fail(UNTERMINATED_ESCAPE);
+        }
+        for (int i = 0; i < 4; i++) {
+          final char h = buf[pos + i];
+          if (h >= 128 || HEX_VALUE[h] < 0) {
+            pos += i;
+            return fail(UNICODE_ESCAPE);
+          }
+        }
+        pos += 4;
+        return true;
+      default:
+        pos++;
+        return fail(ESCAPE);
+    }
+  }
+
+  /**
+   * Checks the UTF-8 sequence led by the byte at pos, rejecting overlong forms and surrogates.
+   * Returns how many UTF-16 chars it decodes to, or 0 if it's malformed.
+   */
+  private int utf8Sequence(int lead) throws IOException {
+    final int following;
+    if (lead >= 0xC2 && lead <= 0xDF) {
+      following = 1;
+    } else if (lead >= 0xE0 && lead <= 0xEF) {
+      following = 2;
+    } else if (lead >= 0xF0 && lead <= 0xF4) {
+      following = 3;
+    } else {
+      fail(UTF_8);
+      return 0;
+    }
+    if (!ensure(following + 1)) {
+      fail(UTF_8);
+      return 0;
+    }
+    final int p = pos;
+    for (int i = 1; i <= following; i++) {
+      final char c = buf[p + i];
+      int low = 0x80;
+      int high = 0xBF;
+      if (i == 1) {
+        if (lead == 0xE0) {
+          low = 0xA0;
+        } else if (lead == 0xED) {
+          high = 0x9F;
+        } else if (lead == 0xF0) {
+          low = 0x90;
+        } else if (lead == 0xF4) {
+          high = 0x8F;
+        }
+      }
+      if (c < low || c > high) {
+        pos = p + i;
+        fail(UTF_8);
+        return 0;
+      }
+    }
+    pos = p + following + 1;
+    return following == 3 ? 2 : 1;
+  }
+
+  private boolean literal(String literal, String expected) throws IOException {
+    final int length = literal.length();
+    if (!ensure(length)) {
+      return fail(END);
+    }
+    for (int i = 1; i < length; i++) {
+      if (buf[pos + i] != literal.charAt(i)) {
+        pos += i;
+        return fail(EXPECTED, expected);
+      }
+    }
+    pos += length;
+    return true;
+  }
+
+  private boolean number() throws IOException {
+    final int end = AsonParser.numberEnd(buf, pos, limit);
+    if (end == limit) {
+      return numberAcrossFill();
+    } else if (!AsonParser.isValidNumber(buf, pos, end)) {
+      return fail(NUMBER);
+    } else if (end - pos > maxStringLength) {
+      return fail(STRING);
+    }
+    pos = end;
+    return true;
+  }
+
+  /** Checks a number that may run past what's buffered, a char at a time. */
+  private boolean numberAcrossFill() throws IOException {
+    final long start = discarded + pos;
+    int c = buf[pos];
+    if (c == '-') {
+      pos++;
+      c = peek();
+    }
+    if (c == '0') {
+      pos++;
+      c = peek();
+    } else if (c >= '1' && c <= '9') {
+      c = digits();
+    } else {
+      return fail(NUMBER);
+    }
+    if (c == '.') {
+      pos++;
+      c = peek();
+      if (c < '0' || c > '9') {
+        return fail(NUMBER);
+      }
+      c = digits();
+    }
+    if (c == 'e' || c == 'E') {
+      pos++;
+      c = peek();
+      if (c == '+' || c == '-') {
+        pos++;
+        c = peek();
+      }
+      if (c < '0' || c > '9') {
+        return fail(NUMBER);
+      }
+      c = digits();
+    }
+    if (c >= 0 && AsonParser.isNumberChar((char) c)) {
+      // Like the parsers, "01" or "1.2.3" is one malformed number rather than two.
+      return fail(NUMBER);
+    } else if (discarded + pos - start > maxStringLength) {
+      return fail(STRING);
+    }
+    return true;
+  }
+
+  /** Skips a run of digits, returning the char after it. */
+  private int digits() throws IOException {
+    final char[] buf = this.buf;
+    while (true) {
+      int p = pos;
+      final int limit = this.limit;
+      while (p < limit) {
+        final char c = buf[p];
+        if (c < '0' || c > '9') {
+          pos = p;
+          return c;
+        }
+        p++;
+      }
+      pos = p;
+      if (!fill()) {
+        return -1;
+      }
+    }
+  }
+
+  //
+  ////// ERRORS
+  //
+
+  /** Records the first error and where it is, always returns false. */
+  private boolean fail(int error) {
+    return fail(error, null);
+  }
+
+  private boolean fail(int error, @Nullable String expected) {
+    if (this.error == OK) {
+      this.error = error;
+      this.expected = expected;
+      this.errorPos = Math.min(pos, limit);
+    }
+    return false;
+  }
+
+  private InvalidJsonException exception() {
+    final InvalidJsonException e;
+    switch (error) {
+      case INPUT:
+        return AsonLimits.inputExceeded(maxInputLength);
+      case DEPTH:
+        e = AsonLimits.depthExceeded(maxDepth);
+        break;
+      case STRING:
+        e = AsonLimits.stringExceeded(maxStringLength);
+        break;
+      case OBJECT:
+        e = AsonLimits.objectExceeded(maxObjectSize);
+        break;
+      case ARRAY:
+        e = AsonLimits.arrayExceeded(maxArraySize);
+        break;
+      case EXPECTED:
+        e = new InvalidJsonException("Expected " + expected, expected);
+        break;
+      case CHARACTER:
+        final char c = buf[errorPos];
+        e =
+            new InvalidJsonException(
+                utf8 && c >= 128
+                    ? "Unexpected byte 0x" + Integer.toHexString(c).toUpperCase()
+                    : "Unexpected character '" + c + "'");
+        break;
+      default:
+        e = new InvalidJsonException(REASONS[error]);
+        break;
+    }
+    final long offset = discarded + errorPos;
+    final long column = offset - lineStart + 1;
+    if (!utf8) {
+      return e.at(buf, 0, limit, errorPos, offset, line, column);
+    }
+    final int from = Math.max(0, errorPos - InvalidJsonException.EXCERPT_RADIUS);
+    final int to = Math.min(limit, errorPos + InvalidJsonException.EXCERPT_RADIUS);
+    final byte[] excerpt = new byte[to - from];
+    for (int i = 0; i < excerpt.length; i++) {
+      excerpt[i] = (byte) buf[from + i];
+    }
+    return e.atByte(excerpt, 0, excerpt.length, errorPos - from, offset, line, column);
+  }
+}
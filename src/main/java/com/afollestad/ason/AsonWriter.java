@@ -0,0 +1,506 @@
+package com.afollestad.ason;
+
+import static com.afollestad.ason.Util.isPrimitive;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Writes a JSON document one token at a time. Text is collected in a small buffer that's handed to
+ * the output whenever it fills up, so a large document never exists as one String. Strings and
+ * numbers come out exactly as in toString().
+ *
+ * <p>With an indent set, every name and element goes on a line of its own. That differs from
+ * toString(int), which keeps objects and arrays with only one entry on one line, since a writer
+ * can't know ahead of time how many entries there will be.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class AsonWriter implements Closeable, Flushable {
+
+  private static final int BUFFER_SIZE = Utf8Writer.BUFFER_SIZE;
+
+  private static final int SCOPE_EMPTY_DOCUMENT = 0;
+  private static final int SCOPE_NONEMPTY_DOCUMENT = 1;
+  private static final int SCOPE_EMPTY_ARRAY = 2;
+  private static final int SCOPE_NONEMPTY_ARRAY = 3;
+  private static final int SCOPE_EMPTY_OBJECT = 4;
+  private static final int SCOPE_DANGLING_NAME = 5;
+  private static final int SCOPE_NONEMPTY_OBJECT = 6;
+  private static final int SCOPE_CLOSED = 7;
+  /** After a name that was written with its colon already. */
+  private static final int SCOPE_DANGLING_PREFIX = 8;
+
+  private final Appendable out;
+  /**
+   * Collects text until it's written out, unless the output is a StringBuilder itself. When writing
+   * bytes, it only holds what the printer appends until that's encoded.
+   */
+  private final StringBuilder buffer;
+  /** Set when writing to an OutputStream, which is encoded into directly. */
+  private final Utf8Writer utf8;
+
+  private final AsonPrinter printer;
+  private char[] chunk;
+  private int[] stack = new int[32];
+  private int stackSize;
+  private int indentSpaces;
+
+  public AsonWriter(@NotNull Writer out) {
+    this((Appendable) out);
+  }
+
+  /** Writes UTF-8. */
+  public AsonWriter(@NotNull OutputStream out) {
+    this(new Utf8Writer(out));
+  }
+
+  AsonWriter(Utf8Writer utf8) {
+    this.out = null;
+    this.buffer = new StringBuilder(32);
+    this.utf8 = utf8;
+    this.printer = new AsonPrinter(buffer, 0);
+    push(SCOPE_EMPTY_DOCUMENT);
+  }
+
+  /** Appends straight to a StringBuilder, anything else is written to a buffer at a time. */
+  public AsonWriter(@NotNull Appendable out) {
+    this.out = out;
+    this.buffer =
+        out instanceof StringBuilder
+            ? (StringBuilder) out
+            : OutputBufferPool.acquireChars(BUFFER_SIZE + 64);
+    this.utf8 = null;
+    this.printer = new AsonPrinter(buffer, 0);
+    push(SCOPE_EMPTY_DOCUMENT);
+  }
+
+  /** Pretty prints, indenting each level by the given number of spaces. 0 prints compactly. */
+  public void setIndent(int indentSpaces) {
+    if (indentSpaces < 0) {
+      throw new IllegalArgumentException("Indent can't be negative: " + indentSpaces);
+    }
+    this.indentSpaces = indentSpaces;
+  }
+
+  public int getIndent() {
+    return indentSpaces;
+  }
+
+  //
+  ////// TOKENS
+  //
+
+  public AsonWriter beginObject() throws IOException {
+    beforeValue();
+    push(SCOPE_EMPTY_OBJECT);
+    append('{');
+    return this;
+  }
+
+  public AsonWriter endObject() throws IOException {
+    return end(SCOPE_EMPTY_OBJECT, SCOPE_NONEMPTY_OBJECT, '}');
+  }
+
+  public AsonWriter beginArray() throws IOException {
+    beforeValue();
+    push(SCOPE_EMPTY_ARRAY);
+    append('[');
+    return this;
+  }
+
+  public AsonWriter endArray() throws IOException {
+    return end(SCOPE_EMPTY_ARRAY, SCOPE_NONEMPTY_ARRAY, ']');
+  }
+
+  public AsonWriter name(@NotNull String name) throws IOException {
+    if (name == null) {
+      throw new NullPointerException("name == null");
+    }
+    beforeName(name);
+    stack[stackSize - 1] = SCOPE_DANGLING_NAME;
+    writeString(name);
+    return this;
+  }
+
+  /**
+   * Writes a name that's already quoted, escaped and followed by its colon, given as text and as
+   * UTF-8 so either kind of output can copy it as is.
+   */
+  AsonWriter name(String prefix, byte[] utf8Prefix) throws IOException {
+    beforeName(prefix);
+    stack[stackSize - 1] = SCOPE_DANGLING_PREFIX;
+    if (utf8 != null) {
+      utf8.write(utf8Prefix);
+    } else {
+      buffer.append(prefix);
+    }
+    return this;
+  }
+
+  private void beforeName(String name) throws IOException {
+    final int scope = peek();
+    if (scope == SCOPE_NONEMPTY_OBJECT) {
+      append(',');
+    } else if (scope != SCOPE_EMPTY_OBJECT) {
+      throw new IllegalStateException(
+          scope == SCOPE_DANGLING_NAME || scope == SCOPE_DANGLING_PREFIX
+              ? "Expected a value after name " + name
+              : "Names can only be written inside of an object");
+    }
+    newline();
+  }
+
+  /** Writes a string, or null if it's null. */
+  public AsonWriter value(@Nullable String value) throws IOException {
+    if (value == null) {
+      return nullValue();
+    }
+    beforeValue();
+    writeString(value);
+    return written();
+  }
+
+  public AsonWriter value(boolean value) throws IOException {
+    beforeValue();
+    append(value ? "true" : "false");
+    return written();
+  }
+
+  public AsonWriter value(long value) throws IOException {
+    beforeValue();
+    if (utf8 != null) {
+      utf8.write(value);
+    } else {
+      buffer.append(value);
+    }
+    return written();
+  }
+
+  /** JSON has no way to write NaN or infinity, those are rejected. */
+  public AsonWriter value(double value) throws IOException {
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      throw new IllegalArgumentException("JSON doesn't allow non-finite numbers: " + value);
+    }
+    beforeValue();
+    printer.writeDouble(value);
+    return printed();
+  }
+
+  public AsonWriter value(@Nullable Number value) throws IOException {
+    if (value == null) {
+      return nullValue();
+    }
+    final double d = value.doubleValue();
+    if ((value instanceof Double || value instanceof Float)
+        && (Double.isNaN(d) || Double.isInfinite(d))) {
+      throw new IllegalArgumentException("JSON doesn't allow non-finite numbers: " + value);
+    }
+    beforeValue();
+    printer.writeValue(value, 0);
+    return printed();
+  }
+
+  public AsonWriter nullValue() throws IOException {
+    beforeValue();
+    append("null");
+    return written();
+  }
+
+  /** Writes a value that's already printed compactly, as is. */
+  AsonWriter rawValue(String json) throws IOException {
+    beforeValue();
+    if (utf8 != null) {
+      utf8.write(json);
+    } else {
+      buffer.append(json);
+    }
+    return written();
+  }
+
+  /**
+   * Writes an Ason, AsonArray, stock JSON value, primitive, array, List or any serializable object
+   * as the next value. Objects and arrays are written token by token like everything else, so they
+   * get indented and flushed the same way.
+   */
+  public AsonWriter value(@Nullable Object value) throws IOException {
+    if (value == null
+        || value instanceof Ason
+        || value instanceof AsonArray
+        || value instanceof JSONObject
+        || value instanceof JSONArray
+        || isPrimitive(value)) {
+      writeTree(ChunkedPrinter.toTree(value));
+    } else {
+      AsonSerializer.get().serializeTo(value, this, false);
+    }
+    return this;
+  }
+
+  private void writeTree(Object value) throws IOException {
+    if (value == null || value.equals(null)) {
+      nullValue();
+    } else if (value instanceof String) {
+      value((String) value);
+    } else if (value instanceof JSONObject) {
+      final JSONObject object = (JSONObject) value;
+      beginObject();
+      final Iterator<String> keys = object.keys();
+      while (keys.hasNext()) {
+        final String key = keys.next();
+        name(key);
+        writeTree(object.opt(key));
+      }
+      endObject();
+    } else if (value instanceof JSONArray) {
+      final JSONArray array = (JSONArray) value;
+      beginArray();
+      for (int i = 0; i < array.length(); i++) {
+        writeTree(array.opt(i));
+      }
+      endArray();
+    } else if (value instanceof Map) {
+      writeTree(new JSONObject((Map<?, ?>) value));
+    } else if (value instanceof Collection) {
+      writeTree(new JSONArray((Collection<?>) value));
+    } else if (value.getClass().isArray()) {
+      writeTree(new JSONArray(value));
+    } else if (value instanceof Number) {
+      value((Number) value);
+    } else {
+      beforeValue();
+      printer.writeValue(value, 0);
+      printed();
+    }
+  }
+
+  //
+  ////// STATE
+  //
+
+  private int peek() {
+    return stack[stackSize - 1];
+  }
+
+  private void push(int scope) {
+    if (stackSize == stack.length) {
+      int[] grown = new int[stackSize * 2];
+      System.arraycopy(stack, 0, grown, 0, stackSize);
+      stack = grown;
+    }
+    stack[stackSize++] = scope;
+  }
+
+  /** Writes whatever has to come between the previous token and a value. */
+  private void beforeValue() throws IOException {
+    switch (peek()) {
+      case SCOPE_EMPTY_DOCUMENT:
+        stack[stackSize - 1] = SCOPE_NONEMPTY_DOCUMENT;
+        break;
+      case SCOPE_EMPTY_ARRAY:
+        stack[stackSize - 1] = SCOPE_NONEMPTY_ARRAY;
+        newline();
+        break;
+      case SCOPE_NONEMPTY_ARRAY:
+        append(',');
+        newline();
+        break;
+      case SCOPE_DANGLING_NAME:
+        append(':');
+        afterName();
+        break;
+      case SCOPE_DANGLING_PREFIX:
+        afterName();
+        break;
+      case SCOPE_NONEMPTY_DOCUMENT:
+        throw new IllegalStateException("A document can only have one top-level value");
+      case SCOPE_CLOSED:
+        throw new IllegalStateException("AsonWriter is closed");
+      default:
+        throw new IllegalStateException("Expected a name before a value inside of an object");
+    }
+  }
+
+  private void afterName() throws IOException {
+    if (indentSpaces > 0) {
+      append(' ');
+    }
+    stack[stackSize - 1] = SCOPE_NONEMPTY_OBJECT;
+  }
+
+  private AsonWriter end(int empty, int nonempty, char bracket) throws IOException {
+    final int scope = peek();
+    if (scope == SCOPE_DANGLING_NAME || scope == SCOPE_DANGLING_PREFIX) {
+      throw new IllegalStateException("Expected a value after the last name");
+    } else if (scope != empty && scope != nonempty) {
+      throw new IllegalStateException(
+          "Can't close with '" + bracket + "', it doesn't match what was opened");
+    }
+    stackSize--;
+    if (scope == nonempty) {
+      newline();
+    }
+    append(bracket);
+    return written();
+  }
+
+  private void newline() throws IOException {
+    if (indentSpaces == 0) {
+      return;
+    }
+    append('\n');
+    for (int i = (stackSize - 1) * indentSpaces; i > 0; i--) {
+      append(' ');
+    }
+  }
+
+  //
+  ////// OUTPUT
+  //
+
+  private void append(char c) throws IOException {
+    if (utf8 != null) {
+      utf8.write(c);
+    } else {
+      buffer.append(c);
+    }
+  }
+
+  private void append(String ascii) throws IOException {
+    if (utf8 != null) {
+      utf8.write(ascii);
+    } else {
+      buffer.append(ascii);
+    }
+  }
+
+  private void writeString(String string) throws IOException {
+    if (utf8 != null) {
+      utf8.writeString(string);
+    } else {
+      printer.writeString(string);
+    }
+  }
+
+  /** Encodes whatever the printer appended, when writing bytes. */
+  private AsonWriter printed() throws IOException {
+    if (utf8 != null) {
+      utf8.write(buffer);
+      buffer.setLength(0);
+    }
+    return written();
+  }
+
+  /** Hands the buffer to the output once it's full, the UTF-8 writer does that by itself. */
+  private AsonWriter written() throws IOException {
+    if (buffer.length() >= BUFFER_SIZE && buffer != out && utf8 == null) {
+      drain();
+    }
+    return this;
+  }
+
+  private void drain() throws IOException {
+    if (utf8 != null) {
+      utf8.drain();
+      return;
+    }
+    final int length = buffer.length();
+    if (length == 0 || buffer == out) {
+      return;
+    }
+    if (out instanceof Writer) {
+      if (chunk == null || chunk.length < length) {
+        chunk = new char[Math.max(length, BUFFER_SIZE + 64)];
+      }
+      buffer.getChars(0, length, chunk, 0);
+      ((Writer) out).write(chunk, 0, length);
+    } else {
+      out.append(buffer);
+    }
+    buffer.setLength(0);
+  }
+
+  /** Writes out what's buffered, and flushes the output. */
+  @Override
+  public void flush() throws IOException {
+    if (peek() == SCOPE_CLOSED) {
+      throw new IllegalStateException("AsonWriter is closed");
+    }
+    if (utf8 != null) {
+      utf8.flush();
+    } else {
+      drain();
+      if (out instanceof Flushable) {
+        ((Flushable) out).flush();
+      }
+    }
+  }
+
+  /**
+   * Writes out what's buffered and closes the output. Throws if the document isn't complete, after
+   * closing.
+   */
+  @Override
+  public void close() throws IOException {
+    if (peek() == SCOPE_CLOSED) {
+      return;
+    }
+    final boolean complete = stackSize == 1 && peek() == SCOPE_NONEMPTY_DOCUMENT;
+    stackSize = 1;
+    stack[0] = SCOPE_CLOSED;
+    if (utf8 != null) {
+      utf8.close();
+    } else {
+      drain();
+      release();
+      if (out instanceof Closeable) {
+        ((Closeable) out).close();
+      }
+    }
+    if (!complete) {
+      throw new IOException("Incomplete document");
+    }
+  }
+
+  /** Ends the top level value with a newline so another one can follow it, for JSON Lines. */
+  void endLine() throws IOException {
+    if (stackSize != 1 || peek() != SCOPE_NONEMPTY_DOCUMENT) {
+      throw new IllegalStateException("Expected a complete value before the end of the line");
+    }
+    append('\n');
+    stack[0] = SCOPE_EMPTY_DOCUMENT;
+    written();
+  }
+
+  /**
+   * Writes out what's buffered and hands the buffer back to the pool, but leaves the output open.
+   * Nothing can be written afterwards.
+   */
+  void finish() throws IOException {
+    flush();
+    stackSize = 1;
+    stack[0] = SCOPE_CLOSED;
+    if (utf8 != null) {
+      utf8.release();
+    } else {
+      release();
+    }
+  }
+
+  private void release() {
+    if (buffer != out) {
+      OutputBufferPool.release(buffer);
+    }
+  }
+}
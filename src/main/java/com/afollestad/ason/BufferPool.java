@@ -0,0 +1,42 @@
+package com.afollestad.ason;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Direct buffers for channel I/O. They're expensive to allocate and live outside of the heap, so a
+ * few are kept around for reuse rather than left to the garbage collector.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+final class BufferPool {
+
+  static final int BUFFER_SIZE = 64 << 10;
+  private static final int MAX_POOLED = 16;
+
+  private static final ConcurrentLinkedQueue<ByteBuffer> POOL = new ConcurrentLinkedQueue<>();
+  private static final AtomicInteger POOLED = new AtomicInteger();
+
+  private BufferPool() {}
+
+  /** Returns a cleared buffer of BUFFER_SIZE bytes. */
+  static ByteBuffer acquire() {
+    final ByteBuffer buffer = POOL.poll();
+    if (buffer == null) {
+      return ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+    POOLED.decrementAndGet();
+    buffer.clear();
+    return buffer;
+  }
+
+  /** Hands a buffer back, it mustn't be used afterwards. */
+  static void release(ByteBuffer buffer) {
+    if (POOLED.incrementAndGet() <= MAX_POOLED) {
+      POOL.offer(buffer);
+    } else {
+      POOLED.decrementAndGet();
+    }
+  }
+}
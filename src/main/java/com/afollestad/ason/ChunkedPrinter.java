@@ -0,0 +1,160 @@
+package com.afollestad.ason;
+
+import static com.afollestad.ason.Util.isPrimitive;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Iterator;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Prints a document as compact UTF-8 a buffer at a time, picking up where the last buffer ended.
+ * Only a few KB of text exist at once, however large the document is. The output is the same as
+ * toString().
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+final class ChunkedPrinter {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final int CHUNK_SIZE = 4096;
+
+  private final StringBuilder chars = new StringBuilder(CHUNK_SIZE + 64);
+  private final AsonPrinter printer = new AsonPrinter(chars, 0);
+  private final CharsetEncoder encoder =
+      UTF_8
+          .newEncoder()
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  private CharBuffer pending = CharBuffer.allocate(0);
+
+  private Object root;
+  /** Open containers, with an iterator over the keys of objects or the next index of arrays. */
+  private Object[] containers = new Object[16];
+
+  private Object[] positions = new Object[16];
+  private int[] indexes = new int[16];
+  private int depth;
+  private boolean printed;
+
+  ChunkedPrinter(Object value) {
+    this.root = toTree(value);
+  }
+
+  /** Converts whatever can be written to a channel or stream into something AsonPrinter prints. */
+  static Object toTree(Object value) {
+    if (value == null) {
+      return JSONObject.NULL;
+    } else if (value instanceof Ason) {
+      return ((Ason) value).toPrintableJson();
+    } else if (value instanceof AsonArray) {
+      return ((AsonArray<?>) value).toStockJson();
+    } else if (value instanceof JSONObject || value instanceof JSONArray || isPrimitive(value)) {
+      return value;
+    } else if (value instanceof List) {
+      return Ason.serializeList((List<?>) value).toStockJson();
+    } else if (value.getClass().isArray()) {
+      return Ason.serializeArray(value).toStockJson();
+    }
+    return Ason.serialize(value).toPrintableJson();
+  }
+
+  /** Encodes into the buffer until it's full, returns true once everything is in it. */
+  boolean fill(ByteBuffer out) {
+    while (true) {
+      if (pending.hasRemaining() && encoder.encode(pending, out, false).isOverflow()) {
+        return false;
+      } else if (printed) {
+        return true;
+      }
+      // Chunks end between tokens, so they never split a surrogate pair.
+      chars.setLength(0);
+      printed = print(CHUNK_SIZE);
+      pending = CharBuffer.wrap(chars);
+    }
+  }
+
+  /** Prints until there are at least limit chars, or the document is done. */
+  private boolean print(int limit) {
+    if (root != null) {
+      begin(root);
+      root = null;
+    }
+    while (depth > 0 && chars.length() < limit) {
+      final int top = depth - 1;
+      final Object container = containers[top];
+      if (container instanceof JSONObject) {
+        @SuppressWarnings("unchecked")
+        final Iterator<String> keys = (Iterator<String>) positions[top];
+        if (keys.hasNext()) {
+          final String key = keys.next();
+          if (indexes[top]++ > 0) {
+            chars.append(',');
+          }
+          printer.writeString(key);
+          chars.append(':');
+          begin(((JSONObject) container).opt(key));
+        } else {
+          chars.append('}');
+          pop();
+        }
+      } else {
+        final JSONArray array = (JSONArray) container;
+        final int index = indexes[top];
+        if (index < array.length()) {
+          if (index > 0) {
+            chars.append(',');
+          }
+          indexes[top] = index + 1;
+          begin(array.opt(index));
+        } else {
+          chars.append(']');
+          pop();
+        }
+      }
+    }
+    return depth == 0;
+  }
+
+  private void begin(Object value) {
+    if (value instanceof JSONObject) {
+      chars.append('{');
+      push(value, ((JSONObject) value).keys());
+    } else if (value instanceof JSONArray) {
+      chars.append('[');
+      push(value, null);
+    } else {
+      printer.writeValue(value, 0);
+    }
+  }
+
+  private void push(Object container, Object position) {
+    if (depth == containers.length) {
+      final int size = depth * 2;
+      final Object[] containers = new Object[size];
+      System.arraycopy(this.containers, 0, containers, 0, depth);
+      this.containers = containers;
+      final Object[] positions = new Object[size];
+      System.arraycopy(this.positions, 0, positions, 0, depth);
+      this.positions = positions;
+      final int[] indexes = new int[size];
+      System.arraycopy(this.indexes, 0, indexes, 0, depth);
+      this.indexes = indexes;
+    }
+    containers[depth] = container;
+    positions[depth] = position;
+    indexes[depth] = 0;
+    depth++;
+  }
+
+  private void pop() {
+    depth--;
+    containers[depth] = null;
+    positions[depth] = null;
+  }
+}
@@ -9,31 +9,45 @@ import static com.afollestad.ason.Util.shouldIgnore;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.nio.charset.Charset;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import org.json.JSONObject;
 
 /** @author Aidan Follestad (afollestad) */
 class ClassCacheEntry<T> {
 
-  private boolean gotRecursiveFields;
   private final Class<T> cls;
-  private final Constructor<?> ctor;
-  private final HashMap<String, Field> fieldMap;
-  private final HashMap<String, Class<?>> listGenericTypeMap;
+  /** Looked up on first use, classes that are only ever serialized don't need one. */
+  private volatile Constructor<?> ctor;
+  /**
+   * Entries may be shared between threads, so the maps are never modified once published. Loading
+   * the recursive fields builds new ones and swaps them in.
+   */
+  private volatile boolean gotRecursiveFields;
+
+  private volatile boolean hasPathNames;
+  private volatile HashMap<String, Field> fieldMap;
+  private volatile HashMap<String, Class<?>> listGenericTypeMap;
+  /** Open addressing table of field names, looked up by their chars. */
+  private volatile String[] nameTable;
+
+  private volatile SerializedFields serializedFields;
+  private volatile SerializedFields recursiveSerializedFields;
 
   ClassCacheEntry(Class<T> cls, boolean recursive) {
     this.cls = cls;
     this.fieldMap = new HashMap<>(4);
-    this.ctor = getDefaultConstructor(cls);
     this.listGenericTypeMap = new HashMap<>(0);
     invalidateFields(recursive);
   }
 
-  private void invalidateFields(boolean recursive) {
-    if (recursive) {
-      this.gotRecursiveFields = true;
-    }
+  private synchronized void invalidateFields(boolean recursive) {
+    final HashMap<String, Field> newFieldMap = new HashMap<>(fieldMap);
+    final HashMap<String, Class<?>> newListGenericTypeMap = new HashMap<>(listGenericTypeMap);
+    boolean newHasPathNames = hasPathNames;
     final List<Field> fields = getDeclaredFields(cls, recursive);
     for (Field field : fields) {
       field.setAccessible(true);
@@ -41,20 +55,115 @@ class ClassCacheEntry<T> {
         continue;
       }
       final String name = fieldName(field);
-      this.fieldMap.put(name, field);
+      newFieldMap.put(name, field);
+      if (name.contains(".")) {
+        newHasPathNames = true;
+      }
       if (field.getType() == List.class) {
-        listGenericTypeMap.put(name, listGenericType(field));
+        newListGenericTypeMap.put(name, listGenericType(field));
       }
     }
+    this.fieldMap = newFieldMap;
+    this.listGenericTypeMap = newListGenericTypeMap;
+    this.hasPathNames = newHasPathNames;
+    this.nameTable = null;
+    if (recursive) {
+      this.gotRecursiveFields = true;
+    }
   }
 
   Set<String> fields(boolean recursive) {
     if (!gotRecursiveFields && recursive) {
-      invalidateFields(true);
+      synchronized (this) {
+        if (!gotRecursiveFields) {
+          invalidateFields(true);
+        }
+      }
     }
     return fieldMap.keySet();
   }
 
+  /** True if any field name is a dotted path, which only the tree based deserializer follows. */
+  boolean hasPathNames() {
+    return hasPathNames;
+  }
+
+  /** An open addressing table of the field names, which stays the same once it's built. */
+  String[] nameTable() {
+    final String[] table = nameTable;
+    return table != null ? table : buildNameTable();
+  }
+
+  /** Returns the name in the table equal to the given chars, or null if there isn't one. */
+  static String matchName(String[] table, char[] chars, int offset, int length) {
+    int hash = 0;
+    for (int i = 0; i < length; i++) {
+      hash = 31 * hash + chars[offset + i];
+    }
+    final int mask = table.length - 1;
+    for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+      String candidate = table[i];
+      if (candidate == null) {
+        return null;
+      } else if (candidate.length() == length && regionMatches(candidate, chars, offset)) {
+        return candidate;
+      }
+    }
+  }
+
+  static String matchName(String[] table, String name) {
+    final int mask = table.length - 1;
+    for (int i = spread(name.hashCode()) & mask; ; i = (i + 1) & mask) {
+      String candidate = table[i];
+      if (candidate == null || candidate.equals(name)) {
+        return candidate;
+      }
+    }
+  }
+
+  /** Where a name returned by matchName() sits in the table, or -1 for any other String. */
+  static int slot(String[] table, String name) {
+    final int mask = table.length - 1;
+    for (int i = spread(name.hashCode()) & mask; ; i = (i + 1) & mask) {
+      String candidate = table[i];
+      if (candidate == name) {
+        return i;
+      } else if (candidate == null) {
+        return -1;
+      }
+    }
+  }
+
+  private synchronized String[] buildNameTable() {
+    int size = 4;
+    while (size < fieldMap.size() * 2) {
+      size <<= 1;
+    }
+    final String[] table = new String[size];
+    for (String name : fieldMap.keySet()) {
+      int i = spread(name.hashCode()) & (size - 1);
+      while (table[i] != null) {
+        i = (i + 1) & (size - 1);
+      }
+      table[i] = name;
+    }
+    nameTable = table;
+    return table;
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  private static boolean regionMatches(String name, char[] chars, int offset) {
+    for (int i = 0; i < name.length(); i++) {
+      if (name.charAt(i) != chars[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   Class<?> fieldType(String name) {
     return fieldMap.get(name).getType();
   }
@@ -63,8 +172,26 @@ class ClassCacheEntry<T> {
     return listGenericTypeMap.get(fieldName);
   }
 
+  /** The fields serialize() puts into an object, in the order they come out when printed. */
+  SerializedFields serializedFields(boolean recursive) {
+    SerializedFields result = recursive ? recursiveSerializedFields : serializedFields;
+    if (result == null) {
+      result = new SerializedFields(getDeclaredFields(cls, recursive));
+      if (recursive) {
+        recursiveSerializedFields = result;
+      } else {
+        serializedFields = result;
+      }
+    }
+    return result;
+  }
+
   @SuppressWarnings("unchecked")
   T newInstance() {
+    Constructor<?> ctor = this.ctor;
+    if (ctor == null) {
+      ctor = this.ctor = getDefaultConstructor(cls);
+    }
     try {
       return (T) ctor.newInstance();
     } catch (Throwable t) {
@@ -76,4 +203,54 @@ class ClassCacheEntry<T> {
     Field field = fieldMap.get(name);
     setFieldValue(field, obj, value);
   }
+
+  /**
+   * Every instance of a class is serialized into an object with the same keys, put in the same
+   * order, so the order a printed object lists them in is the same too. It's found once by putting
+   * the names into a JSONObject the same way serialize() does and reading them back out.
+   */
+  static final class SerializedFields {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    final String[] names;
+    /** Each name quoted, escaped and followed by a colon, ready to be copied into the output. */
+    final String[] prefixes;
+
+    final byte[][] utf8Prefixes;
+    /** When two fields have the same name, the one put last is the one that's kept. */
+    final Field[] fields;
+    /** Dotted names are put as paths into nested objects, which only the tree can do. */
+    final boolean hasPathNames;
+
+    SerializedFields(List<Field> declared) {
+      final JSONObject keys = new JSONObject();
+      final HashMap<String, Field> byName = new HashMap<>();
+      boolean pathNames = false;
+      for (Field field : declared) {
+        field.setAccessible(true);
+        if (shouldIgnore(field)) {
+          continue;
+        }
+        final String name = fieldName(field);
+        keys.put(name, JSONObject.NULL);
+        byName.put(name, field);
+        if (name.contains(".")) {
+          pathNames = true;
+        }
+      }
+      this.names = new String[keys.length()];
+      this.fields = new Field[names.length];
+      this.prefixes = new String[names.length];
+      this.utf8Prefixes = new byte[names.length][];
+      final Iterator<String> iterator = keys.keys();
+      for (int i = 0; i < names.length; i++) {
+        names[i] = iterator.next();
+        fields[i] = byName.get(names[i]);
+        prefixes[i] = AsonPrinter.quote(names[i]) + ':';
+        utf8Prefixes[i] = prefixes[i].getBytes(UTF_8);
+      }
+      this.hasPathNames = pathNames;
+    }
+  }
 }
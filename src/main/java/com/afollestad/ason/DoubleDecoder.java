@@ -0,0 +1,177 @@
+package com.afollestad.ason;
+
+import java.math.BigInteger;
+
+/**
+ * Converts decimal number literals to doubles in place, without building a String. Uses Clinger's
+ * fast path when the digits and the power of ten are both exact doubles, and the Eisel-Lemire
+ * algorithm otherwise. When neither can guarantee a correctly rounded result, NaN is returned and
+ * the caller falls back to {@link Double#parseDouble(String)}.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+final class DoubleDecoder {
+
+  private static final int MIN_POWER = -342;
+  private static final int MAX_POWER = 308;
+  private static final long MASK_32 = 0xFFFFFFFFL;
+
+  private static final double[] EXACT_POWERS = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+    1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  private DoubleDecoder() {}
+
+  /** The 128 most significant bits of 5^q for every power q, high word first. */
+  private static final class Powers {
+
+    static final long[] TABLE = new long[2 * (MAX_POWER - MIN_POWER + 1)];
+
+    static {
+      // Negative powers are reciprocals, rounded up, see "Number Parsing at a Gigabyte per Second".
+      for (int q = MIN_POWER; q < 0; q++) {
+        BigInteger power = BigInteger.valueOf(5).pow(-q);
+        int z = power.bitLength();
+        int b = q >= -27 ? z + 127 : 2 * z + 128;
+        store(q, BigInteger.ONE.shiftLeft(b).divide(power).add(BigInteger.ONE));
+      }
+      for (int q = 0; q <= MAX_POWER; q++) {
+        store(q, BigInteger.valueOf(5).pow(q));
+      }
+    }
+
+    private static void store(int q, BigInteger value) {
+      int shift = value.bitLength() - 128;
+      value = shift > 0 ? value.shiftRight(shift) : value.shiftLeft(-shift);
+      TABLE[2 * (q - MIN_POWER)] = value.shiftRight(64).longValue();
+      TABLE[2 * (q - MIN_POWER) + 1] = value.longValue();
+    }
+  }
+
+  /**
+   * Converts the valid JSON number spanning [start, end). Returns NaN if the result couldn't be
+   * decided exactly, including when it's out of the double range.
+   */
+  static double decode(char[] buf, int start, int end) {
+    int p = start;
+    final boolean negative = buf[p] == '-';
+    if (negative) {
+      p++;
+    }
+    long digits = 0;
+    int significant = 0;
+    int power = 0;
+    boolean fraction = false;
+    for (; p < end; p++) {
+      final char c = buf[p];
+      if (c >= '0' && c <= '9') {
+        if (significant > 0 || c != '0') {
+          if (++significant > 19) {
+            return Double.NaN;
+          }
+          // Up to 19 digits fit when read as unsigned.
+          digits = digits * 10 + (c - '0');
+        }
+        if (fraction) {
+          power--;
+        }
+      } else if (c == '.') {
+        fraction = true;
+      } else {
+        break;
+      }
+    }
+    if (p < end) {
+      // An exponent, the syntax has already been checked.
+      p++;
+      final boolean negativeExponent = buf[p] == '-';
+      if (negativeExponent || buf[p] == '+') {
+        p++;
+      }
+      int exponent = 0;
+      for (; p < end; p++) {
+        if (exponent < 100000) {
+          exponent = exponent * 10 + (buf[p] - '0');
+        }
+      }
+      power += negativeExponent ? -exponent : exponent;
+    }
+
+    if (digits == 0) {
+      return negative ? -0d : 0d;
+    }
+    final double result = decode(digits, power);
+    return negative ? -result : result;
+  }
+
+  /** Returns the unsigned digits * 10^power, or NaN if that can't be decided here. */
+  static double decode(long digits, int power) {
+    if (power >= -22 && power <= 22 && digits >= 0 && digits <= (1L << 53)) {
+      // Both are exact doubles, so a single correctly rounded operation is enough.
+      return power < 0 ? digits / EXACT_POWERS[-power] : digits * EXACT_POWERS[power];
+    } else if (power < MIN_POWER || power > MAX_POWER) {
+      return Double.NaN;
+    }
+
+    final long[] table = Powers.TABLE;
+    final int index = 2 * (power - MIN_POWER);
+    final long exponent = (((152170L + 65536L) * power) >> 16) + 1023 + 64;
+    int leadingZeros = Long.numberOfLeadingZeros(digits);
+    final long shifted = digits << leadingZeros;
+
+    long upper = multiplyHigh(shifted, table[index]);
+    long lower = shifted * table[index];
+    if ((upper & 0x1FF) == 0x1FF && unsignedLess(lower + shifted, lower)) {
+      // The truncated product may be off by one in its low bits, use the full 128 bit power.
+      final long low = table[index + 1];
+      final long productLow = shifted * low;
+      final long productMiddle = lower + multiplyHigh(shifted, low);
+      long productHigh = upper;
+      if (unsignedLess(productMiddle, lower)) {
+        productHigh++;
+      }
+      if (productMiddle + 1 == 0
+          && (productHigh & 0x1FF) == 0x1FF
+          && unsignedLess(productLow + shifted, productLow)) {
+        return Double.NaN;
+      }
+      upper = productHigh;
+    }
+
+    final long upperBit = upper >>> 63;
+    long mantissa = upper >>> (upperBit + 9);
+    leadingZeros += (int) (1 ^ upperBit);
+    if ((upper & 0x1FF) == 0x1FF || ((upper & 0x1FF) == 0 && (mantissa & 3) == 1)) {
+      // Too close to halfway between two doubles to round here.
+      return Double.NaN;
+    }
+    mantissa = (mantissa + 1) >>> 1;
+    if (mantissa >= (1L << 53)) {
+      mantissa = 1L << 52;
+      leadingZeros--;
+    }
+    mantissa &= ~(1L << 52);
+    final long realExponent = exponent - leadingZeros;
+    if (realExponent < 1 || realExponent > 2046) {
+      // Subnormals and infinity.
+      return Double.NaN;
+    }
+    return Double.longBitsToDouble(mantissa | realExponent << 52);
+  }
+
+  /** The high 64 bits of the unsigned 128 bit product. */
+  static long multiplyHigh(long x, long y) {
+    final long x0 = x & MASK_32;
+    final long x1 = x >>> 32;
+    final long y0 = y & MASK_32;
+    final long y1 = y >>> 32;
+    final long highLow = x1 * y0;
+    final long cross = ((x0 * y0) >>> 32) + (highLow & MASK_32) + x0 * y1;
+    return (highLow >>> 32) + (cross >>> 32) + x1 * y1;
+  }
+
+  private static boolean unsignedLess(long a, long b) {
+    return a + Long.MIN_VALUE < b + Long.MIN_VALUE;
+  }
+}
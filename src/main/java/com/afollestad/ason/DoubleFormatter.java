@@ -0,0 +1,282 @@
+package com.afollestad.ason;
+
+import static com.afollestad.ason.DoubleDecoder.multiplyHigh;
+
+import java.math.BigInteger;
+
+/**
+ * Formats doubles with the shortest digits that parse back to the same value, in the layout of
+ * {@link Double#toString(double)}. This is the Schubfach algorithm by Raffaello Giulietti, the one
+ * Double.toString uses since Java 19. Digits go straight into a reusable char array.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+final class DoubleFormatter {
+
+  private static final int P = 53;
+  private static final int Q_MIN = -1074;
+  private static final int K_MIN = -324;
+  private static final int K_MAX = 292;
+  private static final int H = 17;
+  private static final long C_MIN = 1L << (P - 1);
+  private static final long C_TINY = 3;
+  private static final int BQ_MASK = (1 << 11) - 1;
+  private static final long T_MASK = (1L << (P - 1)) - 1;
+  private static final long MASK_63 = (1L << 63) - 1;
+  private static final int MASK_28 = (1 << 28) - 1;
+
+  private static final long[] POW10 = new long[H + 1];
+
+  static {
+    POW10[0] = 1;
+    for (int i = 1; i <= H; i++) {
+      POW10[i] = POW10[i - 1] * 10;
+    }
+  }
+
+  /**
+   * For every k, g = floor(10^-k / 2^r) + 1 for the r that puts it in [2^125, 2^126), split into
+   * its high and low 63 bits.
+   */
+  private static final class Powers {
+
+    static final long[] G = new long[2 * (K_MAX - K_MIN + 1)];
+
+    static {
+      for (int k = K_MIN; k <= K_MAX; k++) {
+        BigInteger floor;
+        if (k <= 0) {
+          BigInteger power = BigInteger.TEN.pow(-k);
+          int shift = power.bitLength() - 126;
+          floor = shift >= 0 ? power.shiftRight(shift) : power.shiftLeft(-shift);
+        } else {
+          BigInteger power = BigInteger.TEN.pow(k);
+          floor = BigInteger.ONE.shiftLeft(power.bitLength() + 125).divide(power);
+        }
+        BigInteger g = floor.add(BigInteger.ONE);
+        G[2 * (k - K_MIN)] = g.shiftRight(63).longValue();
+        G[2 * (k - K_MIN) + 1] = g.longValue() & MASK_63;
+      }
+    }
+  }
+
+  /** Long enough for "-2.2250738585072014E-308". */
+  final char[] chars = new char[32];
+
+  private int length;
+
+  /** Formats a finite value into {@link #chars}, returning the number of chars written. */
+  int format(double v) {
+    length = 0;
+    final long bits = Double.doubleToRawLongBits(v);
+    final long t = bits & T_MASK;
+    final int bq = (int) (bits >>> (P - 1)) & BQ_MASK;
+    if (bits < 0) {
+      append('-');
+    }
+    if (bq != 0) {
+      final int mq = -Q_MIN + 1 - bq;
+      final long c = C_MIN | t;
+      if (0 < mq && mq < P) {
+        // Integers below 2^53 need no search.
+        final long f = c >> mq;
+        if (f << mq == c) {
+          toChars(f, 0);
+          return length;
+        }
+      }
+      toDecimal(-mq, c, 0);
+    } else if (t != 0) {
+      if (t < C_TINY) {
+        toDecimal(Q_MIN, 10 * t, -1);
+      } else {
+        toDecimal(Q_MIN, t, 0);
+      }
+    } else {
+      append('0');
+      append('.');
+      append('0');
+    }
+    return length;
+  }
+
+  private void toDecimal(int q, long c, int dk) {
+    final int out = (int) c & 0x1;
+    final long cb = c << 2;
+    final long cbr = cb + 2;
+    final long cbl;
+    final int k;
+    if (c != C_MIN || q == Q_MIN) {
+      cbl = cb - 2;
+      k = flog10pow2(q);
+    } else {
+      // The gap below a power of two is half the one above it.
+      cbl = cb - 1;
+      k = flog10threeQuartersPow2(q);
+    }
+    final int h = q + flog2pow10(-k) + 2;
+    final long g1 = Powers.G[2 * (k - K_MIN)];
+    final long g0 = Powers.G[2 * (k - K_MIN) + 1];
+
+    final long vb = rop(g1, g0, cb << h);
+    final long vbl = rop(g1, g0, cbl << h);
+    final long vbr = rop(g1, g0, cbr << h);
+
+    final long s = vb >> 2;
+    if (s >= 100) {
+      // Try one digit less first, s' = floor(s / 10).
+      final long sp10 = 10 * multiplyHigh(s, 115292150460684698L << 4);
+      final long tp10 = sp10 + 10;
+      final boolean upin = vbl + out <= sp10 << 2;
+      final boolean wpin = (tp10 << 2) + out <= vbr;
+      if (upin != wpin) {
+        toChars(upin ? sp10 : tp10, k);
+        return;
+      }
+    }
+    final long t = s + 1;
+    final boolean uin = vbl + out <= s << 2;
+    final boolean win = (t << 2) + out <= vbr;
+    if (uin != win) {
+      toChars(uin ? s : t, k + dk);
+      return;
+    }
+    // Both are in range, pick the closest, or the even one on a tie.
+    final long cmp = vb - ((s + t) << 1);
+    toChars(cmp < 0 || (cmp == 0 && (s & 0x1) == 0) ? s : t, k + dk);
+  }
+
+  private static long rop(long g1, long g0, long cp) {
+    final long x1 = multiplyHigh(g0, cp);
+    final long y0 = g1 * cp;
+    final long y1 = multiplyHigh(g1, cp);
+    final long z = (y0 >>> 1) + x1;
+    final long vbp = y1 + (z >>> 63);
+    return vbp | ((z & MASK_63) + MASK_63) >>> 63;
+  }
+
+  /** Writes f 10^e, where f has at most 17 digits. */
+  private void toChars(long f, int e) {
+    int len = flog10pow2(Long.SIZE - Long.numberOfLeadingZeros(f));
+    if (f >= POW10[len]) {
+      len += 1;
+    }
+    // Now 10^(H - 1) <= f < 10^H, and the value is 0.f 10^e.
+    f *= POW10[H - len];
+    e += len;
+
+    // Splits f into its first digit, the next 8 and the last 8.
+    final long hm = multiplyHigh(f, 193428131138340668L) >>> 20;
+    final int l = (int) (f - 100000000 * hm);
+    final int h = (int) (hm * 1441151881 >>> 57);
+    final int m = (int) (hm - 100000000 * h);
+
+    if (0 < e && e <= 7) {
+      // Plain, without leading zeroes.
+      appendDigit(h);
+      int y = y(m);
+      int i = 1;
+      for (; i < e; ++i) {
+        final int t = 10 * y;
+        appendDigit(t >>> 28);
+        y = t & MASK_28;
+      }
+      append('.');
+      for (; i <= 8; ++i) {
+        final int t = 10 * y;
+        appendDigit(t >>> 28);
+        y = t & MASK_28;
+      }
+      lowDigits(l);
+    } else if (-3 < e && e <= 0) {
+      // Plain, with leading zeroes.
+      appendDigit(0);
+      append('.');
+      for (; e < 0; ++e) {
+        appendDigit(0);
+      }
+      appendDigit(h);
+      append8Digits(m);
+      lowDigits(l);
+    } else {
+      appendDigit(h);
+      append('.');
+      append8Digits(m);
+      lowDigits(l);
+      exponent(e - 1);
+    }
+  }
+
+  private void lowDigits(int l) {
+    if (l != 0) {
+      append8Digits(l);
+    }
+    // Removes trailing zeroes, but keeps the one right after the point.
+    while (chars[length - 1] == '0') {
+      length--;
+    }
+    if (chars[length - 1] == '.') {
+      length++;
+    }
+  }
+
+  private void append8Digits(int m) {
+    int y = y(m);
+    for (int i = 0; i < 8; ++i) {
+      final int t = 10 * y;
+      appendDigit(t >>> 28);
+      y = t & MASK_28;
+    }
+  }
+
+  /**
+   * Scales m < 10^8 to a 28 bit fraction, so digits come out left to right by multiplying by 10.
+   */
+  private static int y(int m) {
+    return (int) (multiplyHigh((long) (m + 1) << 28, 193428131138340668L) >>> 20) - 1;
+  }
+
+  private void exponent(int e) {
+    append('E');
+    if (e < 0) {
+      append('-');
+      e = -e;
+    }
+    if (e < 10) {
+      appendDigit(e);
+      return;
+    }
+    int d;
+    if (e >= 100) {
+      d = e * 1311 >>> 17;
+      appendDigit(d);
+      e -= 100 * d;
+    }
+    d = e * 103 >>> 10;
+    appendDigit(d);
+    appendDigit(e - 10 * d);
+  }
+
+  private void append(char c) {
+    chars[length++] = c;
+  }
+
+  private void appendDigit(int digit) {
+    chars[length++] = (char) ('0' + digit);
+  }
+
+  /** floor(log10(2^e)) */
+  private static int flog10pow2(int e) {
+    return (int) (e * 661971961083L >> 41);
+  }
+
+  /** floor(log10(3/4 2^e)) */
+  private static int flog10threeQuartersPow2(int e) {
+    return (int) ((e * 661971961083L - 274743187321L) >> 41);
+  }
+
+  /** floor(log2(10^e)) */
+  private static int flog2pow10(int e) {
+    return (int) (e * 913124641741L >> 38);
+  }
+}
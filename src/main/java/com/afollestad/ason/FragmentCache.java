@@ -0,0 +1,125 @@
+package com.afollestad.ason;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The compact text of every object and array in a document, as last printed, see {@link
+ * Ason#cacheFragments(boolean)}. Nodes are JSONObjects and JSONArrays, which compare by identity.
+ *
+ * <p>Printing a node records which node it was printed inside of. Invalidating a node drops its
+ * text and walks up those links dropping the text of everything it's nested in, and nothing else,
+ * so the next print only redoes the path down to the change. A node that had no text cached has no
+ * ancestor with text cached either, which ends the walk early.
+ *
+ * <p>Nodes are held weakly, so text for nodes that were replaced or removed goes away with them.
+ *
+ * <p>Printing and invalidating lock the cache, so threads can print a document they share. Changing
+ * a document while another thread reads it is as unsafe as it always was.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+final class FragmentCache {
+
+  /** Links a node printed inside of more than one other node, which can't be followed up. */
+  private static final WeakReference<Object> SHARED = new WeakReference<>(null);
+
+  /** One lookup gives both the text and the link while printing, which is most of the work. */
+  private static final class Node {
+
+    String text;
+    WeakReference<Object> parent;
+  }
+
+  /**
+   * Shared by a document and every wrapper handed out of it, from the moment they're created, so
+   * turning caching on or off reaches wrappers that already exist. A wrapper put into another
+   * document joins that document's holder, along with everything that shared its own.
+   */
+  static final class Holder {
+
+    private FragmentCache cache;
+    /** Set once this holder was joined into another, which then speaks for both. */
+    private Holder joined;
+
+    @Nullable
+    FragmentCache get() {
+      return resolve().cache;
+    }
+
+    void set(@Nullable FragmentCache cache) {
+      resolve().cache = cache;
+    }
+
+    /** Makes the other holder share this one's cache. The other holder's cached text is dropped. */
+    void join(@NotNull Holder other) {
+      final Holder root = resolve();
+      final Holder otherRoot = other.resolve();
+      if (root != otherRoot) {
+        otherRoot.cache = null;
+        otherRoot.joined = root;
+      }
+    }
+
+    private Holder resolve() {
+      Holder root = this;
+      while (root.joined != null) {
+        root = root.joined;
+      }
+      if (joined != null && joined != root) {
+        joined = root;
+      }
+      return root;
+    }
+  }
+
+  private final WeakHashMap<Object, Node> nodes = new WeakHashMap<>();
+
+  String get(Object node) {
+    final Node entry = nodes.get(node);
+    return entry != null ? entry.text : null;
+  }
+
+  void put(Object node, String fragment) {
+    Node entry = nodes.get(node);
+    if (entry == null) {
+      entry = new Node();
+      nodes.put(node, entry);
+    }
+    entry.text = fragment;
+  }
+
+  /** Records that the child is printed inside of the parent, and returns its text if it has any. */
+  String link(Object child, Object parent) {
+    Node entry = nodes.get(child);
+    if (entry == null) {
+      entry = new Node();
+      nodes.put(child, entry);
+    }
+    if (entry.parent == null) {
+      entry.parent = new WeakReference<>(parent);
+    } else if (entry.parent != SHARED && entry.parent.get() != parent) {
+      entry.parent = SHARED;
+    }
+    return entry.text;
+  }
+
+  /** Drops the text of the node and of everything it was printed inside of. */
+  synchronized void invalidate(Object node) {
+    Node entry = nodes.get(node);
+    while (entry != null && entry.text != null) {
+      entry.text = null;
+      if (entry.parent == SHARED) {
+        // It was printed inside of more than one node, so where it is now can't be told.
+        for (Node other : nodes.values()) {
+          other.text = null;
+        }
+        return;
+      }
+      final Object parent = entry.parent != null ? entry.parent.get() : null;
+      entry = parent != null ? nodes.get(parent) : null;
+    }
+  }
+}
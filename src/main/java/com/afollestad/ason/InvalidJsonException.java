@@ -1,9 +1,192 @@
 package com.afollestad.ason;
 
-/** @author Aidan Follestad (afollestad) */
+import java.nio.charset.Charset;
+import org.jetbrains.annotations.Nullable;
+import org.json.JSONException;
+
+/**
+ * Thrown when input isn't valid JSON. Besides the message, it tells where parsing stopped and shows
+ * a short excerpt of the input around that point. The input itself is never held on to, so the
+ * exception costs the same whether the document was a kilobyte or a gigabyte. The message is only
+ * put together once it's asked for.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
 public class InvalidJsonException extends IllegalArgumentException {
 
-  InvalidJsonException(String json, Exception inner) {
-    super("Invalid JSON: " + json, inner);
+  private static final long serialVersionUID = 1L;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  /** How many chars of input are kept on either side of the offset. */
+  static final int EXCERPT_RADIUS = 24;
+
+  private final String reason;
+  @Nullable private final String expected;
+  private long offset = -1;
+  private boolean byteOffset;
+  private long line = -1;
+  private long column = -1;
+  @Nullable private String excerpt;
+  private int excerptOffset = -1;
+  private String message;
+
+  InvalidJsonException(String reason) {
+    this(reason, null);
+  }
+
+  InvalidJsonException(String reason, @Nullable String expected) {
+    this.reason = reason;
+    this.expected = expected;
+  }
+
+  /** Unwraps what the parsers report through org.json's exception type. */
+  static InvalidJsonException from(JSONException e) {
+    if (e instanceof SyntaxError) {
+      return ((SyntaxError) e).error;
+    }
+    final InvalidJsonException error = new InvalidJsonException(e.getMessage());
+    error.initCause(e);
+    return error;
+  }
+
+  /** What went wrong, without the location. */
+  public String getReason() {
+    return reason;
+  }
+
+  /** What the parser was looking for instead, like "a ',' or ']'", or null if it wasn't a token. */
+  @Nullable
+  public String getExpected() {
+    return expected;
+  }
+
+  /** Where in the input parsing stopped, counted from 0, or -1 if it isn't known. */
+  public long getOffset() {
+    return offset;
+  }
+
+  /**
+   * True if {@link #getOffset()} and {@link #getColumn()} count bytes, which they do for input that
+   * is parsed before it's decoded, like in {@link AsonPushParser}. They count chars otherwise.
+   */
+  public boolean isByteOffset() {
+    return byteOffset;
+  }
+
+  /** The line parsing stopped on, counted from 1, or -1 if it isn't known. */
+  public long getLine() {
+    return line;
+  }
+
+  /** The column parsing stopped on, counted from 1, or -1 if it isn't known. */
+  public long getColumn() {
+    return column;
+  }
+
+  /** A few dozen chars of input around the offset, or null if there's no location. */
+  @Nullable
+  public String getExcerpt() {
+    return excerpt;
+  }
+
+  /** Where in {@link #getExcerpt()} parsing stopped, or -1 if there's no excerpt. */
+  public int getExcerptOffset() {
+    return excerptOffset;
+  }
+
+  @Override
+  public String getMessage() {
+    if (message == null) {
+      final StringBuilder sb = new StringBuilder("Invalid JSON: ").append(reason);
+      if (offset >= 0) {
+        sb.append(byteOffset ? " at byte " : " at character ").append(offset);
+      }
+      if (line > 0) {
+        sb.append(" (line ").append(line).append(", column ").append(column).append(')');
+      }
+      if (excerpt != null) {
+        sb.append(", near \"");
+        appendEscaped(sb, excerpt, 0, excerptOffset);
+        sb.append(" >>> ");
+        appendEscaped(sb, excerpt, excerptOffset, excerpt.length());
+        sb.append('"');
+      }
+      message = sb.toString();
+    }
+    return message;
+  }
+
+  /** Keeps the message on one line, whatever the excerpt contains. */
+  private static void appendEscaped(StringBuilder sb, String text, int start, int end) {
+    for (int i = start; i < end; i++) {
+      final char c = text.charAt(i);
+      if (c == '\n') {
+        sb.append("\\n");
+      } else if (c == '\r') {
+        sb.append("\\r");
+      } else if (c == '\t') {
+        sb.append("\\t");
+      } else if (c < ' ') {
+        sb.append(' ');
+      } else {
+        sb.append(c);
+      }
+    }
+  }
+
+  //
+  ////// BUILDING
+  //
+
+  /**
+   * Sets where the error is, pos being its index within the chars [start, end). Only an excerpt of
+   * what's around pos is copied. Line and column are passed as -1 if the parser doesn't know them.
+   */
+  InvalidJsonException at(
+      char[] buf, int start, int end, int pos, long offset, long line, long column) {
+    final int from = Math.max(start, pos - EXCERPT_RADIUS);
+    final int to = Math.min(end, pos + EXCERPT_RADIUS);
+    this.excerpt = new String(buf, from, Math.max(0, to - from));
+    this.excerptOffset = Math.min(pos - from, excerpt.length());
+    return located(offset, false, line, column);
+  }
+
+  /** Like {@link #at(char[], int, int, int, long, long, long)}, for UTF-8 that isn't decoded. */
+  InvalidJsonException atByte(
+      byte[] bytes, int start, int end, int pos, long offset, long line, long column) {
+    final int from = Math.max(start, pos - EXCERPT_RADIUS);
+    final int to = Math.min(end, pos + EXCERPT_RADIUS);
+    final String before = new String(bytes, from, Math.max(0, pos - from), UTF_8);
+    this.excerpt = before + new String(bytes, pos, Math.max(0, to - pos), UTF_8);
+    this.excerptOffset = before.length();
+    return located(offset, true, line, column);
+  }
+
+  /** Sets where the error is, without an excerpt. */
+  InvalidJsonException located(long offset, boolean byteOffset, long line, long column) {
+    this.offset = offset;
+    this.byteOffset = byteOffset;
+    this.line = line;
+    this.column = column;
+    this.message = null;
+    return this;
+  }
+
+  /** Carries an error out of the parsers that report through org.json's exception type. */
+  static final class SyntaxError extends JSONException {
+
+    private static final long serialVersionUID = 1L;
+
+    final InvalidJsonException error;
+
+    SyntaxError(InvalidJsonException error) {
+      super(error.getReason());
+      this.error = error;
+    }
+
+    @Override
+    public String getMessage() {
+      return error.getMessage();
+    }
   }
 }
@@ -0,0 +1,156 @@
+package com.afollestad.ason;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Recycles the byte arrays and StringBuilders that output is collected in, so printing and
+ * serializing don't leave a trail of buffers that were grown by doubling. Buffers are handed out
+ * sized from a running estimate of what was written for the same class before. The estimate pays
+ * off for serialized objects, whose class says a lot about how big they print. Ason and AsonArray
+ * trees are keyed by their wrapper class, so every tree shares one estimate whatever its size.
+ * Estimates never go past MAX_POOLED_SIZE, so one huge document can't make every print after it
+ * start out with a huge buffer. Classes are held weakly, so they can still be unloaded.
+ *
+ * <p>Pooled buffers are kept in lock free queues by power of two size rather than in thread locals,
+ * so they're shared by any number of threads, including virtual threads that come and go. A buffer
+ * that grew past MAX_POOLED_SIZE is left to the garbage collector.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+final class OutputBufferPool {
+
+  private static final int MIN_SHIFT = 8;
+  private static final int MAX_SHIFT = 18;
+  static final int MIN_SIZE = 1 << MIN_SHIFT;
+  static final int MAX_POOLED_SIZE = 1 << MAX_SHIFT;
+  private static final int MAX_POOLED_PER_SIZE = 4;
+
+  private static final ConcurrentLinkedQueue<byte[]>[] BYTES = newQueues();
+  private static final ConcurrentLinkedQueue<StringBuilder>[] CHARS = newQueues();
+  private static final AtomicIntegerArray BYTES_POOLED = new AtomicIntegerArray(BYTES.length);
+  private static final AtomicIntegerArray CHARS_POOLED = new AtomicIntegerArray(CHARS.length);
+
+  private static final Map<Class<?>, Estimate> ESTIMATES =
+      Collections.synchronizedMap(new WeakHashMap<Class<?>, Estimate>());
+
+  /**
+   * Moves a quarter of the way towards each new size. Updates from several threads can overwrite
+   * each other, which only makes the estimate lag a little.
+   */
+  private static final class Estimate {
+
+    volatile int size;
+
+    Estimate(int size) {
+      this.size = size;
+    }
+  }
+
+  private OutputBufferPool() {}
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static <T> ConcurrentLinkedQueue<T>[] newQueues() {
+    final ConcurrentLinkedQueue<T>[] queues = new ConcurrentLinkedQueue[MAX_SHIFT - MIN_SHIFT + 1];
+    for (int i = 0; i < queues.length; i++) {
+      queues[i] = new ConcurrentLinkedQueue<>();
+    }
+    return queues;
+  }
+
+  /** About how much output the last few values of the class printed to. */
+  static int estimate(Class<?> cls) {
+    final Estimate estimate = ESTIMATES.get(cls);
+    return estimate != null ? estimate.size : MIN_SIZE;
+  }
+
+  static void record(Class<?> cls, int size) {
+    size = Math.min(size, MAX_POOLED_SIZE);
+    final Estimate estimate = ESTIMATES.get(cls);
+    if (estimate == null) {
+      ESTIMATES.put(cls, new Estimate(size));
+    } else {
+      final int previous = estimate.size;
+      estimate.size = previous + (size - previous) / 4;
+    }
+  }
+
+  /** The smallest size class that holds size, or -1 if it's too large to pool. */
+  private static int sizeClassFor(int size) {
+    if (size > MAX_POOLED_SIZE) {
+      return -1;
+    } else if (size <= MIN_SIZE) {
+      return 0;
+    }
+    return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+  }
+
+  /** The largest size class a buffer of this capacity can stand in for, or -1 if none. */
+  private static int sizeClassOf(int capacity) {
+    if (capacity < MIN_SIZE || capacity > MAX_POOLED_SIZE) {
+      return -1;
+    }
+    return 31 - Integer.numberOfLeadingZeros(capacity) - MIN_SHIFT;
+  }
+
+  /** Returns an array of at least size bytes, with anything in it. */
+  static byte[] acquireBytes(int size) {
+    final int sizeClass = sizeClassFor(size);
+    if (sizeClass < 0) {
+      return new byte[size];
+    }
+    final byte[] bytes = BYTES[sizeClass].poll();
+    if (bytes == null) {
+      return new byte[MIN_SIZE << sizeClass];
+    }
+    BYTES_POOLED.decrementAndGet(sizeClass);
+    return bytes;
+  }
+
+  /** Hands an array back, it mustn't be used afterwards. */
+  static void release(byte[] bytes) {
+    final int sizeClass = sizeClassOf(bytes.length);
+    if (sizeClass < 0) {
+      return;
+    }
+    if (BYTES_POOLED.incrementAndGet(sizeClass) <= MAX_POOLED_PER_SIZE) {
+      BYTES[sizeClass].offer(bytes);
+    } else {
+      BYTES_POOLED.decrementAndGet(sizeClass);
+    }
+  }
+
+  /**
+   * Returns an empty StringBuilder with room for at least size chars. Sizes too large to pool get
+   * a plain StringBuilder that grows as it's written to, rather than one allocated up front.
+   */
+  static StringBuilder acquireChars(int size) {
+    final int sizeClass = sizeClassFor(size);
+    if (sizeClass < 0) {
+      return new StringBuilder(MIN_SIZE);
+    }
+    final StringBuilder chars = CHARS[sizeClass].poll();
+    if (chars == null) {
+      return new StringBuilder(MIN_SIZE << sizeClass);
+    }
+    CHARS_POOLED.decrementAndGet(sizeClass);
+    return chars;
+  }
+
+  /** Hands a StringBuilder back, it mustn't be used afterwards. */
+  static void release(StringBuilder chars) {
+    final int sizeClass = sizeClassOf(chars.capacity());
+    if (sizeClass < 0) {
+      return;
+    }
+    chars.setLength(0);
+    if (CHARS_POOLED.incrementAndGet(sizeClass) <= MAX_POOLED_PER_SIZE) {
+      CHARS[sizeClass].offer(chars);
+    } else {
+      CHARS_POOLED.decrementAndGet(sizeClass);
+    }
+  }
+}
@@ -0,0 +1,438 @@
+package com.afollestad.ason;
+
+import static com.afollestad.ason.AsonParser.WHITESPACE;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import org.json.JSONArray;
+import org.json.JSONException;
+
+/**
+ * Parses a single top level array on several threads. A quick scan that only tracks strings and
+ * nesting depth splits the items into chunks at top level commas, every chunk is then parsed or
+ * bound as an array of its own and the results are joined in order.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+final class ParallelArray {
+
+  static final int CHUNK_SIZE = 256 << 10;
+
+  private final Input json;
+  /** Positions of the opening bracket, the commas between chunks and the closing bracket. */
+  private final int[] bounds;
+
+  ParallelArray(String json, int chunkSize) {
+    this.json = new StringInput(json);
+    this.bounds = split(this.json, chunkSize);
+  }
+
+  ParallelArray(byte[] json, int chunkSize) {
+    this.json = new Utf8Input(json);
+    this.bounds = split(this.json, chunkSize);
+  }
+
+  int chunks() {
+    return bounds.length - 1;
+  }
+
+  JSONArray parse(ExecutorService executor) {
+    final List<JSONArray> chunks =
+        run(
+            executor,
+            new Chunk<JSONArray>() {
+              @Override
+              JSONArray process(char[] chars, int length) {
+                try {
+                  return AsonParser.parseArray(chars, 0, length);
+                } catch (JSONException e) {
+                  throw InvalidJsonException.from(e);
+                }
+              }
+            });
+    if (chunks.size() == 1) {
+      return chunks.get(0);
+    }
+    final JSONArray result = new JSONArray();
+    for (JSONArray chunk : chunks) {
+      for (int i = 0; i < chunk.length(); i++) {
+        result.put(chunk.opt(i));
+      }
+    }
+    return result;
+  }
+
+  <T> List<T> deserializeList(
+      ExecutorService executor, final Class<T> cls, final boolean recursive) {
+    final List<List<T>> chunks =
+        run(
+            executor,
+            new Chunk<List<T>>() {
+              @Override
+              List<T> process(char[] chars, int length) throws IOException {
+                return AsonSerializer.get()
+                    .deserializeListDocument(new AsonReader(chars, length), cls, recursive);
+              }
+            });
+    if (chunks.size() == 1) {
+      return chunks.get(0);
+    }
+    int size = 0;
+    for (List<T> chunk : chunks) {
+      size += chunk.size();
+    }
+    final List<T> result = new ArrayList<>(size);
+    for (List<T> chunk : chunks) {
+      result.addAll(chunk);
+    }
+    return result;
+  }
+
+  /** Runs small inputs on the calling thread, and only creates a pool if there isn't one. */
+  private <R> List<R> run(ExecutorService executor, Chunk<R> chunk) {
+    final List<R> results = new ArrayList<>(chunks());
+    if (chunks() == 1) {
+      results.add(call(chunk.at(0)));
+      return results;
+    }
+    final ExecutorService pool = executor != null ? executor : new ForkJoinPool();
+    final List<Future<R>> futures = new ArrayList<>(chunks());
+    try {
+      for (int i = 0; i < chunks(); i++) {
+        futures.add(pool.submit(chunk.at(i)));
+      }
+      for (Future<R> future : futures) {
+        results.add(result(future));
+      }
+    } finally {
+      for (Future<R> future : futures) {
+        future.cancel(true);
+      }
+      if (pool != executor) {
+        pool.shutdownNow();
+      }
+    }
+    return results;
+  }
+
+  private static <R> R call(Callable<R> task) {
+    try {
+      return task.call();
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static <R> R result(Future<R> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  /** Copies a chunk's items between brackets, so it can be handled as an array of its own. */
+  private abstract class Chunk<R> {
+
+    abstract R process(char[] chars, int length) throws IOException;
+
+    Callable<R> at(final int index) {
+      return new Callable<R>() {
+        @Override
+        public R call() throws IOException {
+          final int start = bounds[index] + 1;
+          final int end = bounds[index + 1];
+          final char[] chars = new char[end - start + 2];
+          chars[0] = '[';
+          final int length = json.copy(start, end, chars, 1);
+          if (chunks() > 1 && isBlank(chars, 1, length + 1)) {
+            throw locate(json, end, new InvalidJsonException("Expected a value"));
+          }
+          chars[length + 1] = ']';
+          try {
+            return process(chars, length + 2);
+          } catch (InvalidJsonException e) {
+            if (e.getOffset() < 0) {
+              throw e;
+            }
+            // The chunk was parsed on its own, behind a bracket that isn't in the document
+            final int pos = (int) Math.max(1, Math.min(e.getOffset(), length + 1));
+            throw locate(json, json.indexAfter(start, chars, 1, pos), e);
+          }
+        }
+      };
+    }
+  }
+
+  /**
+   * Points the error at index in the document, with the offset, line and column counted in chars
+   * the way the sequential parsers count them.
+   */
+  private static <E extends InvalidJsonException> E locate(Input json, int index, E e) {
+    int line = 1;
+    int lineStart = 0;
+    for (int i = 0; i < index; i++) {
+      if (json.charAt(i) == '\n') {
+        line++;
+        lineStart = i + 1;
+      }
+    }
+    final long offset = json.charCount(0, index);
+    final long column = json.charCount(lineStart, index) + 1;
+    final int from = json.boundary(Math.max(0, index - InvalidJsonException.EXCERPT_RADIUS));
+    final int to =
+        json.boundary(Math.min(json.length(), index + InvalidJsonException.EXCERPT_RADIUS));
+    final char[] excerpt = new char[to - from];
+    try {
+      final int before = json.copy(from, index, excerpt, 0);
+      final int length = before + json.copy(index, to, excerpt, before);
+      e.at(excerpt, 0, length, before, offset, line, column);
+    } catch (IOException ignored) {
+      e.located(offset, false, line, column);
+    }
+    return e;
+  }
+
+  private static boolean isBlank(char[] chars, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (!isWhitespace(chars[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c < 128 && WHITESPACE[c];
+  }
+
+  //
+  ////// SPLITTING
+  //
+
+  static int[] split(String json, int chunkSize) {
+    return split(new StringInput(json), chunkSize);
+  }
+
+  static int[] split(byte[] json, int chunkSize) {
+    return split(new Utf8Input(json), chunkSize);
+  }
+
+  private static int[] split(Input json, int chunkSize) {
+    final int length = json.length();
+    int p = 0;
+    while (p < length && isWhitespace(json.charAt(p))) {
+      p++;
+    }
+    if (p == length || json.charAt(p) != '[') {
+      throw locate(json, p, new InvalidJsonException("A JSON array text must begin with '['"));
+    }
+
+    int[] bounds = new int[16];
+    int count = 0;
+    bounds[count++] = p;
+    long next = (long) p + chunkSize;
+    int depth = 0;
+    boolean inString = false;
+    for (; p < length; p++) {
+      final char c = json.charAt(p);
+      if (inString) {
+        if (c == '\\') {
+          p++;
+        } else if (c == '"') {
+          inString = false;
+        }
+      } else if (c == '"') {
+        inString = true;
+      } else if (c == '[' || c == '{') {
+        depth++;
+      } else if (c == ']' || c == '}') {
+        if (--depth > 0) {
+          continue;
+        } else if (c != ']') {
+          break;
+        }
+        for (int i = p + 1; i < length; i++) {
+          if (!isWhitespace(json.charAt(i))) {
+            throw locate(json, i, new InvalidJsonException("Unexpected trailing content"));
+          }
+        }
+        if (count == bounds.length) {
+          bounds = grow(bounds);
+        }
+        bounds[count++] = p;
+        final int[] result = new int[count];
+        System.arraycopy(bounds, 0, result, 0, count);
+        return result;
+      } else if (c == ',' && depth == 1 && p >= next) {
+        if (count == bounds.length) {
+          bounds = grow(bounds);
+        }
+        bounds[count++] = p;
+        next = (long) p + chunkSize;
+      }
+    }
+    if (p < length) {
+      throw locate(json, p, new InvalidJsonException("Unexpected character '}'"));
+    }
+    throw locate(
+        json,
+        length,
+        new InvalidJsonException(inString ? "Unterminated string" : "Unexpected end of input"));
+  }
+
+  private static int[] grow(int[] array) {
+    final int[] grown = new int[array.length * 2];
+    System.arraycopy(array, 0, grown, 0, array.length);
+    return grown;
+  }
+
+  /** The text being split, read a char at a time by the splitter and copied a chunk at a time. */
+  private abstract static class Input {
+
+    abstract int length();
+
+    abstract char charAt(int index);
+
+    /** Copies the chars from start to end into chars at offset, returning how many were written. */
+    abstract int copy(int start, int end, char[] chars, int offset) throws IOException;
+
+    /** How many chars the input from start to end decodes to. */
+    abstract int charCount(int start, int end);
+
+    /** Where the input continues after the chars from to to were copied from start. */
+    abstract int indexAfter(int start, char[] chars, int from, int to);
+
+    /** Moves index back to where a char starts. */
+    int boundary(int index) {
+      return index;
+    }
+  }
+
+  private static final class StringInput extends Input {
+
+    private final String json;
+
+    StringInput(String json) {
+      this.json = json;
+    }
+
+    @Override
+    int length() {
+      return json.length();
+    }
+
+    @Override
+    char charAt(int index) {
+      return json.charAt(index);
+    }
+
+    @Override
+    int copy(int start, int end, char[] chars, int offset) {
+      json.getChars(start, end, chars, offset);
+      return end - start;
+    }
+
+    @Override
+    int charCount(int start, int end) {
+      return end - start;
+    }
+
+    @Override
+    int indexAfter(int start, char[] chars, int from, int to) {
+      return start + to - from;
+    }
+  }
+
+  /**
+   * Bytes above 127 only ever occur in strings, where they don't matter to the splitter, so they
+   * needn't be decoded to be read. They're decoded when copied.
+   */
+  private static final class Utf8Input extends Input {
+
+    private final byte[] bytes;
+
+    Utf8Input(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override
+    int length() {
+      return bytes.length;
+    }
+
+    @Override
+    char charAt(int index) {
+      return (char) (bytes[index] & 0xff);
+    }
+
+    @Override
+    int copy(int start, int end, char[] chars, int offset) throws IOException {
+      final Utf8Reader reader = new Utf8Reader(bytes, start, end - start);
+      int length = 0;
+      int read;
+      while ((read = reader.read(chars, offset + length, chars.length - offset - length)) > 0) {
+        length += read;
+      }
+      return length;
+    }
+
+    @Override
+    int charCount(int start, int end) {
+      int count = 0;
+      for (int i = start; i < end; i++) {
+        final int b = bytes[i] & 0xff;
+        if (b >= 0xf0) {
+          count += 2;
+        } else if ((b & 0xc0) != 0x80) {
+          count++;
+        }
+      }
+      return count;
+    }
+
+    @Override
+    int indexAfter(int start, char[] chars, int from, int to) {
+      int index = start;
+      for (int i = from; i < to; i++) {
+        final char c = chars[i];
+        if (c < 0x80) {
+          index++;
+        } else if (c < 0x800) {
+          index += 2;
+        } else if (Character.isHighSurrogate(c)) {
+          index += 4;
+          i++;
+        } else {
+          index += 3;
+        }
+      }
+      return index;
+    }
+
+    @Override
+    int boundary(int index) {
+      while (index > 0 && index < bytes.length && (bytes[index] & 0xc0) == 0x80) {
+        index--;
+      }
+      return index;
+    }
+  }
+}
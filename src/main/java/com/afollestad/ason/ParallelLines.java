@@ -0,0 +1,210 @@
+package com.afollestad.ason;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Splits JSON Lines input into chunks at newlines and binds the chunks concurrently, see {@link
+ * AsonLinesReader#readParallel(java.nio.file.Path, Class, boolean, AsonLinesReader.Callback)}.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+final class ParallelLines<T> {
+
+  /** Small enough that the values of in flight chunks stay in the young generation. */
+  static final int CHUNK_SIZE = 256 << 10;
+
+  private final Source source;
+  private final Class<T> cls;
+  private final boolean recursive;
+  private final int chunkSize;
+
+  ParallelLines(Source source, Class<T> cls, boolean recursive, int chunkSize) {
+    this.source = source;
+    this.cls = cls;
+    this.recursive = recursive;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Hands every value to the callback on the calling thread. At most two chunks per thread are in
+   * flight at once, so memory stays bounded however large the input is.
+   */
+  void read(ExecutorService executor, boolean ordered, AsonLinesReader.Callback<? super T> callback)
+      throws IOException {
+    final int parallelism =
+        executor instanceof ForkJoinPool
+            ? ((ForkJoinPool) executor).getParallelism()
+            : Runtime.getRuntime().availableProcessors();
+    final int window = Math.max(2, parallelism * 2);
+    final CompletionService<List<T>> completion = new ExecutorCompletionService<>(executor);
+    final ArrayDeque<Future<List<T>>> pending = new ArrayDeque<>(window);
+    final long size = source.size();
+    long start = 0;
+
+    try {
+      while (start < size || !pending.isEmpty()) {
+        while (start < size && pending.size() < window) {
+          final long end = source.lineStart(Math.min(size, start + chunkSize));
+          final Chunk task = new Chunk(start, end);
+          pending.add(ordered ? executor.submit(task) : completion.submit(task));
+          start = end;
+        }
+        final Future<List<T>> done;
+        if (ordered) {
+          done = pending.removeFirst();
+        } else {
+          done = completion.take();
+          pending.remove(done);
+        }
+        for (T value : result(done)) {
+          callback.onValue(value);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } finally {
+      for (Future<List<T>> future : pending) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  private List<T> result(Future<List<T>> future) throws IOException, InterruptedException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  private class Chunk implements Callable<List<T>> {
+
+    private final long start;
+    private final long end;
+
+    Chunk(long start, long end) {
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public List<T> call() throws IOException {
+      final AsonLinesReader<T> lines =
+          new AsonLinesReader<>(new AsonReader(source.chunk(start, end)), cls, recursive);
+      final List<T> values = new ArrayList<>();
+      while (lines.hasNext()) {
+        values.add(lines.next());
+      }
+      return values;
+    }
+  }
+
+  //
+  ////// SOURCES
+  //
+
+  abstract static class Source {
+
+    abstract long size();
+
+    abstract byte get(long position) throws IOException;
+
+    abstract ByteBuffer chunk(long start, long end) throws IOException;
+
+    /** Returns the position after the first newline at or after the given one, or the size. */
+    long lineStart(long position) throws IOException {
+      final long size = size();
+      while (position < size) {
+        if (get(position++) == '\n') {
+          break;
+        }
+      }
+      return position;
+    }
+  }
+
+  static final class BufferSource extends Source {
+
+    private final ByteBuffer buffer;
+
+    BufferSource(ByteBuffer buffer) {
+      this.buffer = buffer.slice();
+    }
+
+    @Override
+    long size() {
+      return buffer.limit();
+    }
+
+    @Override
+    byte get(long position) {
+      return buffer.get((int) position);
+    }
+
+    @Override
+    ByteBuffer chunk(long start, long end) {
+      final ByteBuffer chunk = buffer.duplicate();
+      chunk.limit((int) end).position((int) start);
+      return chunk.slice();
+    }
+  }
+
+  static final class FileSource extends Source {
+
+    private final FileChannel channel;
+    private final long size;
+    private final ByteBuffer window = ByteBuffer.allocate(8192);
+    private long windowStart = -1;
+
+    FileSource(FileChannel channel) throws IOException {
+      this.channel = channel;
+      this.size = channel.size();
+    }
+
+    @Override
+    long size() {
+      return size;
+    }
+
+    /** Only called from the splitting thread, through {@link #lineStart(long)}. */
+    @Override
+    byte get(long position) throws IOException {
+      if (windowStart < 0 || position < windowStart || position >= windowStart + window.limit()) {
+        window.clear();
+        windowStart = position;
+        while (window.hasRemaining() && channel.read(window, position + window.position()) > 0) {
+          // keep filling until the window is full or the file ends
+        }
+        window.flip();
+      }
+      return window.get((int) (position - windowStart));
+    }
+
+    @Override
+    ByteBuffer chunk(long start, long end) throws IOException {
+      return channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+    }
+  }
+}
@@ -0,0 +1,213 @@
+package com.afollestad.ason;
+
+import static com.afollestad.ason.Util.isNumber;
+import static com.afollestad.ason.Util.splitPath;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Pulls values for a set of paths out of a token stream. The paths are merged into a tree, every
+ * other subtree is skipped at the token level, and reading stops as soon as each path is resolved.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+final class PathExtractor {
+
+  /** One path component, reached either by an object key or by an array index. */
+  private static class Step {
+
+    final String key;
+    final int index;
+    final List<Step> children = new ArrayList<>(2);
+    final List<String> paths = new ArrayList<>(1);
+    String[] childKeys;
+    boolean visited;
+
+    Step(String key, int index) {
+      this.key = key;
+      this.index = index;
+    }
+
+    Step child(String key, int index) {
+      for (Step child : children) {
+        if (child.index == index && (key == null ? child.key == null : key.equals(child.key))) {
+          return child;
+        }
+      }
+      Step child = new Step(key, index);
+      children.add(child);
+      return child;
+    }
+  }
+
+  private final String[] paths;
+  private final Step root = new Step(null, -1);
+  private final Map<String, Object> found = new HashMap<>();
+  private int remaining;
+
+  PathExtractor(String[] paths) {
+    this.paths = paths;
+    for (String path : paths) {
+      Step step = root;
+      // Same rules as Ason.get(): no splitting without a period, index notation only counts past
+      // the first component, and only the middle ones can escape a dollar sign.
+      String[] splitPath = path.contains(".") ? splitPath(path) : new String[] {path};
+      if (splitPath.length == 1) {
+        step = step.child(path, -1);
+      } else {
+        for (int i = 0; i < splitPath.length; i++) {
+          String component = splitPath[i];
+          boolean isIndex =
+              i > 0
+                  && component.length() > 1
+                  && component.startsWith("$")
+                  && isNumber(component.substring(1));
+          int index = isIndex ? Integer.parseInt(component.substring(1)) : -1;
+          if (i == 0 || i == splitPath.length - 1) {
+            step = step.child(component, index);
+          } else if (isIndex) {
+            step = step.child(null, index);
+          } else if (component.startsWith("\\$")) {
+            step = step.child(component.substring(1), -1);
+          } else {
+            step = step.child(component, -1);
+          }
+        }
+      }
+      if (step.paths.isEmpty()) {
+        remaining++;
+      }
+      step.paths.add(path);
+    }
+  }
+
+  /** Reads the object at the reader's position, returns the values found in the order requested. */
+  Map<String, Object> extract(AsonReader reader) throws IOException {
+    if (reader.peek() != AsonToken.BEGIN_OBJECT) {
+      throw new InvalidJsonException("A JSON object text must begin with '{'");
+    }
+    readObject(reader, root);
+    Map<String, Object> result = new LinkedHashMap<>(found.size());
+    for (String path : paths) {
+      if (found.containsKey(path)) {
+        result.put(path, found.get(path));
+      }
+    }
+    return result;
+  }
+
+  private void readObject(AsonReader reader, Step parent) throws IOException {
+    if (parent.childKeys == null) {
+      parent.childKeys = new String[parent.children.size()];
+      for (int i = 0; i < parent.childKeys.length; i++) {
+        parent.childKeys[i] = parent.children.get(i).key;
+      }
+    }
+    reader.beginObject();
+    while (reader.hasNext()) {
+      int child = reader.nextNameIndex(parent.childKeys);
+      if (child == -1) {
+        reader.skipValue();
+      } else {
+        List<Step> matches = new ArrayList<>(1);
+        for (Step step : parent.children) {
+          if (parent.childKeys[child].equals(step.key)) {
+            matches.add(step);
+          }
+        }
+        readValue(reader, matches);
+      }
+      if (remaining == 0) {
+        return;
+      }
+    }
+    reader.endObject();
+  }
+
+  private void readArray(AsonReader reader, Step parent) throws IOException {
+    reader.beginArray();
+    for (int i = 0; reader.hasNext(); i++) {
+      List<Step> matches = null;
+      for (Step child : parent.children) {
+        if (child.index == i) {
+          if (matches == null) {
+            matches = new ArrayList<>(1);
+          }
+          matches.add(child);
+        }
+      }
+      if (matches == null) {
+        reader.skipValue();
+      } else {
+        readValue(reader, matches);
+      }
+      if (remaining == 0) {
+        return;
+      }
+    }
+    reader.endArray();
+  }
+
+  /** Reads a value that one or more steps lead to, usually it's just one. */
+  private void readValue(AsonReader reader, List<Step> steps) throws IOException {
+    Step step = steps.get(0);
+    if (steps.size() > 1 || !step.paths.isEmpty()) {
+      // The whole value is wanted, anything deeper is looked up in it.
+      Object value = reader.readTree();
+      for (Step match : steps) {
+        if (!match.visited) {
+          match.visited = true;
+          resolve(match, value);
+        }
+      }
+      return;
+    } else if (step.visited) {
+      reader.skipValue();
+      return;
+    }
+    step.visited = true;
+    AsonToken token = reader.peek();
+    if (token == AsonToken.BEGIN_OBJECT) {
+      readObject(reader, step);
+    } else if (token == AsonToken.BEGIN_ARRAY) {
+      readArray(reader, step);
+    } else {
+      reader.skipValue();
+    }
+  }
+
+  private void resolve(Step step, Object value) {
+    if (!step.paths.isEmpty()) {
+      Object converted = value;
+      if (value instanceof JSONObject) {
+        converted = new Ason((JSONObject) value);
+      } else if (value instanceof JSONArray) {
+        converted = new AsonArray<>((JSONArray) value);
+      } else if (value == JSONObject.NULL) {
+        converted = null;
+      }
+      for (String path : step.paths) {
+        found.put(path, converted);
+      }
+      remaining--;
+    }
+    for (Step child : step.children) {
+      Object childValue = null;
+      if (value instanceof JSONObject && child.key != null) {
+        childValue = ((JSONObject) value).opt(child.key);
+      } else if (value instanceof JSONArray && child.index != -1) {
+        childValue = ((JSONArray) value).opt(child.index);
+      }
+      if (childValue != null) {
+        resolve(child, childValue);
+      }
+    }
+  }
+}
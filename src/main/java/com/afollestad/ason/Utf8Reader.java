@@ -0,0 +1,197 @@
+package com.afollestad.ason;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Decodes UTF-8 straight out of a byte buffer as it's read, so callers don't need to build a String
+ * of the whole input first. Heap buffers are decoded in place, direct and mapped buffers are copied
+ * through a small scratch array. Malformed sequences decode to U+FFFD, like {@link
+ * String#String(byte[], java.nio.charset.Charset)} does.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+final class Utf8Reader extends Reader {
+
+  private static final int SCRATCH_SIZE = 8192;
+  private static final char REPLACEMENT = '\uFFFD';
+
+  private ByteBuffer source;
+  /** When reading a file, it's mapped one segment at a time so there's no 2GB limit. */
+  private final FileChannel channel;
+
+  private final long size;
+  private final int segmentSize;
+  private long mapped;
+  private final byte[] bytes;
+  private int pos;
+  private int limit;
+  /** The low half of a surrogate pair that didn't fit into the last read. */
+  private char pendingLow;
+
+  /** Reads the remaining bytes of source, without moving its position. */
+  Utf8Reader(ByteBuffer source) {
+    if (source.hasArray()) {
+      this.source = null;
+      this.bytes = source.array();
+      this.pos = source.arrayOffset() + source.position();
+      this.limit = source.arrayOffset() + source.limit();
+    } else {
+      this.source = source.duplicate();
+      this.bytes = new byte[SCRATCH_SIZE];
+    }
+    this.channel = null;
+    this.size = 0;
+    this.segmentSize = 0;
+  }
+
+  /** Reads the whole file, mapping at most segmentSize bytes of it at a time. */
+  Utf8Reader(FileChannel channel, int segmentSize) throws IOException {
+    this.source = ByteBuffer.allocate(0);
+    this.bytes = new byte[SCRATCH_SIZE];
+    this.channel = channel;
+    this.size = channel.size();
+    this.segmentSize = segmentSize;
+  }
+
+  Utf8Reader(byte[] bytes, int offset, int length) {
+    if (offset < 0 || length < 0 || offset + length > bytes.length) {
+      throw new IndexOutOfBoundsException(
+          "Offset " + offset + " and length " + length + " are out of bounds.");
+    }
+    this.source = null;
+    this.bytes = bytes;
+    this.pos = offset;
+    this.limit = offset + length;
+    this.channel = null;
+    this.size = 0;
+    this.segmentSize = 0;
+  }
+
+  @Override
+  public int read(char[] cbuf, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    final int end = off + len;
+    int dp = off;
+    if (pendingLow != 0) {
+      cbuf[dp++] = pendingLow;
+      pendingLow = 0;
+      if (dp == end) {
+        return 1;
+      }
+    }
+    while (true) {
+      if (limit - pos < 4 && hasMoreInput()) {
+        refill();
+      }
+      if (pos >= limit) {
+        return dp == off ? -1 : dp - off;
+      }
+      dp = decode(cbuf, dp, end);
+      if (dp > off) {
+        return dp - off;
+      }
+    }
+  }
+
+  private int decode(char[] dst, int dp, int dl) {
+    final byte[] src = bytes;
+    int sp = pos;
+    final int sl = limit;
+    while (dp < dl && sp < sl) {
+      int b1 = src[sp];
+      if (b1 >= 0) {
+        dst[dp++] = (char) b1;
+        sp++;
+        continue;
+      }
+      int needed;
+      int min;
+      int value;
+      if ((b1 & 0xE0) == 0xC0) {
+        needed = 1;
+        min = 0x80;
+        value = b1 & 0x1F;
+      } else if ((b1 & 0xF0) == 0xE0) {
+        needed = 2;
+        min = 0x800;
+        value = b1 & 0x0F;
+      } else if ((b1 & 0xF8) == 0xF0) {
+        needed = 3;
+        min = 0x10000;
+        value = b1 & 0x07;
+      } else {
+        dst[dp++] = REPLACEMENT;
+        sp++;
+        continue;
+      }
+      if (sl - sp <= needed && hasMoreInput()) {
+        // The sequence continues past the scratch array, come back after a refill.
+        break;
+      }
+      int i = 1;
+      for (; i <= needed && sp + i < sl; i++) {
+        int next = src[sp + i];
+        if ((next & 0xC0) != 0x80) {
+          break;
+        }
+        value = (value << 6) | (next & 0x3F);
+      }
+      if (i <= needed
+          || value < min
+          || value > Character.MAX_CODE_POINT
+          || (value >= Character.MIN_SURROGATE && value <= Character.MAX_SURROGATE)) {
+        dst[dp++] = REPLACEMENT;
+        sp += i;
+      } else if (needed == 3) {
+        dst[dp++] = Character.highSurrogate(value);
+        if (dp < dl) {
+          dst[dp++] = Character.lowSurrogate(value);
+        } else {
+          pendingLow = Character.lowSurrogate(value);
+        }
+        sp += 4;
+      } else {
+        dst[dp++] = (char) value;
+        sp += needed + 1;
+      }
+    }
+    pos = sp;
+    return dp;
+  }
+
+  private boolean hasMoreInput() {
+    return source != null && (source.hasRemaining() || mapped < size);
+  }
+
+  private void refill() throws IOException {
+    int remaining = limit - pos;
+    System.arraycopy(bytes, pos, bytes, 0, remaining);
+    pos = 0;
+    limit = remaining;
+    while (limit < bytes.length) {
+      if (!source.hasRemaining()) {
+        if (mapped >= size) {
+          break;
+        }
+        long length = Math.min(segmentSize, size - mapped);
+        source = channel.map(FileChannel.MapMode.READ_ONLY, mapped, length);
+        mapped += length;
+      }
+      int count = Math.min(source.remaining(), bytes.length - limit);
+      source.get(bytes, limit, count);
+      limit += count;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel != null) {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,221 @@
+package com.afollestad.ason;
+
+import static com.afollestad.ason.AsonPrinter.ESCAPES;
+import static com.afollestad.ason.AsonPrinter.HEX;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Encodes UTF-8 straight into a byte array that's written to the output whenever it fills up, so
+ * text never goes through a Writer and a CharsetEncoder first. Without an output the array grows to
+ * hold everything instead. Unpaired surrogates encode to '?', like {@link
+ * String#getBytes(java.nio.charset.Charset)} does.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+final class Utf8Writer {
+
+  static final int BUFFER_SIZE = 8192;
+  /** The most bytes one char can become, which is a unicode escape. */
+  private static final int MAX_BYTES_PER_CHAR = 6;
+
+  private final OutputStream out;
+  /** Comes from the pool, and goes back to it once released. */
+  private byte[] bytes;
+
+  private int count;
+
+  Utf8Writer(OutputStream out) {
+    this.out = out;
+    this.bytes = OutputBufferPool.acquireBytes(BUFFER_SIZE);
+  }
+
+  /** Collects everything in a growing array, starting with room for about expectedSize bytes. */
+  Utf8Writer(int expectedSize) {
+    this.out = null;
+    this.bytes = OutputBufferPool.acquireBytes(expectedSize);
+  }
+
+  /** Makes room for at least needed more bytes. */
+  private void require(int needed) throws IOException {
+    if (bytes.length - count >= needed) {
+      return;
+    }
+    drain();
+    if (bytes.length - count < needed) {
+      final byte[] grown =
+          OutputBufferPool.acquireBytes(Math.max(count + needed, bytes.length * 2));
+      System.arraycopy(bytes, 0, grown, 0, count);
+      OutputBufferPool.release(bytes);
+      bytes = grown;
+    }
+  }
+
+  /** Writes an ASCII char. */
+  void write(char c) throws IOException {
+    if (count == bytes.length) {
+      require(1);
+    }
+    bytes[count++] = (byte) c;
+  }
+
+  /** Writes bytes that are already encoded, like a field name with its quotes and colon. */
+  void write(byte[] encoded) throws IOException {
+    require(encoded.length);
+    System.arraycopy(encoded, 0, bytes, count, encoded.length);
+    count += encoded.length;
+  }
+
+  void write(long value) throws IOException {
+    require(20);
+    if (value == Long.MIN_VALUE) {
+      write("-9223372036854775808");
+      return;
+    } else if (value < 0) {
+      bytes[count++] = '-';
+      value = -value;
+    }
+    int end = count + digits(value);
+    count = end;
+    do {
+      bytes[--end] = (byte) ('0' + value % 10);
+      value /= 10;
+    } while (value != 0);
+  }
+
+  private static int digits(long value) {
+    int digits = 1;
+    for (long limit = 10; digits < 19 && value >= limit; limit *= 10) {
+      digits++;
+    }
+    return digits;
+  }
+
+  /** Encodes text as is, without quotes or escapes. */
+  void write(CharSequence text) throws IOException {
+    final int length = text.length();
+    for (int i = 0; i < length; ) {
+      require(4);
+      final char c = text.charAt(i++);
+      if (c < 0x80) {
+        bytes[count++] = (byte) c;
+      } else {
+        i = encode(c, text, i);
+      }
+    }
+  }
+
+  /** Quotes and escapes like {@link AsonPrinter#writeString(String)}, encoding as it goes. */
+  void writeString(String string) throws IOException {
+    write('"');
+    final int length = string.length();
+    int i = 0;
+    while (i < length) {
+      require(MAX_BYTES_PER_CHAR * 2);
+      final byte[] bytes = this.bytes;
+      // Every char fits in 6 bytes, which also leaves room for the second half of a pair.
+      final int end = Math.min(length, i + (bytes.length - count) / MAX_BYTES_PER_CHAR - 1);
+      int pos = count;
+      while (i < end) {
+        final char c = string.charAt(i++);
+        final char escape;
+        if (c < 0x80) {
+          escape = ESCAPES[c];
+          if (escape == 0 || (escape == '/' && (i == 1 || string.charAt(i - 2) != '<'))) {
+            bytes[pos++] = (byte) c;
+            continue;
+          }
+        } else {
+          escape = c < ESCAPES.length ? ESCAPES[c] : 0;
+          if (escape == 0) {
+            count = pos;
+            i = encode(c, string, i);
+            pos = count;
+            continue;
+          }
+        }
+        bytes[pos++] = '\\';
+        if (escape == 'u') {
+          bytes[pos++] = 'u';
+          bytes[pos++] = (byte) HEX[c >> 12];
+          bytes[pos++] = (byte) HEX[(c >> 8) & 0xF];
+          bytes[pos++] = (byte) HEX[(c >> 4) & 0xF];
+          bytes[pos++] = (byte) HEX[c & 0xF];
+        } else {
+          bytes[pos++] = (byte) escape;
+        }
+      }
+      count = pos;
+    }
+    write('"');
+  }
+
+  /**
+   * Encodes a char from 0x80 up, and the low surrogate after it if it's the high half of a pair.
+   * Returns the index after what was encoded.
+   */
+  private int encode(char c, CharSequence text, int next) {
+    if (c < 0x800) {
+      bytes[count++] = (byte) (0xC0 | (c >> 6));
+      bytes[count++] = (byte) (0x80 | (c & 0x3F));
+    } else if (!Character.isSurrogate(c)) {
+      bytes[count++] = (byte) (0xE0 | (c >> 12));
+      bytes[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+      bytes[count++] = (byte) (0x80 | (c & 0x3F));
+    } else if (Character.isHighSurrogate(c)
+        && next < text.length()
+        && Character.isLowSurrogate(text.charAt(next))) {
+      final int codePoint = Character.toCodePoint(c, text.charAt(next));
+      bytes[count++] = (byte) (0xF0 | (codePoint >> 18));
+      bytes[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+      bytes[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+      bytes[count++] = (byte) (0x80 | (codePoint & 0x3F));
+      return next + 1;
+    } else {
+      bytes[count++] = '?';
+    }
+    return next;
+  }
+
+  /** Writes out what's buffered, if there's an output. */
+  void drain() throws IOException {
+    if (count > 0 && out != null) {
+      out.write(bytes, 0, count);
+      count = 0;
+    }
+  }
+
+  void flush() throws IOException {
+    drain();
+    if (out != null) {
+      out.flush();
+    }
+  }
+
+  /** Everything that was written, when there's no output. */
+  byte[] toByteArray() {
+    return Arrays.copyOf(bytes, count);
+  }
+
+  int size() {
+    return count;
+  }
+
+  /** Hands the buffer back to the pool, nothing can be written afterwards. */
+  void release() {
+    if (bytes != null) {
+      OutputBufferPool.release(bytes);
+      bytes = null;
+    }
+  }
+
+  void close() throws IOException {
+    drain();
+    release();
+    if (out != null) {
+      out.close();
+    }
+  }
+}
@@ -45,6 +45,20 @@ class Util {
   @Nullable
   static Object followPath(
       JSONObject wrapper, String key, String[] splitKey, boolean createMissing) {
+    return followPath(wrapper, key, splitKey, createMissing, null);
+  }
+
+  /** Drops the cached text of every object and array it passes through, when given fragments. */
+  @Nullable
+  static Object followPath(
+      JSONObject wrapper,
+      String key,
+      String[] splitKey,
+      boolean createMissing,
+      @Nullable FragmentCache fragments) {
+    if (fragments != null) {
+      fragments.invalidate(wrapper);
+    }
     // Get value for the first path key
     Object parent = wrapper.opt(splitKey[0]);
     if (!isNull(parent) && !(parent instanceof JSONObject) && !(parent instanceof JSONArray)) {
@@ -68,6 +82,9 @@ class Util {
         return null;
       }
     }
+    if (fragments != null) {
+      fragments.invalidate(parent);
+    }
 
     // Loop through following entries
     for (int i = 1; i < splitKey.length - 1; i++) {
@@ -98,6 +115,9 @@ class Util {
             }
           }
           parent = current;
+          if (fragments != null) {
+            fragments.invalidate(parent);
+          }
           continue;
         }
       }
@@ -119,6 +139,9 @@ class Util {
         }
       }
       parent = current;
+      if (fragments != null) {
+        fragments.invalidate(parent);
+      }
     }
 
     return parent;
@@ -128,7 +151,7 @@ class Util {
   @Nullable
   static <T> T getPathValue(JSONObject wrapper, String key, String[] splitKey) {
     if (splitKey.length == 1) {
-      return (T) wrapper.opt(key);
+      return (T) wrapper.opt(splitKey[0]);
     }
     Object target = followPath(wrapper, key, splitKey, false);
     if (isNull(target)) {
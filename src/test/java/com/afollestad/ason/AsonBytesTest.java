@@ -0,0 +1,118 @@
+package com.afollestad.ason;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.List;
+import org.junit.Test;
+
+/** @author Aidan Follestad (afollestad) */
+public class AsonBytesTest {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  @SuppressWarnings("unused")
+  static class Named {
+
+    String name;
+    int age;
+  }
+
+  private static ByteBuffer direct(byte[] bytes) {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+    buffer.put(bytes);
+    buffer.flip();
+    return buffer;
+  }
+
+  @Test
+  public void from_bytes_test() {
+    String input = "{\"greeting\":\"h\u00e9llo \u2603 \ud83d\ude00\",\"list\":[1,2.5,null]}";
+    byte[] bytes = input.getBytes(UTF_8);
+    assertEquals(new Ason(input), Ason.fromBytes(bytes));
+    assertEquals(new Ason(input), Ason.fromBuffer(ByteBuffer.wrap(bytes)));
+    assertEquals(new Ason(input), Ason.fromBuffer(direct(bytes)));
+    assertEquals("h\u00e9llo \u2603 \ud83d\ude00", Ason.fromBytes(bytes).getString("greeting"));
+  }
+
+  @Test
+  public void array_from_bytes_test() {
+    String input = "[\"\u00e9\",{\"a\":1},[true]]";
+    byte[] bytes = input.getBytes(UTF_8);
+    assertEquals(new AsonArray(input).toString(), AsonArray.fromBytes(bytes).toString());
+    assertEquals(new AsonArray(input).toString(), AsonArray.fromBuffer(direct(bytes)).toString());
+  }
+
+  @Test
+  public void slice_test() {
+    byte[] bytes = "xx{\"a\":\"\u00e9\"}yy".getBytes(UTF_8);
+    assertEquals("\u00e9", Ason.fromBytes(bytes, 2, bytes.length - 4).getString("a"));
+
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    buffer.position(2);
+    buffer.limit(bytes.length - 2);
+    assertEquals("\u00e9", Ason.fromBuffer(buffer.slice()).getString("a"));
+    assertEquals(2, buffer.position());
+  }
+
+  @Test
+  public void multibyte_across_refills_test() {
+    // Direct buffers are copied through an 8KB scratch array, shift the
+    // multibyte characters so every offset straddles the boundary once.
+    StringBuilder value = new StringBuilder();
+    for (int i = 0; i < 4000; i++) {
+      value.append(i % 3 == 0 ? "\u00e9" : i % 3 == 1 ? "\u2603" : "\ud83d\ude00");
+    }
+    for (int shift = 0; shift < 4; shift++) {
+      StringBuilder padding = new StringBuilder();
+      for (int i = 0; i < shift; i++) {
+        padding.append(' ');
+      }
+      String input = padding + "[\"" + value + "\"]";
+      AsonArray<String> array = AsonArray.fromBuffer(direct(input.getBytes(UTF_8)));
+      assertEquals(value.toString(), array.get(0));
+    }
+  }
+
+  @Test
+  public void malformed_test() {
+    byte[] bytes = {'[', '"', 'a', (byte) 0xC3, '"', ',', '"', (byte) 0xFF, 'b', '"', ']'};
+    AsonArray<String> array = AsonArray.fromBytes(bytes);
+    assertEquals(new String(new byte[] {'a', (byte) 0xC3}, UTF_8), array.get(0));
+    assertEquals("\ufffdb", array.get(1));
+  }
+
+  @Test
+  public void deserialize_test() {
+    String input = "{\"n\\u0061me\":\"Aidan \u2603\",\"skipped\":{\"x\":[1]},\"age\":21}";
+    byte[] bytes = input.getBytes(UTF_8);
+    Named named = Ason.deserialize(bytes, Named.class);
+    assertEquals("Aidan \u2603", named.name);
+    assertEquals(21, named.age);
+    named = Ason.deserialize(direct(bytes), Named.class);
+    assertEquals("Aidan \u2603", named.name);
+    assertEquals(21, named.age);
+
+    List<Named> list = Ason.deserializeList(("[" + input + ",null]").getBytes(UTF_8), Named.class);
+    assertEquals(2, list.size());
+    assertEquals(21, list.get(0).age);
+    assertNull(list.get(1));
+  }
+
+  @Test(expected = InvalidJsonException.class)
+  public void wrong_root_test() {
+    Ason.fromBytes("[1]".getBytes(UTF_8));
+  }
+
+  @Test(expected = InvalidJsonException.class)
+  public void trailing_content_test() {
+    AsonArray.fromBytes("[1] [2]".getBytes(UTF_8));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void bad_slice_test() {
+    Ason.fromBytes(new byte[4], 2, 3);
+  }
+}
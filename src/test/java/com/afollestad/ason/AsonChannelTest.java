@@ -0,0 +1,287 @@
+package com.afollestad.ason;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** @author Aidan Follestad (afollestad) */
+public class AsonChannelTest {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  /** Takes at most a few bytes per write, and nothing at all every other time. */
+  private static class SlowChannel implements WritableByteChannel, ReadableByteChannel {
+
+    final ByteArrayOutputStream written = new ByteArrayOutputStream();
+    private final byte[] input;
+    private final int step;
+    private int position;
+    private boolean stall;
+
+    SlowChannel(byte[] input, int step) {
+      this.input = input;
+      this.step = step;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+      stall = !stall;
+      if (stall) {
+        return 0;
+      }
+      int count = Math.min(step, src.remaining());
+      for (int i = 0; i < count; i++) {
+        written.write(src.get());
+      }
+      return count;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) {
+      stall = !stall;
+      if (stall) {
+        return 0;
+      } else if (position == input.length) {
+        return -1;
+      }
+      int count = Math.min(step, Math.min(dst.remaining(), input.length - position));
+      dst.put(input, position, count);
+      position += count;
+      return count;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {}
+  }
+
+  private static Ason sample(int size) {
+    AsonArray<Ason> items = new AsonArray<>();
+    for (int i = 0; i < size; i++) {
+      items.add(
+          new Ason()
+              .put("id", i)
+              .put("name", "Item \u00e9\u2603\ud83d\ude00 " + i)
+              .put("price", i * 1.25)
+              .put("tags", new AsonArray<String>().add("a", "b"))
+              .put("nothing", (Object) null));
+    }
+    return new Ason().put("title", "Sample").put("items", items);
+  }
+
+  private static byte[] toBytes(Object value) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    AsonChannelWriter.writeValue(Channels.newChannel(out), value);
+    return out.toByteArray();
+  }
+
+  @Test
+  public void write_test() throws IOException {
+    Ason ason = sample(5000);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ason.writeTo(Channels.newChannel(out));
+    assertTrue(out.size() > BufferPool.BUFFER_SIZE * 2);
+    assertEquals(ason.toString(), new String(out.toByteArray(), UTF_8));
+  }
+
+  @Test
+  public void write_array_test() throws IOException {
+    AsonArray<Object> array = new AsonArray<>().add(1, "two", 3.5, null, new Ason().put("a", 1));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    array.writeTo(Channels.newChannel(out));
+    assertEquals(array.toString(), new String(out.toByteArray(), UTF_8));
+  }
+
+  @Test
+  public void write_objects_test() throws IOException {
+    List<Person> people = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      people.add(new Person(i, "Person " + i, 1990 + i));
+    }
+    assertEquals(
+        Ason.serialize(people.get(0)).toString(), new String(toBytes(people.get(0)), UTF_8));
+    assertEquals(Ason.serializeList(people).toString(), new String(toBytes(people), UTF_8));
+    assertEquals(
+        Ason.serializeArray(people.toArray()).toString(),
+        new String(toBytes(people.toArray()), UTF_8));
+    assertEquals("\"text\"", new String(toBytes("text"), UTF_8));
+    assertEquals("null", new String(toBytes(null), UTF_8));
+  }
+
+  @Test
+  public void non_blocking_write_test() throws IOException {
+    Ason ason = sample(200);
+    SlowChannel channel = new SlowChannel(new byte[0], 1000);
+    AsonChannelWriter writer = new AsonChannelWriter(channel, ason);
+    int calls = 0;
+    while (!writer.write()) {
+      calls++;
+    }
+    assertTrue(calls > 1);
+    assertTrue(writer.write());
+    assertEquals(ason.toString(), new String(channel.written.toByteArray(), UTF_8));
+  }
+
+  @Test
+  public void read_test() throws IOException {
+    Ason ason = sample(5000);
+    byte[] bytes = ason.toString().getBytes(UTF_8);
+    assertEquals(ason, Ason.fromChannel(Channels.newChannel(new ByteArrayInputStream(bytes))));
+  }
+
+  @Test
+  public void read_array_test() throws IOException {
+    byte[] bytes = "[1,\"two\",null,{\"a\":[]}]".getBytes(UTF_8);
+    AsonArray<Object> array =
+        AsonArray.fromChannel(Channels.newChannel(new ByteArrayInputStream(bytes)));
+    assertEquals(4, array.size());
+    assertEquals("two", array.get(1));
+    assertNull(array.get(2));
+  }
+
+  @Test
+  public void read_mismatch_test() throws IOException {
+    try {
+      Ason.fromChannel(Channels.newChannel(new ByteArrayInputStream("[1]".getBytes(UTF_8))));
+      fail();
+    } catch (InvalidJsonException ignored) {
+    }
+    try {
+      AsonArray.fromChannel(Channels.newChannel(new ByteArrayInputStream("{}".getBytes(UTF_8))));
+      fail();
+    } catch (InvalidJsonException ignored) {
+    }
+  }
+
+  @Test
+  public void deserialize_test() throws IOException {
+    Person person = new Person(5, "Aidan", 1995);
+    Person result =
+        Ason.deserialize(
+            Channels.newChannel(new ByteArrayInputStream(toBytes(person))), Person.class);
+    assertEquals(5, result.id);
+    assertEquals("Aidan", result.name);
+    assertEquals(1995, result.born);
+  }
+
+  @Test
+  public void non_blocking_read_test() throws IOException {
+    Ason ason = sample(100);
+    SlowChannel channel = new SlowChannel(ason.toString().getBytes(UTF_8), 7);
+    final List<Ason> values = new ArrayList<>();
+    AsonChannelReader reader =
+        new AsonChannelReader(
+            channel,
+            new AsonPushParser<>(
+                Ason.class,
+                new AsonPushParser.Callback<Ason>() {
+                  @Override
+                  public void onValue(Ason value) {
+                    values.add(value);
+                  }
+                }));
+    assertFalse(reader.read());
+    while (!reader.read()) {
+      // resumes where the last call stopped
+    }
+    assertTrue(reader.read());
+    assertEquals(1, values.size());
+    assertEquals(ason, values.get(0));
+  }
+
+  @Test
+  public void incomplete_read_test() throws IOException {
+    byte[] bytes = "{\"a\":[1,2".getBytes(UTF_8);
+    try {
+      Ason.fromChannel(Channels.newChannel(new ByteArrayInputStream(bytes)));
+      fail();
+    } catch (InvalidJsonException ignored) {
+    }
+  }
+
+  @Test
+  public void async_file_test() throws Exception {
+    final Ason ason = sample(3000);
+    Path file = folder.newFile().toPath();
+    final CountDownLatch written = new CountDownLatch(1);
+    final CountDownLatch read = new CountDownLatch(1);
+    final Object[] results = new Object[2];
+
+    final AsynchronousFileChannel out =
+        AsynchronousFileChannel.open(file, StandardOpenOption.WRITE);
+    AsonChannelWriter.writeValue(
+        out,
+        0,
+        ason,
+        null,
+        new CompletionHandler<Long, Void>() {
+          @Override
+          public void completed(Long count, Void attachment) {
+            results[0] = count;
+            written.countDown();
+          }
+
+          @Override
+          public void failed(Throwable t, Void attachment) {
+            results[0] = t;
+            written.countDown();
+          }
+        });
+    assertTrue(written.await(10, TimeUnit.SECONDS));
+    out.close();
+    assertEquals((long) Files.size(file), results[0]);
+    assertEquals(ason.toString(), new String(Files.readAllBytes(file), UTF_8));
+
+    AsynchronousFileChannel in = AsynchronousFileChannel.open(file, StandardOpenOption.READ);
+    AsonChannelReader.readValue(
+        in,
+        Ason.class,
+        false,
+        null,
+        new CompletionHandler<Ason, Void>() {
+          @Override
+          public void completed(Ason value, Void attachment) {
+            results[1] = value;
+            read.countDown();
+          }
+
+          @Override
+          public void failed(Throwable t, Void attachment) {
+            results[1] = t;
+            read.countDown();
+          }
+        });
+    assertTrue(read.await(10, TimeUnit.SECONDS));
+    in.close();
+    assertEquals(ason, results[1]);
+  }
+}
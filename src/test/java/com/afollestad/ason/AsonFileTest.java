@@ -0,0 +1,76 @@
+package com.afollestad.ason;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** @author Aidan Follestad (afollestad) */
+public class AsonFileTest {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path write(String contents) throws IOException {
+    Path file = folder.newFile().toPath();
+    Files.write(file, contents.getBytes(UTF_8));
+    return file;
+  }
+
+  @Test
+  public void object_test() throws Exception {
+    String input = "{\"name\":\"h\u00e9llo \u2603\",\"list\":[1,2,{\"a\":null}]}";
+    assertEquals(new Ason(input), Ason.fromFile(write(input)));
+  }
+
+  @Test
+  public void array_test() throws Exception {
+    String input = ParserPerfTest.buildDocument(500);
+    AsonArray<Object> array = AsonArray.fromFile(write(input));
+    assertEquals(new AsonArray(input).toString(), array.toString());
+  }
+
+  @Test
+  public void segments_test() throws Exception {
+    // Tiny segments push every token and multibyte character across a mapping boundary.
+    String input = "[\"\u00e9\u2603\ud83d\ude00\",{\"key\":12345.5e-3},true,null,\"end\"]";
+    Path file = write(input);
+    for (int segmentSize = 1; segmentSize <= 9; segmentSize++) {
+      AsonReader reader = AsonReader.fromFile(file, segmentSize);
+      assertEquals(new AsonArray(input).toString(), reader.nextArray().toString());
+      assertEquals(AsonToken.END_DOCUMENT, reader.peek());
+      reader.close();
+    }
+  }
+
+  @Test
+  public void streaming_test() throws Exception {
+    Path file = write(ParserPerfTest.buildDocument(2000));
+    AsonReader reader = AsonReader.fromFile(file, 4096);
+    reader.beginArray();
+    int count = 0;
+    while (reader.hasNext()) {
+      reader.skipValue();
+      count++;
+    }
+    reader.endArray();
+    reader.close();
+    assertEquals(2000, count);
+  }
+
+  @Test(expected = InvalidJsonException.class)
+  public void empty_file_test() throws Exception {
+    Ason.fromFile(write(""));
+  }
+
+  @Test(expected = InvalidJsonException.class)
+  public void wrong_root_test() throws Exception {
+    AsonArray.fromFile(write("{}"));
+  }
+}
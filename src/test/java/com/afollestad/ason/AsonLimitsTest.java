@@ -0,0 +1,226 @@
+package com.afollestad.ason;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import org.junit.Test;
+
+/** @author Aidan Follestad (afollestad) */
+public class AsonLimitsTest {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static String nested(int depth) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < depth; i++) {
+      sb.append("{\"a\":");
+    }
+    sb.append("1");
+    for (int i = 0; i < depth; i++) {
+      sb.append('}');
+    }
+    return sb.toString();
+  }
+
+  private static String repeat(char c, int count) {
+    StringBuilder sb = new StringBuilder(count);
+    for (int i = 0; i < count; i++) {
+      sb.append(c);
+    }
+    return sb.toString();
+  }
+
+  /** Parses the object with every parser, all of which must reject it with the same message. */
+  private static void assertRejected(String json, AsonLimits limits, String message) {
+    try {
+      new Ason(json, AsonStringCache.KEYS, limits);
+      fail("Expected the parser to reject it");
+    } catch (AsonLimitException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid JSON: " + message));
+    }
+    try {
+      Ason.lazy(json, limits).toString();
+      fail("Expected the index to reject it");
+    } catch (AsonLimitException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid JSON: " + message));
+    }
+    for (AsonReader reader :
+        new AsonReader[] {
+          new AsonReader(json),
+          new AsonReader(json.getBytes(UTF_8)),
+          new AsonReader(new StringReader(json))
+        }) {
+      reader.setLimits(limits);
+      try {
+        reader.nextObject();
+        fail("Expected the reader to reject it");
+      } catch (AsonLimitException e) {
+        assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid JSON: " + message));
+      } catch (IOException e) {
+        throw new AssertionError(e);
+      }
+    }
+    AsonPushParser<Ason> parser =
+        new AsonPushParser<>(
+            Ason.class,
+            new AsonPushParser.Callback<Ason>() {
+              @Override
+              public void onValue(Ason value) {}
+            });
+    parser.setLimits(limits);
+    try {
+      parser.feed(json.getBytes(UTF_8));
+      parser.end();
+      fail("Expected the push parser to reject it");
+    } catch (AsonLimitException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid JSON: " + message));
+    }
+  }
+
+  /** Parses the object with every parser, all of which must accept it. */
+  private static void assertAccepted(String json, AsonLimits limits) throws IOException {
+    Ason expected = new Ason(json, AsonStringCache.KEYS, limits);
+    assertEquals(expected, Ason.lazy(json, limits));
+    AsonReader reader = new AsonReader(new StringReader(json));
+    reader.setLimits(limits);
+    assertEquals(expected, reader.nextObject());
+    AsonReader bytes = new AsonReader(json.getBytes(UTF_8));
+    bytes.setLimits(limits);
+    assertEquals(expected, bytes.nextObject());
+  }
+
+  @Test
+  public void depth_test() throws IOException {
+    AsonLimits limits = AsonLimits.DEFAULT.withMaxDepth(10);
+    assertAccepted(nested(10), limits);
+    assertRejected(nested(11), limits, "Nesting is deeper than 10 levels");
+    assertRejected("{\"a\":[[[[[[[[[[]]]]]]]]]]}", limits, "Nesting is deeper than 10 levels");
+  }
+
+  @Test
+  public void default_depth_test() {
+    // Deep enough to overflow the stack without a limit.
+    String json = nested(200000);
+    assertRejected(json, AsonLimits.DEFAULT, "Nesting is deeper than 1000 levels");
+    try {
+      new Ason(json);
+      fail();
+    } catch (AsonLimitException ignored) {
+    }
+  }
+
+  @Test
+  public void skip_depth_test() throws IOException {
+    AsonReader reader = new AsonReader("[" + nested(20) + "]");
+    reader.setLimits(AsonLimits.DEFAULT.withMaxDepth(20));
+    reader.beginArray();
+    try {
+      reader.skipValue();
+      fail();
+    } catch (AsonLimitException ignored) {
+    }
+  }
+
+  @Test
+  public void input_length_test() throws IOException {
+    String json = "{\"name\":\"Aidan\",\"born\":1995}";
+    assertAccepted(json, AsonLimits.DEFAULT.withMaxInputLength(json.length()));
+    assertRejected(
+        json,
+        AsonLimits.DEFAULT.withMaxInputLength(json.length() - 1),
+        "Input is longer than " + (json.length() - 1));
+  }
+
+  @Test
+  public void string_length_test() throws IOException {
+    AsonLimits limits = AsonLimits.DEFAULT.withMaxStringLength(8);
+    assertAccepted("{\"12345678\":\"12345678\",\"escaped\":\"\\u0041\\n345678\"}", limits);
+    assertRejected("{\"a\":\"123456789\"}", limits, "String is longer than 8 chars");
+    assertRejected("{\"123456789\":1}", limits, "String is longer than 8 chars");
+    assertRejected("{\"a\":\"\\u0041\\n34567890\"}", limits, "String is longer than 8 chars");
+    assertRejected("{\"a\":123456789}", limits, "String is longer than 8 chars");
+  }
+
+  @Test
+  public void huge_string_test() throws IOException {
+    String json = "{\"a\":\"" + repeat('x', 1 << 20) + "\"}";
+    AsonLimits limits = AsonLimits.DEFAULT.withMaxStringLength(4096);
+    assertRejected(json, limits, "String is longer than 4096 chars");
+    // The reader stops long before the string is buffered.
+    AsonReader reader = new AsonReader(new StringReader(json));
+    reader.setLimits(limits);
+    try {
+      reader.nextObject();
+      fail();
+    } catch (AsonLimitException e) {
+      assertTrue(e.getMessage(), e.getOffset() < 8192);
+    }
+  }
+
+  @Test
+  public void object_size_test() throws IOException {
+    AsonLimits limits = AsonLimits.DEFAULT.withMaxObjectSize(3);
+    assertAccepted("{\"a\":1,\"b\":{\"c\":1,\"d\":2,\"e\":3},\"f\":[]}", limits);
+    assertRejected("{\"a\":1,\"b\":2,\"c\":3,\"d\":4}", limits, "Object has more than 3 keys");
+    assertRejected(
+        "{\"a\":{\"a\":1,\"b\":2,\"c\":3,\"d\":4}}", limits, "Object has more than 3 keys");
+  }
+
+  @Test
+  public void array_size_test() throws IOException {
+    AsonLimits limits = AsonLimits.DEFAULT.withMaxArraySize(3);
+    assertAccepted("{\"a\":[1,2,3],\"b\":[[1,2,3],[]]}", limits);
+    assertRejected("{\"a\":[1,2,3,4]}", limits, "Array has more than 3 elements");
+    assertRejected("{\"a\":[[],[1,2,3,4]]}", limits, "Array has more than 3 elements");
+  }
+
+  @Test
+  public void array_constructor_test() {
+    AsonLimits limits = AsonLimits.DEFAULT.withMaxArraySize(2);
+    assertEquals(2, new AsonArray<>("[1,2]", AsonStringCache.KEYS, limits).size());
+    try {
+      new AsonArray<>("[1,2,3]", AsonStringCache.KEYS, limits);
+      fail();
+    } catch (AsonLimitException e) {
+      assertEquals("Array has more than 2 elements", e.getReason());
+      assertEquals(5, e.getOffset());
+    }
+  }
+
+  @Test
+  public void push_parser_unwrap_test() {
+    final int[] count = new int[1];
+    AsonPushParser<Integer> parser =
+        new AsonPushParser<>(
+            Integer.class,
+            new AsonPushParser.Callback<Integer>() {
+              @Override
+              public void onValue(Integer value) {
+                count[0]++;
+              }
+            });
+    parser.setUnwrapArray(true);
+    parser.setLimits(AsonLimits.DEFAULT.withMaxArraySize(2));
+    parser.feed("[1,2,3,4]".getBytes(UTF_8));
+    parser.end();
+    assertEquals(4, count[0]);
+  }
+
+  @Test
+  public void invalid_limit_test() {
+    try {
+      AsonLimits.DEFAULT.withMaxDepth(0);
+      fail();
+    } catch (IllegalArgumentException ignored) {
+    }
+    AsonLimits limits = AsonLimits.DEFAULT.withMaxArraySize(5).withMaxObjectSize(6);
+    assertEquals(5, limits.maxArraySize());
+    assertEquals(6, limits.maxObjectSize());
+    assertEquals(AsonLimits.DEFAULT_MAX_DEPTH, limits.maxDepth());
+    assertEquals(Integer.MAX_VALUE, AsonLimits.DEFAULT.maxArraySize());
+  }
+}
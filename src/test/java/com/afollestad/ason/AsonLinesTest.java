@@ -0,0 +1,301 @@
+package com.afollestad.ason;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** @author Aidan Follestad (afollestad) */
+public class AsonLinesTest {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @SuppressWarnings("unused")
+  static class Event {
+
+    String type;
+    long time;
+
+    Event() {}
+
+    Event(String type, long time) {
+      this.type = type;
+      this.time = time;
+    }
+  }
+
+  @SuppressWarnings("unused")
+  static class RatedEvent extends Event {
+
+    double rating;
+
+    RatedEvent() {}
+
+    RatedEvent(String type, long time, double rating) {
+      super(type, time);
+      this.rating = rating;
+    }
+  }
+
+  private static <T> List<T> readAll(AsonLinesReader<T> reader) {
+    List<T> result = new ArrayList<>();
+    for (T item : reader) {
+      result.add(item);
+    }
+    return result;
+  }
+
+  @Test
+  public void read_lines_test() {
+    String input =
+        "{\"type\":\"a\",\"time\":1}\n{\"type\":\"b\",\"time\":2}\r\n\n{\"type\":\"c\"}\n";
+    List<Ason> lines = readAll(new AsonLinesReader<>(new StringReader(input), Ason.class));
+    assertEquals(3, lines.size());
+    assertEquals("b", lines.get(1).getString("type"));
+
+    byte[] bytes = input.getBytes(UTF_8);
+    List<Event> events =
+        readAll(new AsonLinesReader<>(new ByteArrayInputStream(bytes), Event.class));
+    assertEquals(3, events.size());
+    assertEquals(2, events.get(1).time);
+    assertEquals("c", events.get(2).type);
+  }
+
+  @Test
+  public void concatenated_test() {
+    String input = "{\"type\":\"a\"}{\"type\":\"b\"}  {\"type\":\"c\"}[1,2]null";
+    AsonLinesReader<Ason> reader =
+        new AsonLinesReader<>(new AsonReaderTest.TrickleReader(input, 3), Ason.class);
+    assertEquals("a", reader.next().getString("type"));
+    assertEquals("b", reader.next().getString("type"));
+    assertEquals("c", reader.next().getString("type"));
+    AsonLinesReader<AsonArray> arrays =
+        new AsonLinesReader<>(new StringReader("[1,2] [3]"), AsonArray.class);
+    assertEquals(2, arrays.next().size());
+    assertEquals(1, arrays.next().size());
+    assertFalse(arrays.hasNext());
+  }
+
+  @Test
+  public void empty_test() {
+    assertFalse(new AsonLinesReader<>(new StringReader(""), Ason.class).hasNext());
+    assertFalse(new AsonLinesReader<>(new StringReader(" \n\n"), Ason.class).hasNext());
+  }
+
+  @Test
+  public void write_test() throws Exception {
+    StringWriter out = new StringWriter();
+    AsonLinesWriter writer = new AsonLinesWriter(out);
+    writer.write(new Event("a\nb", 1)).write(new Ason().put("x", 1)).write(null);
+    writer.write(new AsonArray<Integer>().add(1, 2));
+    writer.close();
+    String[] lines = out.toString().split("\n", -1);
+    assertEquals(5, lines.length);
+    assertEquals("", lines[4]);
+
+    List<Ason> read = readAll(new AsonLinesReader<>(new StringReader(lines[0]), Ason.class));
+    assertEquals("a\nb", read.get(0).getString("type"));
+    assertEquals("{\"x\":1}", lines[1]);
+    assertEquals("null", lines[2]);
+    assertEquals("[1,2]", lines[3]);
+  }
+
+  @Test
+  public void file_round_trip_test() throws Exception {
+    Path file = folder.newFile().toPath();
+    for (int batch = 0; batch < 2; batch++) {
+      AsonLinesWriter writer = AsonLinesWriter.append(file);
+      for (int i = 0; i < 500; i++) {
+        writer.write(new Event("caf\u00e9 " + batch, batch * 500 + i));
+      }
+      writer.close();
+    }
+    AsonLinesReader<Event> reader = AsonLinesReader.fromFile(file, Event.class);
+    List<Event> events = readAll(reader);
+    reader.close();
+    assertEquals(1000, events.size());
+    assertEquals(999, events.get(999).time);
+    assertEquals("caf\u00e9 1", events.get(999).type);
+    assertEquals(Files.readAllLines(file, UTF_8).size(), 1000);
+  }
+
+  @Test
+  public void write_matches_printer_test() throws Exception {
+    JSONObject stock = new JSONObject().put("small", 1.0E-7).put("list", new JSONArray("[2.5]"));
+    StringWriter out = new StringWriter();
+    AsonLinesWriter writer = new AsonLinesWriter(out, true);
+    writer.write(stock).write(new RatedEvent("a", 1, 0.5));
+    writer.close();
+    writer.close();
+    String[] lines = out.toString().split("\n");
+    assertEquals(new Ason(stock).toString(), lines[0]);
+    assertEquals(Ason.serialize(new RatedEvent("a", 1, 0.5), true).toString(), lines[1]);
+  }
+
+  @Test(expected = JSONException.class)
+  public void write_non_finite_test() throws Exception {
+    new AsonLinesWriter(new StringWriter()).write(new RatedEvent("a", 1, Double.NaN));
+  }
+
+  @Test
+  public void output_stream_test() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    AsonLinesWriter writer = new AsonLinesWriter(out);
+    writer.write(new Event("\u2603", 5));
+    writer.flush();
+    Event event =
+        new AsonLinesReader<>(new ByteArrayInputStream(out.toByteArray()), Event.class).next();
+    assertEquals("\u2603", event.type);
+  }
+
+  @Test
+  public void null_line_test() {
+    AsonLinesReader<Event> reader =
+        new AsonLinesReader<>(new StringReader("null\n{\"time\":3}"), Event.class);
+    assertNull(reader.next());
+    assertEquals(3, reader.next().time);
+  }
+
+  @Test(expected = InvalidJsonException.class)
+  public void invalid_line_test() {
+    AsonLinesReader<Ason> reader =
+        new AsonLinesReader<>(new StringReader("{\"a\":1}\n{\"a\":}"), Ason.class);
+    reader.next();
+    reader.next();
+  }
+
+  private static String lines(int count) {
+    StringBuilder input = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      input.append("{\"type\":\"caf\u00e9\",\"time\":").append(i).append("}\n");
+    }
+    return input.toString();
+  }
+
+  private static <T> List<T> readParallel(
+      ParallelLines.Source source, Class<T> cls, boolean ordered, int chunkSize) throws Exception {
+    final List<T> result = new ArrayList<>();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      new ParallelLines<>(source, cls, false, chunkSize)
+          .read(
+              executor,
+              ordered,
+              new AsonLinesReader.Callback<T>() {
+                @Override
+                public void onValue(T value) {
+                  result.add(value);
+                }
+              });
+    } finally {
+      executor.shutdown();
+    }
+    return result;
+  }
+
+  @Test
+  public void parallel_ordered_test() throws Exception {
+    ByteBuffer input = ByteBuffer.wrap(lines(1000).getBytes(UTF_8));
+    for (int chunkSize : new int[] {1, 7, 100, 1 << 20}) {
+      List<Event> events =
+          readParallel(new ParallelLines.BufferSource(input), Event.class, true, chunkSize);
+      assertEquals(1000, events.size());
+      for (int i = 0; i < 1000; i++) {
+        assertEquals(i, events.get(i).time);
+        assertEquals("caf\u00e9", events.get(i).type);
+      }
+    }
+  }
+
+  @Test
+  public void parallel_unordered_file_test() throws Exception {
+    Path file = folder.newFile().toPath();
+    Files.write(file, (lines(5000) + "{\"time\":5000}").getBytes(UTF_8));
+    try (FileChannel channel = FileChannel.open(file)) {
+      List<Event> events =
+          readParallel(new ParallelLines.FileSource(channel), Event.class, false, 1000);
+      assertEquals(5001, events.size());
+      Set<Long> times = new HashSet<>();
+      for (Event event : events) {
+        times.add(event.time);
+      }
+      assertEquals(5001, times.size());
+    }
+
+    final List<Ason> objects = new ArrayList<>();
+    AsonLinesReader.readParallel(
+        file,
+        Ason.class,
+        true,
+        new AsonLinesReader.Callback<Ason>() {
+          @Override
+          public void onValue(Ason value) {
+            objects.add(value);
+          }
+        });
+    assertEquals(5001, objects.size());
+    assertEquals(5000, objects.get(5000).getInt("time"));
+  }
+
+  @Test
+  public void parallel_recursive_test() throws Exception {
+    Path file = folder.newFile().toPath();
+    Files.write(file, "{\"type\":\"a\",\"time\":1,\"rating\":0.5}\n".getBytes(UTF_8));
+    final List<RatedEvent> events = new ArrayList<>();
+    AsonLinesReader.Callback<RatedEvent> callback =
+        new AsonLinesReader.Callback<RatedEvent>() {
+          @Override
+          public void onValue(RatedEvent value) {
+            events.add(value);
+          }
+        };
+    AsonLinesReader.readParallel(file, RatedEvent.class, true, true, callback);
+    assertEquals("a", events.get(0).type);
+    assertEquals(1, events.get(0).time);
+    assertEquals(0.5, events.get(0).rating, 0);
+
+    AsonLinesReader<RatedEvent> reader = AsonLinesReader.fromFile(file, RatedEvent.class, true);
+    assertEquals("a", reader.next().type);
+    reader.close();
+  }
+
+  @Test
+  public void parallel_empty_test() throws Exception {
+    assertEquals(
+        0,
+        readParallel(new ParallelLines.BufferSource(ByteBuffer.allocate(0)), Ason.class, true, 1)
+            .size());
+    ByteBuffer blank = ByteBuffer.wrap("\n\n \n".getBytes(UTF_8));
+    assertEquals(
+        0, readParallel(new ParallelLines.BufferSource(blank), Ason.class, false, 1).size());
+  }
+
+  @Test(expected = InvalidJsonException.class)
+  public void parallel_invalid_test() throws Exception {
+    ByteBuffer input = ByteBuffer.wrap((lines(100) + "{\"a\":}\n" + lines(100)).getBytes(UTF_8));
+    readParallel(new ParallelLines.BufferSource(input), Ason.class, true, 64);
+  }
+}
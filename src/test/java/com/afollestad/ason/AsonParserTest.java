@@ -0,0 +1,272 @@
+package com.afollestad.ason;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/** @author Aidan Follestad (afollestad) */
+public class AsonParserTest {
+
+  private static final String DOCUMENT =
+      "{\"name\":\"Aidan\",\"_id\":3,\"age\":21,\"height\":6.1,\"big\":9223372036854775807,\"negative\":-2147483648,\"exp\":1.5e3,\"married\":false,\"nothing\":null,\"escaped\":\"line\\n"
+          + "break \\\"quoted\\\" \\u00e9\\/\\\\\",\"unicode\":\"h\u00e9llo \u2603\","
+          + "\"nested\":{\"array\":[1,2.5,\"three\",true,null,{},[]],\"empty\":\"\"}}";
+
+  @Test
+  public void same_tree_as_org_json_test() {
+    JSONObject expected = new JSONObject(DOCUMENT);
+    JSONObject actual = AsonParser.parseObject(DOCUMENT);
+    assertEquals(expected.toString(), actual.toString());
+  }
+
+  @Test
+  public void same_array_as_org_json_test() {
+    String input = " [ 1 , -0 , 0.0 , 12345678901 , \"a\\tb\" , [ [ ] ] , { \"a\" : { } } ] ";
+    JSONArray expected = new JSONArray(input);
+    JSONArray actual = AsonParser.parseArray(input);
+    assertEquals(expected.toString(), actual.toString());
+  }
+
+  @Test
+  public void number_types_test() {
+    JSONObject object =
+        AsonParser.parseObject(
+            "{\"int\":2147483647,\"long\":2147483648,\"min\":-9223372036854775808,"
+                + "\"double\":1.0,\"negZero\":-0,\"huge\":92233720368547758070,\"inf\":1e999}");
+    assertEquals(Integer.class, object.get("int").getClass());
+    assertEquals(Long.class, object.get("long").getClass());
+    assertEquals(Long.MIN_VALUE, object.get("min"));
+    assertEquals(Double.class, object.get("double").getClass());
+    assertEquals(-0d, object.get("negZero"));
+    assertEquals("92233720368547758070", object.get("huge"));
+    assertEquals("1e999", object.get("inf"));
+  }
+
+  @Test
+  public void escaped_strings_test() {
+    JSONObject object =
+        AsonParser.parseObject("{\"a\":\"x\\\"y\",\"b\":\"\\ud83d\\ude00\",\"c\":\"tab\\there\"}");
+    assertEquals("x\"y", object.get("a"));
+    assertEquals("\ud83d\ude00", object.get("b"));
+    assertEquals("tab\there", object.get("c"));
+  }
+
+  @Test
+  public void long_escaped_string_test() {
+    StringBuilder input = new StringBuilder("{\"a\":\"");
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 500; i++) {
+      input.append("abc\\n");
+      expected.append("abc\n");
+    }
+    input.append("\"}");
+    assertEquals(expected.toString(), AsonParser.parseObject(input.toString()).get("a"));
+  }
+
+  @Test
+  public void invalid_documents_test() {
+    String[] invalid = {
+      "",
+      "[]",
+      "{",
+      "{\"a\"}",
+      "{\"a\":}",
+      "{\"a\":1,}",
+      "{\"a\":1 \"b\":2}",
+      "{'a':1}",
+      "{a:1}",
+      "{\"a\":01}",
+      "{\"a\":1.}",
+      "{\"a\":.5}",
+      "{\"a\":tru}",
+      "{\"a\":\"\\x\"}",
+      "{\"a\":\"\\u12G4\"}",
+      "{\"a\":\"line\nbreak\"}",
+      "{\"a\":\"unterminated}",
+      "{\"a\":1,\"a\":2}",
+      "{\"a\":1} trailing"
+    };
+    for (String input : invalid) {
+      try {
+        AsonParser.parseObject(input);
+      } catch (JSONException e) {
+        assertTrue(e.getMessage().contains("at character"));
+        continue;
+      }
+      throw new AssertionError("Expected a parse failure for " + input);
+    }
+  }
+
+  @Test(expected = InvalidJsonException.class)
+  public void invalid_array_test() {
+    new AsonArray<>("[1,2");
+  }
+
+  @Test
+  public void lenient_documents_test() {
+    String[] lenient = {
+      "{a:1}",
+      "{'a':'b'}",
+      "{\"a\":1,}",
+      "{\"a\":1;\"b\":2}",
+      "{\"a\":01}",
+      "{\"a\":0x1F}",
+      "{\"a\":TRUE}",
+      "{\"a\":1} x",
+      "{a:b'c}"
+    };
+    for (String input : lenient) {
+      assertEquals(input, new JSONObject(input).toString(), new Ason(input).toString());
+      assertEquals(input, new JSONObject(input).toString(), Ason.lazy(input).toString());
+    }
+    assertEquals("[1,2]", new AsonArray<>("[1,2,]").toString());
+    assertEquals("[1,null,2]", new AsonArray<>("[1,,2]").toString());
+    assertEquals(1, Ason.deserialize("{a:1}", Ason.class).getInt("a"));
+    assertEquals(2, Ason.deserializeList("[1,2,]", Integer.class).size());
+  }
+
+  @Test
+  public void lenient_documents_keep_strict_errors_test() {
+    try {
+      new Ason("{a:1,,}");
+      throw new AssertionError();
+    } catch (InvalidJsonException e) {
+      assertEquals("Expected a string key", e.getReason());
+      assertEquals(1, e.getOffset());
+    }
+  }
+
+  @Test
+  public void other_malformed_documents_skip_org_json_test() {
+    // org.json reads each of these as text, the strict parser's error is thrown instead
+    String[] malformed = {"{\"a\":[1 2]}", "{\"a\":-}", "{\"a\":1.2.3}", "{\"a\":.5}"};
+    for (String input : malformed) {
+      new JSONObject(input);
+      try {
+        new Ason(input);
+        throw new AssertionError("Expected " + input + " to be rejected");
+      } catch (InvalidJsonException ignored) {
+      }
+      try {
+        Ason.lazy(input);
+        throw new AssertionError("Expected lazy() to reject " + input);
+      } catch (InvalidJsonException ignored) {
+      }
+      try {
+        Ason.deserialize(input, Ason.class);
+        throw new AssertionError("Expected deserialize() to reject " + input);
+      } catch (InvalidJsonException ignored) {
+      }
+    }
+    try {
+      new AsonArray<>("[1 2]");
+      throw new AssertionError();
+    } catch (InvalidJsonException e) {
+      assertEquals("a ',' or ']'", e.getExpected());
+    }
+  }
+
+  @Test
+  public void lenient_documents_keep_limits_test() {
+    AsonLimits limits = AsonLimits.DEFAULT.withMaxDepth(3).withMaxArraySize(2);
+    String[] tooBig = {"{a:[[[1]]]}", "{'a':'[[]]', b:[1,2,3]}", "[1,2,3,]"};
+    for (String input : tooBig) {
+      try {
+        if (input.startsWith("[")) {
+          new AsonArray<>(input, null, limits);
+        } else {
+          new Ason(input, null, limits);
+        }
+        throw new AssertionError("Expected a limit to apply to " + input);
+      } catch (AsonLimitException ignored) {
+      }
+    }
+    assertEquals("[[]]", new Ason("{'a':'[[]]', b:[1,2]}", null, limits).getString("a"));
+
+    StringBuilder deep = new StringBuilder();
+    for (int i = 0; i < 100000; i++) {
+      deep.append('[');
+    }
+    for (String prefix : new String[] {"{a:", "{a:b'"}) {
+      try {
+        new Ason(prefix + deep);
+        throw new AssertionError("Expected the default depth limit to apply to " + prefix);
+      } catch (AsonLimitException ignored) {
+      }
+    }
+  }
+
+  private static final String PRETTY = "{\n  \"a\": 1,\n  \"b\": [true, false\n    null]\n}";
+
+  private static void assertPrettyError(InvalidJsonException e) {
+    assertEquals("Expected a ',' or ']'", e.getReason());
+    assertEquals("a ',' or ']'", e.getExpected());
+    assertEquals(PRETTY.indexOf("null"), e.getOffset());
+    assertEquals(4, e.getLine());
+    assertEquals(5, e.getColumn());
+    assertEquals("null", e.getExcerpt().substring(e.getExcerptOffset()).substring(0, 4));
+    assertTrue(e.getMessage(), e.getMessage().contains("(line 4, column 5)"));
+    assertTrue(e.getMessage(), e.getMessage().endsWith("false\\n     >>> null]\\n}\""));
+  }
+
+  @Test
+  public void error_location_test() throws IOException {
+    try {
+      new Ason(PRETTY);
+      throw new AssertionError();
+    } catch (InvalidJsonException e) {
+      assertPrettyError(e);
+    }
+    try {
+      Ason.lazy(PRETTY);
+      throw new AssertionError();
+    } catch (InvalidJsonException e) {
+      assertPrettyError(e);
+    }
+    for (AsonReader reader :
+        new AsonReader[] {new AsonReader(PRETTY), new AsonReader(new StringReader(PRETTY))}) {
+      try {
+        reader.nextObject();
+        throw new AssertionError();
+      } catch (InvalidJsonException e) {
+        assertPrettyError(e);
+      }
+    }
+  }
+
+  @Test
+  public void error_excerpt_is_bounded_test() {
+    StringBuilder sb = new StringBuilder("{\"items\":[");
+    for (int i = 0; i < 100000; i++) {
+      sb.append("{\"id\":").append(i).append("},");
+    }
+    String json = sb.append("{}]]").toString();
+    try {
+      new Ason(json);
+      throw new AssertionError();
+    } catch (InvalidJsonException e) {
+      assertEquals(json.length() - 1, e.getOffset());
+      assertEquals(1, e.getLine());
+      assertEquals(json.length(), e.getColumn());
+      assertTrue(e.getExcerpt().length() <= 64);
+      assertTrue(e.getMessage(), e.getMessage().length() < 200);
+    }
+  }
+
+  @Test
+  public void error_without_location_test() {
+    InvalidJsonException e = new InvalidJsonException("Something broke");
+    assertEquals("Invalid JSON: Something broke", e.getMessage());
+    assertEquals(-1, e.getOffset());
+    assertEquals(-1, e.getLine());
+    assertNull(e.getExcerpt());
+    assertNull(e.getExpected());
+  }
+}
@@ -0,0 +1,268 @@
+package com.afollestad.ason;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Random;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/** @author Aidan Follestad (afollestad) */
+public class AsonPrinterTest {
+
+  private static final int CASES = 500000;
+
+  private static String format(double value) {
+    DoubleFormatter formatter = new DoubleFormatter();
+    return new String(formatter.chars, 0, formatter.format(value));
+  }
+
+  /**
+   * Double.toString only gives the shortest digits since Java 19, before that it sometimes prints
+   * one more, or a digit that is not the closest. Either way the value has to survive the round
+   * trip.
+   */
+  private static void check(double value) {
+    String expected = Double.toString(value);
+    String actual = format(value);
+    assertEquals(
+        expected,
+        Double.doubleToRawLongBits(value),
+        Double.doubleToRawLongBits(Double.parseDouble(actual)));
+    if (!expected.equals(actual)) {
+      assertTrue(expected + " vs " + actual, actual.length() <= expected.length());
+    }
+  }
+
+  private static void assertPrints(JSONObject json) {
+    assertEquals(json.toString(), AsonPrinter.print(json, 0));
+    assertEquals(json.toString(2), AsonPrinter.print(json, 2));
+    assertEquals(json.toString(4), AsonPrinter.print(json, 4));
+  }
+
+  private static void assertPrints(JSONArray json) {
+    assertEquals(json.toString(), AsonPrinter.print(json, 0));
+    assertEquals(json.toString(2), AsonPrinter.print(json, 2));
+    assertEquals(json.toString(4), AsonPrinter.print(json, 4));
+  }
+
+  //
+  ////// DOUBLES
+  //
+
+  @Test
+  public void special_doubles_test() {
+    double[] cases = {
+      0d,
+      -0d,
+      1d,
+      -1d,
+      0.1,
+      0.2,
+      0.3,
+      1e-3,
+      1e-4,
+      1e7,
+      1e6,
+      9999999d,
+      123.456,
+      1e22,
+      1e23,
+      2e23,
+      9007199254740992d,
+      9007199254740993d,
+      Double.MAX_VALUE,
+      -Double.MAX_VALUE,
+      Double.MIN_VALUE,
+      2 * Double.MIN_VALUE,
+      3 * Double.MIN_VALUE,
+      Double.MIN_NORMAL,
+      Double.longBitsToDouble(Double.doubleToLongBits(Double.MIN_NORMAL) - 1),
+      Math.PI,
+      Math.E,
+      1.0E-5,
+      5e-324,
+      4.35d,
+      2.0E-3,
+      1.0E-323
+    };
+    for (double value : cases) {
+      check(value);
+    }
+    assertEquals("0.0", format(0d));
+    assertEquals("-0.0", format(-0d));
+    assertEquals("1.0", format(1d));
+    assertEquals("1.0E7", format(1e7));
+    assertEquals("9999999.0", format(9999999d));
+    assertEquals("0.001", format(1e-3));
+    assertEquals("1.0E-4", format(1e-4));
+    assertEquals("1.0E23", format(1e23));
+    assertEquals("2.0E23", format(2e23));
+    assertEquals("1.7976931348623157E308", format(Double.MAX_VALUE));
+    assertEquals("4.9E-324", format(Double.MIN_VALUE));
+    assertEquals("2.2250738585072014E-308", format(Double.MIN_NORMAL));
+  }
+
+  @Test
+  public void random_bits_test() {
+    Random random = new Random(14);
+    for (int i = 0; i < CASES; i++) {
+      double value = Double.longBitsToDouble(random.nextLong());
+      if (!Double.isNaN(value) && !Double.isInfinite(value)) {
+        check(value);
+      }
+    }
+  }
+
+  @Test
+  public void random_decimals_test() {
+    Random random = new Random(15);
+    for (int i = 0; i < CASES; i++) {
+      double value =
+          new BigDecimal(random.nextInt(1000000)).movePointLeft(random.nextInt(8)).doubleValue();
+      check(value);
+      assertEquals(
+          BigDecimal.valueOf(value).stripTrailingZeros(),
+          new BigDecimal(format(value)).stripTrailingZeros());
+    }
+  }
+
+  //
+  ////// TREES
+  //
+
+  @Test
+  public void numbers_test() {
+    JSONArray json = new JSONArray();
+    json.put(0).put(-1).put(Integer.MAX_VALUE).put(Long.MIN_VALUE).put(1.0).put(-2.5);
+    json.put(1e7)
+        .put(1.5e-7)
+        .put(100d)
+        .put((Object) 0.1f)
+        .put((Object) 3f)
+        .put(new BigDecimal("1.50"));
+    json.put(Double.MAX_VALUE).put(Double.MIN_VALUE).put((short) 7).put((byte) 8);
+    assertPrints(json);
+    assertEquals(
+        "[0,-1,2147483647,-9223372036854775808,1,-2.5,1.0E7,1.5E-7,100,0.1,3,1.5,"
+            + "1.7976931348623157E308,4.9E-324,7,8]",
+        AsonPrinter.print(json, 0));
+  }
+
+  @Test
+  public void strings_test() {
+    JSONObject json = new JSONObject();
+    json.put("plain", "hello world");
+    json.put("empty", "");
+    json.put("quotes", "say \"hi\" \\ there");
+    json.put("slashes", "a/b </script> <//");
+    json.put("controls", "\b\t\n\f\r\u0000\u001f\u007f");
+    json.put("latin", "\u0080\u009f\u00a0\u00e9");
+    json.put("separators", "\u2028\u2029\u20ac\u2100");
+    json.put("surrogates", "\ud83d\ude00");
+    json.put("weird \"key\"\n", true);
+    assertPrints(json);
+  }
+
+  @Test
+  public void nesting_test() {
+    JSONObject json = new JSONObject();
+    json.put("empty_object", new JSONObject());
+    json.put("empty_array", new JSONArray());
+    json.put("single", new JSONObject().put("only", new JSONArray().put(1)));
+    json.put("null", JSONObject.NULL);
+    json.put("flag", false);
+    json.put(
+        "nested",
+        new JSONArray()
+            .put(new JSONObject().put("a", 1).put("b", new JSONArray().put("x").put(2.25)))
+            .put(new JSONArray().put(new JSONArray()))
+            .put(JSONObject.NULL));
+    assertPrints(json);
+    assertPrints(new JSONObject());
+    assertPrints(new JSONArray());
+    assertPrints(new JSONObject().put("one", new JSONObject()));
+  }
+
+  @Test
+  public void wrapped_values_test() {
+    JSONArray json = new JSONArray();
+    json.put(Arrays.asList(1, "two", 3.5));
+    json.put(new int[] {4, 5});
+    json.put(
+        new Object() {
+          @Override
+          public String toString() {
+            return "custom \"value\"";
+          }
+        });
+    assertPrints(json);
+  }
+
+  @Test
+  public void random_trees_test() {
+    Random random = new Random(16);
+    for (int i = 0; i < 300; i++) {
+      assertPrints(randomObject(random, 0));
+    }
+  }
+
+  @Test
+  public void ason_to_string_test() {
+    Ason ason = new Ason().put("name", "Aidan").put("ratio", 0.25).put("count", 3);
+    ason.put("nested.values", 1.0, 2.5, -3.75);
+    assertEquals(ason.toStockJson().toString(), ason.toString());
+    assertEquals(ason.toStockJson().toString(4), ason.toString(4));
+    AsonArray<Object> array = new AsonArray<>().add(1.5, "two", null, ason);
+    assertEquals(array.toStockJson().toString(), array.toString());
+    assertEquals(array.toStockJson().toString(2), array.toString(2));
+  }
+
+  private static JSONObject randomObject(Random random, int depth) {
+    JSONObject json = new JSONObject();
+    int size = random.nextInt(6);
+    for (int i = 0; i < size; i++) {
+      json.put(randomString(random), randomValue(random, depth + 1));
+    }
+    return json;
+  }
+
+  private static Object randomValue(Random random, int depth) {
+    switch (random.nextInt(depth < 4 ? 8 : 6)) {
+      case 0:
+        return random.nextInt();
+      case 1:
+        return random.nextLong();
+      case 2:
+        // Decimals Double.toString already prints shortest on every JDK.
+        return random.nextInt(100000) / 100d;
+      case 3:
+        return randomString(random);
+      case 4:
+        return random.nextBoolean();
+      case 5:
+        return JSONObject.NULL;
+      case 6:
+        return randomObject(random, depth);
+      default:
+        JSONArray array = new JSONArray();
+        int size = random.nextInt(6);
+        for (int i = 0; i < size; i++) {
+          array.put(randomValue(random, depth + 1));
+        }
+        return array;
+    }
+  }
+
+  private static String randomString(Random random) {
+    String alphabet = "abc XYZ 09\"\\/<\b\t\n\r\u0001\u0085\u00e9\u2028\u20ff\ud83d\ude00";
+    char[] chars = new char[random.nextInt(10)];
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+    }
+    return new String(chars);
+  }
+}
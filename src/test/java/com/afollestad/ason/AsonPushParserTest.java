@@ -0,0 +1,277 @@
+package com.afollestad.ason;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+/** @author Aidan Follestad (afollestad) */
+public class AsonPushParserTest {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final String DOCUMENT =
+      "{\"name\":\"Aidan\",\"_id\":3,\"age\":21,\"height\":6.1,\"big\":9223372036854775807,"
+          + "\"negative\":-2147483648,\"exp\":1.5e3,\"married\":false,\"nothing\":null,"
+          + "\"escaped\":\"line\\n"
+          + "break \\\"quoted\\\" \\u00e9\\/\\\\\",\"unicode\":\"h\u00e9llo \u2603 \ud83d\ude00\","
+          + "\"nested\":{\"array\":[1,2.5,\"three\",true,null,{},[]],\"empty\":\"\"}}";
+
+  private static class Collector<T> implements AsonPushParser.Callback<T> {
+
+    final List<T> values = new ArrayList<>();
+
+    @Override
+    public void onValue(T value) {
+      values.add(value);
+    }
+  }
+
+  private static void parse(byte[] json, int[] splits, AsonPushParser<?> parser) {
+    int start = 0;
+    for (int split : splits) {
+      parser.feed(json, start, split - start);
+      start = split;
+    }
+    parser.feed(json, start, json.length - start);
+    parser.end();
+  }
+
+  private static List<Ason> parseSplit(String json, int... splits) {
+    Collector<Ason> collector = new Collector<>();
+    parse(json.getBytes(UTF_8), splits, new AsonPushParser<>(Ason.class, collector));
+    return collector.values;
+  }
+
+  private static void assertInvalid(String json) {
+    byte[] bytes = json.getBytes(UTF_8);
+    for (int split = 0; split <= bytes.length; split++) {
+      AsonPushParser<Object> parser = new AsonPushParser<>(Object.class, new Collector<>());
+      try {
+        parse(bytes, new int[] {split}, parser);
+        fail("Expected " + json + " to be rejected");
+      } catch (InvalidJsonException ignored) {
+      }
+      try {
+        parser.feed(new byte[] {' '});
+        fail("Expected the parser to be unusable");
+      } catch (IllegalStateException ignored) {
+      }
+    }
+  }
+
+  @Test
+  public void whole_document_test() {
+    List<Ason> values = parseSplit(DOCUMENT);
+    assertEquals(1, values.size());
+    assertEquals(new Ason(DOCUMENT), values.get(0));
+    assertEquals("h\u00e9llo \u2603 \ud83d\ude00", values.get(0).getString("unicode"));
+  }
+
+  @Test
+  public void every_split_test() {
+    Ason expected = new Ason(DOCUMENT);
+    int length = DOCUMENT.getBytes(UTF_8).length;
+    for (int first = 0; first <= length; first++) {
+      assertEquals(expected, parseSplit(DOCUMENT, first).get(0));
+      for (int second = first; second <= length; second += 7) {
+        assertEquals(expected, parseSplit(DOCUMENT, first, second).get(0));
+      }
+    }
+  }
+
+  @Test
+  public void byte_by_byte_test() {
+    byte[] bytes = DOCUMENT.getBytes(UTF_8);
+    Collector<Ason> collector = new Collector<>();
+    AsonPushParser<Ason> parser = new AsonPushParser<>(Ason.class, collector);
+    for (byte b : bytes) {
+      parser.feed(new byte[] {b});
+    }
+    assertEquals(1, collector.values.size());
+    parser.end();
+    assertEquals(new Ason(DOCUMENT), collector.values.get(0));
+  }
+
+  @Test
+  public void byte_buffer_test() {
+    byte[] bytes = DOCUMENT.getBytes(UTF_8);
+    Collector<Ason> collector = new Collector<>();
+    AsonPushParser<Ason> parser = new AsonPushParser<>(Ason.class, collector);
+    ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+    direct.put(bytes, 0, 40).flip();
+    parser.feed(direct);
+    assertEquals(0, direct.remaining());
+    ByteBuffer heap = ByteBuffer.wrap(bytes, 40, bytes.length - 40);
+    parser.feed(heap);
+    assertEquals(0, heap.remaining());
+    parser.end();
+    assertEquals(new Ason(DOCUMENT), collector.values.get(0));
+  }
+
+  @Test
+  public void multiple_values_test() {
+    String input = "{\"a\":1}\n{\"a\":2} [1,2]\r\n\"text\" 12 -0.5e1 true null 7";
+    byte[] bytes = input.getBytes(UTF_8);
+    for (int split = 0; split <= bytes.length; split++) {
+      Collector<Object> collector = new Collector<>();
+      AsonPushParser<Object> parser = new AsonPushParser<>(Object.class, collector);
+      parser.setMultipleValues(true);
+      parse(bytes, new int[] {split}, parser);
+      List<Object> values = collector.values;
+      assertEquals(9, values.size());
+      assertEquals(1, ((Ason) values.get(0)).get("a"));
+      assertEquals(2, ((Ason) values.get(1)).get("a"));
+      assertEquals(2, ((AsonArray<?>) values.get(2)).size());
+      assertEquals("text", values.get(3));
+      assertEquals(12, values.get(4));
+      assertEquals(-5d, values.get(5));
+      assertEquals(true, values.get(6));
+      assertNull(values.get(7));
+      assertEquals(7, values.get(8));
+    }
+  }
+
+  @Test
+  public void unwrap_array_test() {
+    List<Person> people = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      people.add(new Person(i, "Person " + i, 1990 + i));
+    }
+    byte[] bytes = Ason.serializeList(people).toString().getBytes(UTF_8);
+    for (int chunk = 1; chunk < 300; chunk += 37) {
+      Collector<Person> collector = new Collector<>();
+      AsonPushParser<Person> parser = new AsonPushParser<>(Person.class, collector);
+      parser.setUnwrapArray(true);
+      for (int i = 0; i < bytes.length - 1; i += chunk) {
+        parser.feed(bytes, i, Math.min(chunk, bytes.length - 1 - i));
+      }
+      // Items arrive as soon as they're complete, before the array is closed.
+      assertEquals(people.size(), collector.values.size());
+      parser.feed(bytes, bytes.length - 1, 1);
+      parser.end();
+      assertEquals(people.size(), collector.values.size());
+      for (int i = 0; i < people.size(); i++) {
+        assertEquals(people.get(i).id, collector.values.get(i).id);
+        assertEquals(people.get(i).name, collector.values.get(i).name);
+        assertEquals(people.get(i).born, collector.values.get(i).born);
+      }
+    }
+  }
+
+  @Test
+  public void bind_test() {
+    Collector<Person> collector = new Collector<>();
+    AsonPushParser<Person> parser = new AsonPushParser<>(Person.class, collector);
+    parser.feed("{\"id\":5,\"na".getBytes(UTF_8));
+    parser.feed("me\":\"Aidan\",\"born\":1995}".getBytes(UTF_8));
+    parser.end();
+    assertEquals(5, collector.values.get(0).id);
+    assertEquals("Aidan", collector.values.get(0).name);
+    assertEquals(1995, collector.values.get(0).born);
+  }
+
+  @Test
+  public void malformed_utf8_test() {
+    byte[] bytes = {'"', 'a', (byte) 0xC3, '"'};
+    Collector<String> collector = new Collector<>();
+    AsonPushParser<String> parser = new AsonPushParser<>(String.class, collector);
+    parser.feed(bytes);
+    parser.end();
+    assertEquals("a\ufffd", collector.values.get(0));
+  }
+
+  @Test
+  public void trailing_number_test() {
+    Collector<Object> collector = new Collector<>();
+    AsonPushParser<Object> parser = new AsonPushParser<>(Object.class, collector);
+    parser.feed("12".getBytes(UTF_8));
+    parser.feed("34".getBytes(UTF_8));
+    assertTrue(collector.values.isEmpty());
+    parser.end();
+    assertEquals(1234, collector.values.get(0));
+  }
+
+  @Test
+  public void invalid_test() {
+    assertInvalid("");
+    assertInvalid("   ");
+    assertInvalid("{\"a\":1");
+    assertInvalid("{\"a\":1}}");
+    assertInvalid("{\"a\":1} {}");
+    assertInvalid("{\"a\" 1}");
+    assertInvalid("{\"a\":1,}");
+    assertInvalid("{a:1}");
+    assertInvalid("[1,]");
+    assertInvalid("[1 2]");
+    assertInvalid("[tru]");
+    assertInvalid("[nul1]");
+    assertInvalid("[01]");
+    assertInvalid("[1.]");
+    assertInvalid("[\"\\x\"]");
+    assertInvalid("[\"\\u12g4\"]");
+    assertInvalid("[\"tab\there\"]");
+    assertInvalid("[\"unterminated]");
+    assertInvalid("{\"a\":1,\"a\":2}");
+    assertInvalid("[}");
+  }
+
+  @Test
+  public void error_position_test() {
+    AsonPushParser<Object> parser = new AsonPushParser<>(Object.class, new Collector<>());
+    parser.feed("[1, 2, ".getBytes(UTF_8));
+    try {
+      parser.feed("3 4]".getBytes(UTF_8));
+      fail();
+    } catch (InvalidJsonException e) {
+      assertEquals(
+          "Invalid JSON: Expected a ',' or ']' at byte 9 (line 1, column 10), near \"3  >>> 4]\"",
+          e.getMessage());
+      assertEquals("a ',' or ']'", e.getExpected());
+      assertEquals(9, e.getOffset());
+      assertTrue(e.isByteOffset());
+    }
+  }
+
+  @Test
+  public void scalar_type_mismatch_test() {
+    Collector<String> strings = new Collector<>();
+    parse("\"hi\"".getBytes(UTF_8), new int[0], new AsonPushParser<>(String.class, strings));
+    assertEquals("hi", strings.values.get(0));
+
+    try {
+      parse(
+          "\"hi\"".getBytes(UTF_8),
+          new int[0],
+          new AsonPushParser<>(Ason.class, new Collector<Ason>()));
+      fail();
+    } catch (InvalidJsonException e) {
+      assertEquals("Expected an object but was a string", e.getReason());
+      assertTrue(e.getOffset() >= 0);
+    }
+    try {
+      parse("true".getBytes(UTF_8), new int[0], new AsonPushParser<>(String.class, strings));
+      fail();
+    } catch (InvalidJsonException e) {
+      assertEquals("Expected String but was a boolean", e.getReason());
+    }
+  }
+
+  @Test
+  public void end_twice_test() {
+    AsonPushParser<Object> parser = new AsonPushParser<>(Object.class, new Collector<>());
+    parser.feed("{}".getBytes(UTF_8));
+    parser.end();
+    try {
+      parser.end();
+      fail();
+    } catch (IllegalStateException ignored) {
+    }
+  }
+}
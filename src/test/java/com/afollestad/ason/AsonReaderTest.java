@@ -0,0 +1,189 @@
+package com.afollestad.ason;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import org.junit.Test;
+
+/** @author Aidan Follestad (afollestad) */
+public class AsonReaderTest {
+
+  /** Hands out at most a few chars per read, so tokens straddle buffer refills. */
+  static class TrickleReader extends Reader {
+
+    private final Reader source;
+    private final int chunk;
+
+    TrickleReader(String source, int chunk) {
+      this.source = new StringReader(source);
+      this.chunk = chunk;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+      return source.read(cbuf, off, Math.min(len, chunk));
+    }
+
+    @Override
+    public void close() throws IOException {
+      source.close();
+    }
+  }
+
+  @Test
+  public void tokens_test() throws Exception {
+    String input =
+        "{\"name\":\"Aidan\",\"age\":21,\"height\":6.1,\"big\":12345678901,"
+            + "\"married\":false,\"car\":null,\"tags\":[\"a\",\"b\"]}";
+    for (int chunk = 1; chunk <= 8; chunk++) {
+      AsonReader reader = new AsonReader(new TrickleReader(input, chunk));
+      assertEquals(AsonToken.BEGIN_OBJECT, reader.peek());
+      reader.beginObject();
+      assertEquals("name", reader.nextName());
+      assertEquals("Aidan", reader.nextString());
+      assertEquals("age", reader.nextName());
+      assertEquals(21, reader.nextInt());
+      assertEquals("height", reader.nextName());
+      assertEquals(6.1d, reader.nextDouble(), 0d);
+      assertEquals("big", reader.nextName());
+      assertEquals(12345678901L, reader.nextLong());
+      assertEquals("married", reader.nextName());
+      assertEquals(AsonToken.BOOLEAN, reader.peek());
+      assertFalse(reader.nextBoolean());
+      assertEquals("car", reader.nextName());
+      assertEquals(AsonToken.NULL, reader.peek());
+      reader.nextNull();
+      assertEquals("tags", reader.nextName());
+      reader.beginArray();
+      assertEquals("a", reader.nextString());
+      assertEquals("b", reader.nextString());
+      assertFalse(reader.hasNext());
+      reader.endArray();
+      reader.endObject();
+      assertEquals(AsonToken.END_DOCUMENT, reader.peek());
+      reader.close();
+    }
+  }
+
+  @Test
+  public void escapes_across_refills_test() throws Exception {
+    String input = "[\"line\\nbreak \\\"quoted\\\" \\u00e9 \\\\ end\"]";
+    for (int chunk = 1; chunk <= 8; chunk++) {
+      AsonReader reader = new AsonReader(new TrickleReader(input, chunk));
+      reader.beginArray();
+      assertEquals("line\nbreak \"quoted\" \u00e9 \\ end", reader.nextString());
+      reader.endArray();
+    }
+  }
+
+  @Test
+  public void skip_value_test() throws Exception {
+    AsonReader reader =
+        new AsonReader(
+            "{\"skip\":{\"a\":[1,{\"b\":\"c\\\"\"},[]],\"d\":null},\"keep\":true,\"n\":-1.5e3}");
+    reader.beginObject();
+    assertEquals("skip", reader.nextName());
+    reader.skipValue();
+    assertEquals("keep", reader.nextName());
+    assertTrue(reader.nextBoolean());
+    assertEquals("n", reader.nextName());
+    reader.skipValue();
+    reader.endObject();
+    assertEquals(AsonToken.END_DOCUMENT, reader.peek());
+  }
+
+  @Test
+  public void next_object_test() throws Exception {
+    String input = "[{\"id\":1,\"name\":\"one\"},{\"id\":2,\"nested\":{\"list\":[1,2]}}]";
+    AsonReader reader = new AsonReader(new TrickleReader(input, 3));
+    reader.beginArray();
+    Ason first = reader.nextObject();
+    assertEquals(1, first.getInt("id"));
+    assertEquals("one", first.getString("name"));
+    Ason second = reader.nextObject();
+    assertEquals(new Ason("{\"id\":2,\"nested\":{\"list\":[1,2]}}"), second);
+    reader.endArray();
+  }
+
+  @Test
+  public void input_stream_test() throws Exception {
+    byte[] bytes = "{\"greeting\":\"h\u00e9llo \u2603\"}".getBytes("UTF-8");
+    AsonReader reader = new AsonReader(new ByteArrayInputStream(bytes));
+    reader.beginObject();
+    assertEquals("greeting", reader.nextName());
+    assertEquals("h\u00e9llo \u2603", reader.nextString());
+    reader.endObject();
+  }
+
+  @Test
+  public void large_stream_test() throws Exception {
+    final int count = 200000;
+    // Generates [{"id":0,"name":"..."},...] on the fly, it never exists as a whole.
+    InputStream in =
+        new InputStream() {
+          private byte[] current = "[".getBytes();
+          private int index;
+          private int offset;
+
+          @Override
+          public int read() {
+            if (offset == current.length) {
+              if (index > count) {
+                return -1;
+              } else if (index == count) {
+                current = "]".getBytes();
+              } else {
+                String prefix = index == 0 ? "" : ",";
+                current = (prefix + "{\"id\":" + index + ",\"name\":\"item\"}").getBytes();
+              }
+              index++;
+              offset = 0;
+            }
+            return current[offset++];
+          }
+        };
+    AsonReader reader = new AsonReader(in);
+    reader.beginArray();
+    long sum = 0;
+    int seen = 0;
+    while (reader.hasNext()) {
+      reader.beginObject();
+      reader.nextName();
+      sum += reader.nextInt();
+      reader.nextName();
+      reader.skipValue();
+      reader.endObject();
+      seen++;
+    }
+    reader.endArray();
+    assertEquals(count, seen);
+    assertEquals((long) count * (count - 1) / 2, sum);
+  }
+
+  @Test(expected = InvalidJsonException.class)
+  public void trailing_comma_test() throws Exception {
+    AsonReader reader = new AsonReader("[1,]");
+    reader.beginArray();
+    reader.nextInt();
+    reader.nextInt();
+  }
+
+  @Test(expected = InvalidJsonException.class)
+  public void unterminated_string_test() throws Exception {
+    AsonReader reader = new AsonReader(new TrickleReader("[\"abc", 2));
+    reader.beginArray();
+    reader.nextString();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void wrong_token_test() throws Exception {
+    AsonReader reader = new AsonReader("{\"a\":1}");
+    reader.beginArray();
+  }
+}
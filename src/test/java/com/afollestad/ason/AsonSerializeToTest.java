@@ -0,0 +1,182 @@
+package com.afollestad.ason;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/** @author Aidan Follestad (afollestad) */
+public class AsonSerializeToTest {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  @SuppressWarnings("unused")
+  static class Everything {
+
+    @AsonName(name = "_id")
+    int id = 5;
+
+    String name = "h\u00e9llo \"quoted\" \ud83d\ude00";
+
+    @AsonName(name = "n\u00e4me \"with\" </escapes>\u2028")
+    int oddName = 2;
+
+    boolean flag = true;
+    Boolean boxed;
+    double height = 6.1;
+    float ratio = 0.25f;
+    long big = Long.MAX_VALUE;
+    short small = -3;
+    byte tiny = 7;
+    char letter = 'x';
+    static String shared = "static fields are serialized too";
+    @AsonIgnore String ignored = "nope";
+    int[] numbers = {1, 2, 3};
+    String[] words = {"a", null, "c"};
+    Object[] mixed = {1, "two", 3.5, null, new Relationship(1, "Waverly", "Sister")};
+    List<Relationship> relationships =
+        new ArrayList<>(Arrays.asList(new Relationship(2, "Aidan", "Brother"), null));
+    List<String> empty = new ArrayList<>();
+    Relationship relationship = new Relationship(3, "Natalie", "Mother");
+    Relationship nothing;
+    Ason ason = new Ason("{\"a\":[1,{\"b\":null}]}");
+    AsonArray<Object> asonArray = new AsonArray<>("[true,\"x\"]");
+    JSONObject jsonObject = new JSONObject("{\"c\":1.5}");
+    JSONArray jsonArray = new JSONArray("[[],{}]");
+  }
+
+  static class Child extends Everything {
+
+    String school = "Elementary";
+  }
+
+  static class Paths {
+
+    @AsonName(name = "location.city")
+    String city = "Austin";
+
+    @AsonName(name = "location.state")
+    String state = "TX";
+
+    int id = 1;
+  }
+
+  @SuppressWarnings("unused")
+  static class Duplicates {
+
+    @AsonName(name = "value")
+    int first = 1;
+
+    int other = 2;
+
+    @AsonName(name = "value")
+    int second = 3;
+  }
+
+  @SuppressWarnings("unused")
+  static class NoDefaultConstructor {
+
+    final String name;
+
+    NoDefaultConstructor(String name) {
+      this.name = name;
+    }
+  }
+
+  @SuppressWarnings("unused")
+  static class NotANumber {
+
+    double value = Double.NaN;
+  }
+
+  private static String serializeTo(Object object, boolean recursive) throws IOException {
+    StringWriter out = new StringWriter();
+    Ason.serializeTo(object, out, recursive);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Ason.serializeTo(object, bytes, recursive);
+    assertArrayEquals(out.toString().getBytes(UTF_8), bytes.toByteArray());
+    assertArrayEquals(bytes.toByteArray(), Ason.toJsonBytes(object, recursive));
+    return out.toString();
+  }
+
+  @Test
+  public void same_as_serialize_test() throws IOException {
+    Everything everything = new Everything();
+    assertEquals(Ason.serialize(everything).toString(), serializeTo(everything, false));
+    Child child = new Child();
+    assertEquals(Ason.serialize(child).toString(), serializeTo(child, false));
+    assertEquals(Ason.serialize(child, true).toString(), serializeTo(child, true));
+
+    Person person = new Person(1, "Aidan", 1995);
+    person.relationshipList.add(new Relationship(2, "Waverly", "Sister"));
+    assertEquals(Ason.serialize(person).toString(), serializeTo(person, false));
+  }
+
+  @Test
+  public void lists_and_arrays_test() throws IOException {
+    List<Child> children = new ArrayList<>(Arrays.asList(new Child(), null, new Child()));
+    assertEquals(Ason.serializeList(children).toString(), serializeTo(children, false));
+    assertEquals(Ason.serializeList(children, true).toString(), serializeTo(children, true));
+    Relationship[] array = {new Relationship(1, "A", "B"), null};
+    assertEquals(Ason.serializeArray(array).toString(), serializeTo(array, false));
+    long[] longs = {1, Long.MIN_VALUE};
+    assertEquals(Ason.serializeArray(longs).toString(), serializeTo(longs, false));
+    assertEquals("[]", serializeTo(new ArrayList<>(), false));
+    assertEquals("null", serializeTo(null, false));
+  }
+
+  @Test
+  public void falls_back_to_tree_test() throws IOException {
+    Paths paths = new Paths();
+    assertEquals(Ason.serialize(paths).toString(), serializeTo(paths, false));
+    Duplicates duplicates = new Duplicates();
+    assertEquals(Ason.serialize(duplicates).toString(), serializeTo(duplicates, false));
+    assertEquals(3, new Ason(serializeTo(duplicates, false)).getInt("value"));
+    NoDefaultConstructor noDefault = new NoDefaultConstructor("Aidan");
+    assertEquals(Ason.serialize(noDefault).toString(), serializeTo(noDefault, false));
+  }
+
+  @Test
+  public void same_failures_test() throws IOException {
+    Object[] invalid = {
+      new Ason(),
+      new AsonArray<>(),
+      "primitive",
+      new ArrayList<>(Arrays.asList(1, "mixed")),
+      new Object[] {new int[] {1}},
+      new NotANumber()
+    };
+    for (Object value : invalid) {
+      Class<?> expected = null;
+      try {
+        if (value instanceof List) {
+          Ason.serializeList((List<?>) value);
+        } else if (value.getClass().isArray()) {
+          Ason.serializeArray(value);
+        } else {
+          Ason.serialize(value);
+        }
+        fail(value.toString());
+      } catch (IllegalArgumentException | JSONException e) {
+        expected = e.getClass();
+      }
+      try {
+        Ason.toJsonBytes(value);
+        fail(value.toString());
+      } catch (IllegalArgumentException | JSONException e) {
+        assertEquals(expected, e.getClass());
+      }
+    }
+  }
+}
@@ -0,0 +1,279 @@
+package com.afollestad.ason;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/** @author Aidan Follestad (afollestad) */
+public class AsonStreamingDeserializeTest {
+
+  @SuppressWarnings("unused")
+  static class Everything {
+
+    @AsonName(name = "_id")
+    long id;
+
+    String name;
+    double ratio;
+    boolean flag;
+    int[] numbers;
+    String[] words;
+    Integer[][] matrix;
+    char[] letters;
+    List<Integer> integers;
+    List<Everything> children;
+    Everything parent;
+    Everything[] siblings;
+    Object anything;
+    Ason raw;
+    AsonArray rawArray;
+    @AsonIgnore String ignored = "untouched";
+    String stays = "default";
+  }
+
+  @SuppressWarnings("unused")
+  static class Base {
+
+    int baseValue;
+  }
+
+  @SuppressWarnings("unused")
+  static class Derived extends Base {
+
+    String derivedValue;
+  }
+
+  @SuppressWarnings("unused")
+  static class Dotted {
+
+    @AsonName(name = "inner.value")
+    int value;
+  }
+
+  private static final String EVERYTHING =
+      "{\"_id\":12345678901,\"name\":\"Aidan \\\"A\\\"\",\"ratio\":0.5,\"flag\":true,"
+          + "\"numbers\":[1,2,3],\"words\":[\"a\",null,\"c\"],"
+          + "\"matrix\":[[1,2],[3,4],null],\"letters\":[\"x\",\"y\"],\"integers\":[4,5,6],"
+          + "\"children\":[{\"name\":\"child\",\"children\":[]},{\"name\":\"child2\"}],"
+          + "\"parent\":{\"name\":\"parent\",\"parent\":null},"
+          + "\"siblings\":[{\"_id\":1},null,{\"_id\":2}],\"anything\":[1,\"two\",{\"three\":3}],"
+          + "\"raw\":{\"a\":{\"b\":[1]}},\"rawArray\":[true,false],\"ignored\":\"overwritten?\","
+          + "\"unknown\":{\"deeply\":[{\"nested\":[1,2,{\"x\":null}]}]},\"stays\":null}";
+
+  private static <T> T viaTree(String json, Class<T> cls, boolean recursive) {
+    if (json.trim().startsWith("[")) {
+      return AsonSerializer.get().deserializeArray(new AsonArray(json), cls, recursive);
+    }
+    return AsonSerializer.get().deserialize(new Ason(json), cls, recursive);
+  }
+
+  /** Renders values, arrays and fixture objects along with their types, for deep comparison. */
+  private static String describe(Object value) throws IllegalAccessException {
+    if (value == null) {
+      return "null";
+    } else if (value.getClass().isArray() || value instanceof List) {
+      StringBuilder result = new StringBuilder("[");
+      int length = value instanceof List ? ((List) value).size() : Array.getLength(value);
+      for (int i = 0; i < length; i++) {
+        Object item = value instanceof List ? ((List) value).get(i) : Array.get(value, i);
+        result.append(describe(item)).append(',');
+      }
+      return result.append(']').toString();
+    } else if (value instanceof Everything) {
+      StringBuilder result = new StringBuilder("{");
+      for (Field field : Everything.class.getDeclaredFields()) {
+        field.setAccessible(true);
+        result.append(field.getName()).append('=').append(describe(field.get(value))).append(',');
+      }
+      return result.append('}').toString();
+    }
+    return value.getClass().getSimpleName() + ":" + value;
+  }
+
+  private static void assertSameObject(Object expected, Object actual) {
+    try {
+      assertEquals(describe(expected), describe(actual));
+    } catch (IllegalAccessException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  @Test
+  public void object_matches_tree_test() {
+    Everything expected = viaTree(EVERYTHING, Everything.class, false);
+    Everything actual = Ason.deserialize(EVERYTHING, Everything.class);
+    assertSameObject(expected, actual);
+    assertEquals(12345678901L, actual.id);
+    assertArrayEquals(new int[] {1, 2, 3}, actual.numbers);
+    assertArrayEquals(new String[] {"a", null, "c"}, actual.words);
+    assertArrayEquals(new Integer[] {3, 4}, actual.matrix[1]);
+    assertNull(actual.matrix[2]);
+    assertArrayEquals(new char[] {'x', 'y'}, actual.letters);
+    assertEquals("child2", actual.children.get(1).name);
+    assertEquals("parent", actual.parent.name);
+    assertNull(actual.siblings[1]);
+    assertEquals(2, actual.siblings[2].id);
+    Object[] anything = (Object[]) actual.anything;
+    assertEquals(1, anything[0]);
+    assertEquals("two", anything[1]);
+    assertEquals(new Ason("{\"three\":3}"), anything[2]);
+    assertEquals(new Ason("{\"a\":{\"b\":[1]}}"), actual.raw);
+    assertEquals("untouched", actual.ignored);
+    assertEquals("default", actual.stays);
+  }
+
+  @Test
+  public void array_matches_tree_test() {
+    String input = "[" + EVERYTHING + ",null," + EVERYTHING + "]";
+    Everything[] expected = viaTree(input, Everything[].class, false);
+    Everything[] actual = Ason.deserialize(input, Everything[].class);
+    assertEquals(expected.length, actual.length);
+    assertSameObject(expected[0], actual[0]);
+    assertNull(actual[1]);
+    assertSameObject(expected[2], actual[2]);
+  }
+
+  @Test
+  public void list_matches_tree_test() {
+    String input = "[" + EVERYTHING + "," + EVERYTHING + "]";
+    List<Everything> expected =
+        AsonSerializer.get().deserializeList(new AsonArray(input), Everything.class);
+    List<Everything> actual = Ason.deserializeList(input, Everything.class);
+    assertEquals(expected.size(), actual.size());
+    assertSameObject(expected.get(1), actual.get(1));
+    assertEquals(0, Ason.deserializeList("[]", Everything.class).size());
+  }
+
+  @Test
+  public void primitive_array_test() {
+    String input = "[1,2,null,4]";
+    assertArrayEquals(viaTree(input, int[].class, false), Ason.deserialize(input, int[].class));
+    assertArrayEquals(
+        viaTree(input, Integer[].class, false), Ason.deserialize(input, Integer[].class));
+    assertArrayEquals(
+        viaTree(input, Object[].class, false), Ason.deserialize(input, Object[].class));
+  }
+
+  @Test
+  public void recursive_test() {
+    String input = "{\"baseValue\":3,\"derivedValue\":\"yes\"}";
+    Derived nonRecursive = Ason.deserialize(input, Derived.class);
+    assertEquals("yes", nonRecursive.derivedValue);
+    Derived recursive = Ason.deserialize(input, Derived.class, true);
+    assertEquals(3, recursive.baseValue);
+    assertEquals("yes", recursive.derivedValue);
+  }
+
+  @Test
+  public void dotted_name_test() {
+    String input = "{\"inner\":{\"value\":5}}";
+    assertEquals(5, Ason.deserialize(input, Dotted.class).value);
+  }
+
+  @Test
+  public void ason_target_test() {
+    String input = "{\"a\":1}";
+    assertEquals(new Ason(input), Ason.deserialize(input, Ason.class));
+  }
+
+  @Test(expected = InvalidJsonException.class)
+  public void trailing_content_test() {
+    Ason.deserialize("{\"name\":\"a\"} {}".getBytes(), Everything.class);
+  }
+
+  @Test(expected = InvalidJsonException.class)
+  public void invalid_document_test() {
+    Ason.deserialize("{\"name\":\"a\",\"unknown\":[1,}", Everything.class);
+  }
+
+  /** The message the tree parser rejects the input with. */
+  private static String treeError(String input) {
+    try {
+      new Ason(input);
+    } catch (InvalidJsonException e) {
+      return e.getMessage();
+    }
+    throw new AssertionError("The tree parser took " + input);
+  }
+
+  @Test
+  public void duplicate_key_test() {
+    String[] inputs = {
+      "{\"name\":\"a\",\"name\":\"b\"}",
+      "{\"name\":\"a\",\"na\\u006de\":\"b\"}",
+      "{\"unknown\":1,\"name\":\"a\",\"unknown\":2}",
+      "{\"children\":[{\"_id\":1,\"_id\":1}]}"
+    };
+    for (String input : inputs) {
+      try {
+        Ason.deserialize(input, Everything.class);
+        fail("Expected a duplicate key error for " + input);
+      } catch (InvalidJsonException e) {
+        assertEquals(treeError(input), e.getMessage());
+      }
+    }
+  }
+
+  @Test(expected = InvalidJsonException.class)
+  public void list_of_object_test() {
+    Ason.deserializeList("{\"name\":\"a\"}", Everything.class);
+  }
+
+  @Test
+  public void stream_matches_list_test() throws Exception {
+    String input = "[" + EVERYTHING + ",null," + EVERYTHING + "]";
+    List<Everything> expected = Ason.deserializeList(input, Everything.class);
+    AsonArrayReader<Everything> stream =
+        Ason.deserializeStream(new AsonReaderTest.TrickleReader(input, 5), Everything.class);
+    int index = 0;
+    for (Everything item : stream) {
+      assertSameObject(expected.get(index++), item);
+    }
+    stream.close();
+    assertEquals(3, index);
+    assertFalse(stream.hasNext());
+  }
+
+  @Test
+  public void stream_primitives_test() {
+    byte[] input = "[1,2,null,4]".getBytes(Charset.forName("UTF-8"));
+    AsonArrayReader<Integer> stream =
+        Ason.deserializeStream(new ByteArrayInputStream(input), Integer.class);
+    List<Integer> actual = new ArrayList<>();
+    while (stream.hasNext()) {
+      actual.add(stream.next());
+    }
+    assertEquals(Arrays.asList(1, 2, null, 4), actual);
+    assertFalse(Ason.deserializeStream(new StringReader(" [ ] "), Integer.class).hasNext());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void stream_type_mismatch_test() {
+    Ason.deserializeStream(new StringReader("[\"a\"]"), Integer.class).next();
+  }
+
+  @Test(expected = InvalidJsonException.class)
+  public void stream_of_object_test() {
+    Ason.deserializeStream(new StringReader("{}"), Everything.class).hasNext();
+  }
+
+  @Test(expected = InvalidJsonException.class)
+  public void stream_trailing_content_test() {
+    AsonArrayReader<Integer> stream =
+        Ason.deserializeStream(new StringReader("[1] 2"), Integer.class);
+    stream.next();
+    stream.hasNext();
+  }
+}
@@ -0,0 +1,134 @@
+package com.afollestad.ason;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/** @author Aidan Follestad (afollestad) */
+public class AsonStringCacheTest {
+
+  private static final String PEOPLE =
+      "[{\"name\":\"Aidan\",\"status\":\"ACTIVE\",\"bio\":\"Writes libraries for fun\"},"
+          + "{\"name\":\"Waverly\",\"status\":\"ACTIVE\",\"bio\":\"Writes libraries for fun\"},"
+          + "{\"na\\u006de\":\"Sal\",\"status\":\"ACTIVE\",\"bio\":\"Writes libraries for fun\"}]";
+
+  private static String key(JSONObject object, String key) {
+    for (String candidate : object.keySet()) {
+      if (candidate.equals(key)) {
+        return candidate;
+      }
+    }
+    throw new AssertionError("No key " + key);
+  }
+
+  @Test
+  public void keys_are_shared_by_default_test() {
+    JSONArray array = new AsonArray<>(PEOPLE).toStockJson();
+    JSONObject first = array.getJSONObject(0);
+    for (int i = 1; i < array.length(); i++) {
+      JSONObject other = array.getJSONObject(i);
+      assertSame(key(first, "name"), key(other, "name"));
+      assertSame(key(first, "status"), key(other, "status"));
+      assertNotSame(first.get("status"), other.get("status"));
+    }
+    assertEquals("Sal", array.getJSONObject(2).get("name"));
+  }
+
+  @Test
+  public void values_test() {
+    AsonStringCache cache = new AsonStringCache(64, 8);
+    JSONArray array = new AsonArray<>(PEOPLE, cache).toStockJson();
+    JSONObject first = array.getJSONObject(0);
+    JSONObject second = array.getJSONObject(1);
+    assertSame(first.get("status"), second.get("status"));
+    assertNotSame(first.get("bio"), second.get("bio"));
+    assertEquals(first.get("bio"), second.get("bio"));
+  }
+
+  @Test
+  public void disabled_test() {
+    JSONArray array = new AsonArray<>(PEOPLE, null).toStockJson();
+    assertNotSame(key(array.getJSONObject(0), "name"), key(array.getJSONObject(1), "name"));
+    Ason one = new Ason("{\"a\":1}", null);
+    Ason two = new Ason("{\"a\":2}", null);
+    assertNotSame(key(one.toStockJson(), "a"), key(two.toStockJson(), "a"));
+  }
+
+  @Test
+  public void long_keys_test() {
+    StringBuilder key = new StringBuilder();
+    for (int i = 0; i <= AsonStringCache.MAX_KEY_LENGTH; i++) {
+      key.append('k');
+    }
+    String json = "{\"" + key + "\":1}";
+    AsonStringCache cache = new AsonStringCache(16);
+    JSONObject one = new Ason(json, cache).toStockJson();
+    JSONObject two = new Ason(json, cache).toStockJson();
+    assertNotSame(key(one, key.toString()), key(two, key.toString()));
+  }
+
+  @Test
+  public void collisions_test() {
+    AsonStringCache cache = new AsonStringCache(1, 16);
+    assertEquals(1, cache.size());
+    List<String> values = new ArrayList<>();
+    StringBuilder json = new StringBuilder("[");
+    for (int i = 0; i < 100; i++) {
+      values.add("value" + (i % 7));
+      json.append(i > 0 ? "," : "").append("{\"key").append(i % 5).append("\":\"");
+      json.append(values.get(i)).append("\"}");
+    }
+    JSONArray array = new AsonArray<>(json.append(']').toString(), cache).toStockJson();
+    for (int i = 0; i < 100; i++) {
+      assertEquals(values.get(i), array.getJSONObject(i).get("key" + (i % 5)));
+    }
+    assertEquals(1024, new AsonStringCache(1000).size());
+  }
+
+  @Test
+  public void reader_test() throws IOException {
+    AsonStringCache cache = new AsonStringCache(64, 16);
+    AsonReader reader = new AsonReader(PEOPLE.getBytes("UTF-8"));
+    reader.setStringCache(cache);
+    assertSame(cache, reader.getStringCache());
+    List<String> names = new ArrayList<>();
+    List<String> statuses = new ArrayList<>();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      reader.beginObject();
+      while (reader.hasNext()) {
+        names.add(reader.nextName());
+        statuses.add(reader.nextString());
+      }
+      reader.endObject();
+    }
+    reader.endArray();
+    assertSame(names.get(0), names.get(3));
+    assertSame(names.get(1), names.get(4));
+    assertSame(statuses.get(1), statuses.get(4));
+
+    reader = new AsonReader(PEOPLE);
+    reader.setStringCache(null);
+    assertNull(reader.getStringCache());
+    reader.beginArray();
+    reader.beginObject();
+    String first = reader.nextName();
+    while (reader.hasNext()) {
+      reader.skipValue();
+      if (reader.hasNext()) {
+        reader.nextName();
+      }
+    }
+    reader.endObject();
+    reader.beginObject();
+    assertNotSame(first, reader.nextName());
+  }
+}
@@ -0,0 +1,226 @@
+package com.afollestad.ason;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import org.json.JSONException;
+import org.junit.Test;
+
+/** @author Aidan Follestad (afollestad) */
+public class AsonValidatorTest {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  /** Hands out a few bytes per read, so tokens straddle the validator's buffer refills. */
+  private static class SlowStream extends InputStream {
+
+    private final byte[] input;
+    private int position;
+
+    SlowStream(byte[] input) {
+      this.input = input;
+    }
+
+    @Override
+    public int read() {
+      return position < input.length ? input[position++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (position == input.length) {
+        return -1;
+      }
+      int count = Math.min(Math.min(len, 1 + position % 3), input.length - position);
+      System.arraycopy(input, position, b, off, count);
+      position += count;
+      return count;
+    }
+  }
+
+  private static boolean isValid(String json, AsonLimits limits) throws IOException {
+    boolean valid = Ason.isValid(json, limits);
+    byte[] bytes = json.getBytes(UTF_8);
+    assertEquals(json, valid, Ason.isValid(bytes, limits));
+    assertEquals(json, valid, Ason.isValid(new SlowStream(bytes), limits));
+    return valid;
+  }
+
+  private static boolean isValid(String json) throws IOException {
+    return isValid(json, AsonLimits.DEFAULT);
+  }
+
+  private static boolean parses(String json) {
+    char[] chars = json.toCharArray();
+    try {
+      AsonParser.parseValue(chars, 0, chars.length);
+      return true;
+    } catch (JSONException e) {
+      return false;
+    }
+  }
+
+  @Test
+  public void valid_documents_test() throws IOException {
+    String[] valid = {
+      "{}",
+      "[]",
+      " \t\r\n{ \"a\" : [ 1 , -0 , 0.5 , -1.5e+3 , 2E-2 , true , false , null ] } \n",
+      "{\"escaped\":\"\\\"\\\\\\/\\b\\f\\n\\r\\t\\u00e9\\uD83D\\uDE00\"}",
+      "{\"unicode\":\"h\u00e9llo \u2603 \ud83d\ude00\"}",
+      "[[[[{\"a\":[{}]}]]]]",
+      "\"just a string\"",
+      "42",
+      "null"
+    };
+    for (String json : valid) {
+      assertTrue(json, isValid(json));
+    }
+  }
+
+  @Test
+  public void invalid_documents_test() throws IOException {
+    String[] invalid = {
+      "",
+      "   ",
+      "{",
+      "[1,2",
+      "{\"a\"}",
+      "{\"a\":}",
+      "{\"a\":1,}",
+      "[1,]",
+      "[,1]",
+      "{\"a\":1 \"b\":2}",
+      "{'a':1}",
+      "{a:1}",
+      "{\"a\":01}",
+      "{\"a\":1.}",
+      "{\"a\":.5}",
+      "{\"a\":-}",
+      "{\"a\":1e}",
+      "{\"a\":1.2.3}",
+      "{\"a\":tru}",
+      "{\"a\":nul",
+      "{\"a\":\"\\x\"}",
+      "{\"a\":\"\\u12G4\"}",
+      "{\"a\":\"\\u12",
+      "{\"a\":\"line\nbreak\"}",
+      "{\"a\":\"unterminated}",
+      "{\"a\":1} trailing",
+      "{\"a\":1}}",
+      "[1]]",
+      "{\"a\":[1}",
+      "{\"a\":1]",
+      "1 2"
+    };
+    for (String json : invalid) {
+      assertFalse(json, isValid(json));
+      assertFalse(json, parses(json));
+    }
+  }
+
+  @Test
+  public void large_document_test() throws IOException {
+    // Several buffers long, with every kind of token crossing a refill somewhere.
+    String json = ParserPerfTest.buildDocument(200);
+    assertTrue(json.length() > 8192 * 4);
+    assertTrue(isValid(json));
+    assertFalse(isValid(json.substring(0, json.length() - 1)));
+    assertFalse(isValid(json.replace("\"name\":", "\"name\"")));
+  }
+
+  @Test
+  public void malformed_utf8_test() throws IOException {
+    byte[][] malformed = {
+      {'"', (byte) 0xC3, '"'},
+      {'"', (byte) 0x80, '"'},
+      {'"', (byte) 0xC0, (byte) 0xAF, '"'},
+      {'"', (byte) 0xE0, (byte) 0x80, (byte) 0xAF, '"'},
+      {'"', (byte) 0xED, (byte) 0xA0, (byte) 0x80, '"'},
+      {'"', (byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80, '"'},
+      {'"', (byte) 0xF0, (byte) 0x9F, (byte) 0x98}
+    };
+    for (byte[] json : malformed) {
+      assertFalse(Ason.isValid(json));
+      assertFalse(Ason.isValid(new SlowStream(json)));
+    }
+    try {
+      Ason.validate(new byte[] {'[', '"', 'a', (byte) 0xFF, '"', ']'});
+      fail();
+    } catch (InvalidJsonException e) {
+      assertEquals("Malformed UTF-8", e.getReason());
+      assertEquals(3, e.getOffset());
+      assertTrue(e.isByteOffset());
+    }
+  }
+
+  @Test
+  public void error_location_test() throws IOException {
+    String json = "{\n  \"a\": [1, 2,\n    3 4]\n}";
+    try {
+      Ason.validate(json);
+      fail();
+    } catch (InvalidJsonException e) {
+      assertEquals("a ',' or ']'", e.getExpected());
+      assertEquals(json.indexOf('4'), e.getOffset());
+      assertEquals(3, e.getLine());
+      assertEquals(7, e.getColumn());
+      assertTrue(e.getMessage(), e.getMessage().endsWith("\\n    3  >>> 4]\\n}\""));
+    }
+    try {
+      Ason.validate(new SlowStream(("{\"caf\u00e9\":" + json).getBytes(UTF_8)));
+      fail();
+    } catch (InvalidJsonException e) {
+      assertEquals(json.indexOf('4') + 9, e.getOffset());
+      assertEquals(3, e.getLine());
+      assertTrue(e.isByteOffset());
+    }
+  }
+
+  @Test
+  public void limits_test() throws IOException {
+    String json = "{\"a\":[1,2,3],\"b\":{\"c\":\"12345678\"}}";
+    assertTrue(isValid(json, AsonLimits.DEFAULT.withMaxDepth(2).withMaxArraySize(3)));
+    assertFalse(isValid(json, AsonLimits.DEFAULT.withMaxDepth(1)));
+    assertFalse(isValid(json, AsonLimits.DEFAULT.withMaxArraySize(2)));
+    assertFalse(isValid(json, AsonLimits.DEFAULT.withMaxObjectSize(1)));
+    assertFalse(isValid(json, AsonLimits.DEFAULT.withMaxStringLength(7)));
+    assertFalse(isValid(json, AsonLimits.DEFAULT.withMaxInputLength(json.length() - 1)));
+    assertTrue(isValid("[\"\u00e9\u00e9\"]", AsonLimits.DEFAULT.withMaxStringLength(2)));
+    try {
+      Ason.validate(json, AsonLimits.DEFAULT.withMaxArraySize(2));
+      fail();
+    } catch (AsonLimitException e) {
+      assertEquals("Array has more than 2 elements", e.getReason());
+      assertEquals(json.indexOf('3'), e.getOffset());
+    }
+    // Deep enough to overflow the stack of a recursive parser.
+    StringBuilder deep = new StringBuilder();
+    for (int i = 0; i < 100000; i++) {
+      deep.append('[');
+    }
+    assertFalse(Ason.isValid(deep.toString()));
+  }
+
+  @Test
+  public void stream_stops_early_test() throws IOException {
+    final int[] read = new int[1];
+    InputStream endless =
+        new InputStream() {
+          @Override
+          public int read() {
+            read[0]++;
+            return read[0] == 1 ? '[' : read[0] % 2 == 0 ? '1' : ',';
+          }
+        };
+    assertFalse(Ason.isValid(endless, AsonLimits.DEFAULT.withMaxInputLength(1 << 16)));
+    assertTrue(read[0] < 1 << 17);
+    assertFalse(Ason.isValid(new ByteArrayInputStream("{\"a\":1".getBytes(UTF_8))));
+  }
+}
@@ -0,0 +1,224 @@
+package com.afollestad.ason;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/** @author Aidan Follestad (afollestad) */
+public class AsonWriterTest {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final String DOCUMENT =
+      "{\"name\":\"Aidan\",\"_id\":3,\"height\":6.1,\"big\":9223372036854775807,"
+          + "\"exp\":1.5E30,\"whole\":2.0,\"married\":false,\"nothing\":null,"
+          + "\"escaped\":\"line\\nbreak \\\"quoted\\\" </tag> \\u2028\","
+          + "\"unicode\":\"h\u00e9llo \u2603 \ud83d\ude00\","
+          + "\"nested\":{\"array\":[1,2.5,\"three\",true,null,{},[]],\"empty\":\"\"}}";
+
+  @Test
+  public void same_as_to_string_test() throws IOException {
+    Ason ason = new Ason(DOCUMENT);
+    StringWriter out = new StringWriter();
+    AsonWriter writer = new AsonWriter(out);
+    ason.writeTo(writer);
+    writer.close();
+    assertEquals(ason.toString(), out.toString());
+
+    AsonArray<Object> array = new AsonArray<>("[1,{\"a\":[2,3]},\"x\",null]");
+    StringBuilder builder = new StringBuilder();
+    writer = new AsonWriter(builder);
+    array.writeTo(writer);
+    writer.close();
+    assertEquals(array.toString(), builder.toString());
+  }
+
+  @Test
+  public void tokens_test() throws IOException {
+    StringWriter out = new StringWriter();
+    AsonWriter writer = new AsonWriter(out);
+    writer
+        .beginObject()
+        .name("id")
+        .value(1)
+        .name("name")
+        .value("Aidan")
+        .name("height")
+        .value(6.1)
+        .name("whole")
+        .value(3d)
+        .name("married")
+        .value(false)
+        .name("nothing")
+        .nullValue()
+        .name("tags")
+        .beginArray()
+        .value("a")
+        .value((Number) 2L)
+        .beginObject()
+        .endObject()
+        .endArray()
+        .name("person")
+        .value(new Person(2, "Waverly", 1995))
+        .endObject()
+        .close();
+    Ason expected =
+        new Ason(
+            "{\"id\":1,\"name\":\"Aidan\",\"height\":6.1,\"whole\":3,\"married\":false,"
+                + "\"nothing\":null,\"tags\":[\"a\",2,{}]}");
+    expected.put("person", Ason.serialize(new Person(2, "Waverly", 1995)));
+    assertEquals(expected, new Ason(out.toString()));
+    assertTrue(
+        out.toString().startsWith("{\"id\":1,\"name\":\"Aidan\",\"height\":6.1,\"whole\":3,"));
+  }
+
+  @Test
+  public void pretty_print_test() throws IOException {
+    StringWriter out = new StringWriter();
+    AsonWriter writer = new AsonWriter(out);
+    writer.setIndent(2);
+    writer.value(new Ason("{\"a\":1,\"b\":[true,{\"c\":null}],\"d\":{},\"e\":[]}")).close();
+    assertEquals(
+        "{\n"
+            + "  \"a\": 1,\n"
+            + "  \"b\": [\n"
+            + "    true,\n"
+            + "    {\n"
+            + "      \"c\": null\n"
+            + "    }\n"
+            + "  ],\n"
+            + "  \"d\": {},\n"
+            + "  \"e\": []\n"
+            + "}",
+        out.toString());
+  }
+
+  @Test
+  public void output_stream_test() throws IOException {
+    List<Person> people = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      people.add(new Person(i, "Person \u00e9 " + i, 1950 + i % 60));
+    }
+    final int[] flushedEarly = new int[1];
+    ByteArrayOutputStream bytes =
+        new ByteArrayOutputStream() {
+          @Override
+          public synchronized void write(byte[] b, int off, int len) {
+            super.write(b, off, len);
+            flushedEarly[0] = size();
+          }
+        };
+    AsonWriter writer = new AsonWriter(bytes);
+    writer.beginArray();
+    for (Person person : people) {
+      writer.value(person);
+    }
+    // Most of the document went out while it was being written.
+    assertTrue(flushedEarly[0] > 100000);
+    writer.endArray();
+    writer.close();
+    assertArrayEquals(Ason.serializeList(people).toString().getBytes(UTF_8), bytes.toByteArray());
+  }
+
+  @Test
+  public void bytes_same_as_text_test() throws IOException {
+    Random random = new Random(23);
+    StringBuilder string = new StringBuilder();
+    char[] tricky = {'"', '\\', '/', '<', '\n', '\u0001', '\u0085', '\u00e9', '\u2028', '\u2603'};
+    for (int i = 0; i < 30000; i++) {
+      int kind = random.nextInt(10);
+      if (kind < 5) {
+        string.append((char) ('a' + random.nextInt(26)));
+      } else if (kind < 8) {
+        string.append(tricky[random.nextInt(tricky.length)]);
+      } else if (kind == 8) {
+        string.append("\ud83d\ude00");
+      } else {
+        // Unpaired surrogates
+        string.append(random.nextBoolean() ? '\ud83d' : '\ude00');
+      }
+    }
+    StringWriter text = new StringWriter();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    for (AsonWriter writer : new AsonWriter[] {new AsonWriter(text), new AsonWriter(bytes)}) {
+      writer
+          .beginObject()
+          .name(string.substring(0, 100))
+          .value(string.toString())
+          .name("numbers")
+          .beginArray()
+          .value(Long.MIN_VALUE)
+          .value(Long.MAX_VALUE)
+          .value(0)
+          .value(-42)
+          .value(1.5e-7)
+          .value((Number) 2.5f)
+          .endArray()
+          .endObject()
+          .close();
+    }
+    assertArrayEquals(text.toString().getBytes(UTF_8), bytes.toByteArray());
+  }
+
+  @Test
+  public void lists_and_arrays_test() throws IOException {
+    StringWriter out = new StringWriter();
+    new AsonWriter(out).value(Arrays.asList(1, 2, 3)).close();
+    assertEquals("[1,2,3]", out.toString());
+    out = new StringWriter();
+    new AsonWriter(out).value(new int[] {4, 5}).close();
+    assertEquals("[4,5]", out.toString());
+  }
+
+  @Test
+  public void misuse_test() throws IOException {
+    AsonWriter writer = new AsonWriter(new StringWriter());
+    writer.beginArray();
+    try {
+      writer.name("a");
+      fail();
+    } catch (IllegalStateException ignored) {
+    }
+    try {
+      writer.endObject();
+      fail();
+    } catch (IllegalStateException ignored) {
+    }
+    writer.endArray();
+    try {
+      writer.value(1);
+      fail();
+    } catch (IllegalStateException ignored) {
+    }
+
+    writer = new AsonWriter(new StringWriter());
+    writer.beginObject();
+    try {
+      writer.value(1);
+      fail();
+    } catch (IllegalStateException ignored) {
+    }
+    try {
+      writer.name("a").value(Double.NaN);
+      fail();
+    } catch (IllegalArgumentException ignored) {
+    }
+    try {
+      writer.close();
+      fail();
+    } catch (IOException e) {
+      assertEquals("Incomplete document", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,181 @@
+package com.afollestad.ason;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Random;
+import org.junit.Test;
+
+/** @author Aidan Follestad (afollestad) */
+public class DoubleDecoderTest {
+
+  private static final int CASES = 200000;
+
+  /** Checks the decoder and the parser against the JDK, returns true if the fast path was taken. */
+  private static boolean check(String text) {
+    char[] chars = text.toCharArray();
+    double expected = Double.parseDouble(text);
+    double decoded = DoubleDecoder.decode(chars, 0, chars.length);
+    if (!Double.isNaN(decoded)) {
+      assertEquals(text, Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(decoded));
+    }
+    Object parsed = AsonParser.parseNumber(chars, 0, chars.length);
+    if (!text.contains(".") && !text.toLowerCase().contains("e")) {
+      // Integers keep their own types, see integers_keep_their_types_test().
+      return !Double.isNaN(decoded);
+    } else if (Double.isInfinite(expected)) {
+      assertEquals(text, parsed);
+    } else {
+      assertEquals(text, expected, parsed);
+    }
+    return !Double.isNaN(decoded);
+  }
+
+  @Test
+  public void special_cases_test() {
+    String[] cases = {
+      "0.0",
+      "-0.0",
+      "0e10",
+      "-0E-10",
+      "1.0",
+      "-1.5",
+      "0.1",
+      "0.2",
+      "0.3",
+      "1e22",
+      "1e23",
+      "-1e-22",
+      "9007199254740992.0",
+      "9007199254740993.0",
+      "9007199254740994.0",
+      "9007199254740995.0",
+      "1.7976931348623157e308",
+      "1.7976931348623158e308",
+      "1.7976931348623159e308",
+      "1e308",
+      "1e309",
+      "-1e309",
+      "2.2250738585072014e-308",
+      "2.2250738585072011e-308",
+      "4.9e-324",
+      "2.4703282292062327e-324",
+      "2.4703282292062328e-324",
+      "1e-400",
+      "123456789012345678e-5",
+      "9999999999999999999",
+      "9999999999999999999.0",
+      "18446744073709551615.0",
+      "1.00000000000000011102230246251565404236316680908203125",
+      "1.00000000000000011102230246251565404236316680908203124",
+      "7.3177701707893310e+15",
+      "0.000000000000000000000000000000000000000000001",
+      "3.14159265358979323846264338327950288",
+      "1e-342",
+      "1e-343",
+      "1e99999",
+      "1e-99999",
+      "5e-324",
+      "2.5e-324",
+      "1.5e-323",
+      "0.5",
+      "4.35679719257798464e+18",
+      "1090544144181609348835077142190",
+      "2.0",
+      "1e0",
+      "1E+2",
+      "12.5e-1"
+    };
+    for (String text : cases) {
+      check(text);
+    }
+    // Clinger's fast path and Eisel-Lemire should cover the everyday cases.
+    assertTrue(check("0.1"));
+    assertTrue(check("123.456"));
+    assertTrue(check("1.7976931348623157e308"));
+    assertTrue(check("6.02214076e23"));
+    assertTrue(check("1.602176634e-19"));
+  }
+
+  @Test
+  public void shortest_round_trip_test() {
+    Random random = new Random(1);
+    int fast = 0;
+    for (int i = 0; i < CASES; i++) {
+      double d = Double.longBitsToDouble(random.nextLong());
+      if (Double.isNaN(d) || Double.isInfinite(d)) {
+        continue;
+      }
+      if (check(Double.toString(d))) {
+        fast++;
+      }
+    }
+    assertTrue("Only " + fast + " took the fast path", fast > CASES * 0.9);
+  }
+
+  @Test
+  public void random_digits_test() {
+    Random random = new Random(2);
+    for (int i = 0; i < CASES; i++) {
+      StringBuilder text = new StringBuilder();
+      if (random.nextBoolean()) {
+        text.append('-');
+      }
+      int length = 1 + random.nextInt(20);
+      int point = random.nextInt(length + 1);
+      for (int j = 0; j < length; j++) {
+        if (j == point && j > 0) {
+          text.append('.');
+        }
+        text.append((char) ('0' + random.nextInt(10)));
+      }
+      if (text.charAt(text.length() - 1) == '.') {
+        text.append('0');
+      }
+      if (random.nextBoolean()) {
+        text.append('e').append(random.nextInt(700) - 350);
+      }
+      String number = text.toString();
+      if (number.matches("-?0\\d.*")) {
+        continue;
+      }
+      check(number);
+    }
+  }
+
+  @Test
+  public void near_halfway_test() {
+    Random random = new Random(3);
+    MathContext[] precisions = {
+      new MathContext(17), new MathContext(18), new MathContext(19), new MathContext(25)
+    };
+    for (int i = 0; i < CASES / 4; i++) {
+      double d = Math.abs(Double.longBitsToDouble(random.nextLong()));
+      if (Double.isNaN(d) || Double.isInfinite(d) || d == Double.MAX_VALUE) {
+        continue;
+      }
+      BigDecimal halfway =
+          new BigDecimal(d).add(new BigDecimal(Math.nextUp(d))).divide(BigDecimal.valueOf(2));
+      for (MathContext precision : precisions) {
+        BigDecimal rounded = halfway.round(precision);
+        check(rounded.toString());
+        check(rounded.add(rounded.ulp()).toString());
+        check(rounded.subtract(rounded.ulp()).toString());
+      }
+    }
+  }
+
+  @Test
+  public void integers_keep_their_types_test() {
+    char[] chars = "2147483647".toCharArray();
+    assertEquals(Integer.MAX_VALUE, AsonParser.parseNumber(chars, 0, chars.length));
+    chars = "2147483648".toCharArray();
+    assertEquals(2147483648L, AsonParser.parseNumber(chars, 0, chars.length));
+    chars = "-0".toCharArray();
+    assertEquals(-0d, AsonParser.parseNumber(chars, 0, chars.length));
+    chars = "1.0".toCharArray();
+    assertEquals(1d, AsonParser.parseNumber(chars, 0, chars.length));
+  }
+}
@@ -0,0 +1,127 @@
+package com.afollestad.ason;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Map;
+import org.junit.Test;
+
+/** @author Aidan Follestad (afollestad) */
+public class ExtractTest {
+
+  private static final String INPUT =
+      "{\"data\":{\"items\":[{\"id\":1,\"name\":\"one\"},{\"id\":2,\"tags\":[\"x\",\"y\"]}],"
+          + "\"total\":2},\"meta\":{\"cursor\":\"abc\",\"$weird\":true,\"dotted.key\":3},"
+          + "\"n\\u0061me\":\"escaped\",\"nothing\":null,\"number\":5}";
+
+  @Test
+  public void matches_get_test() {
+    String[] paths = {
+      "data.items.$0.id",
+      "data.items.$1.tags.$1",
+      "data.total",
+      "meta.cursor",
+      "meta.$weird",
+      "meta.dotted\\.key",
+      "name",
+      "number",
+      "data.items.$1",
+      "meta"
+    };
+    Ason ason = new Ason(INPUT);
+    Map<String, Object> result = Ason.extract(INPUT, paths);
+    assertEquals(Arrays.asList(paths), Arrays.asList(result.keySet().toArray()));
+    for (String path : paths) {
+      Object expected = ason.get(path);
+      Object actual = result.get(path);
+      if (expected instanceof AsonArray) {
+        assertEquals(path, expected.toString(), actual.toString());
+      } else {
+        assertEquals(path, expected, actual);
+      }
+    }
+  }
+
+  @Test
+  public void nested_in_extracted_value_test() {
+    Map<String, Object> result = Ason.extract(INPUT, "data", "data.items.$1.id", "data.total");
+    assertEquals(2, result.get("data.items.$1.id"));
+    assertEquals(2, result.get("data.total"));
+    assertEquals(new Ason(INPUT).get("data"), result.get("data"));
+  }
+
+  @Test
+  public void missing_test() {
+    Map<String, Object> result =
+        Ason.extract(
+            INPUT, "missing", "data.missing.id", "data.items.$5.id", "data.$0", "number.x");
+    assertTrue(result.isEmpty());
+
+    result = Ason.extract(INPUT, "nothing");
+    assertTrue(result.containsKey("nothing"));
+    assertNull(result.get("nothing"));
+  }
+
+  @Test
+  public void stops_early_test() {
+    // Everything after the requested values is never read, so it doesn't even need to be valid.
+    String input = "{\"a\":{\"b\":1,\"c\":2},\"d\":[1,2,3], this isn't JSON";
+    Map<String, Object> result = Ason.extract(input, "a.c", "d");
+    assertEquals(2, result.get("a.c"));
+    assertEquals("[1,2,3]", result.get("d").toString());
+  }
+
+  @Test
+  public void reader_and_bytes_test() throws Exception {
+    Map<String, Object> result =
+        Ason.extract(new AsonReaderTest.TrickleReader(INPUT, 3), "meta.cursor", "name");
+    assertEquals("abc", result.get("meta.cursor"));
+    assertEquals("escaped", result.get("name"));
+
+    result = Ason.extract(new StringReader(INPUT), "number");
+    assertEquals(5, result.get("number"));
+
+    byte[] bytes = "{\"caf\u00e9\":{\"x\":\"\u2603\"}}".getBytes(Charset.forName("UTF-8"));
+    assertEquals("\u2603", Ason.extract(bytes, "caf\u00e9.x").get("caf\u00e9.x"));
+  }
+
+  @Test
+  public void duplicate_paths_test() {
+    Map<String, Object> result = Ason.extract(INPUT, "number", "number");
+    assertEquals(1, result.size());
+    assertEquals(5, result.get("number"));
+    assertFalse(Ason.extract("{}", "a").containsKey("a"));
+  }
+
+  @Test(expected = InvalidJsonException.class)
+  public void invalid_before_found_test() {
+    Ason.extract("{\"a\":[1,,2],\"b\":1}", "b");
+  }
+
+  @Test
+  public void malformed_skipped_number_test() {
+    String[] inputs = {
+      "{\"x\":1.2.3,\"y\":2}", "{\"x\":[01],\"y\":2}", "{\"x\":{\"z\":-},\"y\":2}"
+    };
+    for (String input : inputs) {
+      try {
+        Ason.extract(input, "y");
+        fail("Expected " + input + " to be rejected");
+      } catch (InvalidJsonException ignored) {
+      }
+    }
+    // Leading zeros are one of the things org.json accepts, so the constructor still does
+    assertEquals(2, new Ason(inputs[1]).getInt("y"));
+  }
+
+  @Test(expected = InvalidJsonException.class)
+  public void array_root_test() {
+    Ason.extract("[1]", "$0");
+  }
+}
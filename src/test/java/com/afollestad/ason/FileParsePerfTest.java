@@ -0,0 +1,127 @@
+package com.afollestad.ason;
+
+import static java.lang.System.out;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compares reading a large file into a String against memory mapping it, by wall time and peak heap
+ * usage. Run main() directly, optionally passing the number of people to generate; it is not part
+ * of the unit tests. Peak heap is most telling with a fixed heap, e.g. -Xms2g -Xmx2g.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+public class FileParsePerfTest {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private interface Load {
+
+    int run(Path file) throws IOException;
+  }
+
+  private static final Load STRING =
+      new Load() {
+        @Override
+        public int run(Path file) throws IOException {
+          String json = new String(Files.readAllBytes(file), UTF_8);
+          return new AsonArray(json).size();
+        }
+      };
+
+  private static final Load MAPPED =
+      new Load() {
+        @Override
+        public int run(Path file) throws IOException {
+          return AsonArray.fromFile(file).size();
+        }
+      };
+
+  private static final Load STREAMING =
+      new Load() {
+        @Override
+        public int run(Path file) throws IOException {
+          AsonReader reader = AsonReader.fromFile(file);
+          int count = 0;
+          reader.beginArray();
+          while (reader.hasNext()) {
+            reader.nextObject();
+            count++;
+          }
+          reader.endArray();
+          reader.close();
+          return count;
+        }
+      };
+
+  private static Path writeDocument(int people) throws IOException {
+    Path file = Files.createTempFile("ason-perf", ".json");
+    file.toFile().deleteOnExit();
+    String chunk = ParserPerfTest.buildDocument(1000);
+    // Repeats the same chunk so documents far bigger than the heap can be generated.
+    String items = chunk.substring(1, chunk.length() - 1);
+    Writer writer = Files.newBufferedWriter(file, UTF_8);
+    writer.write('[');
+    for (int i = 0; i < people / 1000; i++) {
+      if (i > 0) {
+        writer.write(',');
+      }
+      writer.write(items);
+    }
+    writer.write(']');
+    writer.close();
+    return file;
+  }
+
+  private static long peakHeap() {
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+    return peak;
+  }
+
+  private static void measure(String name, Load load, Path file) throws IOException {
+    System.gc();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      pool.resetPeakUsage();
+    }
+    long start = System.nanoTime();
+    int count = load.run(file);
+    long elapsed = System.nanoTime() - start;
+    out.println(
+        name
+            + " | "
+            + (elapsed / 1000000)
+            + "ms | "
+            + (peakHeap() / (1024 * 1024))
+            + "MB peak heap | "
+            + count
+            + " items");
+  }
+
+  public static void main(String[] args) throws IOException {
+    int people = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    Path file = writeDocument(people);
+    out.println("Benchmarking a " + (Files.size(file) / (1024 * 1024)) + "MB file, please wait...");
+    for (int i = 0; i < 2; i++) {
+      STRING.run(file);
+      MAPPED.run(file);
+      STREAMING.run(file);
+    }
+    out.println("Method | Wall time | Peak heap | Items:");
+    measure("String", STRING, file);
+    measure("fromFile", MAPPED, file);
+    measure("AsonReader.fromFile", STREAMING, file);
+    Files.delete(file);
+  }
+}
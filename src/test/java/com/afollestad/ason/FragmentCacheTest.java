@@ -0,0 +1,270 @@
+package com.afollestad.ason;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicReference;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/** @author Aidan Follestad (afollestad) */
+public class FragmentCacheTest {
+
+  private static final String DOCUMENT =
+      "{\"name\":\"Aidan\",\"owner\":{\"address\":{\"city\":\"Minneapolis\",\"zip\":55401},"
+          + "\"pets\":[{\"name\":\"Rex\"},{\"name\":\"Tom\"}]},"
+          + "\"clean\":{\"deep\":{\"deeper\":[1,2,3]},\"text\":\"h\u00e9llo </tag>\"}}";
+
+  /** Prints the same tree without any cache. */
+  private static String uncached(Ason ason) {
+    return new Ason(ason.toStockJson()).toString();
+  }
+
+  private static String uncached(AsonArray<?> array) {
+    return new AsonArray<>(array.toStockJson()).toString();
+  }
+
+  @Test
+  public void put_and_remove_test() {
+    Ason ason = new Ason(DOCUMENT).cacheFragments(true);
+    assertEquals(uncached(ason), ason.toString());
+
+    ason.put("name", "Waverly");
+    assertEquals(uncached(ason), ason.toString());
+    ason.put("owner.address.city", "Saint Paul");
+    assertEquals(uncached(ason), ason.toString());
+    ason.put("owner.pets.$1.name", "Felix");
+    assertEquals(uncached(ason), ason.toString());
+    ason.put("owner.pets.$2", new Ason().put("name", "Nemo"));
+    assertEquals(uncached(ason), ason.toString());
+    ason.put("created.on.the.way", true);
+    assertEquals(uncached(ason), ason.toString());
+    ason.remove("owner.address.zip");
+    assertEquals(uncached(ason), ason.toString());
+    ason.remove("owner.pets.$0");
+    assertEquals(uncached(ason), ason.toString());
+    ason.remove("created");
+    assertEquals(uncached(ason), ason.toString());
+    assertEquals(uncached(ason), ason.toString(0));
+    assertEquals(new Ason(ason.toStockJson()).toString(4), ason.toString(4));
+  }
+
+  @Test
+  public void clean_subtrees_reused_test() {
+    Ason ason = new Ason(DOCUMENT).cacheFragments(true);
+    String first = ason.toString();
+    assertSame(first, ason.toString());
+    String clean = ason.getJsonObject("clean").toString();
+    String address = ason.getJsonObject("owner.address").toString();
+
+    ason.put("owner.pets.$0.name", "Max");
+    String second = ason.toString();
+    assertNotSame(first, second);
+    assertEquals(uncached(ason), second);
+    assertSame(clean, ason.getJsonObject("clean").toString());
+    assertSame(address, ason.getJsonObject("owner.address").toString());
+
+    ason.cacheFragments(false);
+    assertNotSame(ason.toString(), ason.toString());
+  }
+
+  @Test
+  public void child_wrappers_test() {
+    Ason ason = new Ason(DOCUMENT).cacheFragments(true);
+    ason.toString();
+    ason.getJsonObject("owner").getJsonObject("address").put("city", "Duluth");
+    assertEquals(uncached(ason), ason.toString());
+    ason.getJsonObject("clean.deep").remove("deeper");
+    assertEquals(uncached(ason), ason.toString());
+
+    AsonArray<Ason> pets = ason.getJsonArray("owner.pets");
+    pets.add(new Ason().put("name", "Bubbles"));
+    assertEquals(uncached(ason), ason.toString());
+    pets.remove(0);
+    assertEquals(uncached(ason), ason.toString());
+    pets.getJsonObject(0).put("age", 3);
+    assertEquals(uncached(ason), ason.toString());
+    pets.get(1).put("age", 1);
+    assertEquals(uncached(ason), ason.toString());
+  }
+
+  @Test
+  public void wrappers_from_before_caching_test() {
+    Ason ason = new Ason("{\"a\":{\"b\":1},\"c\":[1,2]}");
+    Ason child = ason.getJsonObject("a");
+    AsonArray<Integer> array = ason.getJsonArray("c");
+    ason.cacheFragments(true);
+    ason.toString();
+    child.put("b", 2);
+    array.add(3);
+    assertEquals("{\"a\":{\"b\":2},\"c\":[1,2,3]}", ason.toString());
+
+    ason.cacheFragments(false);
+    ason.cacheFragments(true);
+    ason.toString();
+    child.remove("b");
+    array.remove(0);
+    assertEquals("{\"a\":{},\"c\":[2,3]}", ason.toString());
+  }
+
+  @Test
+  public void put_wrapper_test() {
+    Ason kid = new Ason().put("x", 1);
+    Ason grandkid = kid.put("g", new Ason()).getJsonObject("g");
+    Ason ason = new Ason().cacheFragments(true);
+    ason.put("k", kid);
+    ason.toString();
+    kid.put("x", 2);
+    assertEquals(2, ason.getInt("k.x"));
+    assertEquals(uncached(ason), ason.toString());
+    grandkid.put("y", 3);
+    assertEquals(uncached(ason), ason.toString());
+
+    AsonArray<Object> items = new AsonArray<>();
+    AsonArray<Object> array = new AsonArray<>().cacheFragments(true);
+    array.add(items);
+    array.toString();
+    items.add(1);
+    assertEquals("[[1]]", array.toString());
+  }
+
+  @Test
+  public void shared_between_documents_test() {
+    Ason shared = new Ason().put("value", 1);
+    Ason first = new Ason().cacheFragments(true).put("s", shared);
+    Ason second = new Ason().cacheFragments(true).put("t", shared);
+    first.toString();
+    second.toString();
+    first.getJsonObject("s").put("value", 2);
+    assertEquals("{\"s\":{\"value\":2}}", first.toString());
+    assertEquals("{\"t\":{\"value\":2}}", second.toString());
+    second.getJsonObject("t").put("value", 3);
+    assertEquals("{\"s\":{\"value\":3}}", first.toString());
+    assertEquals("{\"t\":{\"value\":3}}", second.toString());
+  }
+
+  @Test
+  public void threads_printing_test() throws Exception {
+    final Ason ason = new Ason(DOCUMENT).cacheFragments(true);
+    final String expected = uncached(ason);
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] =
+          new Thread() {
+            @Override
+            public void run() {
+              try {
+                for (int j = 0; j < 2000; j++) {
+                  assertEquals(expected, ason.toString());
+                  assertEquals(expected, new Ason(ason.toStockJson()).toString());
+                }
+              } catch (Throwable e) {
+                failure.set(e);
+              }
+            }
+          };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertNull(failure.get());
+  }
+
+  @Test
+  public void array_test() {
+    AsonArray<Object> array =
+        new AsonArray<>("[1,{\"a\":[2,3]},[{\"b\":4}],\"x\",null]").cacheFragments(true);
+    assertEquals(uncached(array), array.toString());
+    array.add(5);
+    assertEquals(uncached(array), array.toString());
+    array.getJsonObject(1).put("a.$2", 9);
+    assertEquals(uncached(array), array.toString());
+    array.<Ason>getJsonArray(2).getJsonObject(0).put("c", 5);
+    assertEquals(uncached(array), array.toString());
+    array.remove(0);
+    assertEquals(uncached(array), array.toString());
+  }
+
+  @Test
+  public void nested_twice_test() {
+    Ason ason = new Ason(DOCUMENT).cacheFragments(true);
+    JSONObject shared = new Ason().put("value", 1).toStockJson();
+    ason.put("first", shared);
+    ason.put("second.inner", shared);
+    ason.toString();
+    ason.getJsonObject("first").put("value", 2);
+    assertEquals(uncached(ason), ason.toString());
+  }
+
+  @Test
+  public void write_to_test() throws IOException {
+    Ason ason = new Ason(DOCUMENT).cacheFragments(true);
+    ason.toString();
+    ason.put("owner.address.zip", 55102);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ason.writeTo(Channels.newChannel(bytes));
+    assertEquals(uncached(ason), new String(bytes.toByteArray(), Charset.forName("UTF-8")));
+
+    StringWriter out = new StringWriter();
+    AsonWriter writer = new AsonWriter(out);
+    writer.beginArray();
+    ason.writeTo(writer);
+    ason.getJsonArray("owner.pets").writeTo(writer);
+    writer.endArray();
+    writer.close();
+    assertEquals(
+        "[" + uncached(ason) + "," + uncached(ason.getJsonArray("owner.pets")) + "]",
+        out.toString());
+
+    // Indented output isn't cached.
+    out = new StringWriter();
+    writer = new AsonWriter(out);
+    writer.setIndent(2);
+    ason.writeTo(writer);
+    writer.close();
+    StringWriter expected = new StringWriter();
+    writer = new AsonWriter(expected);
+    writer.setIndent(2);
+    new Ason(ason.toStockJson()).writeTo(writer);
+    writer.close();
+    assertEquals(expected.toString(), out.toString());
+  }
+
+  @Test
+  public void invalidate_test() {
+    FragmentCache cache = new FragmentCache();
+    JSONObject root = new JSONObject();
+    JSONObject child = new JSONObject();
+    JSONObject grandchild = new JSONObject();
+    JSONObject other = new JSONObject();
+    cache.link(child, root);
+    cache.link(grandchild, child);
+    cache.link(other, root);
+    cache.put(root, "root");
+    cache.put(child, "child");
+    cache.put(grandchild, "grandchild");
+    cache.put(other, "other");
+
+    cache.invalidate(grandchild);
+    assertNull(cache.get(grandchild));
+    assertNull(cache.get(child));
+    assertNull(cache.get(root));
+    assertEquals("other", cache.get(other));
+
+    // Once printed inside of two objects, a change to it drops everything.
+    cache.put(root, "root");
+    cache.link(other, child);
+    cache.invalidate(other);
+    assertNull(cache.get(root));
+  }
+}
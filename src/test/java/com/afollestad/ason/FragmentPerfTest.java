@@ -0,0 +1,59 @@
+package com.afollestad.ason;
+
+import static java.lang.System.out;
+
+/**
+ * Compares printing a large document after changing one value in it, with and without {@link
+ * Ason#cacheFragments(boolean)}. Run main() directly, it is not part of the unit tests.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+public class FragmentPerfTest {
+
+  private static final int ROUNDS = 200;
+
+  private static Ason document(int count) {
+    Ason ason = new Ason();
+    for (int i = 0; i < count; i++) {
+      ason.put(
+          "groups.group" + i / 100 + ".person" + i,
+          new Ason()
+              .put("_id", i)
+              .put("name", "Person " + i)
+              .put("address.city", "City " + i % 50)
+              .put("tags", "a", "b", "c")
+              .toStockJson());
+    }
+    return ason;
+  }
+
+  private static long time(Ason ason) {
+    long start = System.nanoTime();
+    int sum = 0;
+    for (int i = 0; i < ROUNDS; i++) {
+      ason.put(
+          "groups.group" + (i % 100) + ".person" + (i % 100) * 101 + ".address.city", "Moved " + i);
+      sum += ason.toString().length();
+    }
+    if (sum == 0) {
+      throw new IllegalStateException();
+    }
+    return (System.nanoTime() - start) / ROUNDS / 1000;
+  }
+
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+    Ason plain = document(count);
+    Ason cached = document(count).cacheFragments(true);
+    out.println("Benchmarking " + count + " people, please wait...");
+    for (int i = 0; i < 3; i++) {
+      time(plain);
+      time(cached);
+    }
+    long full = time(plain);
+    long incremental = time(cached);
+    out.println("Full | cached fragments (us per change and print):");
+    out.println(full + " | " + incremental);
+    out.println("Speedup: " + ((float) full / incremental) + "x");
+  }
+}
@@ -0,0 +1,177 @@
+package com.afollestad.ason;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/** @author Aidan Follestad (afollestad) */
+public class LazyAsonTest {
+
+  private static final String INPUT =
+      "{\"id\":1,\"name\":\"Aidan \\\"A\\\"\",\"big\":12345678901,\"ratio\":0.5,\"on\":true,"
+          + "\"none\":null,\"person\":{\"name\":\"Waverly\",\"age\":19,"
+          + "\"address\":{\"city\":\"Austin\"}},\"list\":[1,{\"a\":2},[3]],"
+          + "\"escaped\\u0021\":\"yes\",\"$dollar\":5}";
+
+  @Test
+  public void get_test() {
+    Ason lazy = Ason.lazy(INPUT);
+    Ason eager = new Ason(INPUT);
+    String[] keys = {
+      "id",
+      "name",
+      "big",
+      "ratio",
+      "on",
+      "none",
+      "missing",
+      "person.name",
+      "person.age",
+      "person.address.city",
+      "person.missing",
+      "missing.name",
+      "none.name",
+      "escaped!",
+      "$dollar",
+      "list.$1.a",
+      "list.$2.$0"
+    };
+    for (String key : keys) {
+      assertEquals(key, (Object) eager.get(key), lazy.get(key));
+    }
+    assertEquals(1, lazy.getInt("id"));
+    assertEquals(12345678901L, lazy.getLong("big"));
+    assertEquals("Aidan \"A\"", lazy.getString("name"));
+    assertTrue(lazy.getBool("on"));
+    assertTrue(lazy.isNull("none"));
+    assertFalse(lazy.has("missing"));
+    assertEquals(new AsonArray("[1,{\"a\":2},[3]]").toString(), lazy.get("list").toString());
+  }
+
+  @Test
+  public void escaped_dot_test() {
+    String input = "{\"x.y\":1,\"a\":{\"b.c\":2}}";
+    Ason lazy = Ason.lazy(input);
+    Ason eager = new Ason(input);
+    for (String key : new String[] {"x\\.y", "a.b\\.c", "x", "a.b"}) {
+      assertEquals(key, (Object) eager.get(key), lazy.get(key));
+    }
+    assertEquals(1, eager.getInt("x\\.y"));
+    assertTrue(eager.has("x\\.y"));
+    assertFalse(eager.remove("x\\.y").has("x\\.y"));
+  }
+
+  @Test
+  public void nested_object_test() {
+    Ason person = Ason.lazy(INPUT).getJsonObject("person");
+    assertEquals("Waverly", person.getString("name"));
+    assertEquals("Austin", person.getJsonObject("address").getString("city"));
+    assertEquals(new Ason(INPUT).getJsonObject("person"), person);
+  }
+
+  @Test
+  public void mutation_test() {
+    Ason lazy = Ason.lazy(INPUT);
+    Ason address = lazy.getJsonObject("person").getJsonObject("address");
+    address.put("zip", 78701);
+    assertEquals(78701, lazy.getInt("person.address.zip"));
+
+    lazy.put("id", 2).remove("name");
+    assertEquals(2, lazy.getInt("id"));
+    assertNull(lazy.get("name"));
+    assertEquals("Austin", address.getString("city"));
+  }
+
+  @Test
+  public void array_mutation_test() {
+    String input = "{\"arr\":[1,2],\"inner\":{\"arr\":[3]}}";
+    for (Ason ason : new Ason[] {Ason.lazy(input), new Ason(input)}) {
+      ason.getJsonArray("arr").add(3);
+      ason.getJsonObject("inner").<Integer>getJsonArray("arr").add(4);
+      assertEquals(new Ason("{\"arr\":[1,2,3],\"inner\":{\"arr\":[3,4]}}"), ason);
+    }
+  }
+
+  @Test
+  public void untouched_child_follows_document_test() {
+    Ason lazy = Ason.lazy(INPUT);
+    Ason person = lazy.getJsonObject("person");
+    lazy.put("person.age", 20);
+    assertEquals(20, person.getInt("age"));
+  }
+
+  @Test
+  public void equals_and_serialize_test() {
+    Ason lazy = Ason.lazy(INPUT);
+    assertEquals(new Ason(INPUT), lazy);
+    assertEquals(new Ason(INPUT).toString(), lazy.toString());
+    assertEquals(new Ason(INPUT).size(), Ason.lazy(INPUT).size());
+  }
+
+  @Test
+  public void deserialize_test() {
+    Person person =
+        Ason.lazy("{\"id\":3,\"name\":\"Aidan\",\"born\":1995,\"unused\":[1,2]}")
+            .deserialize(Person.class);
+    assertEquals(3, person.id);
+    assertEquals("Aidan", person.name);
+    assertEquals(1995, person.born);
+  }
+
+  @Test(expected = InvalidJsonException.class)
+  public void invalid_test() {
+    Ason.lazy("{\"a\":[1,2,}");
+  }
+
+  @Test(expected = InvalidJsonException.class)
+  public void invalid_escape_test() {
+    Ason.lazy("{\"a\":\"\\x\"}");
+  }
+
+  @Test(expected = InvalidJsonException.class)
+  public void duplicate_key_test() {
+    Ason lazy = Ason.lazy("{\"a\":1,\"a\":2}");
+    lazy.toString();
+  }
+
+  @Test
+  public void duplicate_key_found_while_indexing_test() {
+    StringBuilder wide = new StringBuilder("{");
+    for (int i = 0; i < 40; i++) {
+      wide.append("\"key").append(i).append("\":").append(i).append(',');
+    }
+    String[] inputs = {
+      "{\"a\":1,\"a\":2}",
+      "{\"a\":1,\"\\u0061\":2}",
+      "{\"a\":1,\"b\":{\"c\":1,\"c\":2}}",
+      "{\"a\":[{\"n\":\"\\n\",\"\\n\":1,\"n\":2}]}",
+      "{\"a\":{\"x\":1},\"b\":{\"x\":1}}",
+      wide + "\"last\":0}",
+      wide + "\"key17\":0}",
+      wide + "\"k\\u0065y39\":0}"
+    };
+    for (String input : inputs) {
+      String expected;
+      try {
+        new Ason(input);
+        expected = null;
+      } catch (InvalidJsonException e) {
+        expected = e.getMessage();
+      }
+      try {
+        Ason.lazy(input);
+        assertNull(input, expected);
+      } catch (InvalidJsonException e) {
+        assertEquals(input, expected, e.getMessage());
+      }
+    }
+  }
+
+  @Test(expected = InvalidPathException.class)
+  public void primitive_path_test() {
+    Ason.lazy(INPUT).get("id.value");
+  }
+}
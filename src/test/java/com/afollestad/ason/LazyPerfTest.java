@@ -0,0 +1,55 @@
+package com.afollestad.ason;
+
+import static java.lang.System.out;
+
+/**
+ * Compares reading a few paths out of a wide document with a lazy Ason against a fully parsed one.
+ * Run main() directly, it is not part of the unit tests.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+public class LazyPerfTest {
+
+  private static final int WARMUP_ROUNDS = 2000;
+  private static final int ROUNDS = 5000;
+
+  private static String buildDocument(int fields) {
+    Ason ason = new Ason();
+    for (int i = 0; i < fields; i++) {
+      ason.put("field" + i, "Some value for field number " + i);
+      ason.put("number" + i, i * 1.5d);
+    }
+    ason.put("a.b.c", 42);
+    ason.put("people", new AsonArray(ParserPerfTest.buildDocument(20)));
+    return ason.toString();
+  }
+
+  private static long time(String json, boolean lazy) {
+    long start = System.nanoTime();
+    int sum = 0;
+    for (int i = 0; i < ROUNDS; i++) {
+      Ason ason = lazy ? Ason.lazy(json) : new Ason(json);
+      sum += ason.getInt("a.b.c");
+      sum += ason.getString("field10").length();
+      sum += (int) ason.getDouble("number151");
+    }
+    if (sum == 0) {
+      throw new IllegalStateException();
+    }
+    return (System.nanoTime() - start) / ROUNDS;
+  }
+
+  public static void main(String[] args) {
+    String json = buildDocument(300);
+    out.println("Benchmarking a " + (json.length() / 1024) + "KB document, please wait...");
+    for (int i = 0; i < WARMUP_ROUNDS / ROUNDS + 1; i++) {
+      time(json, false);
+      time(json, true);
+    }
+    long eager = time(json, false);
+    long lazy = time(json, true);
+    out.println("Eager | Lazy (us per parse and 3 lookups):");
+    out.println((eager / 1000f) + " | " + (lazy / 1000f));
+    out.println("Speedup: " + ((float) eager / lazy) + "x");
+  }
+}
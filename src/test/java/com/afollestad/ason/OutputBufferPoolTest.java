@@ -0,0 +1,113 @@
+package com.afollestad.ason;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/** @author Aidan Follestad (afollestad) */
+public class OutputBufferPoolTest {
+
+  /** Takes whatever other tests left in the pool for the size. */
+  private static void empty(int size) {
+    for (int i = 0; i < 10; i++) {
+      OutputBufferPool.acquireBytes(size);
+      OutputBufferPool.acquireChars(size);
+    }
+  }
+
+  @Test
+  public void reuse_test() {
+    empty(4096);
+    empty(1024);
+    byte[] bytes = OutputBufferPool.acquireBytes(3000);
+    assertEquals(4096, bytes.length);
+    OutputBufferPool.release(bytes);
+    assertSame(bytes, OutputBufferPool.acquireBytes(2049));
+
+    StringBuilder chars = OutputBufferPool.acquireChars(600);
+    assertTrue(chars.capacity() >= 600);
+    chars.append("leftovers");
+    OutputBufferPool.release(chars);
+    StringBuilder again = OutputBufferPool.acquireChars(600);
+    assertSame(chars, again);
+    assertEquals(0, again.length());
+  }
+
+  @Test
+  public void cap_test() {
+    byte[] large = OutputBufferPool.acquireBytes(OutputBufferPool.MAX_POOLED_SIZE + 1);
+    assertEquals(OutputBufferPool.MAX_POOLED_SIZE + 1, large.length);
+    OutputBufferPool.release(large);
+    assertNotSame(large, OutputBufferPool.acquireBytes(OutputBufferPool.MAX_POOLED_SIZE + 1));
+
+    // Only a few buffers of each size are kept.
+    empty(1024);
+    List<byte[]> released = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      released.add(new byte[1024]);
+    }
+    for (byte[] bytes : released) {
+      OutputBufferPool.release(bytes);
+    }
+    int reused = 0;
+    for (int i = 0; i < 100; i++) {
+      byte[] bytes = OutputBufferPool.acquireBytes(1024);
+      for (byte[] candidate : released) {
+        if (candidate == bytes) {
+          reused++;
+        }
+      }
+    }
+    assertTrue(reused > 0 && reused < 10);
+  }
+
+  @Test
+  public void estimate_is_capped_test() {
+    AsonArray<String> huge = new AsonArray<>();
+    char[] chunk = new char[1000];
+    Arrays.fill(chunk, 'x');
+    for (int i = 0; i < 2000; i++) {
+      huge.add(new String(chunk));
+    }
+    assertTrue(huge.toString().length() > OutputBufferPool.MAX_POOLED_SIZE);
+    assertTrue(OutputBufferPool.estimate(AsonArray.class) <= OutputBufferPool.MAX_POOLED_SIZE);
+    assertEquals("[1]", new AsonArray<Integer>().add(1).toString());
+    StringBuilder next =
+        OutputBufferPool.acquireChars(OutputBufferPool.estimate(AsonArray.class));
+    assertTrue(next.capacity() <= OutputBufferPool.MAX_POOLED_SIZE);
+    OutputBufferPool.release(next);
+
+    StringBuilder unpooled = OutputBufferPool.acquireChars(OutputBufferPool.MAX_POOLED_SIZE * 4);
+    assertTrue(unpooled.capacity() <= OutputBufferPool.MAX_POOLED_SIZE);
+  }
+
+  @Test
+  public void estimate_test() throws Exception {
+    class Sized {}
+    assertEquals(OutputBufferPool.MIN_SIZE, OutputBufferPool.estimate(Sized.class));
+    OutputBufferPool.record(Sized.class, 10000);
+    assertEquals(10000, OutputBufferPool.estimate(Sized.class));
+    for (int i = 0; i < 50; i++) {
+      OutputBufferPool.record(Sized.class, 2000);
+    }
+    assertTrue(OutputBufferPool.estimate(Sized.class) < 2100);
+
+    // What's written comes out the same, however far off the estimate was.
+    List<Person> people = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      people.add(new Person(i, "Person " + i, 1990));
+      String expected = Ason.serializeList(people).toString();
+      assertEquals(expected, new String(Ason.toJsonBytes(people), "UTF-8"));
+      assertEquals(expected, Ason.serializeList(people).toString());
+      if (i == 100) {
+        people.clear();
+      }
+    }
+  }
+}
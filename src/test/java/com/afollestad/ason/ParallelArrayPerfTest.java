@@ -0,0 +1,105 @@
+package com.afollestad.ason;
+
+import static java.lang.System.out;
+
+import java.util.concurrent.ForkJoinPool;
+import org.json.JSONArray;
+
+/**
+ * Measures how parsing and binding a single large array scales with the number of threads, against
+ * org.json and the single threaded parser. Run main() directly, optionally passing the number of
+ * people to generate; it is not part of the unit tests.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+public class ParallelArrayPerfTest {
+
+  private static final int ROUNDS = 5;
+
+  private interface Parse {
+
+    void run(String json);
+  }
+
+  private static long time(Parse parse, String json) {
+    long start = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      parse.run(json);
+    }
+    return (System.nanoTime() - start) / ROUNDS / 1000000;
+  }
+
+  private static Parse parallel(final ForkJoinPool pool, final boolean bind) {
+    return new Parse() {
+      @Override
+      public void run(String json) {
+        if (bind) {
+          Ason.deserializeListParallel(json, Person.class, false, pool);
+        } else {
+          AsonArray.parseParallel(json, pool);
+        }
+      }
+    };
+  }
+
+  public static void main(String[] args) {
+    int people = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    int cores = Runtime.getRuntime().availableProcessors();
+    String json = ParserPerfTest.buildDocument(people);
+    out.println(
+        "Benchmarking a "
+            + (json.length() / (1024 * 1024))
+            + "MB array on "
+            + cores
+            + " cores, please wait...");
+
+    Parse orgJson =
+        new Parse() {
+          @Override
+          public void run(String json) {
+            new JSONArray(json);
+          }
+        };
+    Parse sequentialParse =
+        new Parse() {
+          @Override
+          public void run(String json) {
+            new AsonArray<>(json);
+          }
+        };
+    Parse sequentialBind =
+        new Parse() {
+          @Override
+          public void run(String json) {
+            Ason.deserializeList(json, Person.class);
+          }
+        };
+    ForkJoinPool all = new ForkJoinPool(cores);
+    for (int i = 0; i < 2; i++) {
+      time(orgJson, json);
+      time(sequentialParse, json);
+      time(sequentialBind, json);
+      time(parallel(all, false), json);
+      time(parallel(all, true), json);
+    }
+    all.shutdown();
+
+    out.println("Method | Parse (ms) | Bind to Person (ms):");
+    out.println("new JSONArray | " + time(orgJson, json) + " | -");
+    out.println(
+        "Single threaded | " + time(sequentialParse, json) + " | " + time(sequentialBind, json));
+    for (int threads = 1; threads <= cores; threads *= 2) {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      out.println(
+          threads
+              + " threads | "
+              + time(parallel(pool, false), json)
+              + " | "
+              + time(parallel(pool, true), json));
+      pool.shutdown();
+      if (threads < cores && threads * 2 > cores) {
+        threads = cores / 2;
+      }
+    }
+  }
+}
@@ -0,0 +1,158 @@
+package com.afollestad.ason;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+/** @author Aidan Follestad (afollestad) */
+public class ParallelArrayTest {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(4);
+
+  private static final String INPUT =
+      " [ {\"id\":1,\"name\":\"a, [b] {c}\"} , {\"id\":2,\"name\":\"\\\"],\\\\\"},"
+          + "{\"id\":3,\"name\":\"caf\u00e9 \u2603\",\"born\":[1,{\"x\":\",\"}]},"
+          + "null, {\"id\":4} ,{\"id\":5,\"props\":[\"[\",\"]\"]} ] \n";
+
+  @AfterClass
+  public static void shutdown() {
+    EXECUTOR.shutdown();
+  }
+
+  @Test
+  public void split_test() {
+    assertArrayEquals(new int[] {0, 1}, ParallelArray.split("[]", 1));
+    assertArrayEquals(new int[] {0, 2, 4, 6}, ParallelArray.split("[1,2,3]", 1));
+    assertArrayEquals(new int[] {0, 4, 6}, ParallelArray.split("[1,2,3]", 3));
+    assertArrayEquals(new int[] {1, 7, 13}, ParallelArray.split(" [[1,2],\"\\\",\"] ", 1));
+  }
+
+  @Test
+  public void parse_matches_sequential_test() {
+    String expected = new AsonArray<>(INPUT).toString();
+    for (int chunkSize = 1; chunkSize < INPUT.length(); chunkSize += 7) {
+      assertEquals(
+          expected,
+          new AsonArray<>(new ParallelArray(INPUT, chunkSize).parse(EXECUTOR)).toString());
+      byte[] bytes = INPUT.getBytes(UTF_8);
+      assertEquals(
+          expected,
+          new AsonArray<>(new ParallelArray(bytes, chunkSize).parse(EXECUTOR)).toString());
+    }
+    assertEquals(expected, AsonArray.parseParallel(INPUT).toString());
+    assertEquals(0, AsonArray.parseParallel("[ ]").size());
+  }
+
+  @Test
+  public void deserialize_list_test() {
+    String input = INPUT.replace("\"born\":[1,{\"x\":\",\"}]", "\"born\":7");
+    List<Person> expected = Ason.deserializeList(input, Person.class);
+    for (int chunkSize = 1; chunkSize < input.length(); chunkSize += 5) {
+      List<Person> actual =
+          new ParallelArray(input.getBytes(UTF_8), chunkSize)
+              .deserializeList(EXECUTOR, Person.class, false);
+      assertEquals(expected.size(), actual.size());
+      for (int i = 0; i < expected.size(); i++) {
+        assertEquals(
+            String.valueOf(Ason.serialize(expected.get(i))),
+            String.valueOf(Ason.serialize(actual.get(i))));
+      }
+    }
+    String people = ParserPerfTest.buildDocument(2000);
+    List<Person> parallel = Ason.deserializeListParallel(people, Person.class, false, EXECUTOR);
+    assertEquals(2000, parallel.size());
+    assertTrue(new ParallelArray(people, ParallelArray.CHUNK_SIZE).chunks() > 1);
+    assertEquals(1999, parallel.get(1999).id);
+  }
+
+  private static void assertInvalid(String json) {
+    for (int chunkSize = 1; chunkSize <= json.length(); chunkSize++) {
+      try {
+        new ParallelArray(json, chunkSize).parse(EXECUTOR);
+        throw new AssertionError(json + " was accepted with chunks of " + chunkSize);
+      } catch (InvalidJsonException expected) {
+      }
+    }
+  }
+
+  @Test
+  public void error_location_test() {
+    StringBuilder sb = new StringBuilder("[\n");
+    for (int i = 0; i < 3000; i++) {
+      sb.append("  {\"id\":").append(i).append(",\"name\":\"caf\u00e9 \ud83d\ude00\"},\n");
+    }
+    String json = sb.append("  {\"id\":tru}\n]").toString();
+    byte[] bytes = json.getBytes(UTF_8);
+    InvalidJsonException sequential = null;
+    try {
+      Ason.deserializeList(bytes, Person.class);
+    } catch (InvalidJsonException e) {
+      sequential = e;
+    }
+    assertEquals(3002, sequential.getLine());
+
+    List<InvalidJsonException> errors = new ArrayList<>();
+    try {
+      new ParallelArray(json, 1024).parse(EXECUTOR);
+    } catch (InvalidJsonException e) {
+      errors.add(e);
+    }
+    try {
+      new ParallelArray(bytes, 1024).deserializeList(EXECUTOR, Person.class, false);
+    } catch (InvalidJsonException e) {
+      errors.add(e);
+    }
+    assertEquals(2, errors.size());
+    for (InvalidJsonException e : errors) {
+      assertEquals(sequential.getOffset(), e.getOffset());
+      assertEquals(sequential.getLine(), e.getLine());
+      assertEquals(sequential.getColumn(), e.getColumn());
+      assertEquals(
+          sequential.getExcerpt().substring(sequential.getExcerptOffset()),
+          e.getExcerpt().substring(e.getExcerptOffset()));
+    }
+  }
+
+  @Test
+  public void split_error_location_test() {
+    String[] inputs = {"\n {}", "[1,\n2] x", "[1,\n\"2]", "[1,\n2}"};
+    long[][] expected = {{2, 2, 2}, {7, 2, 4}, {7, 2, 4}, {5, 2, 2}};
+    for (int i = 0; i < inputs.length; i++) {
+      try {
+        ParallelArray.split(inputs[i], 1);
+        throw new AssertionError(inputs[i] + " was accepted");
+      } catch (InvalidJsonException e) {
+        assertEquals(inputs[i], expected[i][0], e.getOffset());
+        assertEquals(inputs[i], expected[i][1], e.getLine());
+        assertEquals(inputs[i], expected[i][2], e.getColumn());
+        assertTrue(e.getMessage(), e.getExcerpt() != null);
+      }
+    }
+  }
+
+  @Test
+  public void invalid_test() {
+    assertInvalid("");
+    assertInvalid("{}");
+    assertInvalid("[1,2");
+    assertInvalid("[1,2}");
+    assertInvalid("[1,2] x");
+    assertInvalid("[1,,2]");
+    assertInvalid("[1,2,]");
+    assertInvalid("[1, ]");
+    assertInvalid("[,1]");
+    assertInvalid("[[1},2]");
+    assertInvalid("[{\"a\":1],2]");
+    assertInvalid("[\"abc]");
+    assertInvalid("[1 2]");
+  }
+}
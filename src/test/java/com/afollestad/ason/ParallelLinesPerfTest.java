@@ -0,0 +1,107 @@
+package com.afollestad.ason;
+
+import static java.lang.System.out;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures how JSON Lines ingestion scales with the number of threads, from a single threaded
+ * AsonLinesReader up to one thread per core. Run main() directly, optionally passing the number of
+ * lines to generate; it is not part of the unit tests.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+public class ParallelLinesPerfTest {
+
+  private static int count;
+
+  private static Path writeLines(int lines) throws IOException {
+    StringWriter chunk = new StringWriter();
+    AsonLinesWriter writer = new AsonLinesWriter(chunk);
+    for (Person person : Ason.deserializeList(ParserPerfTest.buildDocument(1000), Person.class)) {
+      writer.write(person);
+    }
+    Path file = Files.createTempFile("ason-perf", ".jsonl");
+    file.toFile().deleteOnExit();
+    // Repeats the same chunk so files far bigger than the heap can be generated.
+    byte[] bytes = chunk.toString().getBytes(Charset.forName("UTF-8"));
+    OutputStream stream = Files.newOutputStream(file);
+    for (int i = 0; i < lines / 1000; i++) {
+      stream.write(bytes);
+    }
+    stream.close();
+    return file;
+  }
+
+  private static long sequential(Path file) throws IOException {
+    long start = System.nanoTime();
+    AsonLinesReader<Person> reader = AsonLinesReader.fromFile(file, Person.class);
+    count = 0;
+    while (reader.hasNext()) {
+      reader.next();
+      count++;
+    }
+    reader.close();
+    return System.nanoTime() - start;
+  }
+
+  private static long parallel(Path file, int threads) throws IOException {
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    long start = System.nanoTime();
+    count = 0;
+    AsonLinesReader.readParallel(
+        file,
+        Person.class,
+        false,
+        pool,
+        new AsonLinesReader.Callback<Person>() {
+          @Override
+          public void onValue(Person value) {
+            count++;
+          }
+        });
+    long elapsed = System.nanoTime() - start;
+    pool.shutdown();
+    return elapsed;
+  }
+
+  public static void main(String[] args) throws IOException {
+    int lines = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+    int cores = Runtime.getRuntime().availableProcessors();
+    Path file = writeLines(lines);
+    out.println(
+        "Reading a "
+            + (Files.size(file) / (1024 * 1024))
+            + "MB file on "
+            + cores
+            + " cores, please wait...");
+    for (int i = 0; i < 2; i++) {
+      sequential(file);
+      parallel(file, cores);
+    }
+    long baseline = sequential(file);
+    out.println("Threads | Wall time | Speedup | Lines:");
+    out.println("AsonLinesReader | " + (baseline / 1000000) + "ms | 1.00x | " + count);
+    for (int threads = 1; threads <= cores; threads *= 2) {
+      long elapsed = parallel(file, threads);
+      out.println(
+          threads
+              + " | "
+              + (elapsed / 1000000)
+              + "ms | "
+              + String.format("%.2f", (double) baseline / elapsed)
+              + "x | "
+              + count);
+      if (threads < cores && threads * 2 > cores) {
+        threads = cores / 2;
+      }
+    }
+    Files.delete(file);
+  }
+}
@@ -0,0 +1,58 @@
+package com.afollestad.ason;
+
+import static java.lang.System.out;
+
+import org.json.JSONArray;
+
+/**
+ * Compares Ason's own parser against org.json's JSONTokener on the same input. Run main() directly,
+ * it is not part of the unit tests.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+public class ParserPerfTest {
+
+  private static final int WARMUP_ROUNDS = 5;
+  private static final int ROUNDS = 20;
+
+  static String buildDocument(int people) {
+    AsonArray<Person> array = new AsonArray<>();
+    for (int i = 0; i < people; i++) {
+      Person person = new Person(i, "Person Number " + i, 1950 + (i % 60));
+      person.relationshipList.add(new Relationship(i + 1, "Friend \"" + i + "\"", "friend"));
+      person.relationshipList.add(new Relationship(i + 2, "Parent of " + i, "parent"));
+      array.add(person);
+    }
+    return array.toString();
+  }
+
+  private static long timeOrgJson(String json) {
+    long start = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      new JSONArray(json);
+    }
+    return (System.nanoTime() - start) / ROUNDS;
+  }
+
+  private static long timeAson(String json) {
+    long start = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      AsonParser.parseArray(json);
+    }
+    return (System.nanoTime() - start) / ROUNDS;
+  }
+
+  public static void main(String[] args) {
+    String json = buildDocument(20000);
+    out.println("Benchmarking a " + (json.length() / 1024) + "KB document, please wait...");
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      timeOrgJson(json);
+      timeAson(json);
+    }
+    long orgJson = timeOrgJson(json);
+    long ason = timeAson(json);
+    out.println("org.json | Ason (ms per parse):");
+    out.println((orgJson / 1000000f) + " | " + (ason / 1000000f));
+    out.println("Speedup: " + ((float) orgJson / ason) + "x");
+  }
+}
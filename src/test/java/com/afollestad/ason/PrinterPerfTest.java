@@ -0,0 +1,67 @@
+package com.afollestad.ason;
+
+import static java.lang.System.out;
+
+import java.util.Random;
+import org.json.JSONArray;
+
+/**
+ * Measures printing a double heavy array and a document of people, with org.json's toString()
+ * against the printer behind Ason's toString(). Run main() directly, optionally passing the number
+ * of doubles to generate; it is not part of the unit tests.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+public class PrinterPerfTest {
+
+  private static final int ROUNDS = 10;
+
+  private interface Print {
+
+    String run(JSONArray json);
+  }
+
+  private static long time(Print print, JSONArray json) {
+    long start = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      print.run(json);
+    }
+    return (System.nanoTime() - start) / ROUNDS / 1000000;
+  }
+
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    Random random = new Random(1);
+    JSONArray doubles = new JSONArray();
+    for (int i = 0; i < count; i++) {
+      doubles.put(random.nextDouble() * Math.pow(10, random.nextInt(20) - 10));
+    }
+    JSONArray people = new JSONArray(ParserPerfTest.buildDocument(count / 10));
+    out.println("Benchmarking " + count + " doubles, please wait...");
+
+    Print orgJson =
+        new Print() {
+          @Override
+          public String run(JSONArray json) {
+            return json.toString();
+          }
+        };
+    Print printer =
+        new Print() {
+          @Override
+          public String run(JSONArray json) {
+            return AsonPrinter.print(json, 0);
+          }
+        };
+    for (int i = 0; i < 3; i++) {
+      time(orgJson, doubles);
+      time(printer, doubles);
+      time(orgJson, people);
+      time(printer, people);
+    }
+
+    out.println("Method | Doubles (ms) | People (ms):");
+    out.println("JSONArray.toString() | " + time(orgJson, doubles) + " | " + time(orgJson, people));
+    out.println("AsonPrinter | " + time(printer, doubles) + " | " + time(printer, people));
+  }
+}
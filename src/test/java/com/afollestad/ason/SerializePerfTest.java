@@ -0,0 +1,104 @@
+package com.afollestad.ason;
+
+import static java.lang.System.out;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares serializing a list of people to UTF-8 with {@link Ason#toJsonBytes(Object)} against
+ * building the tree and printing it. Run main() directly, it is not part of the unit tests.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+public class SerializePerfTest {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final int ROUNDS = 20;
+
+  private static int run(List<Person> people, boolean tree) {
+    if (tree) {
+      return Ason.serializeList(people).toString().getBytes(UTF_8).length;
+    }
+    return Ason.toJsonBytes(people).length;
+  }
+
+  private static long time(List<Person> people, boolean tree) {
+    long start = System.nanoTime();
+    int sum = 0;
+    for (int i = 0; i < ROUNDS; i++) {
+      sum += run(people, tree);
+    }
+    if (sum == 0) {
+      throw new IllegalStateException();
+    }
+    return (System.nanoTime() - start) / ROUNDS / 1000000;
+  }
+
+  /** Bytes allocated by this thread, or -1 if the JVM can't tell. */
+  private static long allocated() {
+    Object threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) threads)
+          .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+    List<Person> people = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      Person person = new Person(i, "Person " + i, 1950 + i % 60);
+      person.relationshipList.add(new Relationship(i + 1, "Friend " + i, "Friend"));
+      people.add(person);
+    }
+    out.println("Benchmarking " + count + " people, please wait...");
+    for (int i = 0; i < 3; i++) {
+      time(people, true);
+      time(people, false);
+    }
+    long tree = time(people, true);
+    long direct = time(people, false);
+    out.println("Tree | toJsonBytes (ms per list):");
+    out.println(tree + " | " + direct);
+    out.println("Speedup: " + ((float) tree / direct) + "x");
+
+    AsonArray<Person> built = Ason.serializeList(people);
+    long before = allocated();
+    for (int i = 0; i < ROUNDS; i++) {
+      run(people, true);
+    }
+    out.println("Tree bytes allocated per list: " + (allocated() - before) / ROUNDS);
+    before = allocated();
+    for (int i = 0; i < ROUNDS; i++) {
+      run(people, false);
+    }
+    out.println("toJsonBytes bytes allocated per list: " + (allocated() - before) / ROUNDS);
+    before = allocated();
+    for (int i = 0; i < ROUNDS; i++) {
+      built.toString();
+    }
+    out.println("toString() of the tree, bytes allocated: " + (allocated() - before) / ROUNDS);
+
+    // Small documents are where recycled buffers make the most difference.
+    Person one = people.get(0);
+    Ason small = Ason.serialize(one);
+    for (int i = 0; i < 20000; i++) {
+      Ason.toJsonBytes(one);
+      small.toString();
+    }
+    before = allocated();
+    for (int i = 0; i < 10000; i++) {
+      Ason.toJsonBytes(one);
+    }
+    out.println("toJsonBytes of one person, bytes allocated: " + (allocated() - before) / 10000);
+    before = allocated();
+    for (int i = 0; i < 10000; i++) {
+      small.toString();
+    }
+    out.println("toString() of one person, bytes allocated: " + (allocated() - before) / 10000);
+  }
+}
@@ -0,0 +1,83 @@
+package com.afollestad.ason;
+
+import static java.lang.System.out;
+
+import java.util.Random;
+import org.json.JSONArray;
+
+/**
+ * Measures the heap a parsed document retains, and how long parsing takes, without a string cache,
+ * with the default cache for keys and with a cache for keys and short values. The document is an
+ * array of objects that all repeat the same 20 keys and a handful of enum-like values. Run main()
+ * directly, optionally passing the number of objects; it is not part of the unit tests.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+public class StringCachePerfTest {
+
+  private static final int ROUNDS = 10;
+  private static final String[] STATUSES = {"ACTIVE", "INACTIVE", "PENDING", "BANNED"};
+  private static final String[] COUNTRIES = {"US", "CA", "GB", "DE", "FR", "JP"};
+
+  static String buildDocument(int count) {
+    Random random = new Random(1);
+    StringBuilder json = new StringBuilder("[");
+    for (int i = 0; i < count; i++) {
+      json.append(i > 0 ? "," : "").append('{');
+      for (int k = 0; k < 20; k++) {
+        json.append(k > 0 ? "," : "").append("\"field_").append(k).append("\":");
+        if (k % 4 == 0) {
+          json.append('"').append(STATUSES[random.nextInt(STATUSES.length)]).append('"');
+        } else if (k % 4 == 1) {
+          json.append('"').append(COUNTRIES[random.nextInt(COUNTRIES.length)]).append('"');
+        } else {
+          json.append(random.nextInt(100000));
+        }
+      }
+      json.append('}');
+    }
+    return json.append(']').toString();
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 4; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static void measure(String label, String json, AsonStringCache cache) {
+    for (int i = 0; i < ROUNDS; i++) {
+      AsonParser.parseArray(json, cache);
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      AsonParser.parseArray(json, cache);
+    }
+    long millis = (System.nanoTime() - start) / ROUNDS / 1000000;
+
+    long before = usedHeap();
+    JSONArray retained = AsonParser.parseArray(json, cache);
+    long after = usedHeap();
+    out.println(
+        label
+            + " | "
+            + millis
+            + " | "
+            + (after - before) / (1024 * 1024)
+            + " ("
+            + retained.length()
+            + " objects)");
+  }
+
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+    String json = buildDocument(count);
+    out.println("Benchmarking " + (json.length() / (1024 * 1024)) + "MB of JSON, please wait...");
+    out.println("Cache | Parse (ms) | Retained heap (MB)");
+    measure("None", json, null);
+    measure("Keys (default)", json, AsonStringCache.KEYS);
+    measure("Keys and values up to 16 chars", json, new AsonStringCache(1024, 16));
+  }
+}
@@ -0,0 +1,70 @@
+package com.afollestad.ason;
+
+import static java.lang.System.out;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+
+/**
+ * Compares checking a document with {@link Ason#isValid(String)} against parsing it. Run main()
+ * directly, it is not part of the unit tests.
+ *
+ * @author Aidan Follestad (afollestad)
+ */
+public class ValidatorPerfTest {
+
+  private static final int WARMUP_ROUNDS = 2000;
+  private static final int ROUNDS = 5000;
+
+  private static long time(String json, byte[] bytes, int mode) {
+    long start = System.nanoTime();
+    int sum = 0;
+    for (int i = 0; i < ROUNDS; i++) {
+      if (mode == 0) {
+        sum += new AsonArray<>(json).size();
+      } else if (mode == 1) {
+        sum += Ason.isValid(json) ? 1 : 0;
+      } else {
+        sum += Ason.isValid(bytes) ? 1 : 0;
+      }
+    }
+    if (sum == 0) {
+      throw new IllegalStateException();
+    }
+    return (System.nanoTime() - start) / ROUNDS;
+  }
+
+  /** Bytes allocated by this thread, or -1 if the JVM can't tell. */
+  private static long allocated() {
+    Object threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) threads)
+          .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+
+  public static void main(String[] args) {
+    String json = ParserPerfTest.buildDocument(1000);
+    byte[] bytes = json.getBytes(Charset.forName("UTF-8"));
+    out.println("Benchmarking a " + (json.length() / 1024) + "KB document, please wait...");
+    for (int i = 0; i < WARMUP_ROUNDS / ROUNDS + 1; i++) {
+      time(json, bytes, 0);
+      time(json, bytes, 1);
+      time(json, bytes, 2);
+    }
+    long parse = time(json, bytes, 0);
+    long string = time(json, bytes, 1);
+    long utf8 = time(json, bytes, 2);
+    out.println("Parse | isValid(String) | isValid(byte[]) (us per document):");
+    out.println((parse / 1000f) + " | " + (string / 1000f) + " | " + (utf8 / 1000f));
+    out.println("Speedup: " + ((float) parse / string) + "x | " + ((float) parse / utf8) + "x");
+
+    long before = allocated();
+    for (int i = 0; i < ROUNDS; i++) {
+      Ason.isValid(json);
+      Ason.isValid(bytes);
+    }
+    out.println("Bytes allocated per check: " + (allocated() - before) / (ROUNDS * 2));
+  }
+}